@@ -19,11 +19,15 @@
 package org.enginehub.linbus.format.snbt;
 
 import org.enginehub.linbus.common.IOFunction;
+import org.enginehub.linbus.format.snbt.impl.LinSnbtSink;
 import org.enginehub.linbus.format.snbt.impl.LinSnbtWriter;
 import org.enginehub.linbus.format.snbt.impl.reader.LinSnbtReader;
 import org.enginehub.linbus.format.snbt.impl.reader.LinSnbtTokenizer;
+import org.enginehub.linbus.stream.LinPattern;
 import org.enginehub.linbus.stream.LinStream;
 import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -105,6 +109,17 @@ public static <R> R readFromStringUsing(String input, IOFunction<? super LinStre
         }
     }
 
+    /**
+     * Compile a pattern from a string, e.g. {@code {Inventory:[{id:"minecraft:diamond"}]}}.
+     *
+     * @param input the pattern to compile
+     * @return the compiled pattern
+     * @see LinPattern
+     */
+    public static LinPattern compilePattern(String input) {
+        return readFromStringUsing(input, LinPattern::compile);
+    }
+
     /**
      * Write a stream of NBT tokens to a {@link Appendable}.
      *
@@ -120,6 +135,27 @@ public static void write(Appendable output, LinStreamable tokens) throws IOExcep
         new LinSnbtWriter().write(output, tokens.linStream());
     }
 
+    /**
+     * Create a sink that writes tokens pushed to it to a {@link Appendable}, e.g. as one of the outputs of a
+     * {@linkplain org.enginehub.linbus.stream.LinTee tee}.
+     *
+     * <p>
+     * SNBT has no syntax for the name of the root, so a leading name is dropped, which lets the sink take the same
+     * tokens as {@link org.enginehub.linbus.stream.LinBinaryIO#writer(java.io.DataOutput)}.
+     * {@link LinTokenSink#finish()} checks that the root value was complete.
+     * </p>
+     *
+     * <p>
+     * The output will not be closed by the sink. The caller is responsible for managing the lifetime of the output.
+     * </p>
+     *
+     * @param output the output to write to
+     * @return the sink
+     */
+    public static LinTokenSink<@Nullable Void> writer(Appendable output) {
+        return new LinSnbtSink(output);
+    }
+
     /**
      * Write a stream of NBT tokens to a string.
      *
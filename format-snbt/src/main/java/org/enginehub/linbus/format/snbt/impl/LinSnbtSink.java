@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.format.snbt.impl;
+
+import org.enginehub.linbus.format.snbt.LinStringIO;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Implementation of {@link LinStringIO#writer(Appendable)}.
+ */
+public final class LinSnbtSink implements LinTokenSink<@Nullable Void> {
+    private final Appendable output;
+    private final LinSnbtWriter writer = new LinSnbtWriter();
+    private boolean started;
+
+    /**
+     * Create a new sink.
+     *
+     * @param output the output to write to
+     */
+    public LinSnbtSink(Appendable output) {
+        this.output = output;
+    }
+
+    @Override
+    public void accept(LinToken token) throws IOException {
+        if (!started) {
+            started = true;
+            // SNBT has no syntax for the name of the root, so it is dropped
+            if (token instanceof LinToken.Name) {
+                return;
+            }
+        }
+        writer.write(output, token);
+    }
+
+    @Override
+    public @Nullable Void finish() {
+        if (!writer.isComplete()) {
+            throw new NbtWriteException("Tokens ended before the end of the root value");
+        }
+        return null;
+    }
+}
@@ -31,14 +31,19 @@
 import java.nio.LongBuffer;
 import java.util.ArrayDeque;
 import java.util.Optional;
-import java.util.OptionalInt;
 
 /**
  * Implementation of {@link LinStringIO#write(Appendable, LinStreamable)}.
  */
 public class LinSnbtWriter {
     private sealed interface WriteState permits WriteState.List, WriteState.Compound, WriteState.WritingArray {
-        record List(int remainingValues) implements WriteState {
+        enum List implements WriteState {
+            DEFAULT,
+            /**
+             * Indicates that an element was just finished, so when a new element starts, a comma should be emitted
+             * first.
+             */
+            HAS_PREVIOUS_ELEMENT,
         }
 
         enum Compound implements WriteState {
@@ -56,6 +61,7 @@ enum WritingArray implements WriteState {
     }
 
     private final ArrayDeque<WriteState> stateStack = new ArrayDeque<>();
+    private boolean complete;
 
     /**
      * Construct a new writer.
@@ -71,164 +77,197 @@ public LinSnbtWriter() {
      * @throws IOException if an I/O error occurs
      */
     public void write(Appendable output, LinStream tokens) throws IOException {
-        while (true) {
-            var state = stateStack.peekLast();
-            LinToken token = tokens.nextOrNull();
-            if (token == null) {
-                break;
-            }
-            switch (token) {
-                case LinToken.Name(String name, Optional<LinTagId> _) -> {
-                    if (!(state instanceof WriteState.Compound)) {
-                        throw new NbtWriteException("Names can only appear inside compounds");
-                    }
-                    if (state == WriteState.Compound.HAS_PREVIOUS_ENTRY) {
-                        output.append(',');
-                        // Kill the previous flag
-                        stateStack.removeLast();
-                        stateStack.addLast(WriteState.Compound.DEFAULT);
-                    }
-                    output.append(Elusion.escapeIfNeeded(name)).append(':');
+        LinToken token;
+        while ((token = tokens.nextOrNull()) != null) {
+            write(output, token);
+        }
+    }
+
+    /**
+     * Write a token to the output.
+     *
+     * @param output the output
+     * @param token the token
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Appendable output, LinToken token) throws IOException {
+        var state = stateStack.peekLast();
+        switch (token) {
+            case LinToken.Name(String name, Optional<LinTagId> _) -> {
+                if (!(state instanceof WriteState.Compound)) {
+                    throw new NbtWriteException("Names can only appear inside compounds");
+                }
+                if (state == WriteState.Compound.HAS_PREVIOUS_ENTRY) {
+                    output.append(',');
+                    // Kill the previous flag
+                    stateStack.removeLast();
+                    stateStack.addLast(WriteState.Compound.DEFAULT);
                 }
-                case LinToken.ByteArrayStart _ -> output.append("[B;");
-                case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
-                    if (state instanceof WriteState.WritingArray) {
+                output.append(Elusion.escapeIfNeeded(name)).append(':');
+            }
+            case LinToken.ByteArrayStart _ -> {
+                handleValueStart(output);
+                output.append("[B;");
+            }
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
+                if (state instanceof WriteState.WritingArray) {
+                    output.append(',');
+                } else {
+                    stateStack.addLast(WriteState.WritingArray.INSTANCE);
+                }
+                while (buffer.hasRemaining()) {
+                    output.append(String.valueOf(buffer.get())).append('B');
+                    if (buffer.hasRemaining()) {
                         output.append(',');
-                    } else {
-                        stateStack.addLast(WriteState.WritingArray.INSTANCE);
-                    }
-                    while (buffer.hasRemaining()) {
-                        output.append(String.valueOf(buffer.get())).append('B');
-                        if (buffer.hasRemaining()) {
-                            output.append(',');
-                        }
                     }
                 }
-                case LinToken.ByteArrayEnd _ -> {
-                    if (state instanceof WriteState.WritingArray) {
-                        stateStack.removeLast();
-                    }
-                    output.append(']');
-
-                    handleValueEnd(output);
+            }
+            case LinToken.ByteArrayEnd _ -> {
+                if (state instanceof WriteState.WritingArray) {
+                    stateStack.removeLast();
                 }
-                case LinToken.Byte(byte value) -> {
-                    output.append(String.valueOf(value)).append('B');
+                output.append(']');
 
-                    handleValueEnd(output);
-                }
-                case LinToken.CompoundStart _ -> {
-                    output.append('{');
+                handleValueEnd(output);
+            }
+            case LinToken.Byte(byte value) -> {
+                handleValueStart(output);
+                output.append(String.valueOf(value)).append('B');
 
-                    stateStack.addLast(WriteState.Compound.DEFAULT);
-                }
-                case LinToken.CompoundEnd _ -> {
-                    output.append('}');
+                handleValueEnd(output);
+            }
+            case LinToken.CompoundStart _ -> {
+                handleValueStart(output);
+                output.append('{');
 
-                    stateStack.removeLast();
-                    handleValueEnd(output);
-                }
-                case LinToken.Double(double value) -> {
-                    output.append(String.valueOf(value)).append('D');
+                stateStack.addLast(WriteState.Compound.DEFAULT);
+            }
+            case LinToken.CompoundEnd _ -> {
+                output.append('}');
 
-                    handleValueEnd(output);
-                }
-                case LinToken.Float(float value) -> {
-                    output.append(String.valueOf(value)).append('F');
+                stateStack.removeLast();
+                handleValueEnd(output);
+            }
+            case LinToken.Double(double value) -> {
+                handleValueStart(output);
+                output.append(String.valueOf(value)).append('D');
 
-                    handleValueEnd(output);
+                handleValueEnd(output);
+            }
+            case LinToken.Float(float value) -> {
+                handleValueStart(output);
+                output.append(String.valueOf(value)).append('F');
+
+                handleValueEnd(output);
+            }
+            case LinToken.IntArrayStart _ -> {
+                handleValueStart(output);
+                output.append("[I;");
+            }
+            case LinToken.IntArrayContent(IntBuffer buffer) -> {
+                if (state instanceof WriteState.WritingArray) {
+                    output.append(',');
+                } else {
+                    stateStack.addLast(WriteState.WritingArray.INSTANCE);
                 }
-                case LinToken.IntArrayStart _ -> output.append("[I;");
-                case LinToken.IntArrayContent(IntBuffer buffer) -> {
-                    if (state instanceof WriteState.WritingArray) {
+                while (buffer.hasRemaining()) {
+                    output.append(String.valueOf(buffer.get()));
+                    if (buffer.hasRemaining()) {
                         output.append(',');
-                    } else {
-                        stateStack.addLast(WriteState.WritingArray.INSTANCE);
-                    }
-                    while (buffer.hasRemaining()) {
-                        output.append(String.valueOf(buffer.get()));
-                        if (buffer.hasRemaining()) {
-                            output.append(',');
-                        }
                     }
                 }
-                case LinToken.IntArrayEnd _ -> {
-                    if (state instanceof WriteState.WritingArray) {
-                        stateStack.removeLast();
-                    }
-                    output.append(']');
-
-                    handleValueEnd(output);
+            }
+            case LinToken.IntArrayEnd _ -> {
+                if (state instanceof WriteState.WritingArray) {
+                    stateStack.removeLast();
                 }
-                case LinToken.Int(int value) -> {
-                    output.append(String.valueOf(value));
+                output.append(']');
 
-                    handleValueEnd(output);
-                }
-                case LinToken.ListStart(OptionalInt size, Optional<LinTagId> _) -> {
-                    output.append('[');
+                handleValueEnd(output);
+            }
+            case LinToken.Int(int value) -> {
+                handleValueStart(output);
+                output.append(String.valueOf(value));
 
-                    stateStack.addLast(new WriteState.List(size.orElseThrow()));
-                }
-                case LinToken.ListEnd _ -> {
-                    output.append(']');
+                handleValueEnd(output);
+            }
+            case LinToken.ListStart _ -> {
+                handleValueStart(output);
+                output.append('[');
 
-                    stateStack.removeLast();
-                    handleValueEnd(output);
+                stateStack.addLast(WriteState.List.DEFAULT);
+            }
+            case LinToken.ListEnd _ -> {
+                output.append(']');
+
+                stateStack.removeLast();
+                handleValueEnd(output);
+            }
+            case LinToken.LongArrayStart _ -> {
+                handleValueStart(output);
+                output.append("[L;");
+            }
+            case LinToken.LongArrayContent(LongBuffer buffer) -> {
+                if (state instanceof WriteState.WritingArray) {
+                    output.append(',');
+                } else {
+                    stateStack.addLast(WriteState.WritingArray.INSTANCE);
                 }
-                case LinToken.LongArrayStart _ -> output.append("[L;");
-                case LinToken.LongArrayContent(LongBuffer buffer) -> {
-                    if (state instanceof WriteState.WritingArray) {
+                while (buffer.hasRemaining()) {
+                    output.append(String.valueOf(buffer.get())).append('L');
+                    if (buffer.hasRemaining()) {
                         output.append(',');
-                    } else {
-                        stateStack.addLast(WriteState.WritingArray.INSTANCE);
-                    }
-                    while (buffer.hasRemaining()) {
-                        output.append(String.valueOf(buffer.get())).append('L');
-                        if (buffer.hasRemaining()) {
-                            output.append(',');
-                        }
                     }
                 }
-                case LinToken.LongArrayEnd _ -> {
-                    if (state instanceof WriteState.WritingArray) {
-                        stateStack.removeLast();
-                    }
-                    output.append(']');
-
-                    handleValueEnd(output);
+            }
+            case LinToken.LongArrayEnd _ -> {
+                if (state instanceof WriteState.WritingArray) {
+                    stateStack.removeLast();
                 }
-                case LinToken.Long(long value) -> {
-                    output.append(String.valueOf(value)).append('L');
+                output.append(']');
 
-                    handleValueEnd(output);
-                }
-                case LinToken.Short(short value) -> {
-                    output.append(String.valueOf(value)).append('S');
+                handleValueEnd(output);
+            }
+            case LinToken.Long(long value) -> {
+                handleValueStart(output);
+                output.append(String.valueOf(value)).append('L');
 
-                    handleValueEnd(output);
-                }
-                case LinToken.String(String value) -> {
-                    output.append(Elusion.escapeIfNeeded(value));
+                handleValueEnd(output);
+            }
+            case LinToken.Short(short value) -> {
+                handleValueStart(output);
+                output.append(String.valueOf(value)).append('S');
 
-                    handleValueEnd(output);
-                }
-                default -> throw new NbtWriteException("Unknown token: " + token);
+                handleValueEnd(output);
             }
+            case LinToken.String(String value) -> {
+                handleValueStart(output);
+                output.append(Elusion.escapeIfNeeded(value));
+
+                handleValueEnd(output);
+            }
+            default -> throw new NbtWriteException("Unknown token: " + token);
+        }
+    }
+
+    /**
+     * {@return whether a complete root value has been written}
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void handleValueStart(Appendable output) throws IOException {
+        if (stateStack.peekLast() == WriteState.List.HAS_PREVIOUS_ELEMENT) {
+            output.append(',');
         }
     }
 
     private void handleValueEnd(Appendable output) throws IOException {
         var state = stateStack.pollLast();
         switch (state) {
-            case null -> {
-            }
-            case WriteState.List(int remainingValues) -> {
-                stateStack.addLast(new WriteState.List(remainingValues - 1));
-                if (remainingValues - 1 > 0) {
-                    output.append(',');
-                }
-            }
+            case null -> complete = true;
+            case WriteState.List _ -> stateStack.addLast(WriteState.List.HAS_PREVIOUS_ELEMENT);
             case WriteState.Compound _ -> stateStack.addLast(WriteState.Compound.HAS_PREVIOUS_ENTRY);
             default -> throw new NbtWriteException("Unexpected state: " + state);
         }
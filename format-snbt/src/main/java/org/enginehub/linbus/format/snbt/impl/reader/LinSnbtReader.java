@@ -18,7 +18,7 @@
 
 package org.enginehub.linbus.format.snbt.impl.reader;
 
-import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.PeekableLinStream;
 import org.enginehub.linbus.stream.exception.NbtParseException;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
@@ -40,7 +40,7 @@
 /**
  * Reads a stream of tokens from a {@link DataInput}.
  */
-public class LinSnbtReader implements LinStream {
+public class LinSnbtReader implements PeekableLinStream {
 
     private sealed interface State permits
         State.InCompound, State.CompoundEntryName, State.InList, State.InByteArray, State.InIntArray,
@@ -176,20 +176,29 @@ private NbtParseException unexpectedTokenSpecificError(SnbtToken token, String e
     }
 
     @Override
-    public @Nullable LinToken nextOrNull() {
-        var token = tokenQueue.pollFirst();
+    public @Nullable LinToken peekOrNull() {
+        var token = tokenQueue.peekFirst();
         while (token == null) {
             State state = stateStack.peekLast();
             if (state == null) {
                 return null;
             }
             fillTokenStack(state);
-            token = tokenQueue.pollFirst();
+            token = tokenQueue.peekFirst();
         }
 
         return token;
     }
 
+    @Override
+    public @Nullable LinToken nextOrNull() {
+        var token = peekOrNull();
+        if (token != null) {
+            tokenQueue.removeFirst();
+        }
+        return token;
+    }
+
     private void fillTokenStack(State state) {
         switch (state) {
             case State.ReadValue readValue -> readValue(readValue);
@@ -20,14 +20,19 @@
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Resources;
+import com.google.common.io.ByteStreams;
 import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinDigest;
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.LinTee;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.function.Function;
 import java.util.zip.GZIPInputStream;
 
@@ -75,4 +80,38 @@ void bigTestThroughSnbt() throws IOException {
     void allTypesThroughSnbt() throws IOException {
         assertThroughSnbt("all-types.nbt.gz");
     }
+
+    @Test
+    void teeToBinaryDigestAndSnbt() throws IOException {
+        byte[] bytes = loadResource("all-types.nbt.gz", InputStream::readAllBytes);
+        LinStreamable source = () -> LinBinaryIO.read(ByteStreams.newDataInput(bytes));
+        var binary = ByteStreams.newDataOutput();
+        var snbt = new StringBuilder();
+
+        var results = LinTee.broadcastInParallel(
+            source, List.of(LinBinaryIO.writer(binary), LinDigest.sink(), LinStringIO.writer(snbt))
+        );
+
+        assertThat(binary.toByteArray()).isEqualTo(bytes);
+        assertThat(results.get(1)).isEqualTo(LinDigest.of(source));
+        // The root name is dropped, as SNBT has no syntax for it
+        assertThat(snbt.toString()).isEqualTo(convertNbtStream("all-types.nbt.gz", LinStringIO::writeToString));
+    }
+
+    @Test
+    void teeFromSnbtWithoutListSizes() throws IOException {
+        String text = convertNbtStream("all-types.nbt.gz", LinStringIO::writeToString);
+        // Lists read from SNBT do not know their size up front
+        LinStreamable source = () -> LinStringIO.readFromString(text);
+        var first = new StringBuilder();
+        var second = new StringBuilder();
+
+        var results = LinTee.broadcast(
+            source, List.of(LinStringIO.writer(first), LinDigest.sink(), LinStringIO.writer(second))
+        );
+
+        assertThat(first.toString()).isEqualTo(text);
+        assertThat(second.toString()).isEqualTo(text);
+        assertThat(results.get(1)).isEqualTo(LinDigest.of(source));
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.format.snbt;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinPattern;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LinStringIOPatternTest {
+    private static LinStream binary(String snbt) throws IOException {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.Name("root", LinTagId.COMPOUND));
+        LinStringIO.readFromString(snbt).asIterator().forEachRemaining(tokens::add);
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, LinStream.of(tokens.toArray(LinToken[]::new)));
+        return LinBinaryIO.read(ByteStreams.newDataInput(output.toByteArray()));
+    }
+
+    // Check against both SNBT and binary input, as only binary input has types in names
+    private static boolean matches(String pattern, String candidate) throws IOException {
+        LinPattern compiled = LinStringIO.compilePattern(pattern);
+        boolean result = compiled.matches(LinStringIO.readFromString(candidate));
+        if (candidate.startsWith("{")) {
+            assertThat(compiled.matches(binary(candidate))).isEqualTo(result);
+        }
+        return result;
+    }
+
+    @Test
+    void matchesPartialCompounds() throws IOException {
+        assertThat(matches("{}", "{a:1}")).isTrue();
+        assertThat(matches("{a:1}", "{a:1,b:2}")).isTrue();
+        assertThat(matches("{a:1,b:2}", "{b:2,c:3,a:1}")).isTrue();
+        assertThat(matches("{a:1,b:2}", "{a:1}")).isFalse();
+        assertThat(matches("{a:1}", "{a:2}")).isFalse();
+        assertThat(matches("{a:{b:{c:\"x\"}}}", "{a:{z:0,b:{c:\"x\",d:1}}}")).isTrue();
+        assertThat(matches("{a:{b:{c:\"x\"}}}", "{a:{b:{c:\"y\"}}}")).isFalse();
+        assertThat(matches("{a:{}}", "{a:[1]}")).isFalse();
+    }
+
+    @Test
+    void requiresExactTypes() throws IOException {
+        assertThat(matches("{a:1b}", "{a:1b}")).isTrue();
+        assertThat(matches("{a:1b}", "{a:1}")).isFalse();
+        assertThat(matches("{a:1}", "{a:1L}")).isFalse();
+        assertThat(matches("{a:1.5f}", "{a:1.5d}")).isFalse();
+        assertThat(matches("{a:\"1\"}", "{a:1}")).isFalse();
+        assertThat(matches("{a:[1]}", "{a:[I;1]}")).isFalse();
+        assertThat(matches("{a:[I;1]}", "{a:[L;1L]}")).isFalse();
+        assertThat(matches("{a:[I;1]}", "{a:1}")).isFalse();
+    }
+
+    @Test
+    void matchesListElementsInAnyOrder() throws IOException {
+        assertThat(matches("{l:[1,3]}", "{l:[3,2,1]}")).isTrue();
+        assertThat(matches("{l:[1,1]}", "{l:[1]}")).isTrue();
+        assertThat(matches("{l:[1,4]}", "{l:[3,2,1]}")).isFalse();
+        assertThat(matches("{l:[1b]}", "{l:[1,2]}")).isFalse();
+        assertThat(matches("{l:[[2]]}", "{l:[[1],[3,2]]}")).isTrue();
+    }
+
+    @Test
+    void matchesInventories() throws IOException {
+        String inventory = """
+            {Inventory:[
+                {Slot:0b,id:"minecraft:stone",Count:64b},
+                {Slot:1b,id:"minecraft:diamond",Count:3b,tag:{Damage:0,Enchantments:[{id:"unbreaking",lvl:3s}]}}
+            ],Health:20.0f}""";
+        assertThat(matches("{Inventory:[{id:\"minecraft:diamond\"}]}", inventory)).isTrue();
+        assertThat(matches("{Inventory:[{id:\"minecraft:diamond\",Count:3b}]}", inventory)).isTrue();
+        assertThat(matches("{Inventory:[{id:\"minecraft:diamond\",Count:64b}]}", inventory)).isFalse();
+        assertThat(matches("{Inventory:[{id:\"minecraft:stone\"},{Count:3b}],Health:20.0f}", inventory)).isTrue();
+        assertThat(matches("{Inventory:[{id:\"minecraft:stone\"},{id:\"minecraft:dirt\"}]}", inventory)).isFalse();
+        // Both pattern elements match the same element
+        assertThat(matches("{Inventory:[{Slot:1b},{Count:3b}]}", inventory)).isTrue();
+        assertThat(matches(
+            "{Inventory:[{tag:{Enchantments:[{lvl:3s}]}},{Slot:0b}]}", inventory
+        )).isTrue();
+        assertThat(matches("{Inventory:[{tag:{Damage:1}},{Slot:0b}]}", inventory)).isFalse();
+    }
+
+    @Test
+    void matchesArraysExactly() throws IOException {
+        assertThat(matches("{a:[B;1b,2b]}", "{a:[B;1b,2b]}")).isTrue();
+        assertThat(matches("{a:[I;1,2]}", "{a:[I;1,2]}")).isTrue();
+        assertThat(matches("{a:[L;1L,2L]}", "{a:[L;1L,2L]}")).isTrue();
+        assertThat(matches("{a:[I;1,2]}", "{a:[I;1,3]}")).isFalse();
+        assertThat(matches("{a:[I;1,2]}", "{a:[I;1]}")).isFalse();
+        assertThat(matches("{a:[I;1]}", "{a:[I;1,2]}")).isFalse();
+        // Arrays in list elements that are checked against more than one pattern element
+        assertThat(matches("{l:[{a:[L;5L]},{b:1}]}", "{l:[{a:[L;4L]},{a:[L;5L],b:1}]}")).isTrue();
+        assertThat(matches("{l:[{a:[B;5b]},{b:1}]}", "{l:[{a:[B;4b],b:1}]}")).isFalse();
+        assertThat(matches("{l:[{a:[I;5]},{b:1}]}", "{l:[{a:[I;5]},{b:1}]}")).isTrue();
+    }
+}
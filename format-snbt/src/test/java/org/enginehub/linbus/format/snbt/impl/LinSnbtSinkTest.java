@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.format.snbt.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinSnbtSinkTest {
+    @Test
+    void writesTokensWithoutRootName() throws IOException {
+        var output = new StringBuilder();
+        var sink = new LinSnbtSink(output);
+        sink.accept(new LinToken.CompoundStart());
+        sink.accept(new LinToken.Name("foo", LinTagId.STRING));
+        sink.accept(new LinToken.String("bar"));
+        sink.accept(new LinToken.CompoundEnd());
+        assertThat(sink.finish()).isNull();
+        assertThat(output.toString()).isEqualTo("{foo:bar}");
+    }
+
+    @Test
+    void dropsRootName() throws IOException {
+        var output = new StringBuilder();
+        var sink = new LinSnbtSink(output);
+        sink.accept(new LinToken.Name("root", LinTagId.COMPOUND));
+        sink.accept(new LinToken.CompoundStart());
+        sink.accept(new LinToken.CompoundEnd());
+        sink.finish();
+        assertThat(output.toString()).isEqualTo("{}");
+    }
+
+    @Test
+    void rejectsIncompleteRoot() throws IOException {
+        var sink = new LinSnbtSink(new StringBuilder());
+        var ex = assertThrows(NbtWriteException.class, sink::finish);
+        assertThat(ex).hasMessageThat().isEqualTo("Tokens ended before the end of the root value");
+
+        sink.accept(new LinToken.CompoundStart());
+        ex = assertThrows(NbtWriteException.class, sink::finish);
+        assertThat(ex).hasMessageThat().isEqualTo("Tokens ended before the end of the root value");
+    }
+}
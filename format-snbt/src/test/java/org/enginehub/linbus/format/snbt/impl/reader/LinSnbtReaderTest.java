@@ -74,6 +74,21 @@ void invalidCharacterAfterSimpleValue() throws IOException {
         assertThat(ex).hasMessageThat().isEqualTo(atCharacterIndex(3) + "Unexpected token: ';'");
     }
 
+    @Test
+    void peekDoesNotConsume() throws IOException {
+        var reader = ezStringRead("{a:1b}");
+        assertThat(reader.peekable()).isSameInstanceAs(reader);
+        assertThat(reader.peekOrNull()).isEqualTo(new LinToken.CompoundStart());
+        assertThat(reader.nextOrNull()).isEqualTo(new LinToken.CompoundStart());
+        assertThat(reader.peekOrNull()).isEqualTo(new LinToken.Name("a"));
+        assertThat(reader.peekOrNull()).isEqualTo(new LinToken.Name("a"));
+        assertThat(reader.nextOrNull()).isEqualTo(new LinToken.Name("a"));
+        assertThat(reader.nextOrNull()).isEqualTo(new LinToken.Byte((byte) 1));
+        assertThat(reader.nextOrNull()).isEqualTo(new LinToken.CompoundEnd());
+        assertThat(reader.peekOrNull()).isNull();
+        assertThat(reader.nextOrNull()).isNull();
+    }
+
     @Test
     void emptyRootCompound() {
         var list = ImmutableList.copyOf(ezStringRead("{}").asIterator());
@@ -27,6 +27,7 @@
 import javafx.scene.control.TreeTableView;
 import org.enginehub.linbus.stream.LinBinaryIO;
 import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.PipelinedInputStream;
 import org.enginehub.linbus.tree.LinCompoundTag;
 import org.enginehub.linbus.tree.LinListTag;
 import org.enginehub.linbus.tree.LinRootEntry;
@@ -100,7 +101,9 @@ private static TreeTableColumn<TagEntry, TagEntry> createValueColumn() {
 
     public static TreeItem<TagEntry> loadTreeItem(Path file, LinReadOptions options) throws IOException {
         LinRootEntry root;
-        try (var dataInput = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+        try (var dataInput = new DataInputStream(
+            new PipelinedInputStream(new GZIPInputStream(Files.newInputStream(file)))
+        )) {
             root = LinBinaryIO.readUsing(dataInput, options, LinRootEntry::readFrom);
         }
         assert root != null;
@@ -113,7 +116,7 @@ public static void saveTreeItem(Path file, TreeItem<TagEntry> root) throws IOExc
         }
         LinRootEntry rootEntry = new LinRootEntry(root.getValue().name(), (LinCompoundTag) root.getValue().tag());
         try (var dataOutput = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
-            LinBinaryIO.write(dataOutput, rootEntry);
+            rootEntry.writeTo(dataOutput);
         }
     }
 
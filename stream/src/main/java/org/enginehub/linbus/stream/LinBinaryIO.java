@@ -19,9 +19,10 @@
 package org.enginehub.linbus.stream;
 
 import org.enginehub.linbus.common.IOFunction;
-import org.enginehub.linbus.common.LinTagId;
-import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.impl.LinNbtDocumentReader;
+import org.enginehub.linbus.stream.impl.LinNbtPushParser;
 import org.enginehub.linbus.stream.impl.LinNbtReader;
+import org.enginehub.linbus.stream.impl.LinNbtWriter;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
@@ -29,11 +30,6 @@
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.LongBuffer;
-import java.util.Optional;
-import java.util.OptionalInt;
 
 /**
  * Reads and writes NBT streams.
@@ -60,6 +56,11 @@ public static LinStream read(DataInput input) {
      * The input will not be closed by the iterator. The caller is responsible for managing the lifetime of the input.
      * </p>
      *
+     * <p>
+     * For compressed input, wrapping the decompressing stream in a {@link PipelinedInputStream} lets decompression run
+     * on another thread while the tokens are read.
+     * </p>
+     *
      * @param input the input to read from
      * @param options the options for reading
      * @return the stream of NBT tokens
@@ -68,6 +69,37 @@ public static LinStream read(DataInput input, LinReadOptions options) {
         return new LinNbtReader(input, options);
     }
 
+    /**
+     * Read several NBT documents that follow each other in a {@link DataInput}, until it ends.
+     *
+     * <p>
+     * The input must signal its end with an {@link java.io.EOFException}, as {@link java.io.DataInputStream} does. The
+     * input will not be closed by the stream. The caller is responsible for managing the lifetime of the input.
+     * </p>
+     *
+     * @param input the input to read from
+     * @return the stream of documents
+     */
+    public static LinDocumentStream readAll(DataInput input) {
+        return readAll(input, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read several NBT documents that follow each other in a {@link DataInput}, until it ends.
+     *
+     * <p>
+     * The input must signal its end with an {@link java.io.EOFException}, as {@link java.io.DataInputStream} does. The
+     * input will not be closed by the stream. The caller is responsible for managing the lifetime of the input.
+     * </p>
+     *
+     * @param input the input to read from
+     * @param options the options for reading
+     * @return the stream of documents
+     */
+    public static LinDocumentStream readAll(DataInput input, LinReadOptions options) {
+        return new LinNbtDocumentReader(input, options);
+    }
+
     /**
      * Read a result using a stream of NBT tokens from a {@link DataInput}.
      *
@@ -105,6 +137,39 @@ public static LinStream read(DataInput input, LinReadOptions options) {
         return transform.apply(read(input, options));
     }
 
+    /**
+     * Parse a root entry from a {@link DataInput}, pushing its content to a handler.
+     *
+     * <p>
+     * This skips tokens entirely, and is the fastest way to read when the content is only inspected once. The input
+     * will not be closed by this method. The caller is responsible for managing the lifetime of the input.
+     * </p>
+     *
+     * @param input the input to read from
+     * @param handler the handler to call
+     * @throws IOException if an I/O error occurs
+     */
+    public static void parse(DataInput input, LinHandler handler) throws IOException {
+        parse(input, LinReadOptions.builder().build(), handler);
+    }
+
+    /**
+     * Parse a root entry from a {@link DataInput}, pushing its content to a handler.
+     *
+     * <p>
+     * This skips tokens entirely, and is the fastest way to read when the content is only inspected once. The input
+     * will not be closed by this method. The caller is responsible for managing the lifetime of the input.
+     * </p>
+     *
+     * @param input the input to read from
+     * @param options the options for reading
+     * @param handler the handler to call
+     * @throws IOException if an I/O error occurs
+     */
+    public static void parse(DataInput input, LinReadOptions options, LinHandler handler) throws IOException {
+        LinNbtPushParser.parse(input, options, handler);
+    }
+
     /**
      * Write a stream of NBT tokens to a {@link DataOutput}.
      *
@@ -124,132 +189,31 @@ public static LinStream read(DataInput input, LinReadOptions options) {
     public static void write(DataOutput output, LinStreamable tokens) throws IOException {
         // This is essentially free if the info is already there, so we can just do it.
         LinStream tokenStream = tokens.linStream().calculateOptionalInfo();
-        boolean seenFirstName = false;
-        // This also signals if we're in a compound tag or not.
-        String nextName = null;
+        var writer = new LinNbtWriter(output);
         LinToken token;
         while ((token = tokenStream.nextOrNull()) != null) {
-            if (!seenFirstName) {
-                if (token instanceof LinToken.Name) {
-                    seenFirstName = true;
-                } else {
-                    // It's not legal to write without a name.
-                    throw new NbtWriteException("Expected first token to be a name");
-                }
-            }
-            switch (token) {
-                case LinToken.Name(String name, Optional<LinTagId> _) ->
-                    // We need to hold this until we print the id
-                    nextName = name;
-                case LinToken.ByteArrayStart(OptionalInt size) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.BYTE_ARRAY, nextName);
-                    nextName = null;
-
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
-                    var copy = new byte[buffer.remaining()];
-                    buffer.get(copy);
-                    output.write(copy);
-                }
-                case LinToken.ByteArrayEnd _ -> {
-                    // Nothing to do
-                }
-                case LinToken.Byte(byte value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.BYTE, nextName);
-                    nextName = null;
-
-                    output.writeByte(value);
-                }
-                case LinToken.CompoundStart _ -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.COMPOUND, nextName);
-                    nextName = null;
-                }
-                case LinToken.CompoundEnd _ -> output.writeByte(LinTagId.END.id());
-                case LinToken.Double(double value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.DOUBLE, nextName);
-                    nextName = null;
-
-                    output.writeDouble(value);
-                }
-                case LinToken.Float(float value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.FLOAT, nextName);
-                    nextName = null;
-
-                    output.writeFloat(value);
-                }
-                case LinToken.IntArrayStart(OptionalInt size) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.INT_ARRAY, nextName);
-                    nextName = null;
-
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.IntArrayContent(IntBuffer buffer) -> {
-                    while (buffer.hasRemaining()) {
-                        output.writeInt(buffer.get());
-                    }
-                }
-                case LinToken.IntArrayEnd _ -> {
-                    // Nothing to do
-                }
-                case LinToken.Int(int value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.INT, nextName);
-                    nextName = null;
-
-                    output.writeInt(value);
-                }
-                case LinToken.ListStart(OptionalInt size, Optional<LinTagId> elementId) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.LIST, nextName);
-                    nextName = null;
-
-                    output.writeByte(elementId.orElseThrow().id());
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.ListEnd _ -> {
-                    // Nothing to do
-                }
-                case LinToken.LongArrayStart(OptionalInt size) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.LONG_ARRAY, nextName);
-                    nextName = null;
-
-                    output.writeInt(size.orElseThrow());
-                }
-                case LinToken.LongArrayContent(LongBuffer buffer) -> {
-                    while (buffer.hasRemaining()) {
-                        output.writeLong(buffer.get());
-                    }
-                }
-                case LinToken.LongArrayEnd _ -> {
-                    // Nothing to do
-                }
-                case LinToken.Long(long value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.LONG, nextName);
-                    nextName = null;
-
-                    output.writeLong(value);
-                }
-                case LinToken.Short(short value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.SHORT, nextName);
-                    nextName = null;
-
-                    output.writeShort(value);
-                }
-                case LinToken.String(String value) -> {
-                    writeIdAndNameIfNeeded(output, LinTagId.STRING, nextName);
-                    nextName = null;
-
-                    output.writeUTF(value);
-                }
-                default -> throw new NbtWriteException("Unknown token: " + token);
-            }
+            writer.write(token);
         }
     }
 
-    private static void writeIdAndNameIfNeeded(DataOutput output, LinTagId id, @Nullable String name) throws IOException {
-        if (name != null) {
-            output.writeByte(id.id());
-            output.writeUTF(name);
-        }
+    /**
+     * Create a sink that writes tokens pushed to it to a {@link DataOutput}, e.g. from a
+     * {@linkplain LinFlow#subscriber(LinTokenSink) Flow subscriber}.
+     *
+     * <p>
+     * Tokens are written as they arrive. Lists and arrays that are missing optional info are held back until they
+     * end, so that it can be calculated. {@link LinTokenSink#finish()} checks that the root value was complete.
+     * </p>
+     *
+     * <p>
+     * The output will not be closed by the sink. The caller is responsible for managing the lifetime of the output.
+     * </p>
+     *
+     * @param output the output to write to
+     * @return the sink
+     */
+    public static LinTokenSink<@Nullable Void> writer(DataOutput output) {
+        return new LinNbtWriter(output);
     }
 
     private LinBinaryIO() {
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.internal.AbstractIterator;
+import org.enginehub.linbus.stream.impl.LinStreamDiffer;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * A stream of {@link LinDifference LinDifferences} between two {@link LinStream LinStreams}.
+ *
+ * <p>
+ * Both streams are consumed in lockstep. Compound entries are matched by name; entries that appear in a different
+ * order are held in a bounded look-aside buffer until their counterpart arrives. Memory use is proportional to the
+ * nesting depth plus that buffer, not to the size of the streams. Root names are not compared.
+ * </p>
+ */
+public interface LinDiffStream {
+    /**
+     * The default number of tokens that may be held to match reordered compound entries.
+     */
+    int DEFAULT_LOOK_ASIDE_TOKENS = 4096;
+
+    /**
+     * Compare two streams, using the {@linkplain #DEFAULT_LOOK_ASIDE_TOKENS default look-aside buffer size}.
+     *
+     * @param left the left stream
+     * @param right the right stream
+     * @return the differences between the streams
+     */
+    static LinDiffStream of(LinStream left, LinStream right) {
+        return of(left, right, DEFAULT_LOOK_ASIDE_TOKENS);
+    }
+
+    /**
+     * Compare two streams.
+     *
+     * <p>
+     * If a reordered entry does not fit into the look-aside buffer, it is reported as {@linkplain
+     * LinDifference.Removed removed} or {@linkplain LinDifference.Added added}, even if its counterpart appears later.
+     * </p>
+     *
+     * @param left the left stream
+     * @param right the right stream
+     * @param lookAsideTokens the maximum number of tokens to hold for matching reordered compound entries
+     * @return the differences between the streams
+     */
+    static LinDiffStream of(LinStream left, LinStream right, int lookAsideTokens) {
+        if (lookAsideTokens < 0) {
+            throw new IllegalArgumentException("Look-aside buffer size must not be negative: " + lookAsideTokens);
+        }
+        return new LinStreamDiffer(left, right, lookAsideTokens);
+    }
+
+    /**
+     * {@return the next difference if any} If this returns {@code null}, the streams have been fully compared.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable LinDifference nextOrNull() throws IOException;
+
+    /**
+     * Convert this stream to an {@link Iterator}. You should not use this stream after this method is called.
+     *
+     * <p>
+     * Any {@link IOException}s thrown by this stream will be propagated as {@link UncheckedIOException}s.
+     * </p>
+     *
+     * @return an iterator over this stream
+     */
+    default Iterator<LinDifference> asIterator() {
+        return new AbstractIterator<>() {
+            @Override
+            protected @Nullable LinDifference computeNext() {
+                try {
+                    LinDifference difference = nextOrNull();
+                    return difference == null ? end() : difference;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
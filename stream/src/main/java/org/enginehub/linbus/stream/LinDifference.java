@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.token.LinToken;
+
+/**
+ * A difference between two NBT streams, found by a {@link LinDiffStream}.
+ */
+public sealed interface LinDifference {
+    /**
+     * {@return the path of the value that differs}
+     */
+    LinPath path();
+
+    /**
+     * A value that is only present in the right stream.
+     *
+     * @param path the path of the value
+     */
+    record Added(LinPath path) implements LinDifference {
+    }
+
+    /**
+     * A value that is only present in the left stream.
+     *
+     * @param path the path of the value
+     */
+    record Removed(LinPath path) implements LinDifference {
+    }
+
+    /**
+     * A value that has a different type in each stream.
+     *
+     * @param path the path of the value
+     * @param left the type in the left stream
+     * @param right the type in the right stream
+     */
+    record TypeChanged(LinPath path, LinTagId left, LinTagId right) implements LinDifference {
+    }
+
+    /**
+     * A simple value, such as a number or string, that differs between the streams.
+     *
+     * @param path the path of the value
+     * @param left the value in the left stream
+     * @param right the value in the right stream
+     */
+    record ValueChanged(LinPath path, LinToken left, LinToken right) implements LinDifference {
+    }
+
+    /**
+     * An array that differs between the streams.
+     *
+     * @param path the path of the array
+     * @param index the first index at which the arrays differ, which is the length of the shorter array if one is a
+     *     prefix of the other
+     */
+    record ArrayChanged(LinPath path, int index) implements LinDifference {
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.impl.LinStreamDigester;
+
+import java.io.IOException;
+
+/**
+ * A 128-bit digest of the content of an NBT stream.
+ *
+ * <p>
+ * Digests are computed in a single pass over the tokens, without building a tree. Compound entries are combined
+ * independently of their order, so two streams with the same entries in a different order have the same digest.
+ * Everything else is significant: list order, array contents, value types and the root name. The declared element
+ * type of a list is not, so empty lists are equal regardless of it. Chunking of array content does not matter.
+ * </p>
+ *
+ * <p>
+ * The digest is based on SipHash-2-4 with a fixed key, so it is stable across runs and suitable for deduplication, but
+ * it is not a cryptographic hash of the content.
+ * </p>
+ *
+ * @param high the high 64 bits of the digest
+ * @param low the low 64 bits of the digest
+ */
+public record LinDigest(long high, long low) {
+    /**
+     * Compute the digest of a stream. The stream is fully consumed.
+     *
+     * @param streamable the source of the stream to digest
+     * @return the digest
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinDigest of(LinStreamable streamable) throws IOException {
+        return LinStreamDigester.digest(streamable.linStream());
+    }
+
+    /**
+     * Create a sink that computes the digest of the tokens pushed to it, e.g. as one of the outputs of a
+     * {@linkplain LinTee tee}.
+     *
+     * @return the sink, which produces the digest once the tokens end
+     */
+    public static LinTokenSink<LinDigest> sink() {
+        return new LinStreamDigester();
+    }
+
+    /**
+     * {@return the digest as 32 lowercase hexadecimal digits}
+     */
+    public String toHexString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    @Override
+    public String toString() {
+        return "LinDigest[" + toHexString() + "]";
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.internal.AbstractIterator;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * A stream of NBT documents that follow each other in one input, each read as a {@link LinStream}.
+ *
+ * <p>
+ * One reader, with its buffers, is reused for every document. The stream returned for a document is only valid until
+ * the next document is requested, and whatever was not read of it is discarded then.
+ * </p>
+ */
+public interface LinDocumentStream {
+    /**
+     * Get the next document.
+     *
+     * @return the stream of the next document, or {@code null} if there are no more documents
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable LinStream nextOrNull() throws IOException;
+
+    /**
+     * Skip the next document without decoding it.
+     *
+     * @return {@code true} if a document was skipped, {@code false} if there are no more documents
+     * @throws IOException if an I/O error occurs
+     */
+    boolean skip() throws IOException;
+
+    /**
+     * Convert this stream to an {@link Iterator}. You should not use this stream after this method is called.
+     *
+     * <p>
+     * Any {@link IOException}s thrown by this stream will be propagated as {@link UncheckedIOException}s.
+     * </p>
+     *
+     * @return an iterator over this stream
+     */
+    default Iterator<LinStream> asIterator() {
+        return new AbstractIterator<>() {
+            @Override
+            protected @Nullable LinStream computeNext() {
+                try {
+                    LinStream document = nextOrNull();
+                    return document == null ? end() : document;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
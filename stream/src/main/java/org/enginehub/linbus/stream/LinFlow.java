@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adapters between NBT streams and {@link Flow reactive streams}.
+ *
+ * <p>
+ * Both sides honor demand: the publisher only reads as many tokens as have been requested, and the subscriber only
+ * requests a bounded batch at a time, so a slow consumer never forces tokens to be buffered. Neither blocks a thread
+ * while waiting for the other.
+ * </p>
+ */
+public final class LinFlow {
+    /**
+     * The number of tokens a subscriber requests at a time by default.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Create a publisher of the tokens of a stream.
+     *
+     * <p>
+     * Each subscriber gets its own stream from the source, so a source that is a {@link LinStream} itself can only be
+     * subscribed to once. Tokens are read and delivered on the executor, only as far as subscribers have requested.
+     * A token is delivered before the next one is read, so subscribers may use array content during
+     * {@link Flow.Subscriber#onNext(Object)}, but must copy it to keep it. A failure to read is delivered as
+     * {@link Flow.Subscriber#onError(Throwable)}.
+     * </p>
+     *
+     * @param source the source of the stream to publish
+     * @param executor the executor to read and deliver tokens on
+     * @return the publisher
+     */
+    public static Flow.Publisher<LinToken> publisher(LinStreamable source, Executor executor) {
+        return subscriber -> {
+            var subscription = new TokenSubscription(subscriber, source, executor);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    /**
+     * Create a subscriber that pushes the tokens it receives to a sink, requesting
+     * {@value #DEFAULT_BATCH_SIZE} tokens at a time.
+     *
+     * @param sink the sink to push tokens to
+     * @param <R> the type of the result of the sink
+     * @return the subscriber
+     */
+    public static <R extends @Nullable Object> SinkSubscriber<R> subscriber(LinTokenSink<R> sink) {
+        return subscriber(sink, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a subscriber that pushes the tokens it receives to a sink.
+     *
+     * @param sink the sink to push tokens to
+     * @param batchSize the most tokens to request at a time
+     * @param <R> the type of the result of the sink
+     * @return the subscriber
+     */
+    public static <R extends @Nullable Object> SinkSubscriber<R> subscriber(LinTokenSink<R> sink, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        return new SinkSubscriber<>(sink, batchSize);
+    }
+
+    /**
+     * A subscriber that pushes tokens to a {@link LinTokenSink}, and completes {@linkplain #result() its result} with
+     * the result of the sink.
+     *
+     * <p>
+     * If the sink fails, the subscription is cancelled and the result completes exceptionally. A subscriber can only
+     * be subscribed once; further subscriptions are cancelled.
+     * </p>
+     *
+     * @param <R> the type of the result of the sink
+     */
+    public static final class SinkSubscriber<R extends @Nullable Object> implements Flow.Subscriber<LinToken> {
+        private final LinTokenSink<R> sink;
+        private final int batchSize;
+        /**
+         * The number of tokens to receive before requesting more, so that the next batch is requested before the
+         * current one runs out.
+         */
+        private final int replenishAfter;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private Flow.@Nullable Subscription subscription;
+        private int received;
+
+        private SinkSubscriber(LinTokenSink<R> sink, int batchSize) {
+            this.sink = sink;
+            this.batchSize = batchSize;
+            this.replenishAfter = Math.max(1, batchSize / 2);
+        }
+
+        /**
+         * {@return the result of the sink, completed once the publisher completes}
+         */
+        public CompletableFuture<R> result() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(LinToken item) {
+            Flow.Subscription subscription = this.subscription;
+            if (subscription == null || result.isDone()) {
+                return;
+            }
+            try {
+                sink.accept(item);
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
+                return;
+            }
+            if (++received == replenishAfter) {
+                received = 0;
+                subscription.request(replenishAfter);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(sink.finish());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * A subscription that reads tokens on an executor while there is demand.
+     */
+    private static final class TokenSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super LinToken> subscriber;
+        private final LinStreamable source;
+        private final Executor executor;
+        private final AtomicLong demand = new AtomicLong();
+        /**
+         * The number of times the drain loop was asked to run, so that only one runs at a time and none are missed.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile @Nullable Throwable invalidRequest;
+        // Only accessed by the drain loop
+        private @Nullable LinStream stream;
+        private boolean done;
+
+        TokenSubscription(Flow.Subscriber<? super LinToken> subscriber, LinStreamable source, Executor executor) {
+            this.subscriber = subscriber;
+            this.source = source;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Request must be positive: " + n);
+            } else {
+                demand.getAndUpdate(current -> {
+                    long sum = current + n;
+                    // Saturate at unbounded demand
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (!cancelled && !done) {
+                Throwable invalid = invalidRequest;
+                if (invalid != null) {
+                    done = true;
+                    subscriber.onError(invalid);
+                    return;
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+                LinToken token;
+                try {
+                    LinStream stream = this.stream;
+                    if (stream == null) {
+                        stream = source.linStream();
+                        this.stream = stream;
+                    }
+                    token = stream.nextOrNull();
+                } catch (IOException | RuntimeException e) {
+                    done = true;
+                    stream = null;
+                    subscriber.onError(e);
+                    return;
+                }
+                if (token == null) {
+                    done = true;
+                    stream = null;
+                    subscriber.onComplete();
+                    return;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(token);
+            }
+        }
+    }
+
+    private LinFlow() {
+    }
+}
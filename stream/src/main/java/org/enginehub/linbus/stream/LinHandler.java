@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Receives the content of a binary NBT stream as primitive callbacks, driven by
+ * {@link LinBinaryIO#parse(DataInput, LinHandler)}.
+ *
+ * <p>
+ * This is the push counterpart of {@link LinStream}: nothing is boxed or wrapped in tokens. Every method does nothing
+ * by default, so handlers only implement what they need. Methods that start a named entry or a container return
+ * whether to descend into it; returning {@code false} skips the value without decoding it, and no further callbacks
+ * are made for it, including its end callback.
+ * </p>
+ *
+ * <p>
+ * Names, strings and array chunks passed to a handler are only valid during the call, as the parser may reuse them.
+ * With {@link LinReadOptions#lazyStringDecoding()}, names and strings are passed as {@link ModifiedUtf8String}, so a
+ * handler that compares them against pre-encoded keys or ignores them never decodes them.
+ * </p>
+ */
+public interface LinHandler {
+    /**
+     * Called for the name of the root entry and of each compound entry, before its value.
+     *
+     * @param name the name
+     * @param id the type of the value
+     * @return {@code true} to read the value, {@code false} to skip it
+     * @throws IOException if an I/O error occurs
+     */
+    default boolean onName(CharSequence name, LinTagId id) throws IOException {
+        return true;
+    }
+
+    /**
+     * Called at the start of a compound.
+     *
+     * @return {@code true} to read the entries, {@code false} to skip them
+     * @throws IOException if an I/O error occurs
+     */
+    default boolean onCompoundStart() throws IOException {
+        return true;
+    }
+
+    /**
+     * Called at the end of a compound that was not skipped.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    default void onCompoundEnd() throws IOException {
+    }
+
+    /**
+     * Called at the start of a list.
+     *
+     * @param elementId the type of the elements
+     * @param size the number of elements
+     * @return {@code true} to read the elements, {@code false} to skip them
+     * @throws IOException if an I/O error occurs
+     */
+    default boolean onListStart(LinTagId elementId, int size) throws IOException {
+        return true;
+    }
+
+    /**
+     * Called at the end of a list that was not skipped.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    default void onListEnd() throws IOException {
+    }
+
+    /**
+     * Called for a byte value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onByte(byte value) throws IOException {
+    }
+
+    /**
+     * Called for a short value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onShort(short value) throws IOException {
+    }
+
+    /**
+     * Called for an int value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onInt(int value) throws IOException {
+    }
+
+    /**
+     * Called for a long value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onLong(long value) throws IOException {
+    }
+
+    /**
+     * Called for a float value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onFloat(float value) throws IOException {
+    }
+
+    /**
+     * Called for a double value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onDouble(double value) throws IOException {
+    }
+
+    /**
+     * Called for a string value.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    default void onString(CharSequence value) throws IOException {
+    }
+
+    /**
+     * Called at the start of a byte array.
+     *
+     * @param length the number of elements
+     * @return {@code true} to read the content, {@code false} to skip it
+     * @throws IOException if an I/O error occurs
+     */
+    default boolean onByteArrayStart(int length) throws IOException {
+        return true;
+    }
+
+    /**
+     * Called for each chunk of a byte array's content.
+     *
+     * @param chunk the chunk, read-only
+     * @throws IOException if an I/O error occurs
+     */
+    default void onByteArrayChunk(ByteBuffer chunk) throws IOException {
+    }
+
+    /**
+     * Called at the end of a byte array that was not skipped.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    default void onByteArrayEnd() throws IOException {
+    }
+
+    /**
+     * Called at the start of an int array.
+     *
+     * @param length the number of elements
+     * @return {@code true} to read the content, {@code false} to skip it
+     * @throws IOException if an I/O error occurs
+     */
+    default boolean onIntArrayStart(int length) throws IOException {
+        return true;
+    }
+
+    /**
+     * Called for each chunk of an int array's content.
+     *
+     * @param chunk the chunk, read-only
+     * @throws IOException if an I/O error occurs
+     */
+    default void onIntArrayChunk(IntBuffer chunk) throws IOException {
+    }
+
+    /**
+     * Called at the end of an int array that was not skipped.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    default void onIntArrayEnd() throws IOException {
+    }
+
+    /**
+     * Called at the start of a long array.
+     *
+     * @param length the number of elements
+     * @return {@code true} to read the content, {@code false} to skip it
+     * @throws IOException if an I/O error occurs
+     */
+    default boolean onLongArrayStart(int length) throws IOException {
+        return true;
+    }
+
+    /**
+     * Called for each chunk of a long array's content.
+     *
+     * @param chunk the chunk, read-only
+     * @throws IOException if an I/O error occurs
+     */
+    default void onLongArrayChunk(LongBuffer chunk) throws IOException {
+    }
+
+    /**
+     * Called at the end of a long array that was not skipped.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    default void onLongArrayEnd() throws IOException {
+    }
+}
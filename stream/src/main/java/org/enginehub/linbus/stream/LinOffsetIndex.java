@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.impl.ChannelRangeInputStream;
+import org.enginehub.linbus.stream.impl.LinNbtReader;
+import org.enginehub.linbus.stream.impl.LinOffsetIndexer;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An index of where compounds are in an uncompressed binary NBT document, for reading them without reading the
+ * document before them.
+ *
+ * <p>
+ * The index is {@linkplain #build(InputStream, long) built} by one pass over the document, and can be
+ * {@linkplain #writeTo(DataOutput) stored} next to it. Each indexed compound can then be
+ * {@linkplain #read(FileChannel, Entry) read} on its own by seeking to it. Since reads don't share a position, the
+ * {@linkplain #children(LinPath) elements of a list} can also be read in parallel.
+ * </p>
+ */
+public final class LinOffsetIndex {
+    private static final int MAGIC = 0x4C42_4958;
+    private static final int VERSION = 1;
+    private static final int NAME_SEGMENT = 0;
+    private static final int INDEX_SEGMENT = 1;
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * An indexed compound.
+     *
+     * @param path the path to the compound
+     * @param offset the offset of its payload in the document, just after its name or at the list element
+     * @param length the length of its payload, up to and including its end byte
+     */
+    public record Entry(LinPath path, long offset, long length) {
+        /**
+         * Creates a new entry.
+         *
+         * @param path the path to the compound
+         * @param offset the offset of its payload
+         * @param length the length of its payload
+         */
+        public Entry {
+            Objects.requireNonNull(path, "path");
+            if (offset < 0 || length <= 0) {
+                throw new IllegalArgumentException("Invalid range: " + offset + " + " + length);
+            }
+        }
+    }
+
+    /**
+     * Index the compounds of a document whose payload is at least the given length. The input is read up to the end
+     * of the document, and is not closed.
+     *
+     * @param input the input to read from, which must not be compressed
+     * @param minimumLength the minimum payload length of an indexed compound, {@code 0} to index all of them
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinOffsetIndex build(InputStream input, long minimumLength) throws IOException {
+        return LinOffsetIndexer.index(input, minimumLength);
+    }
+
+    /**
+     * Read an index {@linkplain #writeTo(DataOutput) written} before.
+     *
+     * @param input the input to read from
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinOffsetIndex readFrom(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new NbtParseException("Not an offset index");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new NbtParseException("Unsupported offset index version: " + version);
+        }
+        int count = readVarInt(input);
+        List<Entry> entries = new ArrayList<>(count);
+        LinPath previousPath = LinPath.root();
+        long previousOffset = 0;
+        for (int i = 0; i < count; i++) {
+            int shared = readVarInt(input);
+            if (shared > previousPath.depth()) {
+                throw new NbtParseException("Invalid shared path depth: " + shared);
+            }
+            LinPath path = ancestor(previousPath, shared);
+            for (int added = readVarInt(input); added > 0; added--) {
+                int kind = input.readUnsignedByte();
+                path = switch (kind) {
+                    case NAME_SEGMENT -> path.resolve(input.readUTF());
+                    case INDEX_SEGMENT -> path.resolve(readVarInt(input));
+                    default -> throw new NbtParseException("Invalid path segment kind: " + kind);
+                };
+            }
+            long offset = previousOffset + readVarLong(input);
+            entries.add(new Entry(path, offset, readVarLong(input)));
+            previousPath = path;
+            previousOffset = offset;
+        }
+        return new LinOffsetIndex(entries);
+    }
+
+    /**
+     * Read an indexed compound from a file.
+     *
+     * @param channel the file of the document
+     * @param entry the entry of the compound
+     * @return the stream of the compound, starting with its {@link LinToken.CompoundStart}
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinStream read(FileChannel channel, Entry entry) throws IOException {
+        return read(channel, entry, LinReadOptions.builder().build());
+    }
+
+    /**
+     * Read an indexed compound from a file. The position of the channel is not used, so this may be called from
+     * several threads at once.
+     *
+     * @param channel the file of the document
+     * @param entry the entry of the compound
+     * @param options the options for reading
+     * @return the stream of the compound, starting with its {@link LinToken.CompoundStart}
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinStream read(FileChannel channel, Entry entry, LinReadOptions options) throws IOException {
+        // Stream the compound instead of loading it, so large entries are not held on the heap
+        var payload = new ChannelRangeInputStream(
+            channel, entry.offset(), entry.length(), "the indexed compound at " + entry.path()
+        );
+        return LinNbtReader.forCompoundPayload(
+            new DataInputStream(new BufferedInputStream(payload, READ_BUFFER_SIZE)), options
+        );
+    }
+
+    private final List<Entry> entries;
+    private final Map<LinPath, Entry> byPath;
+    private final Map<LinPath, List<Entry>> byParent;
+
+    /**
+     * Creates a new index.
+     *
+     * @param entries the entries, which are sorted by offset
+     */
+    public LinOffsetIndex(List<Entry> entries) {
+        var sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(Entry::offset));
+        this.entries = List.copyOf(sorted);
+        this.byPath = HashMap.newHashMap(sorted.size());
+        this.byParent = new HashMap<>();
+        for (Entry entry : this.entries) {
+            if (byPath.putIfAbsent(entry.path(), entry) != null) {
+                throw new IllegalArgumentException("Duplicate path: " + entry.path());
+            }
+            LinPath parent = entry.path().parent();
+            if (parent != null) {
+                byParent.computeIfAbsent(parent, _ -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    /**
+     * {@return every entry, in document order}
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Find the entry of a compound.
+     *
+     * @param path the path to the compound
+     * @return the entry, or {@code null} if the compound isn't indexed
+     */
+    public @Nullable Entry find(LinPath path) {
+        return byPath.get(path);
+    }
+
+    /**
+     * Get the entries directly inside a compound or list, such as the indexed elements of a list of compounds.
+     *
+     * @param path the path to the compound or list
+     * @return the entries, in document order
+     */
+    public List<Entry> children(LinPath path) {
+        List<Entry> children = byParent.get(path);
+        return children == null ? List.of() : List.copyOf(children);
+    }
+
+    /**
+     * Write this index. Paths are written relative to the previous one, so the elements of a list take only a few
+     * bytes each.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        writeVarLong(output, entries.size());
+        LinPath previousPath = LinPath.root();
+        long previousOffset = 0;
+        for (Entry entry : entries) {
+            LinPath path = entry.path();
+            int shared = sharedDepth(previousPath, path);
+            writeVarLong(output, shared);
+            writeVarLong(output, path.depth() - shared);
+            writeSegments(output, path, shared);
+            writeVarLong(output, entry.offset() - previousOffset);
+            writeVarLong(output, entry.length());
+            previousPath = path;
+            previousOffset = entry.offset();
+        }
+    }
+
+    private static void writeSegments(DataOutput output, LinPath path, int shared) throws IOException {
+        if (path.depth() == shared) {
+            return;
+        }
+        writeSegments(output, Objects.requireNonNull(path.parent()), shared);
+        String name = path.name();
+        if (name != null) {
+            output.writeByte(NAME_SEGMENT);
+            output.writeUTF(name);
+        } else {
+            output.writeByte(INDEX_SEGMENT);
+            writeVarLong(output, path.index());
+        }
+    }
+
+    private static LinPath ancestor(LinPath path, int depth) {
+        while (path.depth() > depth) {
+            path = Objects.requireNonNull(path.parent());
+        }
+        return path;
+    }
+
+    private static int sharedDepth(LinPath a, LinPath b) {
+        a = ancestor(a, b.depth());
+        b = ancestor(b, a.depth());
+        while (!a.equals(b)) {
+            a = Objects.requireNonNull(a.parent());
+            b = Objects.requireNonNull(b.parent());
+        }
+        return a.depth();
+    }
+
+    private static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new NbtParseException("Variable-length number is too long");
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        long value = readVarLong(input);
+        if (value > Integer.MAX_VALUE) {
+            throw new NbtParseException("Number is too large: " + value);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return obj instanceof LinOffsetIndex other && entries.equals(other.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "LinOffsetIndex{entries=" + entries.size() + '}';
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.impl.ArrayContents;
+import org.enginehub.linbus.stream.impl.LinValueLocator;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Changes single values in uncompressed binary NBT files.
+ *
+ * <p>
+ * The value is located by skipping over everything that isn't on its path. If the new value has the same type and
+ * encoded length as the old one, such as any primitive, an array of the same length or a string of the same encoded
+ * length, its bytes are overwritten in place. Otherwise the file is rewritten with the value
+ * {@linkplain LinStream#mapValues replaced}. A rewritten file keeps the permissions of the original, and anything
+ * after the patched document, such as further concatenated documents, is copied unchanged.
+ * </p>
+ */
+public final class LinPatcher {
+    /**
+     * The outcome of a patch.
+     */
+    public enum Result {
+        /**
+         * The value was overwritten in place.
+         */
+        PATCHED_IN_PLACE,
+        /**
+         * The file was rewritten, as the new value does not fit in place of the old one.
+         */
+        REWRITTEN,
+        /**
+         * There is no value at the path, so nothing was changed.
+         */
+        NOT_FOUND,
+    }
+
+    /**
+     * Replace the value at a path in a file, in place if possible.
+     *
+     * @param file the file, which must not be compressed
+     * @param path the path to the value, which must not be the root path
+     * @param value the new value
+     * @return what was done
+     * @throws IOException if an I/O error occurs
+     */
+    public static Result patch(Path file, LinPath path, LinStreamable value) throws IOException {
+        checkNotRoot(path);
+        var encoded = EncodedValue.of(value);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            LinValueLocator.Location location = locate(channel, path);
+            if (location == null) {
+                return Result.NOT_FOUND;
+            }
+            if (encoded.fits(location)) {
+                encoded.writeTo(channel, location);
+                return Result.PATCHED_IN_PLACE;
+            }
+        }
+        rewrite(file, path, encoded);
+        return Result.REWRITTEN;
+    }
+
+    /**
+     * Overwrite the value at a path in place, if the new value has the same type and encoded length as the old one.
+     * The document must start at the start of the channel. The position of the channel is changed.
+     *
+     * @param channel the file, which must not be compressed
+     * @param path the path to the value, which must not be the root path
+     * @param value the new value
+     * @return {@code true} if the value was overwritten, {@code false} if it was not found or does not fit
+     * @throws IOException if an I/O error occurs
+     */
+    public static boolean patchInPlace(FileChannel channel, LinPath path, LinStreamable value) throws IOException {
+        checkNotRoot(path);
+        var encoded = EncodedValue.of(value);
+        LinValueLocator.Location location = locate(channel, path);
+        if (location == null || !encoded.fits(location)) {
+            return false;
+        }
+        encoded.writeTo(channel, location);
+        return true;
+    }
+
+    private static void checkNotRoot(LinPath path) {
+        if (path.isRoot()) {
+            throw new IllegalArgumentException("Cannot patch the root compound");
+        }
+    }
+
+    private static LinValueLocator.@Nullable Location locate(FileChannel channel, LinPath path) throws IOException {
+        channel.position(0);
+        // Not closed, as that would close the channel
+        return LinValueLocator.locate(Channels.newInputStream(channel), path);
+    }
+
+    private static void rewrite(Path file, LinPath path, EncodedValue encoded) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+                 var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                LinBinaryIO.write(output, LinBinaryIO.read(input).mapValues(path::equals, _ -> encoded.tokens()));
+                // Anything after the document, such as more concatenated documents, is kept as it is
+                input.transferTo(output);
+            }
+            copyAttributes(file, temporary);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Give the rewritten file the permissions, owner and attributes of the original, as temporary files are created
+     * readable only by their owner.
+     */
+    private static void copyAttributes(Path source, Path target) throws IOException {
+        var posix = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (posix != null) {
+            PosixFileAttributes attributes = posix.readAttributes();
+            var targetPosix = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            targetPosix.setPermissions(attributes.permissions());
+            try {
+                targetPosix.setOwner(attributes.owner());
+                targetPosix.setGroup(attributes.group());
+            } catch (IOException ignored) {
+                // Only privileged users can give files away, in which case the rewritten file keeps our ownership
+            }
+        }
+        var acl = Files.getFileAttributeView(source, AclFileAttributeView.class);
+        if (acl != null) {
+            Files.getFileAttributeView(target, AclFileAttributeView.class).setAcl(acl.getAcl());
+        }
+        var dos = Files.getFileAttributeView(source, DosFileAttributeView.class);
+        if (dos != null && posix == null) {
+            DosFileAttributes attributes = dos.readAttributes();
+            var targetDos = Files.getFileAttributeView(target, DosFileAttributeView.class);
+            targetDos.setHidden(attributes.isHidden());
+            targetDos.setSystem(attributes.isSystem());
+            targetDos.setArchive(attributes.isArchive());
+        }
+    }
+
+    /**
+     * A value, as tokens and as the bytes of its payload.
+     */
+    private record EncodedValue(LinTagId id, List<LinToken> tokenList, byte[] payload) {
+        /**
+         * The bytes of a root entry before the payload of its only entry: the root id, an empty root name, the entry
+         * id and an empty entry name.
+         */
+        private static final int ENTRY_HEADER_LENGTH = 6;
+
+        static EncodedValue of(LinStreamable value) throws IOException {
+            // The tokens are kept, as the value may not be streamable twice
+            List<LinToken> tokens = new ArrayList<>();
+            LinStream stream = value.linStream();
+            for (LinToken token; (token = stream.nextOrNull()) != null; ) {
+                tokens.add(ArrayContents.copy(token));
+            }
+            LinTagId id = tokens.isEmpty() ? null : tokens.getFirst().tagId().orElse(null);
+            if (id == null) {
+                throw new IllegalArgumentException(
+                    "Value does not start with a value: " + (tokens.isEmpty() ? null : tokens.getFirst())
+                );
+            }
+            var root = new ArrayList<LinToken>(tokens.size() + 4);
+            root.add(new LinToken.Name("", LinTagId.COMPOUND));
+            root.add(new LinToken.CompoundStart());
+            root.add(new LinToken.Name("", id));
+            for (LinToken token : tokens) {
+                root.add(ArrayContents.duplicate(token));
+            }
+            root.add(new LinToken.CompoundEnd());
+            var bytes = new ByteArrayOutputStream();
+            try (var output = new DataOutputStream(bytes)) {
+                LinBinaryIO.write(output, LinStream.of(root.toArray(LinToken[]::new)));
+            }
+            byte[] encoded = bytes.toByteArray();
+            // Drop the root around the entry, and the end of the root
+            return new EncodedValue(
+                id, List.copyOf(tokens), Arrays.copyOfRange(encoded, ENTRY_HEADER_LENGTH, encoded.length - 1)
+            );
+        }
+
+        boolean fits(LinValueLocator.Location location) {
+            return location.id() == id && location.length() == payload.length;
+        }
+
+        void writeTo(FileChannel channel, LinValueLocator.Location location) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, location.start() + buffer.position());
+            }
+        }
+
+        LinStream tokens() {
+            // Writing the tokens consumes their array content, so each use gets its own view of it
+            return LinStream.of(tokenList.stream().map(ArrayContents::duplicate).toArray(LinToken[]::new));
+        }
+    }
+
+    private LinPatcher() {
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A path to a value inside an NBT document, made of compound entry names and list indexes.
+ *
+ * <p>
+ * The {@linkplain #root() root path} refers to the root compound. Paths are immutable and share their parents, so
+ * extending a path is cheap.
+ * </p>
+ */
+public final class LinPath {
+    /**
+     * The {@linkplain #index() index} of a segment that stands for every element of a list.
+     *
+     * @see #resolveAnyIndex()
+     */
+    public static final int ANY_INDEX = -2;
+
+    private static final LinPath ROOT = new LinPath(null, null, -1);
+
+    /**
+     * {@return the root path}
+     */
+    public static LinPath root() {
+        return ROOT;
+    }
+
+    /**
+     * Create a path of compound entry names, starting from the root.
+     *
+     * @param names the names
+     * @return the path
+     */
+    public static LinPath of(String... names) {
+        LinPath path = ROOT;
+        for (String name : names) {
+            path = path.resolve(name);
+        }
+        return path;
+    }
+
+    private final @Nullable LinPath parent;
+    private final @Nullable String name;
+    private final int index;
+    private final int depth;
+    private final int hashCode;
+
+    private LinPath(@Nullable LinPath parent, @Nullable String name, int index) {
+        this.parent = parent;
+        this.name = name;
+        this.index = index;
+        if (parent == null) {
+            this.depth = 0;
+            this.hashCode = 0;
+        } else {
+            this.depth = parent.depth + 1;
+            this.hashCode = 31 * parent.hashCode + (name != null ? name.hashCode() : index);
+        }
+    }
+
+    /**
+     * Get the path to an entry of the compound at this path.
+     *
+     * @param name the name of the entry
+     * @return the path to the entry
+     */
+    public LinPath resolve(String name) {
+        return new LinPath(this, Objects.requireNonNull(name, "name"), -1);
+    }
+
+    /**
+     * Get the path to an element of the list at this path.
+     *
+     * @param index the index of the element
+     * @return the path to the element
+     */
+    public LinPath resolve(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must not be negative: " + index);
+        }
+        return new LinPath(this, null, index);
+    }
+
+    /**
+     * Get a path that stands for every element of the list at this path, used where list elements are aggregated.
+     * It is written as {@code [*]}.
+     *
+     * @return the path to any element
+     */
+    public LinPath resolveAnyIndex() {
+        return new LinPath(this, null, ANY_INDEX);
+    }
+
+    /**
+     * {@return the parent of this path, or {@code null} if this is the root path}
+     */
+    public @Nullable LinPath parent() {
+        return parent;
+    }
+
+    /**
+     * {@return the number of segments in this path} The root path has a depth of zero.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * {@return whether this is the root path}
+     */
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    /**
+     * {@return the entry name of the last segment, or {@code null} if it is a list index or this is the root path}
+     */
+    public @Nullable String name() {
+        return name;
+    }
+
+    /**
+     * {@return the list index of the last segment, or {@code -1} if it is an entry name or this is the root path} This
+     * is {@link #ANY_INDEX} if the last segment stands for any element.
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Check if this path is the given path or is inside it.
+     *
+     * @param prefix the possible prefix
+     * @return {@code true} if this path starts with the given path
+     */
+    public boolean startsWith(LinPath prefix) {
+        LinPath path = this;
+        while (path.depth > prefix.depth) {
+            path = Objects.requireNonNull(path.parent);
+        }
+        return path.equals(prefix);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LinPath other) || depth != other.depth || hashCode != other.hashCode) {
+            return false;
+        }
+        LinPath a = this;
+        LinPath b = other;
+        while (a != b) {
+            if (a.index != b.index || !Objects.equals(a.name, b.name)) {
+                return false;
+            }
+            a = Objects.requireNonNull(a.parent);
+            b = Objects.requireNonNull(b.parent);
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * {@return this path in the form {@code a.b[0].c}} Names that aren't plain identifiers are quoted, and segments
+     * that stand for any element are written as {@code [*]}.
+     */
+    @Override
+    public String toString() {
+        var segments = new LinPath[depth];
+        LinPath path = this;
+        for (int i = depth - 1; i >= 0; i--) {
+            segments[i] = path;
+            path = Objects.requireNonNull(path.parent);
+        }
+        var builder = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            String segmentName = segments[i].name;
+            if (segmentName == null) {
+                int segmentIndex = segments[i].index;
+                builder.append('[').append(segmentIndex == ANY_INDEX ? "*" : segmentIndex).append(']');
+                continue;
+            }
+            if (i > 0) {
+                builder.append('.');
+            }
+            appendName(builder, segmentName);
+        }
+        return builder.toString();
+    }
+
+    private static void appendName(StringBuilder builder, String name) {
+        if (!name.isEmpty() && name.chars().allMatch(LinPath::isPlainChar)) {
+            builder.append(name);
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        builder.append('"');
+    }
+
+    private static boolean isPlainChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '_' || c == '-' || c == '+';
+    }
+}
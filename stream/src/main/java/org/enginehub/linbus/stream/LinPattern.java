@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.impl.PatternMatcher;
+
+import java.io.IOException;
+
+/**
+ * A compiled pattern that NBT values are matched against, in the same way as Minecraft matches partial NBT in commands.
+ *
+ * <p>
+ * A value matches if it has the same type as the pattern, and:
+ * </p>
+ * <ul>
+ *     <li>for a compound, every entry of the pattern matches an entry with the same name. Other entries are ignored.
+ *     </li>
+ *     <li>for a list, every element of the pattern matches some element of the list, in any order. An empty pattern
+ *     only matches an empty list.</li>
+ *     <li>for anything else, the value is equal to the pattern.</li>
+ * </ul>
+ *
+ * <p>
+ * Matching is done directly on a stream, without building a tree. Entries that the pattern does not mention are
+ * skipped, and reading stops as soon as the result is known, so a mismatch near the start of a large document is
+ * cheap. Patterns are usually written in SNBT, e.g. {@code {Inventory:[{id:"minecraft:diamond"}]}}, and read with the
+ * SNBT format module.
+ * </p>
+ *
+ * <p>
+ * Patterns are immutable, and can be used to match any number of streams, from any number of threads.
+ * </p>
+ */
+public final class LinPattern {
+    /**
+     * Compile a pattern. The stream may start with a name, which is ignored.
+     *
+     * @param pattern the source of the pattern, a single value
+     * @return the compiled pattern
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinPattern compile(LinStreamable pattern) throws IOException {
+        return new LinPattern(PatternMatcher.compile(pattern.linStream()));
+    }
+
+    private final PatternMatcher.Node root;
+
+    private LinPattern(PatternMatcher.Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Check if a value matches this pattern. The stream may start with a name, which is ignored.
+     *
+     * <p>
+     * Only as much of the stream as is needed to decide is read, and the rest is left unread.
+     * </p>
+     *
+     * @param candidate the source of the value to check
+     * @return {@code true} if the value matches
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean matches(LinStreamable candidate) throws IOException {
+        return PatternMatcher.matches(root, candidate.linStream());
+    }
+}
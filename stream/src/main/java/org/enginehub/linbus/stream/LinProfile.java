@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of what a {@link LinProfiler} has seen.
+ *
+ * @param paths the statistics for each path, in the order the paths were first seen, with list elements aggregated
+ *     under {@linkplain LinPath#resolveAnyIndex() any-index} segments
+ * @param heaviest the heaviest values seen, heaviest first
+ */
+public record LinProfile(Map<LinPath, PathStats> paths, List<Subtree> heaviest) {
+    /**
+     * Statistics for the values at one path.
+     *
+     * @param count the number of values at the path
+     * @param tags the number of tags in those values, including the values themselves
+     * @param bytes the serialized size of those values, including their entry headers if they're in a compound
+     * @param types how many of the values had each type
+     */
+    public record PathStats(long count, long tags, long bytes, Map<LinTagId, Long> types) {
+        /**
+         * Create new statistics.
+         *
+         * @param count the number of values at the path
+         * @param tags the number of tags in those values, including the values themselves
+         * @param bytes the serialized size of those values, including their entry headers if they're in a compound
+         * @param types how many of the values had each type
+         */
+        public PathStats {
+            types = Map.copyOf(types);
+        }
+    }
+
+    /**
+     * A single value and its serialized size.
+     *
+     * @param document the index of the document the value is in, counting from zero in the order documents were
+     *     given to the profiler
+     * @param path the exact path of the value
+     * @param type the type of the value
+     * @param bytes the serialized size of the value, including its entry header if it's in a compound
+     */
+    public record Subtree(int document, LinPath path, LinTagId type, long bytes) {
+    }
+
+    /**
+     * Create a new profile.
+     *
+     * @param paths the statistics for each path
+     * @param heaviest the heaviest values seen, heaviest first
+     */
+    public LinProfile {
+        paths = Collections.unmodifiableMap(new LinkedHashMap<>(paths));
+        heaviest = List.copyOf(heaviest);
+    }
+}
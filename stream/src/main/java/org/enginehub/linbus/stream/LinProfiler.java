@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the serialized size, tag count and types of the values at each path of one or more NBT streams.
+ *
+ * <p>
+ * Elements of lists are aggregated under a single {@linkplain LinPath#resolveAnyIndex() any-index} path, so memory use
+ * is proportional to the number of distinct paths, plus the number of {@linkplain LinProfile#heaviest() heaviest
+ * values} kept. Sizes are those of the binary format, computed from the tokens, so they are exact for streams read
+ * with {@link LinBinaryIO}. The size of a compound entry includes its id and name.
+ * </p>
+ *
+ * <p>
+ * The heaviest values are taken from every depth, so they may contain each other.
+ * </p>
+ */
+public final class LinProfiler {
+    private static final Comparator<LinProfile.Subtree> BY_BYTES =
+        Comparator.comparingLong(LinProfile.Subtree::bytes);
+
+    private static final class Node {
+        final LinPath path;
+        @Nullable Map<String, Node> children;
+        @Nullable Node anyElement;
+        final long[] types = new long[LinTagId.values().length];
+        long count;
+        long tags;
+        long bytes;
+
+        Node(LinPath path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * A value that is being read. These are reused for each depth.
+     */
+    private static final class Frame {
+        Node node;
+        @Nullable String name;
+        int index;
+        LinTagId type;
+        long start;
+        long tagsBefore;
+        int nextIndex;
+
+        Frame(Node node, @Nullable String name, int index, LinTagId type, long start, long tagsBefore) {
+            set(node, name, index, type, start, tagsBefore);
+        }
+
+        void set(Node node, @Nullable String name, int index, LinTagId type, long start, long tagsBefore) {
+            this.node = node;
+            this.name = name;
+            this.index = index;
+            this.type = type;
+            this.start = start;
+            this.tagsBefore = tagsBefore;
+            this.nextIndex = 0;
+        }
+    }
+
+    private final int heaviestCount;
+    private final Map<LinPath, Node> nodes = new LinkedHashMap<>();
+    private final Node root = node(LinPath.root());
+    private final PriorityQueue<LinProfile.Subtree> heaviest = new PriorityQueue<>(BY_BYTES);
+    private final List<Frame> frames = new ArrayList<>();
+    private int depth;
+    private int documents;
+    private long offset;
+    private long tags;
+    private @Nullable String pendingName;
+    private long pendingStart;
+
+    /**
+     * Create a new profiler.
+     *
+     * @param heaviestCount the number of heaviest values to keep
+     */
+    public LinProfiler(int heaviestCount) {
+        if (heaviestCount < 0) {
+            throw new IllegalArgumentException("Heaviest value count must not be negative: " + heaviestCount);
+        }
+        this.heaviestCount = heaviestCount;
+    }
+
+    /**
+     * Add a document to the profile. The stream is fully consumed.
+     *
+     * @param streamable the source of the stream to profile
+     * @throws IOException if an I/O error occurs
+     */
+    public void add(LinStreamable streamable) throws IOException {
+        int document = documents++;
+        depth = 0;
+        offset = 0;
+        pendingName = null;
+        LinStream stream = streamable.linStream();
+        LinToken token;
+        while ((token = stream.nextOrNull()) != null) {
+            accept(document, token);
+        }
+        if (depth != 0 || pendingName != null) {
+            throw new NbtParseException("Unexpected end of stream");
+        }
+    }
+
+    /**
+     * {@return a snapshot of the profile so far}
+     */
+    public LinProfile profile() {
+        var paths = new LinkedHashMap<LinPath, LinProfile.PathStats>();
+        for (Node node : nodes.values()) {
+            if (node.count == 0) {
+                continue;
+            }
+            var types = new EnumMap<LinTagId, Long>(LinTagId.class);
+            for (LinTagId id : LinTagId.values()) {
+                if (node.types[id.ordinal()] != 0) {
+                    types.put(id, node.types[id.ordinal()]);
+                }
+            }
+            paths.put(node.path, new LinProfile.PathStats(node.count, node.tags, node.bytes, types));
+        }
+        var sorted = new ArrayList<>(heaviest);
+        sorted.sort(BY_BYTES.reversed());
+        return new LinProfile(paths, sorted);
+    }
+
+    private Node node(LinPath path) {
+        var node = new Node(path);
+        nodes.put(path, node);
+        return node;
+    }
+
+    private void accept(int document, LinToken token) {
+        switch (token) {
+            case LinToken.Name(String name, _) -> {
+                if (depth > 0 && frames.get(depth - 1).type != LinTagId.COMPOUND) {
+                    throw new NbtParseException("Name outside of a compound: " + name);
+                }
+                pendingName = name;
+                pendingStart = offset;
+                offset += 1 + Short.BYTES + ModifiedUtf8String.encodedLength(name);
+            }
+            case LinToken.CompoundStart() -> beginValue(LinTagId.COMPOUND, 0);
+            case LinToken.ListStart _ -> beginValue(LinTagId.LIST, 1 + Integer.BYTES);
+            case LinToken.ByteArrayStart _ -> beginValue(LinTagId.BYTE_ARRAY, Integer.BYTES);
+            case LinToken.IntArrayStart _ -> beginValue(LinTagId.INT_ARRAY, Integer.BYTES);
+            case LinToken.LongArrayStart _ -> beginValue(LinTagId.LONG_ARRAY, Integer.BYTES);
+            case LinToken.Byte _ -> endScalar(document, LinTagId.BYTE, Byte.BYTES);
+            case LinToken.Short _ -> endScalar(document, LinTagId.SHORT, Short.BYTES);
+            case LinToken.Int _ -> endScalar(document, LinTagId.INT, Integer.BYTES);
+            case LinToken.Long _ -> endScalar(document, LinTagId.LONG, Long.BYTES);
+            case LinToken.Float _ -> endScalar(document, LinTagId.FLOAT, Float.BYTES);
+            case LinToken.Double _ -> endScalar(document, LinTagId.DOUBLE, Double.BYTES);
+            case LinToken.String(String value) ->
+                endScalar(document, LinTagId.STRING, Short.BYTES + ModifiedUtf8String.encodedLength(value));
+            case LinToken.ByteArrayContent content -> {
+                checkInside(LinTagId.BYTE_ARRAY, token);
+                offset += content.buffer().remaining();
+            }
+            case LinToken.IntArrayContent content -> {
+                checkInside(LinTagId.INT_ARRAY, token);
+                offset += (long) content.buffer().remaining() * Integer.BYTES;
+            }
+            case LinToken.LongArrayContent content -> {
+                checkInside(LinTagId.LONG_ARRAY, token);
+                offset += (long) content.buffer().remaining() * Long.BYTES;
+            }
+            case LinToken.ByteArrayEnd() -> endValue(document, LinTagId.BYTE_ARRAY, token);
+            case LinToken.IntArrayEnd() -> endValue(document, LinTagId.INT_ARRAY, token);
+            case LinToken.LongArrayEnd() -> endValue(document, LinTagId.LONG_ARRAY, token);
+            case LinToken.ListEnd() -> endValue(document, LinTagId.LIST, token);
+            case LinToken.CompoundEnd() -> {
+                // The END tag
+                offset++;
+                endValue(document, LinTagId.COMPOUND, token);
+            }
+        }
+    }
+
+    private void checkInside(LinTagId type, LinToken token) {
+        if (depth == 0 || frames.get(depth - 1).type != type) {
+            throw new NbtParseException("Unexpected token: " + token);
+        }
+    }
+
+    private void beginValue(LinTagId type, int headerBytes) {
+        Node node;
+        String name = pendingName;
+        int index = -1;
+        long start;
+        if (depth == 0) {
+            node = root;
+            start = name != null ? pendingStart : offset;
+        } else {
+            Frame parent = frames.get(depth - 1);
+            switch (parent.type) {
+                case COMPOUND -> {
+                    if (name == null) {
+                        throw new NbtParseException("Value in a compound without a name");
+                    }
+                    Map<String, Node> children = parent.node.children;
+                    if (children == null) {
+                        children = new HashMap<>();
+                        parent.node.children = children;
+                    }
+                    node = children.get(name);
+                    if (node == null) {
+                        node = node(parent.node.path.resolve(name));
+                        children.put(name, node);
+                    }
+                    start = pendingStart;
+                }
+                case LIST -> {
+                    node = parent.node.anyElement;
+                    if (node == null) {
+                        node = node(parent.node.path.resolveAnyIndex());
+                        parent.node.anyElement = node;
+                    }
+                    index = parent.nextIndex++;
+                    start = offset;
+                }
+                default -> throw new NbtParseException("Value inside an array");
+            }
+        }
+        pendingName = null;
+        node.count++;
+        node.types[type.ordinal()]++;
+        long tagsBefore = tags++;
+        offset += headerBytes;
+        if (depth == frames.size()) {
+            frames.add(new Frame(node, name, index, type, start, tagsBefore));
+        } else {
+            frames.get(depth).set(node, name, index, type, start, tagsBefore);
+        }
+        depth++;
+    }
+
+    private void endScalar(int document, LinTagId type, int payloadBytes) {
+        beginValue(type, payloadBytes);
+        depth--;
+        finish(document, frames.get(depth));
+    }
+
+    private void endValue(int document, LinTagId type, LinToken token) {
+        checkInside(type, token);
+        depth--;
+        finish(document, frames.get(depth));
+    }
+
+    private void finish(int document, Frame frame) {
+        long bytes = offset - frame.start;
+        Node node = frame.node;
+        node.bytes += bytes;
+        node.tags += tags - frame.tagsBefore;
+        if (heaviestCount == 0) {
+            return;
+        }
+        LinProfile.Subtree lightest = heaviest.peek();
+        if (heaviest.size() == heaviestCount) {
+            if (lightest == null || lightest.bytes() >= bytes) {
+                return;
+            }
+            heaviest.poll();
+        }
+        heaviest.add(new LinProfile.Subtree(document, exactPath(), frame.type, bytes));
+    }
+
+    /**
+     * {@return the exact path of the frame just above the current depth}
+     */
+    private LinPath exactPath() {
+        LinPath path = LinPath.root();
+        for (int i = 1; i <= depth; i++) {
+            Frame frame = frames.get(i);
+            String name = frame.name;
+            path = name != null ? path.resolve(name) : path.resolve(frame.index);
+        }
+        return path;
+    }
+}
@@ -23,6 +23,10 @@
  * Options for reading NBT streams.
  */
 public final class LinReadOptions {
+    /**
+     * The default {@linkplain #arrayChunkSize() array chunk size}.
+     */
+    public static final int DEFAULT_ARRAY_CHUNK_SIZE = 8192;
 
     /**
      * Create a new builder.
@@ -38,6 +42,9 @@ public static Builder builder() {
      */
     public static final class Builder {
         private boolean allowNormalUtf8Encoding = false;
+        private boolean lazyStringDecoding = false;
+        private int arrayChunkSize = DEFAULT_ARRAY_CHUNK_SIZE;
+        private boolean reuseArrayBuffers = false;
 
         private Builder() {
         }
@@ -59,6 +66,61 @@ public Builder allowNormalUtf8Encoding(boolean allowNormalUtf8Encoding) {
             return this;
         }
 
+        /**
+         * Set whether strings may be kept in their encoded form and only decoded when first accessed.
+         *
+         * <p>
+         * This applies where the result can hold a {@link ModifiedUtf8String}: the names and strings given to a
+         * {@link LinHandler}, and string tags read into a tree. Tokens always hold decoded strings, so copying a
+         * token stream with {@link LinBinaryIO#write(java.io.DataOutput, LinStreamable)} still decodes and re-encodes
+         * every string. Malformed strings are then only reported when they are decoded. It has no effect on strings in
+         * normal UTF-8.
+         * </p>
+         *
+         * @param lazyStringDecoding whether to decode strings lazily
+         * @return this builder
+         */
+        public Builder lazyStringDecoding(boolean lazyStringDecoding) {
+            this.lazyStringDecoding = lazyStringDecoding;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of bytes of array content in each content token. The default is
+         * {@value #DEFAULT_ARRAY_CHUNK_SIZE}.
+         *
+         * @param arrayChunkSize the chunk size in bytes, a positive multiple of 8 so every array type fits evenly
+         * @return this builder
+         */
+        public Builder arrayChunkSize(int arrayChunkSize) {
+            if (arrayChunkSize <= 0 || arrayChunkSize % Long.BYTES != 0) {
+                throw new IllegalArgumentException(
+                    "Array chunk size must be a positive multiple of 8: " + arrayChunkSize
+                );
+            }
+            this.arrayChunkSize = arrayChunkSize;
+            return this;
+        }
+
+        /**
+         * Set whether the buffers of array content tokens are reused.
+         *
+         * <p>
+         * When enabled, the reader fills one buffer for every content token, so reading arrays produces almost no
+         * garbage. The buffer of a content token is then only valid until the next call to
+         * {@link LinStream#nextOrNull()} or {@link PeekableLinStream#peekOrNull()} on the reader, and must be
+         * consumed or copied before that. Do not use this with anything that holds on to tokens, such as
+         * {@link LinStream#calculateOptionalInfo()} on a stream wrapping the reader, or {@link LinDiffStream}.
+         * </p>
+         *
+         * @param reuseArrayBuffers whether to reuse array content buffers
+         * @return this builder
+         */
+        public Builder reuseArrayBuffers(boolean reuseArrayBuffers) {
+            this.reuseArrayBuffers = reuseArrayBuffers;
+            return this;
+        }
+
         /**
          * Build the options.
          *
@@ -72,14 +134,23 @@ public LinReadOptions build() {
         public String toString() {
             return "LinReadOptions.Builder{"
                 + "allowNormalUtf8Encoding=" + allowNormalUtf8Encoding
+                + ", lazyStringDecoding=" + lazyStringDecoding
+                + ", arrayChunkSize=" + arrayChunkSize
+                + ", reuseArrayBuffers=" + reuseArrayBuffers
                 + '}';
         }
     }
 
     private final boolean allowNormalUtf8Encoding;
+    private final boolean lazyStringDecoding;
+    private final int arrayChunkSize;
+    private final boolean reuseArrayBuffers;
 
     private LinReadOptions(Builder builder) {
         this.allowNormalUtf8Encoding = builder.allowNormalUtf8Encoding;
+        this.lazyStringDecoding = builder.lazyStringDecoding;
+        this.arrayChunkSize = builder.arrayChunkSize;
+        this.reuseArrayBuffers = builder.reuseArrayBuffers;
     }
 
     /**
@@ -95,10 +166,45 @@ public boolean allowNormalUtf8Encoding() {
         return allowNormalUtf8Encoding;
     }
 
+    /**
+     * {@return whether strings may be kept in their encoded form and only decoded when first accessed}
+     *
+     * <p>
+     * This applies where the result can hold a {@link ModifiedUtf8String}: the names and strings given to a
+     * {@link LinHandler}, and string tags read into a tree. Tokens always hold decoded strings. Malformed strings
+     * are then only reported when they are decoded. It has no effect on strings in normal UTF-8.
+     * </p>
+     */
+    public boolean lazyStringDecoding() {
+        return lazyStringDecoding;
+    }
+
+    /**
+     * {@return the maximum number of bytes of array content in each content token}
+     */
+    public int arrayChunkSize() {
+        return arrayChunkSize;
+    }
+
+    /**
+     * {@return whether the buffers of array content tokens are reused}
+     *
+     * <p>
+     * When enabled, the buffer of a content token is only valid until the next call to {@link LinStream#nextOrNull()}
+     * or {@link PeekableLinStream#peekOrNull()} on the reader.
+     * </p>
+     */
+    public boolean reuseArrayBuffers() {
+        return reuseArrayBuffers;
+    }
+
     @Override
     public String toString() {
         return "LinReadOptions{"
             + "allowNormalUtf8Encoding=" + allowNormalUtf8Encoding
+            + ", lazyStringDecoding=" + lazyStringDecoding
+            + ", arrayChunkSize=" + arrayChunkSize
+            + ", reuseArrayBuffers=" + reuseArrayBuffers
             + '}';
     }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The expected shape of an NBT value, checked by {@link LinStream#validate(LinSchema)}.
+ *
+ * <p>
+ * Schemas are built from the static factory methods here, and are immutable.
+ * </p>
+ */
+public sealed interface LinSchema {
+    /**
+     * {@return a schema that accepts any value}
+     */
+    static LinSchema any() {
+        return Any.INSTANCE;
+    }
+
+    /**
+     * Create a schema that accepts any value of a type. The contents of compounds, lists and arrays are not checked.
+     *
+     * @param type the type
+     * @return the schema
+     */
+    static LinSchema type(LinTagId type) {
+        if (type == LinTagId.END) {
+            throw new IllegalArgumentException("END is not a value type");
+        }
+        return new OfType(type);
+    }
+
+    /**
+     * Create a schema for an array with a bounded length.
+     *
+     * @param type the type of the array
+     * @param minLength the minimum length, inclusive
+     * @param maxLength the maximum length, inclusive
+     * @return the schema
+     */
+    static LinSchema array(LinTagId type, int minLength, int maxLength) {
+        return new ArrayOf(type, minLength, maxLength);
+    }
+
+    /**
+     * Create a schema for a list of any size.
+     *
+     * @param element the schema of every element
+     * @return the schema
+     */
+    static LinSchema list(LinSchema element) {
+        return new ListOf(element, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a schema for a list with a bounded size.
+     *
+     * @param element the schema of every element
+     * @param minSize the minimum size, inclusive
+     * @param maxSize the maximum size, inclusive
+     * @return the schema
+     */
+    static LinSchema list(LinSchema element, int minSize, int maxSize) {
+        return new ListOf(element, minSize, maxSize);
+    }
+
+    /**
+     * {@return a builder for a compound schema}
+     */
+    static CompoundBuilder compound() {
+        return new CompoundBuilder();
+    }
+
+    /**
+     * A schema that accepts any value.
+     */
+    enum Any implements LinSchema {
+        /**
+         * The instance.
+         */
+        INSTANCE
+    }
+
+    /**
+     * A schema that accepts any value of a type.
+     *
+     * @param type the type
+     */
+    record OfType(LinTagId type) implements LinSchema {
+    }
+
+    /**
+     * A schema for an array with a bounded length.
+     *
+     * @param type the type of the array
+     * @param minLength the minimum length, inclusive
+     * @param maxLength the maximum length, inclusive
+     */
+    record ArrayOf(LinTagId type, int minLength, int maxLength) implements LinSchema {
+        /**
+         * Create a new array schema.
+         *
+         * @param type the type of the array
+         * @param minLength the minimum length, inclusive
+         * @param maxLength the maximum length, inclusive
+         */
+        public ArrayOf {
+            if (type != LinTagId.BYTE_ARRAY && type != LinTagId.INT_ARRAY && type != LinTagId.LONG_ARRAY) {
+                throw new IllegalArgumentException("Not an array type: " + type.name());
+            }
+            checkBounds(minLength, maxLength);
+        }
+    }
+
+    /**
+     * A schema for a list.
+     *
+     * @param element the schema of every element
+     * @param minSize the minimum size, inclusive
+     * @param maxSize the maximum size, inclusive
+     */
+    record ListOf(LinSchema element, int minSize, int maxSize) implements LinSchema {
+        /**
+         * Create a new list schema.
+         *
+         * @param element the schema of every element
+         * @param minSize the minimum size, inclusive
+         * @param maxSize the maximum size, inclusive
+         */
+        public ListOf {
+            checkBounds(minSize, maxSize);
+        }
+    }
+
+    /**
+     * A schema for a compound.
+     *
+     * @param entries the schemas of the known entries, in the order missing entries are reported
+     * @param allowUnknownEntries whether entries that aren't listed are accepted
+     */
+    record CompoundOf(Map<String, Entry> entries, boolean allowUnknownEntries) implements LinSchema {
+        /**
+         * Create a new compound schema.
+         *
+         * @param entries the schemas of the known entries
+         * @param allowUnknownEntries whether entries that aren't listed are accepted
+         */
+        public CompoundOf {
+            entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+        }
+    }
+
+    /**
+     * A known entry of a {@link CompoundOf compound schema}.
+     *
+     * @param schema the schema of the value
+     * @param required whether the entry must be present
+     */
+    record Entry(LinSchema schema, boolean required) {
+    }
+
+    /**
+     * Builder for {@link CompoundOf compound schemas}.
+     */
+    final class CompoundBuilder {
+        private final Map<String, Entry> entries = new LinkedHashMap<>();
+        private boolean allowUnknownEntries = true;
+
+        private CompoundBuilder() {
+        }
+
+        /**
+         * Add an entry that must be present.
+         *
+         * @param name the name of the entry
+         * @param schema the schema of the value
+         * @return this builder
+         */
+        public CompoundBuilder required(String name, LinSchema schema) {
+            entries.put(name, new Entry(schema, true));
+            return this;
+        }
+
+        /**
+         * Add an entry that may be present.
+         *
+         * @param name the name of the entry
+         * @param schema the schema of the value
+         * @return this builder
+         */
+        public CompoundBuilder optional(String name, LinSchema schema) {
+            entries.put(name, new Entry(schema, false));
+            return this;
+        }
+
+        /**
+         * Set whether entries that aren't listed are accepted. They are by default.
+         *
+         * @param allowUnknownEntries whether unknown entries are accepted
+         * @return this builder
+         */
+        public CompoundBuilder allowUnknownEntries(boolean allowUnknownEntries) {
+            this.allowUnknownEntries = allowUnknownEntries;
+            return this;
+        }
+
+        /**
+         * Build the schema.
+         *
+         * @return the schema
+         */
+        public LinSchema build() {
+            return new CompoundOf(entries, allowUnknownEntries);
+        }
+    }
+
+    private static void checkBounds(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid bounds: " + min + " to " + max);
+        }
+    }
+}
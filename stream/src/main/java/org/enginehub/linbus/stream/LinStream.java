@@ -18,8 +18,17 @@
 
 package org.enginehub.linbus.stream;
 
+import org.enginehub.linbus.common.IOFunction;
 import org.enginehub.linbus.common.internal.AbstractIterator;
+import org.enginehub.linbus.stream.exception.NbtSchemaException;
+import org.enginehub.linbus.stream.impl.EntryFilter;
+import org.enginehub.linbus.stream.impl.EntryInserter;
+import org.enginehub.linbus.stream.impl.KeyRenamer;
+import org.enginehub.linbus.stream.impl.ListElementSpliterator;
 import org.enginehub.linbus.stream.impl.OptionalInfoCalculator;
+import org.enginehub.linbus.stream.impl.PeekingLinStream;
+import org.enginehub.linbus.stream.impl.SchemaValidator;
+import org.enginehub.linbus.stream.impl.ValueMapper;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
@@ -27,6 +36,10 @@
 import java.io.UncheckedIOException;
 import java.util.Iterator;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents a stream of {@link LinToken LinTokens}.
@@ -115,6 +128,129 @@ default LinStream calculateOptionalInfo() {
         return new OptionalInfoCalculator(this);
     }
 
+    /**
+     * Allow looking at the next token without consuming it.
+     *
+     * <p>
+     * Streams that can peek natively, such as the readers from {@link LinBinaryIO}, return themselves. Other streams
+     * are wrapped, holding at most one token in memory.
+     * </p>
+     *
+     * @return the content of this stream, but peekable
+     */
+    default PeekableLinStream peekable() {
+        return new PeekingLinStream(this);
+    }
+
+    /**
+     * Drop compound entries as they stream past.
+     *
+     * <p>
+     * The filter is called with the {@linkplain LinPath path} of every compound entry. Dropped entries are skipped
+     * without being held in memory, and their contents are not filtered further. List elements are never dropped,
+     * as the list size has already been emitted by then.
+     * </p>
+     *
+     * @param filter the filter, returning {@code true} for entries to keep
+     * @return the content of this stream, without the dropped entries
+     */
+    default LinStream filterEntries(Predicate<? super LinPath> filter) {
+        return new EntryFilter(this, filter);
+    }
+
+    /**
+     * Rename compound entries as they stream past.
+     *
+     * <p>
+     * The renamer is called with the {@linkplain LinPath path} of every compound entry, and returns the name to use
+     * for it. Paths always use the original names.
+     * </p>
+     *
+     * @param renamer the function giving the new name of an entry
+     * @return the content of this stream, with entries renamed
+     */
+    default LinStream renameKeys(Function<? super LinPath, String> renamer) {
+        return new KeyRenamer(this, renamer);
+    }
+
+    /**
+     * Replace values as they stream past.
+     *
+     * <p>
+     * For every compound entry or list element whose {@linkplain LinPath path} matches, the mapper is given the
+     * tokens of the original value, and returns the replacement. The mapper may read as much or as little of the
+     * original value as it needs; the rest is skipped. Replacements in compounds may change the type of the entry,
+     * but replacements in lists must keep the element type.
+     * </p>
+     *
+     * @param where the paths of the values to replace
+     * @param mapper the function giving the replacement for a value
+     * @return the content of this stream, with values replaced
+     */
+    default LinStream mapValues(
+        Predicate<? super LinPath> where,
+        IOFunction<? super LinStream, ? extends LinStreamable> mapper
+    ) {
+        return new ValueMapper(this, where, mapper);
+    }
+
+    /**
+     * Insert a value as the stream passes its location.
+     *
+     * <p>
+     * If the path ends in a name, the value is put into the compound at the parent path, replacing any existing
+     * entry with that name. If it ends in an index, the value is inserted into the list at the parent path, shifting
+     * later elements. If the parent is not found, the stream is unchanged.
+     * </p>
+     *
+     * @param path the path to insert at, which must not be the root path
+     * @param value the value to insert
+     * @return the content of this stream, with the value inserted
+     */
+    default LinStream insertAt(LinPath path, LinStreamable value) {
+        return new EntryInserter(this, path, value);
+    }
+
+    /**
+     * Check values against a schema as they stream past.
+     *
+     * <p>
+     * Each token is checked before it is returned, and the first violation throws a {@link NbtSchemaException} with
+     * the path of the offending value, so a malformed stream is rejected after reading only a prefix of it. Missing
+     * required entries and too-short lists and arrays are reported when their container ends.
+     * </p>
+     *
+     * @param schema the schema of the root value
+     * @return the content of this stream, checked against the schema
+     */
+    default LinStream validate(LinSchema schema) {
+        return new SchemaValidator(this, schema);
+    }
+
+    /**
+     * Split the list at the start of this stream into a stream of its elements, each as a {@link LinStream} of its
+     * own.
+     *
+     * <p>
+     * The list start is read immediately. Elements are read from this stream on demand, by whichever thread advances
+     * or splits the returned stream, and their tokens are recorded so that they can be processed on any thread in any
+     * order. Made {@linkplain Stream#parallel() parallel}, this decodes large lists of compounds on several threads
+     * while this stream is only read by one at a time. The returned stream is ordered, so order-sensitive operations
+     * such as {@link Stream#forEachOrdered} and {@link Stream#toList()} keep the element order.
+     * </p>
+     *
+     * <p>
+     * Once the returned stream is exhausted, the list end has been read, and this stream continues after the list.
+     * Any {@link IOException}s thrown by this stream will be propagated as {@link UncheckedIOException}s.
+     * </p>
+     *
+     * @return the elements of the list
+     * @throws IOException if an I/O error occurs
+     */
+    default Stream<LinStream> listElements() throws IOException {
+        return StreamSupport.stream(ListElementSpliterator.create(this), false);
+    }
+
     /**
      * A {@link LinStream} is always streamable as itself.
      *
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.impl.ArrayContents;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fans a single pass over an NBT stream out to several {@linkplain LinTokenSink sinks}.
+ *
+ * <p>
+ * This lets one read of a document produce several outputs, e.g. writing it with
+ * {@link LinBinaryIO#writer(DataOutput)}, computing its {@linkplain LinDigest#sink() digest} and printing it as SNBT,
+ * without reading it again or building a tree. Each sink gets its own view of array content, so sinks never consume
+ * it for each other.
+ * </p>
+ */
+public final class LinTee {
+    /**
+     * The default number of tokens that may be queued for each sink by
+     * {@link #broadcastInParallel(LinStreamable, List)}.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /**
+     * The most tokens handed to a sink thread at once, so that the queues are not synchronized on for every token.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = Thread.ofPlatform()
+        .name("lin-bus-tee-", 0)
+        .daemon()
+        .factory();
+
+    /**
+     * Marks the end of the tokens.
+     */
+    private static final LinToken[] END = new LinToken[0];
+    /**
+     * Marks that the tokens stop early because something failed, so the sink should not be finished.
+     */
+    private static final LinToken[] ABORT = new LinToken[0];
+
+    /**
+     * Push every token of a stream to each of the sinks in turn, on the calling thread, then finish them.
+     *
+     * <p>
+     * A failure of the stream or of a sink is thrown immediately, and no further tokens are pushed.
+     * </p>
+     *
+     * @param source the source of the stream
+     * @param sinks the sinks to push tokens to
+     * @return the results of the sinks, in the same order
+     * @throws IOException if an I/O error occurs
+     */
+    public static List<@Nullable Object> broadcast(
+        LinStreamable source, List<? extends LinTokenSink<?>> sinks
+    ) throws IOException {
+        LinStream stream = source.linStream();
+        LinToken token;
+        while ((token = stream.nextOrNull()) != null) {
+            for (LinTokenSink<?> sink : sinks) {
+                sink.accept(ArrayContents.duplicate(token));
+            }
+        }
+        var results = new ArrayList<@Nullable Object>(sinks.size());
+        for (LinTokenSink<?> sink : sinks) {
+            results.add(sink.finish());
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Read a stream on the calling thread, and push its tokens to each of the sinks on a daemon thread of its own,
+     * with up to {@value #DEFAULT_QUEUE_CAPACITY} tokens queued for each sink.
+     *
+     * @param source the source of the stream
+     * @param sinks the sinks to push tokens to
+     * @return the results of the sinks, in the same order
+     * @throws IOException if an I/O error occurs
+     * @see #broadcastInParallel(LinStreamable, List, int, ThreadFactory)
+     */
+    public static List<@Nullable Object> broadcastInParallel(
+        LinStreamable source, List<? extends LinTokenSink<?>> sinks
+    ) throws IOException {
+        return broadcastInParallel(source, sinks, DEFAULT_QUEUE_CAPACITY, DEFAULT_THREAD_FACTORY);
+    }
+
+    /**
+     * Read a stream on the calling thread, and push its tokens to each of the sinks on a thread of its own.
+     *
+     * <p>
+     * Each sink has a bounded queue, so reading waits while the slowest sink is {@code queueCapacity} tokens behind,
+     * and a slow sink never forces the whole document to be held in memory. Array content is copied once as it is
+     * queued, and shared by all sinks.
+     * </p>
+     *
+     * <p>
+     * If the stream or a sink fails, sinks that are not done yet are stopped without being finished, and the first
+     * failure is thrown once all sink threads have stopped. This method always waits for them, so the sinks are safe
+     * to use again once it returns.
+     * </p>
+     *
+     * @param source the source of the stream
+     * @param sinks the sinks to push tokens to
+     * @param queueCapacity the most tokens to queue for each sink
+     * @param threadFactory the factory for the sink threads, which may create virtual threads
+     * @return the results of the sinks, in the same order
+     * @throws IOException if an I/O error occurs
+     */
+    public static List<@Nullable Object> broadcastInParallel(
+        LinStreamable source, List<? extends LinTokenSink<?>> sinks, int queueCapacity, ThreadFactory threadFactory
+    ) throws IOException {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        return new ParallelBroadcast(sinks, queueCapacity).run(source, threadFactory);
+    }
+
+    private static final class ParallelBroadcast {
+        private final List<Branch> branches;
+        private final int batchSize;
+        /**
+         * The first failure of the stream or a sink, which stops every branch.
+         */
+        private final AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+
+        ParallelBroadcast(List<? extends LinTokenSink<?>> sinks, int queueCapacity) {
+            this.batchSize = Math.min(queueCapacity, MAX_BATCH_SIZE);
+            int queuedBatches = Math.max(1, queueCapacity / batchSize);
+            var branches = new ArrayList<Branch>(sinks.size());
+            for (LinTokenSink<?> sink : sinks) {
+                branches.add(new Branch(sink, new ArrayBlockingQueue<>(queuedBatches)));
+            }
+            this.branches = branches;
+        }
+
+        List<@Nullable Object> run(LinStreamable source, ThreadFactory threadFactory) throws IOException {
+            var threads = new ArrayList<Thread>(branches.size());
+            try {
+                for (Branch branch : branches) {
+                    Thread thread = threadFactory.newThread(branch);
+                    if (thread == null) {
+                        throw new IllegalArgumentException("Thread factory did not create a thread");
+                    }
+                    thread.start();
+                    threads.add(thread);
+                }
+                pump(source.linStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new InterruptedIOException("Interrupted while queueing tokens"));
+            } catch (Throwable t) {
+                fail(t);
+            }
+            if (failure.get() != null) {
+                for (Branch branch : branches) {
+                    branch.abort();
+                }
+            }
+            joinAll(threads);
+            Throwable failure = this.failure.get();
+            return switch (failure) {
+                case null -> {
+                    var results = new ArrayList<@Nullable Object>(branches.size());
+                    for (Branch branch : branches) {
+                        results.add(branch.result);
+                    }
+                    yield Collections.unmodifiableList(results);
+                }
+                case IOException e -> throw e;
+                case RuntimeException e -> throw e;
+                case Error e -> throw e;
+                default -> throw new IOException(failure);
+            };
+        }
+
+        private void pump(LinStream stream) throws IOException, InterruptedException {
+            var batch = new LinToken[batchSize];
+            int size = 0;
+            LinToken token;
+            while (failure.get() == null && (token = stream.nextOrNull()) != null) {
+                // The stream may reuse array content once the next token is read
+                batch[size++] = ArrayContents.copy(token);
+                if (size == batch.length) {
+                    publish(batch);
+                    batch = new LinToken[batchSize];
+                    size = 0;
+                }
+            }
+            if (failure.get() != null) {
+                return;
+            }
+            if (size > 0) {
+                publish(Arrays.copyOf(batch, size));
+            }
+            publish(END);
+        }
+
+        private void publish(LinToken[] batch) throws InterruptedException {
+            for (Branch branch : branches) {
+                branch.queue.put(batch);
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (!failure.compareAndSet(null, t)) {
+                Throwable first = failure.get();
+                if (first != null && first != t) {
+                    first.addSuppressed(t);
+                }
+            }
+        }
+
+        private static void joinAll(List<Thread> threads) {
+            boolean interrupted = Thread.interrupted();
+            for (Thread thread : threads) {
+                while (true) {
+                    try {
+                        thread.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private final class Branch implements Runnable {
+            final LinTokenSink<?> sink;
+            final BlockingQueue<LinToken[]> queue;
+            /**
+             * The result of the sink, published to the reader by the end of the thread.
+             */
+            @Nullable Object result;
+
+            Branch(LinTokenSink<?> sink, BlockingQueue<LinToken[]> queue) {
+                this.sink = sink;
+                this.queue = queue;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        LinToken[] batch = queue.take();
+                        if (batch == ABORT) {
+                            return;
+                        }
+                        if (batch == END) {
+                            result = sink.finish();
+                            return;
+                        }
+                        for (LinToken token : batch) {
+                            sink.accept(ArrayContents.duplicate(token));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop(new InterruptedIOException("Interrupted while waiting for tokens"));
+                } catch (Throwable t) {
+                    stop(t);
+                }
+            }
+
+            private void stop(Throwable t) {
+                fail(t);
+                // Make room for the reader, so that it notices the failure instead of waiting on this queue
+                queue.clear();
+            }
+
+            /**
+             * Stop the sink thread once it is done with its current batch.
+             */
+            void abort() {
+                // Only the reader adds to the queue, so there is room once it is cleared
+                queue.clear();
+                queue.offer(ABORT);
+            }
+        }
+    }
+
+    private LinTee() {
+    }
+}
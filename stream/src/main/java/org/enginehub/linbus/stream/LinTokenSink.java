@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Consumes tokens that are pushed to it one at a time, and produces a result once they end.
+ *
+ * <p>
+ * This is the push counterpart of reading a {@link LinStream} to the end, for sources that produce tokens on their
+ * own schedule, such as {@link LinFlow#subscriber(LinTokenSink) Flow subscribers}, or that feed several consumers at
+ * once, such as a {@linkplain LinTee tee}. Array content passed to {@link #accept(LinToken)} is only valid during the
+ * call, so sinks that keep it must copy it.
+ * </p>
+ *
+ * @param <R> the type of the result
+ */
+public interface LinTokenSink<R extends @Nullable Object> {
+    /**
+     * Consume the next token.
+     *
+     * @param token the token
+     * @throws IOException if an I/O error occurs
+     */
+    void accept(LinToken token) throws IOException;
+
+    /**
+     * Signal that there are no more tokens. Sinks throw an unchecked exception if the tokens ended in the middle of a
+     * value.
+     *
+     * @return the result
+     * @throws IOException if an I/O error occurs
+     */
+    R finish() throws IOException;
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A string held in the modified UTF-8 encoding used by NBT, decoded only when its characters are first needed.
+ *
+ * <p>
+ * Strings that are passed through without being looked at can be written back byte-for-byte, and can be
+ * {@linkplain #contentEquals(ModifiedUtf8String) compared} to a pre-encoded key without decoding. Equality and hash
+ * codes are based on the encoded bytes.
+ * </p>
+ */
+public final class ModifiedUtf8String implements CharSequence {
+    /**
+     * The maximum encoded length of a string in NBT, as the length is stored in an unsigned short.
+     */
+    public static final int MAX_ENCODED_LENGTH = 0xFFFF;
+
+    /**
+     * Encode a string.
+     *
+     * @param value the string
+     * @return the encoded string
+     */
+    public static ModifiedUtf8String of(String value) {
+        byte[] encoded = new byte[encodedLength(value)];
+        encode(value, ByteBuffer.wrap(encoded));
+        var result = new ModifiedUtf8String(encoded);
+        result.decoded = value;
+        return result;
+    }
+
+    /**
+     * Compute the length of a string in modified UTF-8, without encoding it.
+     *
+     * @param value the string
+     * @return the number of encoded bytes, without the length prefix
+     */
+    public static int encodedLength(CharSequence value) {
+        int length = value.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            // NUL and everything outside ASCII take at least 2 bytes in modified UTF-8
+            if (c == 0 || c >= 0x80) {
+                encodedLength += c >= 0x800 ? 2 : 1;
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Encode a string into a buffer, without a length prefix.
+     *
+     * @param value the string
+     * @param target the buffer to write to, which must have {@link #encodedLength(CharSequence)} bytes remaining
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough room
+     */
+    public static void encode(CharSequence value, ByteBuffer target) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c != 0 && c < 0x80) {
+                target.put((byte) c);
+            } else if (c < 0x800) {
+                target.put((byte) (0xC0 | (c >> 6)));
+                target.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                target.put((byte) (0xE0 | (c >> 12)));
+                target.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                target.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Wrap already encoded bytes. They are not checked until the string is decoded.
+     *
+     * @param encoded the encoded bytes, without a length prefix
+     * @return the string
+     */
+    public static ModifiedUtf8String ofEncoded(byte[] encoded) {
+        return new ModifiedUtf8String(encoded.clone());
+    }
+
+    /**
+     * Read a length-prefixed string without decoding it.
+     *
+     * @param input the input to read from
+     * @return the string
+     * @throws IOException if an I/O error occurs
+     */
+    public static ModifiedUtf8String read(DataInput input) throws IOException {
+        byte[] encoded = new byte[input.readUnsignedShort()];
+        input.readFully(encoded);
+        return new ModifiedUtf8String(encoded);
+    }
+
+    private final byte[] encoded;
+    private @Nullable String decoded;
+
+    private ModifiedUtf8String(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * {@return the number of encoded bytes, without the length prefix}
+     */
+    public int encodedLength() {
+        return encoded.length;
+    }
+
+    /**
+     * {@return a read-only view of the encoded bytes, without the length prefix}
+     */
+    public ByteBuffer encoded() {
+        return ByteBuffer.wrap(encoded).asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the length-prefixed encoded bytes, as {@link DataOutput#writeUTF(String)} would.
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     * @throws UTFDataFormatException if the string is longer than {@link #MAX_ENCODED_LENGTH}
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        if (encoded.length > MAX_ENCODED_LENGTH) {
+            throw new UTFDataFormatException("encoded string too long: " + encoded.length + " bytes");
+        }
+        output.writeShort(encoded.length);
+        output.write(encoded);
+    }
+
+    /**
+     * Check if this has the same encoded bytes as another string, without decoding either.
+     *
+     * @param other the other string
+     * @return {@code true} if the encoded bytes are equal
+     */
+    public boolean contentEquals(ModifiedUtf8String other) {
+        return Arrays.equals(encoded, other.encoded);
+    }
+
+    /**
+     * {@return whether the decoded string has been computed yet}
+     */
+    public boolean isDecoded() {
+        return decoded != null;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return encoded.length == 0;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return obj instanceof ModifiedUtf8String other && contentEquals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+
+    /**
+     * {@return the decoded string}
+     *
+     * @throws NbtParseException if the bytes are not valid modified UTF-8
+     */
+    @Override
+    public String toString() {
+        String value = decoded;
+        if (value == null) {
+            value = decode(encoded);
+            decoded = value;
+        }
+        return value;
+    }
+
+    private static String decode(byte[] encoded) {
+        char[] chars = new char[encoded.length];
+        int count = 0;
+        int i = 0;
+        while (i < encoded.length) {
+            int b = encoded[i] & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0) {
+                int b2 = continuation(encoded, i + 1);
+                chars[count++] = (char) (((b & 0x1F) << 6) | b2);
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                int b2 = continuation(encoded, i + 1);
+                int b3 = continuation(encoded, i + 2);
+                chars[count++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+                i += 3;
+            } else {
+                throw new NbtParseException("Malformed modified UTF-8 at byte " + i);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static int continuation(byte[] encoded, int index) {
+        if (index >= encoded.length || (encoded[index] & 0xC0) != 0x80) {
+            throw new NbtParseException("Malformed modified UTF-8 at byte " + index);
+        }
+        return encoded[index] & 0x3F;
+    }
+}
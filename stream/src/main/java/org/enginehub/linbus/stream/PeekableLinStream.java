@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * A {@link LinStream} that can look at its next token without consuming it.
+ *
+ * <p>
+ * Readers implement this natively, so looking ahead does not require wrapping the stream or pushing tokens back.
+ * </p>
+ */
+public interface PeekableLinStream extends LinStream {
+    /**
+     * {@return the next token in the stream if any, without consuming it} The following call to
+     * {@link #nextOrNull()} will return the same token. If this returns {@code null}, the stream is exhausted.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable LinToken peekOrNull() throws IOException;
+
+    /**
+     * {@return the next token in the stream if any, without consuming it}
+     *
+     * @throws IOException if an I/O error occurs
+     * @see #peekOrNull()
+     */
+    default Optional<LinToken> peek() throws IOException {
+        return Optional.ofNullable(peekOrNull());
+    }
+
+    /**
+     * This stream is already peekable.
+     *
+     * @return this
+     */
+    @Override
+    default PeekableLinStream peekable() {
+        return this;
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An input stream that reads its source on a background thread, ahead of the consumer.
+ *
+ * <p>
+ * The source is read into a bounded ring of reusable buffers, which the consumer drains while the next ones are being
+ * filled. This is useful when producing the bytes is expensive, for example when the source is a
+ * {@link java.util.zip.GZIPInputStream}: decompression then runs in parallel with parsing, e.g.
+ * {@code LinBinaryIO.read(new DataInputStream(new PipelinedInputStream(new GZIPInputStream(in))))}.
+ * </p>
+ *
+ * <p>
+ * The source is owned by this stream, and is closed by the background thread once it is exhausted, fails, or this
+ * stream is closed. Failures of the source are rethrown to the consumer once it has read all bytes before them.
+ * Closing this stream stops the background thread and waits for it to finish, which may take until a pending read of
+ * the source returns. Like other streams, this stream is not safe to read from multiple threads.
+ * </p>
+ */
+public final class PipelinedInputStream extends InputStream {
+    /**
+     * The default size of each buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * The default number of buffers.
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = Thread.ofPlatform()
+        .name("lin-bus-pipeline-", 0)
+        .daemon()
+        .factory();
+
+    private static final class Chunk {
+        final byte[] data;
+        int length;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /**
+     * Marks the end of the source, successful or not.
+     */
+    private static final Chunk END = new Chunk(0);
+
+    private final InputStream source;
+    /**
+     * Buffers ready to be filled by the background thread.
+     */
+    private final BlockingQueue<Chunk> free;
+    /**
+     * Buffers ready to be read by the consumer, followed by {@link #END}.
+     */
+    private final BlockingQueue<Chunk> filled;
+    private final Thread producer;
+    /**
+     * The failure of the source, published to the consumer by {@link #END}.
+     */
+    private @Nullable Throwable failure;
+    private volatile boolean closed;
+    private @Nullable Chunk current;
+    private int position;
+
+    /**
+     * Creates a new stream with {@value #DEFAULT_BUFFER_COUNT} buffers of {@value #DEFAULT_BUFFER_SIZE} bytes, read
+     * by a daemon thread.
+     *
+     * @param source the source to read from
+     */
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT, DEFAULT_THREAD_FACTORY);
+    }
+
+    /**
+     * Creates a new stream.
+     *
+     * @param source the source to read from
+     * @param bufferSize the size of each buffer
+     * @param bufferCount the number of buffers, at least 2 so that reading and filling can overlap
+     * @param threadFactory the factory for the background thread, which may create virtual threads
+     */
+    public PipelinedInputStream(InputStream source, int bufferSize, int bufferCount, ThreadFactory threadFactory) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        if (bufferCount < 2) {
+            throw new IllegalArgumentException("Buffer count must be at least 2: " + bufferCount);
+        }
+        this.source = Objects.requireNonNull(source, "source");
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        // Leave room for END, so the background thread never blocks on this queue
+        this.filled = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        Thread producer = threadFactory.newThread(this::produce);
+        if (producer == null) {
+            throw new IllegalArgumentException("Thread factory did not create a thread");
+        }
+        this.producer = producer;
+        producer.start();
+    }
+
+    private void produce() {
+        try {
+            boolean more = true;
+            while (more && !closed) {
+                Chunk chunk = free.take();
+                chunk.length = 0;
+                try {
+                    more = fill(chunk);
+                } finally {
+                    // Hand over what was read even if the source failed, the failure comes after it
+                    if (chunk.length > 0) {
+                        filled.add(chunk);
+                    } else {
+                        free.add(chunk);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // We were closed, nobody is waiting for the rest
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            try {
+                source.close();
+            } catch (Throwable t) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+            filled.add(END);
+        }
+    }
+
+    /**
+     * Fill a chunk from the source, keeping its length up to date as bytes arrive.
+     *
+     * @param chunk the chunk to fill
+     * @return {@code false} if the end of the source was reached
+     * @throws IOException if the source fails
+     */
+    private boolean fill(Chunk chunk) throws IOException {
+        while (chunk.length < chunk.data.length) {
+            int read = source.read(chunk.data, chunk.length, chunk.data.length - chunk.length);
+            if (read < 0) {
+                return false;
+            }
+            chunk.length += read;
+        }
+        return true;
+    }
+
+    /**
+     * Get a chunk with bytes left to read, waiting for the background thread if needed.
+     *
+     * @return the chunk, or {@code null} at the end of the source
+     * @throws IOException if the source failed, this stream is closed, or the wait is interrupted
+     */
+    private @Nullable Chunk nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        Chunk chunk = current;
+        if (chunk != null && position < chunk.length) {
+            return chunk;
+        }
+        if (chunk == END) {
+            return endOfSource();
+        }
+        if (chunk != null) {
+            free.add(chunk);
+            current = null;
+        }
+        try {
+            chunk = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the source");
+        }
+        current = chunk;
+        position = 0;
+        return chunk == END ? endOfSource() : chunk;
+    }
+
+    private @Nullable Chunk endOfSource() throws IOException {
+        Throwable failure = this.failure;
+        return switch (failure) {
+            case null -> null;
+            case IOException e -> throw e;
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            default -> throw new IOException(failure);
+        };
+    }
+
+    @Override
+    public int read() throws IOException {
+        Chunk chunk = nextChunk();
+        if (chunk == null) {
+            return -1;
+        }
+        return chunk.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        Chunk chunk = nextChunk();
+        if (chunk == null) {
+            return -1;
+        }
+        int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk.data, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            Chunk chunk = nextChunk();
+            if (chunk == null) {
+                break;
+            }
+            int count = (int) Math.min(n - skipped, chunk.length - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        Chunk chunk = current;
+        return chunk == null ? 0 : chunk.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        producer.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                producer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
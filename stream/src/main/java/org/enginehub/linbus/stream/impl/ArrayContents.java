@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.token.LinToken;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Helpers for array content tokens, whose buffers are consumed by reading them and may be reused by their source.
+ */
+public final class ArrayContents {
+    /**
+     * Copy the array content of a token into a new buffer, as the source may reuse it once the next token is read.
+     * Other tokens are returned as-is.
+     *
+     * @param token the token
+     * @return a token that owns its array content
+     */
+    public static LinToken copy(LinToken token) {
+        return switch (token) {
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> new LinToken.ByteArrayContent(
+                ByteBuffer.allocate(buffer.remaining()).put(buffer.duplicate()).flip().asReadOnlyBuffer()
+            );
+            case LinToken.IntArrayContent(IntBuffer buffer) -> new LinToken.IntArrayContent(
+                IntBuffer.allocate(buffer.remaining()).put(buffer.duplicate()).flip().asReadOnlyBuffer()
+            );
+            case LinToken.LongArrayContent(LongBuffer buffer) -> new LinToken.LongArrayContent(
+                LongBuffer.allocate(buffer.remaining()).put(buffer.duplicate()).flip().asReadOnlyBuffer()
+            );
+            default -> token;
+        };
+    }
+
+    /**
+     * Duplicate the array content of a token, so that reading it does not consume the original. Other tokens are
+     * returned as-is.
+     *
+     * @param token the token
+     * @return a token with its own position in the array content
+     */
+    public static LinToken duplicate(LinToken token) {
+        return switch (token) {
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> new LinToken.ByteArrayContent(buffer.duplicate());
+            case LinToken.IntArrayContent(IntBuffer buffer) -> new LinToken.IntArrayContent(buffer.duplicate());
+            case LinToken.LongArrayContent(LongBuffer buffer) -> new LinToken.LongArrayContent(buffer.duplicate());
+            default -> token;
+        };
+    }
+
+    private ArrayContents() {
+    }
+}
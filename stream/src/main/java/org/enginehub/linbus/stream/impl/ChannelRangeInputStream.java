@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An input stream over a range of a file. It reads at absolute positions, so it doesn't use or change the position
+ * of the channel, and several can read from one channel at once.
+ */
+public final class ChannelRangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private final String description;
+    private long position;
+    private final long end;
+
+    /**
+     * Creates a new stream.
+     *
+     * @param channel the file to read from
+     * @param offset the position of the first byte of the range
+     * @param length the number of bytes in the range
+     * @param description what the range holds, for the error if the file ends before the range does
+     */
+    public ChannelRangeInputStream(FileChannel channel, long offset, long length, String description) {
+        this.channel = channel;
+        this.description = description;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+        if (read < 0) {
+            throw new EOFException("File ends before " + description);
+        }
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(end - position, Integer.MAX_VALUE);
+    }
+}
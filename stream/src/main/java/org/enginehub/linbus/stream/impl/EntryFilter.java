@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Implementation of {@link LinStream#filterEntries(Predicate)}.
+ */
+public final class EntryFilter extends TransformingLinStream {
+    private final Predicate<? super LinPath> filter;
+
+    /**
+     * Create a new {@link EntryFilter}.
+     *
+     * @param source the stream to filter
+     * @param filter the filter, returning {@code true} for entries to keep
+     */
+    public EntryFilter(LinStream source, Predicate<? super LinPath> filter) {
+        super(source);
+        this.filter = filter;
+    }
+
+    @Override
+    @Nullable LinToken transform(LinToken token) throws IOException {
+        boolean isEntry = token instanceof LinToken.Name && tracker.inCompound();
+        LinPath path = tracker.track(token);
+        if (isEntry && !filter.test(path)) {
+            skipValue(null);
+            return null;
+        }
+        return token;
+    }
+}
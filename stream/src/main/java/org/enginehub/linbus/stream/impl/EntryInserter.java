@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.PeekableLinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Implementation of {@link LinStream#insertAt(LinPath, LinStreamable)}.
+ */
+public final class EntryInserter extends TransformingLinStream {
+    private final LinPath path;
+    private final LinPath parent;
+    private final LinStreamable value;
+    private @Nullable PeekableLinStream valueStream;
+    private boolean done;
+
+    /**
+     * Create a new {@link EntryInserter}.
+     *
+     * @param source the stream to insert into
+     * @param path the path to insert at
+     * @param value the value to insert
+     */
+    public EntryInserter(LinStream source, LinPath path, LinStreamable value) {
+        super(source);
+        LinPath parent = path.parent();
+        if (parent == null) {
+            throw new IllegalArgumentException("Cannot insert at the root path");
+        }
+        this.path = path;
+        this.parent = parent;
+        this.value = value;
+    }
+
+    private PeekableLinStream valueStream() {
+        PeekableLinStream stream = valueStream;
+        if (stream == null) {
+            stream = value.linStream().peekable();
+            valueStream = stream;
+        }
+        return stream;
+    }
+
+    private LinTagId valueId() throws IOException {
+        LinToken start = valueStream().peekOrNull();
+        LinTagId id = start == null ? null : start.tagId().orElse(null);
+        if (id == null) {
+            throw new NbtParseException("Value inserted at " + path + " does not start with a value: " + start);
+        }
+        return id;
+    }
+
+    @Override
+    @Nullable LinToken transform(LinToken token) throws IOException {
+        if (done) {
+            return token;
+        }
+        String name = path.name();
+        if (name != null) {
+            return insertIntoCompound(token, name);
+        }
+        return insertIntoList(token);
+    }
+
+    private @Nullable LinToken insertIntoCompound(LinToken token, String name) throws IOException {
+        if (token instanceof LinToken.Name && tracker.inCompound()) {
+            if (tracker.track(token).equals(path)) {
+                // Replace the existing entry
+                done = true;
+                LinTagId id = valueId();
+                skipValue(null);
+                splice(valueStream());
+                return new LinToken.Name(name, id);
+            }
+            return token;
+        }
+        if (token instanceof LinToken.CompoundEnd && parent.equals(tracker.containerPath())) {
+            done = true;
+            LinTagId id = valueId();
+            tracker.track(token);
+            splice(valueStream());
+            splice(LinStream.of(token));
+            return new LinToken.Name(name, id);
+        }
+        tracker.track(token);
+        return token;
+    }
+
+    private @Nullable LinToken insertIntoList(LinToken token) throws IOException {
+        if (token instanceof LinToken.ListStart(var size, var elementId) && parent.equals(tracker.nextValuePath())) {
+            tracker.track(token);
+            LinTagId id = valueId();
+            if (size.isPresent() && path.index() > size.getAsInt()) {
+                // Fail before a wrong size is passed on
+                throw new NbtParseException(
+                    "Cannot insert at " + path + ", the list only has " + size.getAsInt() + " elements"
+                );
+            }
+            if (size.isPresent() && size.getAsInt() == 0) {
+                return new LinToken.ListStart(1, id);
+            }
+            if (elementId.isPresent() && elementId.get() != id) {
+                throw new NbtParseException(
+                    "Value inserted at " + path + " is " + id.name() + ", but the list holds " + elementId.get().name()
+                );
+            }
+            return size.isPresent() ? new LinToken.ListStart(size.getAsInt() + 1, id) : token;
+        }
+        if (tracker.inList() && parent.equals(tracker.containerPath())) {
+            boolean isEnd = token instanceof LinToken.ListEnd;
+            if ((isEnd || token.tagId().isPresent()) && tracker.nextIndex() == path.index()) {
+                done = true;
+                tracker.track(token);
+                splice(valueStream());
+                splice(LinStream.of(token));
+                return null;
+            }
+            if (isEnd) {
+                throw new NbtParseException(
+                    "Cannot insert at " + path + ", the list only has " + tracker.nextIndex() + " elements"
+                );
+            }
+        }
+        tracker.track(token);
+        return token;
+    }
+}
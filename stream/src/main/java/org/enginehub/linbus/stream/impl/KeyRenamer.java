@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+
+import java.util.function.Function;
+
+/**
+ * Implementation of {@link LinStream#renameKeys(Function)}.
+ */
+public final class KeyRenamer extends TransformingLinStream {
+    private final Function<? super LinPath, String> renamer;
+
+    /**
+     * Create a new {@link KeyRenamer}.
+     *
+     * @param source the stream to rename keys in
+     * @param renamer the function giving the new name for an entry path
+     */
+    public KeyRenamer(LinStream source, Function<? super LinPath, String> renamer) {
+        super(source);
+        this.renamer = renamer;
+    }
+
+    @Override
+    LinToken transform(LinToken token) {
+        boolean isEntry = token instanceof LinToken.Name && tracker.inCompound();
+        LinPath path = tracker.track(token);
+        if (isEntry && token instanceof LinToken.Name(String name, var id)) {
+            String newName = renamer.apply(path);
+            if (!newName.equals(name)) {
+                return new LinToken.Name(newName, id);
+            }
+        }
+        return token;
+    }
+}
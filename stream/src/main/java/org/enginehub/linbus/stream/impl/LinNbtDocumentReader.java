@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinDocumentStream;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStream;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Reads documents that follow each other in a {@link DataInput}, with one reused {@link LinNbtReader}.
+ */
+public final class LinNbtDocumentReader implements LinDocumentStream {
+    private final LinNbtReader reader;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     */
+    public LinNbtDocumentReader(DataInput input, LinReadOptions options) {
+        this.reader = new LinNbtReader(input, options);
+    }
+
+    @Override
+    public @Nullable LinStream nextOrNull() throws IOException {
+        return reader.nextDocument() ? reader : null;
+    }
+
+    @Override
+    public boolean skip() throws IOException {
+        if (!reader.nextDocument()) {
+            return false;
+        }
+        reader.skipDocument();
+        return true;
+    }
+}
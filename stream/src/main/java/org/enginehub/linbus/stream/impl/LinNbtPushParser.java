@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinHandler;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.internal.NbtStringDecoder;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Drives a {@link LinHandler} straight from a {@link DataInput}.
+ *
+ * <p>
+ * The nesting state is kept in primitive arrays instead of state objects, and skipped values are passed over without
+ * being decoded. Array chunks are read into one reused buffer of {@linkplain LinReadOptions#arrayChunkSize() the
+ * configured size}.
+ * </p>
+ */
+public final class LinNbtPushParser {
+    /**
+     * The {@linkplain #remaining remaining count} of a compound frame, which has no size.
+     */
+    private static final int COMPOUND = -1;
+
+    /**
+     * Parse a single root entry.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     * @param handler the handler to call
+     * @throws IOException if an I/O error occurs
+     */
+    public static void parse(DataInput input, LinReadOptions options, LinHandler handler) throws IOException {
+        new LinNbtPushParser(input, options, handler).parseRoot();
+    }
+
+    private final DataInput input;
+    private final NbtStringDecoder stringDecoder;
+    private final LinHandler handler;
+    private final ByteBuffer chunk;
+    private final ByteBuffer readOnlyChunk;
+    private final IntBuffer intChunk;
+    private final LongBuffer longChunk;
+    /**
+     * For each open container, the number of list elements left, or {@link #COMPOUND}.
+     */
+    private int[] remaining = new int[16];
+    /**
+     * For each open list, the element id.
+     */
+    private LinTagId[] elementIds = new LinTagId[16];
+    /**
+     * For each open container, whether it is being skipped.
+     */
+    private boolean[] skipping = new boolean[16];
+    private int depth;
+
+    /**
+     * Creates a parser that can be used more than once.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     * @param handler the handler to call
+     */
+    LinNbtPushParser(DataInput input, LinReadOptions options, LinHandler handler) {
+        this.input = input;
+        this.stringDecoder = new NbtStringDecoder(options);
+        this.handler = handler;
+        this.chunk = ByteBuffer.allocate(options.arrayChunkSize());
+        this.readOnlyChunk = chunk.asReadOnlyBuffer();
+        this.intChunk = chunk.asIntBuffer().asReadOnlyBuffer();
+        this.longChunk = chunk.asLongBuffer().asReadOnlyBuffer();
+    }
+
+    private void parseRoot() throws IOException {
+        if (input.readUnsignedByte() != LinTagId.COMPOUND.id()) {
+            throw new NbtParseException("NBT stream does not start with a compound tag");
+        }
+        value(LinTagId.COMPOUND, !handler.onName(stringDecoder.decodeLazily(input), LinTagId.COMPOUND));
+        finish();
+    }
+
+    /**
+     * Skip a root entry without decoding it, the id of which has already been read.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void skipRootAfterId() throws IOException {
+        skipFully(input.readUnsignedShort());
+        value(LinTagId.COMPOUND, true);
+        finish();
+    }
+
+    /**
+     * Read until every open container is finished.
+     */
+    private void finish() throws IOException {
+        while (depth > 0) {
+            int top = depth - 1;
+            boolean skip = skipping[top];
+            if (remaining[top] == COMPOUND) {
+                var id = LinTagId.fromId(input.readUnsignedByte());
+                if (id == LinTagId.END) {
+                    depth--;
+                    if (!skip) {
+                        handler.onCompoundEnd();
+                    }
+                    continue;
+                }
+                if (skip) {
+                    skipFully(input.readUnsignedShort());
+                    value(id, true);
+                } else {
+                    value(id, !handler.onName(stringDecoder.decodeLazily(input), id));
+                }
+            } else {
+                if (remaining[top] == 0) {
+                    depth--;
+                    if (!skip) {
+                        handler.onListEnd();
+                    }
+                    continue;
+                }
+                remaining[top]--;
+                value(elementIds[top], skip);
+            }
+        }
+    }
+
+    /**
+     * Read or skip a value. Compounds and lists push a frame instead, and are finished by the main loop.
+     */
+    private void value(LinTagId id, boolean skip) throws IOException {
+        switch (id) {
+            case BYTE -> {
+                byte value = input.readByte();
+                if (!skip) {
+                    handler.onByte(value);
+                }
+            }
+            case SHORT -> {
+                short value = input.readShort();
+                if (!skip) {
+                    handler.onShort(value);
+                }
+            }
+            case INT -> {
+                int value = input.readInt();
+                if (!skip) {
+                    handler.onInt(value);
+                }
+            }
+            case LONG -> {
+                long value = input.readLong();
+                if (!skip) {
+                    handler.onLong(value);
+                }
+            }
+            case FLOAT -> {
+                float value = input.readFloat();
+                if (!skip) {
+                    handler.onFloat(value);
+                }
+            }
+            case DOUBLE -> {
+                double value = input.readDouble();
+                if (!skip) {
+                    handler.onDouble(value);
+                }
+            }
+            case STRING -> {
+                if (skip) {
+                    skipFully(input.readUnsignedShort());
+                } else {
+                    handler.onString(stringDecoder.decodeLazily(input));
+                }
+            }
+            case BYTE_ARRAY -> {
+                int length = readArrayLength();
+                if (skip || !handler.onByteArrayStart(length)) {
+                    skipFully(length);
+                    return;
+                }
+                for (int offset = 0; offset < length; ) {
+                    int count = Math.min(length - offset, chunk.capacity());
+                    input.readFully(chunk.array(), 0, count);
+                    handler.onByteArrayChunk(readOnlyChunk.clear().limit(count));
+                    offset += count;
+                }
+                handler.onByteArrayEnd();
+            }
+            case INT_ARRAY -> {
+                int length = readArrayLength();
+                if (skip || !handler.onIntArrayStart(length)) {
+                    skipFully((long) length * Integer.BYTES);
+                    return;
+                }
+                for (int offset = 0; offset < length; ) {
+                    int count = Math.min(length - offset, intChunk.capacity());
+                    input.readFully(chunk.array(), 0, count * Integer.BYTES);
+                    handler.onIntArrayChunk(intChunk.clear().limit(count));
+                    offset += count;
+                }
+                handler.onIntArrayEnd();
+            }
+            case LONG_ARRAY -> {
+                int length = readArrayLength();
+                if (skip || !handler.onLongArrayStart(length)) {
+                    skipFully((long) length * Long.BYTES);
+                    return;
+                }
+                for (int offset = 0; offset < length; ) {
+                    int count = Math.min(length - offset, longChunk.capacity());
+                    input.readFully(chunk.array(), 0, count * Long.BYTES);
+                    handler.onLongArrayChunk(longChunk.clear().limit(count));
+                    offset += count;
+                }
+                handler.onLongArrayEnd();
+            }
+            case LIST -> {
+                var elementId = LinTagId.fromId(input.readUnsignedByte());
+                int size = input.readInt();
+                if (size < 0) {
+                    throw new NbtParseException("Invalid list size: " + size);
+                }
+                if (size > 0 && elementId == LinTagId.END) {
+                    throw new NbtParseException("Invalid id: " + elementId);
+                }
+                push(size, elementId, skip || !handler.onListStart(elementId, size));
+            }
+            case COMPOUND -> push(COMPOUND, LinTagId.END, skip || !handler.onCompoundStart());
+            case END -> throw new NbtParseException("Invalid id: " + id);
+        }
+    }
+
+    private void push(int size, LinTagId elementId, boolean skip) {
+        if (depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            elementIds = Arrays.copyOf(elementIds, depth * 2);
+            skipping = Arrays.copyOf(skipping, depth * 2);
+        }
+        remaining[depth] = size;
+        elementIds[depth] = elementId;
+        skipping[depth] = skip;
+        depth++;
+    }
+
+    private int readArrayLength() throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new NbtParseException("Invalid array size: " + length);
+        }
+        return length;
+    }
+
+    private void skipFully(long bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = input.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped == 0) {
+                // skipBytes may stop early for any reason, this makes progress or throws at the end of the input
+                input.readByte();
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
@@ -19,22 +19,22 @@
 package org.enginehub.linbus.stream.impl;
 
 import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinHandler;
 import org.enginehub.linbus.stream.LinReadOptions;
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.PeekableLinStream;
 import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.internal.DetachableLinStream;
+import org.enginehub.linbus.stream.internal.NbtStringDecoder;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataInput;
-import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CoderResult;
-import java.nio.charset.StandardCharsets;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
@@ -42,76 +42,10 @@
 /**
  * Reads a stream of tokens from a {@link DataInput}.
  */
-public class LinNbtReader implements LinStream {
-
-    /**
-     * The start of a 2-byte null character in modified UTF-8.
-     */
-    private static final byte TWO_BYTE_NULL_START = (byte) 0b1100_0000;
-    /**
-     * The end of a 2-byte null character in modified UTF-8.
-     */
-    public static final byte TWO_BYTE_NULL_END = (byte) 0b10000000;
-    private static final int TOP_5_BITS = 0b1111_1000;
-    /**
-     * The start of a 4-byte character in UTF-8 (top 5 bits).
-     */
-    private static final int FOUR_BYTE_START = 0b1111_0000;
-    /**
-     * The 3-byte start {@code 1110} plus {@code 1101}, the start of the surrogate indicator bits.
-     */
-    private static final byte THREE_BYTE_SURROGATE_START = (byte) 0b1110_1101;
-    private static final int TOP_3_BITS = 0b1110_0000;
-    /**
-     * The continuation from {@link #THREE_BYTE_SURROGATE_START} for the surrogate indicator bits, with the
-     * {@code 10} bits for the second byte of a 3-byte character (top 3 bits).
-     */
-    private static final int THREE_BYTE_SURROGATE_CONTINUATION = 0b1010_0000;
-
-    private static StringEncoding getGuaranteedStringEncoding(ByteBuffer bytes) {
-        // The differences between the modified UTF-8 format and the standard UTF-8 format are the following:
-        // The null byte '\u0000' is encoded in 2-byte format rather than 1-byte, so that the encoded strings never have embedded nulls.
-        // Only the 1-byte, 2-byte, and 3-byte formats are used.
-        // Supplementary characters are represented in the form of surrogate pairs.
-
-        // However, the DataInputStream will accept a null-byte.
-        // So we can't use those as a definitive indicator of modified UTF-8 or not.
-        boolean sawTwoByteNullStart = false;
-        boolean sawThreeByteSurrogateStart = false;
-        for (int i = 0; i < bytes.remaining(); i++) {
-            byte b = bytes.get(i);
-            if (b == TWO_BYTE_NULL_START) {
-                sawTwoByteNullStart = true;
-            } else if (sawTwoByteNullStart) {
-                if (b == TWO_BYTE_NULL_END) {
-                    return StringEncoding.MODIFIED_UTF_8;
-                } else {
-                    sawTwoByteNullStart = false;
-                }
-            }
-
-            if ((b & TOP_5_BITS) == FOUR_BYTE_START) {
-                // 4-byte start
-                return StringEncoding.NORMAL_UTF_8;
-            }
-
-            if (b == THREE_BYTE_SURROGATE_START) {
-                sawThreeByteSurrogateStart = true;
-            } else if (sawThreeByteSurrogateStart) {
-                if ((b & TOP_3_BITS) == THREE_BYTE_SURROGATE_CONTINUATION) {
-                    // Assume this is a properly encoded surrogate, and that this is modified UTF-8
-                    // Any errors will be caught by the UTF-8 decoder.
-                    return StringEncoding.MODIFIED_UTF_8;
-                } else {
-                    sawThreeByteSurrogateStart = false;
-                }
-            }
-        }
-        return StringEncoding.UNKNOWN;
-    }
+public class LinNbtReader implements PeekableLinStream, DetachableLinStream {
 
     private sealed interface State permits
-        State.Initial, State.CompoundStart, State.CompoundEntryName, State.ListEntry, State.ReadValue,
+        State.Initial, State.RootName, State.CompoundStart, State.CompoundEntryName, State.ListEntry, State.ReadValue,
         State.ReadByteArray, State.ReadIntArray, State.ReadLongArray {
         /**
          * We need to initialize and return the root name.
@@ -120,6 +54,13 @@ enum Initial implements State {
             INSTANCE
         }
 
+        /**
+         * We need to return the root name, the id of which has already been read.
+         */
+        enum RootName implements State {
+            INSTANCE
+        }
+
         /**
          * We need to return {@link LinToken.CompoundStart}.
          */
@@ -168,109 +109,193 @@ record ReadLongArray(int remaining) implements State {
         }
     }
 
-    private enum StringEncoding {
-        MODIFIED_UTF_8,
-        NORMAL_UTF_8,
-        UNKNOWN,
-    }
-
-    private static final class NormalUtf8Decoder {
-        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
-        // Default to some small allocation that is likely to cover most strings.
-        private ByteBuffer sourceBuffer = ByteBuffer.allocate(128);
-        private CharBuffer decodeBuffer = CharBuffer.allocate(128);
+    private final DataInput input;
+    /**
+     * The state stack. We're currently on the one that's LAST.
+     */
+    private final Deque<State> stateStack;
+    private final NbtStringDecoder stringDecoder;
+    private final LinReadOptions options;
+    private final int chunkSize;
+    /**
+     * The buffer that every content token shares, if they are reused.
+     */
+    private final @Nullable ByteBuffer sharedChunk;
+    private final @Nullable ByteBuffer sharedBytes;
+    private final @Nullable IntBuffer sharedInts;
+    private final @Nullable LongBuffer sharedLongs;
+    private @Nullable LinToken peeked;
+    private @Nullable LinNbtPushParser skipper;
+    /**
+     * The detached input, shared by every document so its decoder can be reused.
+     */
+    private @Nullable Detached detached;
 
-        void fill(DataInput input, int length) throws IOException {
-            ensureSourceBufferCapacity(length);
-            input.readFully(sourceBuffer.array(), 0, length);
-            sourceBuffer.limit(length);
+    /**
+     * Creates a new reader.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     */
+    public LinNbtReader(DataInput input, LinReadOptions options) {
+        this.input = input;
+        this.stateStack = new ArrayDeque<>(List.of(State.Initial.INSTANCE));
+        this.stringDecoder = new NbtStringDecoder(options);
+        this.options = options;
+        this.chunkSize = options.arrayChunkSize();
+        if (options.reuseArrayBuffers()) {
+            ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+            this.sharedChunk = chunk;
+            this.sharedBytes = chunk.asReadOnlyBuffer();
+            this.sharedInts = chunk.asIntBuffer().asReadOnlyBuffer();
+            this.sharedLongs = chunk.asLongBuffer().asReadOnlyBuffer();
+        } else {
+            this.sharedChunk = null;
+            this.sharedBytes = null;
+            this.sharedInts = null;
+            this.sharedLongs = null;
         }
+    }
 
-        private void ensureSourceBufferCapacity(int requiredCapacity) {
-            if (sourceBuffer.capacity() < requiredCapacity) {
-                sourceBuffer = ByteBuffer.allocate(requiredCapacity);
-            } else {
-                sourceBuffer.clear();
-            }
-        }
+    /**
+     * Creates a reader for the payload of a compound without an id or name, such as a list element. The stream
+     * starts with {@link LinToken.CompoundStart} and ends after the matching {@link LinToken.CompoundEnd}.
+     *
+     * @param input the input to read from
+     * @param options the options to use when reading
+     * @return the reader
+     */
+    public static LinNbtReader forCompoundPayload(DataInput input, LinReadOptions options) {
+        var reader = new LinNbtReader(input, options);
+        reader.stateStack.clear();
+        reader.stateStack.addLast(State.CompoundStart.INSTANCE);
+        return reader;
+    }
 
-        private void ensureCharBufferCapacity(int requiredCapacity) {
-            if (decodeBuffer.capacity() < requiredCapacity) {
-                decodeBuffer = CharBuffer.allocate(requiredCapacity);
-            } else {
-                decodeBuffer.clear();
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The reader is exhausted until the {@linkplain #nextDocument() next document}.
+     * </p>
+     */
+    @Override
+    public @Nullable Detached detach() throws IOException {
+        switch (stateStack.peekLast()) {
+            case State.Initial _ -> readRootId();
+            case State.RootName _ -> {
             }
-        }
-
-        String decode() throws CharacterCodingException {
-            int n = (int) (sourceBuffer.remaining() * decoder.averageCharsPerByte());
-            ensureCharBufferCapacity(n);
-
-            if ((n == 0) && (sourceBuffer.remaining() == 0)) {
-                return "";
+            case null, default -> {
+                return null;
             }
-            decoder.reset();
-            for (; ; ) {
-                CoderResult cr = sourceBuffer.hasRemaining()
-                    ? decoder.decode(sourceBuffer, decodeBuffer, true)
-                    : CoderResult.UNDERFLOW;
-                if (cr.isUnderflow()) {
-                    cr = decoder.flush(decodeBuffer);
-                }
+        }
+        stateStack.clear();
+        Detached detached = this.detached;
+        if (detached == null) {
+            detached = new Detached(input, stringDecoder);
+            this.detached = detached;
+        }
+        return detached;
+    }
 
-                if (cr.isUnderflow()) {
-                    break;
-                }
-                if (cr.isOverflow()) {
-                    // Ensure progress; n might be 0!
-                    n += n / 2 + 1;
-                    CharBuffer o = CharBuffer.allocate(n);
-                    decodeBuffer.flip();
-                    o.put(decodeBuffer);
-                    decodeBuffer = o;
-                    continue;
-                }
-                cr.throwException();
+    /**
+     * Start reading the next of several documents that follow each other in the input. Whatever is left of the
+     * current document is read and discarded first.
+     *
+     * <p>
+     * The input must signal its end with an {@link EOFException}, as {@link java.io.DataInputStream} does.
+     * </p>
+     *
+     * @return {@code true} if a document was started, {@code false} if the input has ended
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean nextDocument() throws IOException {
+        if (stateStack.peekLast() == State.Initial.INSTANCE) {
+            stateStack.clear();
+        } else {
+            while (nextOrNull() != null) {
+                // Discard the rest of the current document
             }
-            decodeBuffer.flip();
-            return decodeBuffer.toString();
         }
+        peeked = null;
+        int id;
+        try {
+            id = input.readUnsignedByte();
+        } catch (EOFException e) {
+            return false;
+        }
+        checkRootId(id);
+        stateStack.addLast(State.RootName.INSTANCE);
+        return true;
     }
 
-    private final DataInput input;
     /**
-     * The state stack. We're currently on the one that's LAST.
+     * Skip the document that was just {@linkplain #nextDocument() started}, without decoding it.
+     *
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the document was not just started
      */
-    private final Deque<State> stateStack;
-    private StringEncoding stringEncoding;
-    private @Nullable NormalUtf8Decoder decoder;
+    public void skipDocument() throws IOException {
+        if (peeked != null || stateStack.peekLast() != State.RootName.INSTANCE) {
+            throw new IllegalStateException("No document was just started");
+        }
+        stateStack.clear();
+        LinNbtPushParser skipper = this.skipper;
+        if (skipper == null) {
+            skipper = new LinNbtPushParser(input, options, new LinHandler() {
+            });
+            this.skipper = skipper;
+        }
+        skipper.skipRootAfterId();
+    }
+
+    private void readRootId() throws IOException {
+        checkRootId(input.readUnsignedByte());
+    }
+
+    private static void checkRootId(int id) {
+        if (id != LinTagId.COMPOUND.id()) {
+            throw new NbtParseException("NBT stream does not start with a compound tag");
+        }
+    }
 
     /**
-     * Creates a new reader.
+     * The binary format always contains the optional info.
      *
-     * @param input the input to read from
-     * @param options the options to use when reading
+     * @return this
      */
-    public LinNbtReader(DataInput input, LinReadOptions options) {
-        this.input = input;
-        this.stateStack = new ArrayDeque<>(List.of(State.Initial.INSTANCE));
-        // We only need to check strings if we're allowing normal UTF-8 encoding.
-        this.stringEncoding = options.allowNormalUtf8Encoding()
-            ? StringEncoding.UNKNOWN : StringEncoding.MODIFIED_UTF_8;
+    @Override
+    public LinStream calculateOptionalInfo() {
+        return this;
+    }
+
+    @Override
+    public @Nullable LinToken peekOrNull() throws IOException {
+        if (peeked == null) {
+            peeked = readNext();
+        }
+        return peeked;
     }
 
     @Override
     public @Nullable LinToken nextOrNull() throws IOException {
+        var token = peeked;
+        if (token != null) {
+            peeked = null;
+            return token;
+        }
+        return readNext();
+    }
+
+    private @Nullable LinToken readNext() throws IOException {
         var state = stateStack.pollLast();
         return switch (state) {
             case null -> null;
             case State.Initial _ -> {
-                if (input.readUnsignedByte() != LinTagId.COMPOUND.id()) {
-                    throw new NbtParseException("NBT stream does not start with a compound tag");
-                }
-                stateStack.addLast(State.CompoundStart.INSTANCE);
-                yield new LinToken.Name(readUtf(), LinTagId.COMPOUND);
+                readRootId();
+                yield readRootName();
             }
+            case State.RootName _ -> readRootName();
             case State.CompoundStart _ -> {
                 stateStack.addLast(State.CompoundEntryName.INSTANCE);
                 yield new LinToken.CompoundStart();
@@ -284,7 +309,7 @@ public LinNbtReader(DataInput input, LinReadOptions options) {
                 // After we read the value, we'll be back at reading the name.
                 stateStack.addLast(State.CompoundEntryName.INSTANCE);
                 stateStack.addLast(new State.ReadValue(id));
-                yield new LinToken.Name(readUtf(), id);
+                yield new LinToken.Name(stringDecoder.decode(input), id);
             }
             case State.ReadValue(LinTagId id) -> handleReadValue(id);
             case State.ReadByteArray(int remaining) -> {
@@ -293,10 +318,12 @@ public LinNbtReader(DataInput input, LinReadOptions options) {
                     // This will also implicitly return to the state in the stack below the array.
                     yield new LinToken.ByteArrayEnd();
                 }
-                ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, remaining));
-                input.readFully(buffer.array(), buffer.position(), buffer.remaining());
-                stateStack.addLast(new State.ReadByteArray(remaining - buffer.remaining()));
-                yield new LinToken.ByteArrayContent(buffer.asReadOnlyBuffer());
+                int count = Math.min(chunkSize, remaining);
+                ByteBuffer chunk = readChunk(count);
+                stateStack.addLast(new State.ReadByteArray(remaining - count));
+                yield new LinToken.ByteArrayContent(
+                    sharedBytes != null ? sharedBytes.clear().limit(count) : chunk.asReadOnlyBuffer()
+                );
             }
             case State.ReadIntArray(int remaining) -> {
                 if (remaining == 0) {
@@ -304,10 +331,12 @@ public LinNbtReader(DataInput input, LinReadOptions options) {
                     // This will also implicitly return to the state in the stack below the array.
                     yield new LinToken.IntArrayEnd();
                 }
-                ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, remaining * 4));
-                input.readFully(buffer.array(), buffer.position(), buffer.remaining());
-                stateStack.addLast(new State.ReadIntArray(remaining - buffer.remaining() / 4));
-                yield new LinToken.IntArrayContent(buffer.asIntBuffer().asReadOnlyBuffer());
+                int count = Math.min(chunkSize / Integer.BYTES, remaining);
+                ByteBuffer chunk = readChunk(count * Integer.BYTES);
+                stateStack.addLast(new State.ReadIntArray(remaining - count));
+                yield new LinToken.IntArrayContent(
+                    sharedInts != null ? sharedInts.clear().limit(count) : chunk.asIntBuffer().asReadOnlyBuffer()
+                );
             }
             case State.ReadLongArray(int remaining) -> {
                 if (remaining == 0) {
@@ -315,10 +344,12 @@ public LinNbtReader(DataInput input, LinReadOptions options) {
                     // This will also implicitly return to the state in the stack below the array.
                     yield new LinToken.LongArrayEnd();
                 }
-                ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, remaining * 8));
-                input.readFully(buffer.array(), buffer.position(), buffer.remaining());
-                stateStack.addLast(new State.ReadLongArray(remaining - buffer.remaining() / 8));
-                yield new LinToken.LongArrayContent(buffer.asLongBuffer().asReadOnlyBuffer());
+                int count = Math.min(chunkSize / Long.BYTES, remaining);
+                ByteBuffer chunk = readChunk(count * Long.BYTES);
+                stateStack.addLast(new State.ReadLongArray(remaining - count));
+                yield new LinToken.LongArrayContent(
+                    sharedLongs != null ? sharedLongs.clear().limit(count) : chunk.asLongBuffer().asReadOnlyBuffer()
+                );
             }
             case State.ListEntry(int remaining, LinTagId elementId) -> {
                 if (remaining == 0) {
@@ -330,6 +361,24 @@ public LinNbtReader(DataInput input, LinReadOptions options) {
         };
     }
 
+    private LinToken readRootName() throws IOException {
+        stateStack.addLast(State.CompoundStart.INSTANCE);
+        return new LinToken.Name(stringDecoder.decode(input), LinTagId.COMPOUND);
+    }
+
+    /**
+     * Read the next chunk of array content, into the shared buffer if there is one.
+     *
+     * @param bytes the number of bytes to read
+     * @return a buffer holding exactly the bytes read
+     * @throws IOException if an I/O error occurs
+     */
+    private ByteBuffer readChunk(int bytes) throws IOException {
+        ByteBuffer chunk = sharedChunk != null ? sharedChunk.clear().limit(bytes) : ByteBuffer.allocate(bytes);
+        input.readFully(chunk.array(), 0, bytes);
+        return chunk;
+    }
+
     private LinToken handleReadValue(LinTagId id) throws IOException {
         return switch (id) {
             case BYTE -> new LinToken.Byte(input.readByte());
@@ -343,7 +392,7 @@ private LinToken handleReadValue(LinTagId id) throws IOException {
                 stateStack.addLast(new State.ReadByteArray(size));
                 yield new LinToken.ByteArrayStart(size);
             }
-            case STRING -> new LinToken.String(readUtf());
+            case STRING -> new LinToken.String(stringDecoder.decode(input));
             case LIST -> {
                 var elementId = LinTagId.fromId(input.readUnsignedByte());
                 int size = input.readInt();
@@ -367,48 +416,4 @@ private LinToken handleReadValue(LinTagId id) throws IOException {
             case END -> throw new NbtParseException("Invalid id: " + id);
         };
     }
-
-    private NormalUtf8Decoder getNormalUtf8Decoder() {
-        NormalUtf8Decoder decoder = this.decoder;
-        if (decoder == null) {
-            decoder = new NormalUtf8Decoder();
-            this.decoder = decoder;
-        }
-        return decoder;
-    }
-
-    private String readUtf() throws IOException {
-        return switch (stringEncoding) {
-            case MODIFIED_UTF_8 -> input.readUTF();
-            case NORMAL_UTF_8 -> {
-                int length = input.readUnsignedShort();
-                NormalUtf8Decoder decoder = getNormalUtf8Decoder();
-                decoder.fill(input, length);
-                yield decoder.decode();
-            }
-            case UNKNOWN -> {
-                int length = input.readUnsignedShort();
-                NormalUtf8Decoder decoder = getNormalUtf8Decoder();
-                decoder.fill(input, length);
-                StringEncoding knownEncoding = getGuaranteedStringEncoding(decoder.sourceBuffer);
-                yield switch (knownEncoding) {
-                    case MODIFIED_UTF_8 -> {
-                        stringEncoding = knownEncoding;
-                        byte[] withLength = new byte[length + 2];
-                        withLength[0] = (byte) (length >> 8);
-                        withLength[1] = (byte) length;
-                        System.arraycopy(decoder.sourceBuffer.array(), 0, withLength, 2, length);
-                        yield new DataInputStream(new ByteArrayInputStream(withLength)).readUTF();
-                    }
-                    case NORMAL_UTF_8 -> {
-                        stringEncoding = knownEncoding;
-                        yield decoder.decode();
-                    }
-                    // These are valid UTF-8 bytes that fit either encoding. Just read them as normal UTF-8,
-                    // but don't change the encoding.
-                    case UNKNOWN -> decoder.decode();
-                };
-            }
-        };
-    }
 }
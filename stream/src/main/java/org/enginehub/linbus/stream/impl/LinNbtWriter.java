@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Writes tokens to the binary NBT format as they are pushed to it, the implementation of
+ * {@link LinBinaryIO#write(DataOutput, org.enginehub.linbus.stream.LinStreamable)} and
+ * {@link LinBinaryIO#writer(DataOutput)}.
+ *
+ * <p>
+ * The binary format needs the size of lists and arrays, and the element type of lists, before their contents. When
+ * tokens are pushed without that info, the value is held back until it ends and the info is
+ * {@linkplain LinStream#calculateOptionalInfo() calculated}, the same as when writing a stream.
+ * </p>
+ */
+public final class LinNbtWriter implements LinTokenSink<@Nullable Void> {
+    private final DataOutput output;
+    private boolean seenFirstName;
+    /**
+     * The name of the next value. This also signals if we're in a compound tag or not.
+     */
+    private @Nullable String nextName;
+    private int depth;
+    /**
+     * The tokens of a value that is missing optional info, from its start to the current token.
+     */
+    private @Nullable List<LinToken> pending;
+    private int pendingDepth;
+
+    /**
+     * Create a new writer.
+     *
+     * @param output the output to write to
+     */
+    public LinNbtWriter(DataOutput output) {
+        this.output = output;
+    }
+
+    @Override
+    public void accept(LinToken token) throws IOException {
+        depth += depthChange(token);
+        List<LinToken> pending = this.pending;
+        if (pending == null) {
+            if (!isMissingInfo(token)) {
+                write(token);
+                return;
+            }
+            pending = new ArrayList<>();
+            this.pending = pending;
+            pendingDepth = 0;
+        }
+        pending.add(ArrayContents.copy(token));
+        pendingDepth += depthChange(token);
+        if (pendingDepth == 0) {
+            this.pending = null;
+            LinStream filled = LinStream.of(pending.toArray(LinToken[]::new)).calculateOptionalInfo();
+            for (LinToken next; (next = filled.nextOrNull()) != null; ) {
+                write(next);
+            }
+        }
+    }
+
+    @Override
+    public @Nullable Void finish() {
+        if (!seenFirstName || depth != 0) {
+            throw new NbtWriteException("Tokens ended before the end of the root value");
+        }
+        return null;
+    }
+
+    private static int depthChange(LinToken token) {
+        return switch (token) {
+            case LinToken.CompoundStart _, LinToken.ListStart _, LinToken.ByteArrayStart _,
+                 LinToken.IntArrayStart _, LinToken.LongArrayStart _ -> 1;
+            case LinToken.CompoundEnd _, LinToken.ListEnd _, LinToken.ByteArrayEnd _,
+                 LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> -1;
+            default -> 0;
+        };
+    }
+
+    private static boolean isMissingInfo(LinToken token) {
+        return switch (token) {
+            case LinToken.ListStart(OptionalInt size, Optional<LinTagId> elementId) ->
+                size.isEmpty() || elementId.isEmpty();
+            case LinToken.ByteArrayStart(OptionalInt size) -> size.isEmpty();
+            case LinToken.IntArrayStart(OptionalInt size) -> size.isEmpty();
+            case LinToken.LongArrayStart(OptionalInt size) -> size.isEmpty();
+            default -> false;
+        };
+    }
+
+    /**
+     * Write a token, which must have its optional info.
+     *
+     * @param token the token
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(LinToken token) throws IOException {
+        if (!seenFirstName) {
+            if (token instanceof LinToken.Name) {
+                seenFirstName = true;
+            } else {
+                // It's not legal to write without a name.
+                throw new NbtWriteException("Expected first token to be a name");
+            }
+        }
+        switch (token) {
+            case LinToken.Name(String name, Optional<LinTagId> _) ->
+                // We need to hold this until we print the id
+                nextName = name;
+            case LinToken.ByteArrayStart(OptionalInt size) -> {
+                writeIdAndNameIfNeeded(LinTagId.BYTE_ARRAY);
+                output.writeInt(size.orElseThrow());
+            }
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
+                var copy = new byte[buffer.remaining()];
+                buffer.get(copy);
+                output.write(copy);
+            }
+            case LinToken.ByteArrayEnd _ -> {
+                // Nothing to do
+            }
+            case LinToken.Byte(byte value) -> {
+                writeIdAndNameIfNeeded(LinTagId.BYTE);
+                output.writeByte(value);
+            }
+            case LinToken.CompoundStart _ -> writeIdAndNameIfNeeded(LinTagId.COMPOUND);
+            case LinToken.CompoundEnd _ -> output.writeByte(LinTagId.END.id());
+            case LinToken.Double(double value) -> {
+                writeIdAndNameIfNeeded(LinTagId.DOUBLE);
+                output.writeDouble(value);
+            }
+            case LinToken.Float(float value) -> {
+                writeIdAndNameIfNeeded(LinTagId.FLOAT);
+                output.writeFloat(value);
+            }
+            case LinToken.IntArrayStart(OptionalInt size) -> {
+                writeIdAndNameIfNeeded(LinTagId.INT_ARRAY);
+                output.writeInt(size.orElseThrow());
+            }
+            case LinToken.IntArrayContent(IntBuffer buffer) -> {
+                while (buffer.hasRemaining()) {
+                    output.writeInt(buffer.get());
+                }
+            }
+            case LinToken.IntArrayEnd _ -> {
+                // Nothing to do
+            }
+            case LinToken.Int(int value) -> {
+                writeIdAndNameIfNeeded(LinTagId.INT);
+                output.writeInt(value);
+            }
+            case LinToken.ListStart(OptionalInt size, Optional<LinTagId> elementId) -> {
+                writeIdAndNameIfNeeded(LinTagId.LIST);
+                output.writeByte(elementId.orElseThrow().id());
+                output.writeInt(size.orElseThrow());
+            }
+            case LinToken.ListEnd _ -> {
+                // Nothing to do
+            }
+            case LinToken.LongArrayStart(OptionalInt size) -> {
+                writeIdAndNameIfNeeded(LinTagId.LONG_ARRAY);
+                output.writeInt(size.orElseThrow());
+            }
+            case LinToken.LongArrayContent(LongBuffer buffer) -> {
+                while (buffer.hasRemaining()) {
+                    output.writeLong(buffer.get());
+                }
+            }
+            case LinToken.LongArrayEnd _ -> {
+                // Nothing to do
+            }
+            case LinToken.Long(long value) -> {
+                writeIdAndNameIfNeeded(LinTagId.LONG);
+                output.writeLong(value);
+            }
+            case LinToken.Short(short value) -> {
+                writeIdAndNameIfNeeded(LinTagId.SHORT);
+                output.writeShort(value);
+            }
+            case LinToken.String(String value) -> {
+                writeIdAndNameIfNeeded(LinTagId.STRING);
+                output.writeUTF(value);
+            }
+            default -> throw new NbtWriteException("Unknown token: " + token);
+        }
+    }
+
+    private void writeIdAndNameIfNeeded(LinTagId id) throws IOException {
+        String name = nextName;
+        if (name != null) {
+            output.writeByte(id.id());
+            output.writeUTF(name);
+        }
+        nextName = null;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinHandler;
+import org.enginehub.linbus.stream.LinOffsetIndex;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builds a {@link LinOffsetIndex} by parsing a document and recording where its compounds are.
+ *
+ * <p>
+ * Values that can't contain a compound are skipped without being decoded.
+ * </p>
+ */
+public final class LinOffsetIndexer implements LinHandler {
+    /**
+     * Index a document.
+     *
+     * @param input the input to read from
+     * @param minimumLength the minimum payload length of an indexed compound
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinOffsetIndex index(InputStream input, long minimumLength) throws IOException {
+        if (minimumLength < 0) {
+            throw new IllegalArgumentException("Minimum length must not be negative: " + minimumLength);
+        }
+        // Buffered below the counting stream, so the count is exactly what the parser has consumed
+        var counting = new CountingInputStream(new BufferedInputStream(input));
+        var indexer = new LinOffsetIndexer(counting, minimumLength);
+        LinNbtPushParser.parse(new DataInputStream(counting), LinReadOptions.builder().build(), indexer);
+        return new LinOffsetIndex(indexer.entries);
+    }
+
+    private static final class Frame {
+        final LinPath path;
+        /**
+         * The offset of the payload, if this is a compound.
+         */
+        final long offset;
+        /**
+         * The index of the next element, or {@code -1} if this is a compound.
+         */
+        int nextIndex;
+
+        Frame(LinPath path, long offset, int nextIndex) {
+            this.path = path;
+            this.offset = offset;
+            this.nextIndex = nextIndex;
+        }
+    }
+
+    private final CountingInputStream input;
+    private final long minimumLength;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final List<LinOffsetIndex.Entry> entries = new ArrayList<>();
+    private @Nullable String pendingName;
+
+    private LinOffsetIndexer(CountingInputStream input, long minimumLength) {
+        this.input = input;
+        this.minimumLength = minimumLength;
+    }
+
+    private static boolean mayContainCompounds(LinTagId id) {
+        return id == LinTagId.COMPOUND || id == LinTagId.LIST;
+    }
+
+    /**
+     * Get the path of the value that is starting, counting it if it is a list element.
+     */
+    private LinPath valuePath() {
+        Frame parent = frames.peekLast();
+        if (parent == null) {
+            return LinPath.root();
+        }
+        if (parent.nextIndex >= 0) {
+            return parent.path.resolve(parent.nextIndex++);
+        }
+        String name = pendingName;
+        if (name == null) {
+            throw new IllegalStateException("Compound entry has no name");
+        }
+        pendingName = null;
+        return parent.path.resolve(name);
+    }
+
+    @Override
+    public boolean onName(CharSequence name, LinTagId id) {
+        if (!mayContainCompounds(id)) {
+            return false;
+        }
+        pendingName = name.toString();
+        return true;
+    }
+
+    @Override
+    public boolean onCompoundStart() {
+        frames.addLast(new Frame(valuePath(), input.position, -1));
+        return true;
+    }
+
+    @Override
+    public void onCompoundEnd() {
+        Frame frame = frames.removeLast();
+        long length = input.position - frame.offset;
+        if (length >= minimumLength) {
+            entries.add(new LinOffsetIndex.Entry(frame.path, frame.offset, length));
+        }
+    }
+
+    @Override
+    public boolean onListStart(LinTagId elementId, int size) {
+        LinPath path = valuePath();
+        if (!mayContainCompounds(elementId)) {
+            return false;
+        }
+        frames.addLast(new Frame(path, -1, 0));
+        return true;
+    }
+
+    @Override
+    public void onListEnd() {
+        frames.removeLast();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Tracks the {@link LinPath} of each token in a stream. Memory use is bounded by the nesting depth.
+ *
+ * <p>
+ * Names and values inside the root compound get paths relative to the {@linkplain LinPath#root() root path}, and the
+ * root name itself is ignored.
+ * </p>
+ */
+public final class LinPathTracker {
+    private enum Kind {
+        COMPOUND,
+        LIST,
+        ARRAY,
+    }
+
+    private static final class Frame {
+        final LinPath path;
+        final Kind kind;
+        final @Nullable LinTagId elementId;
+        int nextIndex;
+        @Nullable LinPath pendingEntry;
+
+        Frame(LinPath path, Kind kind, @Nullable LinTagId elementId) {
+            this.path = path;
+            this.kind = kind;
+            this.elementId = elementId;
+        }
+    }
+
+    private final Deque<Frame> stack = new ArrayDeque<>();
+
+    /**
+     * Create a new tracker, positioned before the root of a stream.
+     */
+    public LinPathTracker() {
+    }
+
+    /**
+     * Record a token and get its path.
+     *
+     * <p>
+     * A name gets the path of the entry it names. Start, content and end tokens get the path of the value they are
+     * part of.
+     * </p>
+     *
+     * @param token the token
+     * @return the path of the token
+     */
+    public LinPath track(LinToken token) {
+        Frame top = stack.peekLast();
+        if (token instanceof LinToken.Name(String name, _)) {
+            if (top == null) {
+                return LinPath.root();
+            }
+            if (top.kind != Kind.COMPOUND) {
+                throw new NbtParseException("Name outside of a compound: " + token);
+            }
+            LinPath path = top.path.resolve(name);
+            top.pendingEntry = path;
+            return path;
+        }
+        if (token.tagId().isPresent()) {
+            LinPath path = nextValuePath();
+            advance();
+            switch (token) {
+                case LinToken.CompoundStart _ -> stack.addLast(new Frame(path, Kind.COMPOUND, null));
+                case LinToken.ListStart start -> stack.addLast(
+                    new Frame(path, Kind.LIST, start.elementId().orElse(null))
+                );
+                case LinToken.ByteArrayStart _, LinToken.IntArrayStart _, LinToken.LongArrayStart _ ->
+                    stack.addLast(new Frame(path, Kind.ARRAY, null));
+                default -> {
+                }
+            }
+            return path;
+        }
+        if (top == null) {
+            throw new NbtParseException("Token outside of any value: " + token);
+        }
+        switch (token) {
+            case LinToken.CompoundEnd _, LinToken.ListEnd _, LinToken.ByteArrayEnd _, LinToken.IntArrayEnd _,
+                 LinToken.LongArrayEnd _ -> stack.removeLast();
+            default -> {
+            }
+        }
+        return top.path;
+    }
+
+    /**
+     * Record that the next value was consumed without being {@linkplain #track(LinToken) tracked}.
+     */
+    public void skipValue() {
+        advance();
+    }
+
+    private void advance() {
+        Frame top = stack.peekLast();
+        if (top == null) {
+            return;
+        }
+        if (top.kind == Kind.LIST) {
+            top.nextIndex++;
+        } else {
+            top.pendingEntry = null;
+        }
+    }
+
+    /**
+     * {@return the path the next value will have}
+     */
+    public LinPath nextValuePath() {
+        Frame top = stack.peekLast();
+        if (top == null) {
+            return LinPath.root();
+        }
+        return switch (top.kind) {
+            case LIST -> top.path.resolve(top.nextIndex);
+            case COMPOUND -> {
+                LinPath entry = top.pendingEntry;
+                if (entry == null) {
+                    throw new NbtParseException("Value in a compound without a name");
+                }
+                yield entry;
+            }
+            case ARRAY -> throw new NbtParseException("Value inside an array");
+        };
+    }
+
+    /**
+     * {@return the path of the innermost compound, list or array, or {@code null} if outside the root}
+     */
+    public @Nullable LinPath containerPath() {
+        Frame top = stack.peekLast();
+        return top == null ? null : top.path;
+    }
+
+    /**
+     * {@return whether the innermost container is a compound}
+     */
+    public boolean inCompound() {
+        Frame top = stack.peekLast();
+        return top != null && top.kind == Kind.COMPOUND;
+    }
+
+    /**
+     * {@return whether the innermost container is a list}
+     */
+    public boolean inList() {
+        Frame top = stack.peekLast();
+        return top != null && top.kind == Kind.LIST;
+    }
+
+    /**
+     * {@return the index the next element of the innermost list will have}
+     *
+     * @throws IllegalStateException if not in a list
+     */
+    public int nextIndex() {
+        return listFrame().nextIndex;
+    }
+
+    /**
+     * {@return the element id of the innermost list, or {@code null} if the stream didn't specify it}
+     *
+     * @throws IllegalStateException if not in a list
+     */
+    public @Nullable LinTagId listElementId() {
+        return listFrame().elementId;
+    }
+
+    private Frame listFrame() {
+        Frame top = stack.peekLast();
+        if (top == null || top.kind != Kind.LIST) {
+            throw new IllegalStateException("Not in a list");
+        }
+        return top;
+    }
+
+    /**
+     * {@return the current nesting depth} This is zero outside the root compound.
+     */
+    public int depth() {
+        return stack.size();
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinDiffStream;
+import org.enginehub.linbus.stream.LinDifference;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link LinDiffStream}.
+ */
+public final class LinStreamDiffer implements LinDiffStream {
+    private sealed interface Frame permits CompoundFrame, ListFrame {
+    }
+
+    private static final class CompoundFrame implements Frame {
+        final LinPath path;
+        final LinStream left;
+        final LinStream right;
+        @Nullable String leftName;
+        @Nullable String rightName;
+        boolean leftEnded;
+        boolean rightEnded;
+        /**
+         * Values of left entries that haven't been matched yet.
+         */
+        final Map<String, List<LinToken>> leftPending = new LinkedHashMap<>();
+        /**
+         * Values of right entries that haven't been matched yet.
+         */
+        final Map<String, List<LinToken>> rightPending = new LinkedHashMap<>();
+
+        CompoundFrame(LinPath path, LinStream left, LinStream right) {
+            this.path = path;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static final class ListFrame implements Frame {
+        final LinPath path;
+        final LinStream left;
+        final LinStream right;
+        int nextIndex;
+        boolean leftEnded;
+        boolean rightEnded;
+
+        ListFrame(LinPath path, LinStream left, LinStream right) {
+            this.path = path;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private final LinStream left;
+    private final LinStream right;
+    private final int lookAsideTokens;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final Deque<LinDifference> differences = new ArrayDeque<>();
+    private int bufferedTokens;
+    private boolean started;
+
+    /**
+     * Create a new differ.
+     *
+     * @param left the left stream
+     * @param right the right stream
+     * @param lookAsideTokens the maximum number of tokens to hold for matching reordered compound entries
+     */
+    public LinStreamDiffer(LinStream left, LinStream right, int lookAsideTokens) {
+        this.left = left;
+        this.right = right;
+        this.lookAsideTokens = lookAsideTokens;
+    }
+
+    @Override
+    public @Nullable LinDifference nextOrNull() throws IOException {
+        while (differences.isEmpty()) {
+            if (!started) {
+                started = true;
+                start();
+                continue;
+            }
+            Frame frame = stack.peekLast();
+            if (frame == null) {
+                return null;
+            }
+            switch (frame) {
+                case CompoundFrame compound -> stepCompound(compound);
+                case ListFrame list -> stepList(list);
+            }
+        }
+        return differences.pollFirst();
+    }
+
+    private void start() throws IOException {
+        LinToken leftFirst = firstValueToken(left);
+        LinToken rightFirst = firstValueToken(right);
+        if (leftFirst == null && rightFirst == null) {
+            return;
+        }
+        if (leftFirst == null) {
+            differences.add(new LinDifference.Added(LinPath.root()));
+        } else if (rightFirst == null) {
+            differences.add(new LinDifference.Removed(LinPath.root()));
+        } else {
+            compareValues(LinPath.root(), left, leftFirst, right, rightFirst);
+        }
+    }
+
+    private static @Nullable LinToken firstValueToken(LinStream stream) throws IOException {
+        LinToken token = stream.nextOrNull();
+        if (token instanceof LinToken.Name) {
+            // Root names are not compared
+            return requireNext(stream);
+        }
+        return token;
+    }
+
+    private static LinToken requireNext(LinStream stream) throws IOException {
+        LinToken token = stream.nextOrNull();
+        if (token == null) {
+            throw new NbtParseException("Unexpected end of stream");
+        }
+        return token;
+    }
+
+    private static LinTagId requireTagId(LinToken token) {
+        return token.tagId().orElseThrow(() -> new NbtParseException("Expected value, got " + token));
+    }
+
+    private static void skipRest(LinStream stream, LinToken first) throws IOException {
+        var counter = new ValueCounter();
+        counter.add(first);
+        while (counter.count() == 0) {
+            counter.add(requireNext(stream));
+        }
+    }
+
+    private void compareValues(
+        LinPath path, LinStream left, LinToken leftFirst, LinStream right, LinToken rightFirst
+    ) throws IOException {
+        LinTagId leftId = requireTagId(leftFirst);
+        LinTagId rightId = requireTagId(rightFirst);
+        if (leftId != rightId) {
+            differences.add(new LinDifference.TypeChanged(path, leftId, rightId));
+            skipRest(left, leftFirst);
+            skipRest(right, rightFirst);
+            return;
+        }
+        switch (leftFirst) {
+            case LinToken.CompoundStart _ -> stack.addLast(new CompoundFrame(path, left, right));
+            case LinToken.ListStart _ -> stack.addLast(new ListFrame(path, left, right));
+            case LinToken.ByteArrayStart _, LinToken.IntArrayStart _, LinToken.LongArrayStart _ ->
+                compareArrays(path, left, right);
+            default -> {
+                if (!leftFirst.equals(rightFirst)) {
+                    differences.add(new LinDifference.ValueChanged(path, leftFirst, rightFirst));
+                }
+            }
+        }
+    }
+
+    private void stepList(ListFrame frame) throws IOException {
+        LinToken leftToken = null;
+        if (!frame.leftEnded) {
+            leftToken = requireNext(frame.left);
+            if (leftToken instanceof LinToken.ListEnd) {
+                frame.leftEnded = true;
+                leftToken = null;
+            }
+        }
+        LinToken rightToken = null;
+        if (!frame.rightEnded) {
+            rightToken = requireNext(frame.right);
+            if (rightToken instanceof LinToken.ListEnd) {
+                frame.rightEnded = true;
+                rightToken = null;
+            }
+        }
+        if (leftToken == null && rightToken == null) {
+            stack.removeLast();
+            return;
+        }
+        LinPath path = frame.path.resolve(frame.nextIndex++);
+        if (leftToken == null) {
+            differences.add(new LinDifference.Added(path));
+            skipRest(frame.right, rightToken);
+        } else if (rightToken == null) {
+            differences.add(new LinDifference.Removed(path));
+            skipRest(frame.left, leftToken);
+        } else {
+            compareValues(path, frame.left, leftToken, frame.right, rightToken);
+        }
+    }
+
+    private static @Nullable String readName(LinStream stream) throws IOException {
+        LinToken token = requireNext(stream);
+        return switch (token) {
+            case LinToken.CompoundEnd _ -> null;
+            case LinToken.Name name -> name.name();
+            default -> throw new NbtParseException("Expected name, got " + token);
+        };
+    }
+
+    private void stepCompound(CompoundFrame frame) throws IOException {
+        if (!frame.leftEnded && frame.leftName == null) {
+            frame.leftName = readName(frame.left);
+            frame.leftEnded = frame.leftName == null;
+        }
+        if (!frame.rightEnded && frame.rightName == null) {
+            frame.rightName = readName(frame.right);
+            frame.rightEnded = frame.rightName == null;
+        }
+        String leftName = frame.leftName;
+        String rightName = frame.rightName;
+        if (leftName != null && leftName.equals(rightName)) {
+            frame.leftName = null;
+            frame.rightName = null;
+            compareValues(
+                frame.path.resolve(leftName),
+                frame.left, requireNext(frame.left),
+                frame.right, requireNext(frame.right)
+            );
+            return;
+        }
+        if (leftName != null) {
+            List<LinToken> buffered = frame.rightPending.remove(leftName);
+            if (buffered != null) {
+                frame.leftName = null;
+                bufferedTokens -= buffered.size();
+                LinStream bufferedStream = LinStream.of(buffered.toArray(LinToken[]::new));
+                compareValues(
+                    frame.path.resolve(leftName),
+                    frame.left, requireNext(frame.left),
+                    bufferedStream, requireNext(bufferedStream)
+                );
+                return;
+            }
+        }
+        if (rightName != null) {
+            List<LinToken> buffered = frame.leftPending.remove(rightName);
+            if (buffered != null) {
+                frame.rightName = null;
+                bufferedTokens -= buffered.size();
+                LinStream bufferedStream = LinStream.of(buffered.toArray(LinToken[]::new));
+                compareValues(
+                    frame.path.resolve(rightName),
+                    bufferedStream, requireNext(bufferedStream),
+                    frame.right, requireNext(frame.right)
+                );
+                return;
+            }
+        }
+        if (frame.leftEnded && frame.rightEnded) {
+            for (var entry : frame.leftPending.entrySet()) {
+                bufferedTokens -= entry.getValue().size();
+                differences.add(new LinDifference.Removed(frame.path.resolve(entry.getKey())));
+            }
+            for (var entry : frame.rightPending.entrySet()) {
+                bufferedTokens -= entry.getValue().size();
+                differences.add(new LinDifference.Added(frame.path.resolve(entry.getKey())));
+            }
+            stack.removeLast();
+            return;
+        }
+        // Neither name has a counterpart yet, so set them aside
+        if (leftName != null) {
+            frame.leftName = null;
+            // Once the other side has ended, nothing can match
+            if (!buffer(frame.left, frame.rightEnded ? null : frame.leftPending, leftName)) {
+                differences.add(new LinDifference.Removed(frame.path.resolve(leftName)));
+            }
+        }
+        if (rightName != null) {
+            frame.rightName = null;
+            if (!buffer(frame.right, frame.leftEnded ? null : frame.rightPending, rightName)) {
+                differences.add(new LinDifference.Added(frame.path.resolve(rightName)));
+            }
+        }
+    }
+
+    /**
+     * Buffer the next value from the stream, if it fits into the look-aside buffer. Otherwise, it is skipped.
+     *
+     * @param pending where to buffer the value, or {@code null} to always skip it
+     * @return {@code true} if the value was buffered
+     */
+    private boolean buffer(
+        LinStream stream, @Nullable Map<String, List<LinToken>> pending, String name
+    ) throws IOException {
+        @Nullable List<LinToken> tokens = pending == null ? null : new ArrayList<>();
+        var counter = new ValueCounter();
+        while (counter.count() == 0) {
+            LinToken token = requireNext(stream);
+            counter.add(token);
+            if (tokens != null) {
+                if (bufferedTokens + tokens.size() < lookAsideTokens) {
+                    tokens.add(token);
+                } else {
+                    // Too large, drop what we have and skip the rest
+                    tokens = null;
+                }
+            }
+        }
+        if (pending == null || tokens == null) {
+            return false;
+        }
+        bufferedTokens += tokens.size();
+        pending.put(name, tokens);
+        return true;
+    }
+
+    private void compareArrays(LinPath path, LinStream left, LinStream right) throws IOException {
+        Buffer leftChunk = null;
+        Buffer rightChunk = null;
+        boolean leftEnded = false;
+        boolean rightEnded = false;
+        int index = 0;
+        while (true) {
+            if (!leftEnded && (leftChunk == null || !leftChunk.hasRemaining())) {
+                leftChunk = nextChunk(left);
+                leftEnded = leftChunk == null;
+            }
+            if (!rightEnded && (rightChunk == null || !rightChunk.hasRemaining())) {
+                rightChunk = nextChunk(right);
+                rightEnded = rightChunk == null;
+            }
+            if (leftEnded || rightEnded) {
+                break;
+            }
+            int length = Math.min(leftChunk.remaining(), rightChunk.remaining());
+            int mismatch = mismatch(leftChunk, rightChunk, length);
+            if (mismatch >= 0) {
+                index += mismatch;
+                break;
+            }
+            leftChunk.position(leftChunk.position() + length);
+            rightChunk.position(rightChunk.position() + length);
+            index += length;
+        }
+        if (leftEnded && rightEnded) {
+            return;
+        }
+        differences.add(new LinDifference.ArrayChanged(path, index));
+        if (!leftEnded) {
+            skipArray(left);
+        }
+        if (!rightEnded) {
+            skipArray(right);
+        }
+    }
+
+    /**
+     * Get the next chunk of array content.
+     *
+     * @return the chunk, or {@code null} if the array ended
+     */
+    private static @Nullable Buffer nextChunk(LinStream stream) throws IOException {
+        while (true) {
+            LinToken token = requireNext(stream);
+            Buffer chunk = switch (token) {
+                case LinToken.ByteArrayContent(ByteBuffer buffer) -> buffer.duplicate();
+                case LinToken.IntArrayContent(IntBuffer buffer) -> buffer.duplicate();
+                case LinToken.LongArrayContent(LongBuffer buffer) -> buffer.duplicate();
+                case LinToken.ByteArrayEnd _, LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> null;
+                default -> throw new NbtParseException("Expected array content, got " + token);
+            };
+            if (chunk == null) {
+                return null;
+            }
+            if (chunk.hasRemaining()) {
+                return chunk;
+            }
+        }
+    }
+
+    private static void skipArray(LinStream stream) throws IOException {
+        while (nextChunk(stream) != null) {
+            // Discard the rest of the array
+        }
+    }
+
+    private static int mismatch(Buffer left, Buffer right, int length) {
+        return switch (left) {
+            case ByteBuffer bytes when right instanceof ByteBuffer other ->
+                bytes.slice(bytes.position(), length).mismatch(other.slice(other.position(), length));
+            case IntBuffer ints when right instanceof IntBuffer other ->
+                ints.slice(ints.position(), length).mismatch(other.slice(other.position(), length));
+            case LongBuffer longs when right instanceof LongBuffer other ->
+                longs.slice(longs.position(), length).mismatch(other.slice(other.position(), length));
+            default -> throw new NbtParseException("Array content types do not match");
+        };
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinDigest;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Implementation of {@link LinDigest#of(org.enginehub.linbus.stream.LinStreamable)} and {@link LinDigest#sink()}.
+ *
+ * <p>
+ * Each value is fed into the hasher of its container as its tag id followed by its payload. Every compound entry is
+ * hashed on its own, name first, and the entry hashes are summed, so the order of entries does not matter but
+ * duplicates still do. The compound then contributes its entry count and the sums to its container.
+ * </p>
+ */
+public final class LinStreamDigester implements LinTokenSink<LinDigest> {
+    private static final long K0 = 0x6C696E2D62757321L;
+    private static final long K1 = 0x64696765737421A5L;
+
+    /**
+     * Compute the digest of a stream.
+     *
+     * @param stream the stream to digest
+     * @return the digest
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinDigest digest(LinStream stream) throws IOException {
+        var digester = new LinStreamDigester();
+        LinToken token;
+        while ((token = stream.nextOrNull()) != null) {
+            digester.accept(token);
+        }
+        return digester.finish();
+    }
+
+    private sealed interface Frame permits CompoundFrame, ListFrame {
+    }
+
+    private static final class CompoundFrame implements Frame {
+        final SipHasher128 parent;
+        final SipHasher128 entry;
+        long firstSum;
+        long secondSum;
+        int count;
+        boolean inEntry;
+
+        CompoundFrame(SipHasher128 parent, SipHasher128 entry) {
+            this.parent = parent;
+            this.entry = entry;
+        }
+    }
+
+    private enum ListFrame implements Frame {
+        INSTANCE
+    }
+
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    /**
+     * Entry hashers, one per compound depth, reused for every entry at that depth.
+     */
+    private final List<SipHasher128> entryHashers = new ArrayList<>();
+    private final SipHasher128 root = new SipHasher128(K0, K1);
+    private SipHasher128 current = root;
+    private int compoundDepth;
+    private int arrayLength;
+
+    /**
+     * Create a new digester.
+     */
+    public LinStreamDigester() {
+    }
+
+    @Override
+    public LinDigest finish() {
+        if (!stack.isEmpty()) {
+            throw new NbtParseException("Unexpected end of stream");
+        }
+        root.finish();
+        return new LinDigest(root.first(), root.second());
+    }
+
+    @Override
+    public void accept(LinToken token) {
+        if (stack.peekLast() instanceof CompoundFrame compound && !compound.inEntry) {
+            switch (token) {
+                case LinToken.Name(String name, _) -> {
+                    compound.inEntry = true;
+                    compound.entry.reset();
+                    current = compound.entry;
+                    putString(name);
+                }
+                case LinToken.CompoundEnd() -> {
+                    stack.removeLast();
+                    compoundDepth--;
+                    current = compound.parent;
+                    putId(LinTagId.COMPOUND);
+                    current.putInt(compound.count);
+                    current.putLong(compound.firstSum);
+                    current.putLong(compound.secondSum);
+                    valueCompleted();
+                }
+                default -> throw new NbtParseException("Expected name, got " + token);
+            }
+            return;
+        }
+        switch (token) {
+            case LinToken.Name(String name, _) -> {
+                if (!stack.isEmpty()) {
+                    throw new NbtParseException("Name outside of a compound: " + name);
+                }
+                putString(name);
+            }
+            case LinToken.CompoundStart() -> {
+                if (entryHashers.size() == compoundDepth) {
+                    entryHashers.add(new SipHasher128(K0, K1));
+                }
+                stack.addLast(new CompoundFrame(current, entryHashers.get(compoundDepth)));
+                compoundDepth++;
+            }
+            case LinToken.ListStart _ -> {
+                putId(LinTagId.LIST);
+                stack.addLast(ListFrame.INSTANCE);
+            }
+            case LinToken.ListEnd() -> {
+                if (stack.pollLast() != ListFrame.INSTANCE) {
+                    throw new NbtParseException("List end outside of a list");
+                }
+                putId(LinTagId.END);
+                valueCompleted();
+            }
+            case LinToken.Byte(byte value) -> {
+                putId(LinTagId.BYTE);
+                current.putByte(value);
+                valueCompleted();
+            }
+            case LinToken.Short(short value) -> {
+                putId(LinTagId.SHORT);
+                current.putChar((char) value);
+                valueCompleted();
+            }
+            case LinToken.Int(int value) -> {
+                putId(LinTagId.INT);
+                current.putInt(value);
+                valueCompleted();
+            }
+            case LinToken.Long(long value) -> {
+                putId(LinTagId.LONG);
+                current.putLong(value);
+                valueCompleted();
+            }
+            case LinToken.Float(float value) -> {
+                putId(LinTagId.FLOAT);
+                current.putInt(Float.floatToIntBits(value));
+                valueCompleted();
+            }
+            case LinToken.Double(double value) -> {
+                putId(LinTagId.DOUBLE);
+                current.putLong(Double.doubleToLongBits(value));
+                valueCompleted();
+            }
+            case LinToken.String(String value) -> {
+                putId(LinTagId.STRING);
+                putString(value);
+                valueCompleted();
+            }
+            case LinToken.ByteArrayStart _ -> startArray(LinTagId.BYTE_ARRAY);
+            case LinToken.IntArrayStart _ -> startArray(LinTagId.INT_ARRAY);
+            case LinToken.LongArrayStart _ -> startArray(LinTagId.LONG_ARRAY);
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> putBytes(buffer);
+            case LinToken.IntArrayContent(IntBuffer buffer) -> putInts(buffer);
+            case LinToken.LongArrayContent(LongBuffer buffer) -> putLongs(buffer);
+            case LinToken.ByteArrayEnd _, LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> {
+                putId(LinTagId.END);
+                current.putInt(arrayLength);
+                valueCompleted();
+            }
+            case LinToken.CompoundEnd _ -> throw new NbtParseException("Compound end outside of a compound");
+        }
+    }
+
+    /**
+     * Called when a value has been fully fed into the current hasher.
+     */
+    private void valueCompleted() {
+        if (stack.peekLast() instanceof CompoundFrame compound) {
+            SipHasher128 entry = compound.entry;
+            entry.finish();
+            compound.firstSum += entry.first();
+            compound.secondSum += entry.second();
+            compound.count++;
+            compound.inEntry = false;
+        }
+    }
+
+    private void putId(LinTagId id) {
+        current.putByte((byte) id.id());
+    }
+
+    private void putString(String value) {
+        current.putInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            current.putChar(value.charAt(i));
+        }
+    }
+
+    private void startArray(LinTagId id) {
+        putId(id);
+        arrayLength = 0;
+    }
+
+    private void putBytes(ByteBuffer buffer) {
+        // Read whole words where we can, the hasher absorbs them exactly like eight single bytes
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int i = bytes.position();
+        int end = bytes.limit();
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            current.putLong(bytes.getLong(i));
+        }
+        for (; i < end; i++) {
+            current.putByte(bytes.get(i));
+        }
+        arrayLength += buffer.remaining();
+    }
+
+    private void putInts(IntBuffer buffer) {
+        int i = buffer.position();
+        int end = buffer.limit();
+        for (; i + 1 < end; i += 2) {
+            current.putLong((buffer.get(i) & 0xFFFFFFFFL) | ((long) buffer.get(i + 1) << 32));
+        }
+        if (i < end) {
+            current.putInt(buffer.get(i));
+        }
+        arrayLength += buffer.remaining();
+    }
+
+    private void putLongs(LongBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            current.putLong(buffer.get(i));
+        }
+        arrayLength += buffer.remaining();
+    }
+}
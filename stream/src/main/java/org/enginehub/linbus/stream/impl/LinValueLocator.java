@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinHandler;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.ModifiedUtf8String;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Finds where the value at a path is in a binary document.
+ *
+ * <p>
+ * Only the containers on the way to the value are descended into, everything else is skipped without being decoded.
+ * </p>
+ */
+public final class LinValueLocator implements LinHandler {
+    /**
+     * Where a value is in a document.
+     *
+     * @param id the type of the value
+     * @param start the offset of the payload of the value
+     * @param end the offset just after the payload of the value
+     */
+    public record Location(LinTagId id, long start, long end) {
+        /**
+         * {@return the length of the payload}
+         */
+        public long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Find the value at a path in a document. The input is read up to the end of the document, and is not closed.
+     *
+     * @param input the input to read from, which must not be compressed
+     * @param path the path to the value
+     * @return where the value is, or {@code null} if there is no value at the path
+     * @throws IOException if an I/O error occurs
+     */
+    public static @Nullable Location locate(InputStream input, LinPath path) throws IOException {
+        var counting = new CountingInputStream(new BufferedInputStream(input));
+        var locator = new LinValueLocator(counting, path);
+        LinNbtPushParser.parse(
+            new DataInputStream(counting), LinReadOptions.builder().lazyStringDecoding(true).build(), locator
+        );
+        return locator.found;
+    }
+
+    private static final class Frame {
+        final LinPath path;
+        /**
+         * The index of the next element, or {@code -1} if this is a compound.
+         */
+        int nextIndex;
+        /**
+         * The start of the payload, if this is the value being located.
+         */
+        final long targetStart;
+
+        Frame(LinPath path, int nextIndex, long targetStart) {
+            this.path = path;
+            this.nextIndex = nextIndex;
+            this.targetStart = targetStart;
+        }
+    }
+
+    private final CountingInputStream input;
+    private final LinPath target;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    /**
+     * The path of the compound entry whose name was just read, and the start of its payload.
+     */
+    private @Nullable LinPath entryPath;
+    private long entryStart;
+    private @Nullable Location found;
+
+    private LinValueLocator(CountingInputStream input, LinPath target) {
+        this.input = input;
+        this.target = target;
+    }
+
+    /**
+     * Get the path of the value that is starting, counting it if it is a list element.
+     *
+     * @param headerLength the number of bytes of the value already read, if it is a list element
+     * @return the path of the value
+     */
+    private LinPath valuePath(long headerLength) {
+        LinPath path = entryPath;
+        if (path != null) {
+            entryPath = null;
+            return path;
+        }
+        Frame parent = frames.peekLast();
+        if (parent == null || parent.nextIndex < 0) {
+            throw new IllegalStateException("Value is neither an entry nor an element");
+        }
+        entryStart = input.position - headerLength;
+        return parent.path.resolve(parent.nextIndex++);
+    }
+
+    private void onPrimitive(LinTagId id, int width) {
+        if (found == null && valuePath(width).equals(target)) {
+            found = new Location(id, entryStart, input.position);
+        }
+    }
+
+    private boolean onArrayStart(LinTagId id, int length, int elementWidth) {
+        if (found == null && valuePath(Integer.BYTES).equals(target)) {
+            found = new Location(id, entryStart, input.position + (long) length * elementWidth);
+        }
+        return false;
+    }
+
+    private boolean onContainerStart(int nextIndex, long headerLength) {
+        if (found != null) {
+            return false;
+        }
+        LinPath path = valuePath(headerLength);
+        if (path.equals(target)) {
+            frames.addLast(new Frame(path, nextIndex, entryStart));
+            return true;
+        }
+        if (target.startsWith(path)) {
+            frames.addLast(new Frame(path, nextIndex, -1));
+            return true;
+        }
+        return false;
+    }
+
+    private void onContainerEnd(LinTagId id) {
+        Frame frame = frames.removeLast();
+        if (frame.targetStart >= 0) {
+            found = new Location(id, frame.targetStart, input.position);
+        }
+    }
+
+    @Override
+    public boolean onName(CharSequence name, LinTagId id) {
+        if (found != null) {
+            return false;
+        }
+        Frame parent = frames.peekLast();
+        LinPath path = parent == null ? LinPath.root() : parent.path.resolve(name.toString());
+        if (!target.startsWith(path)) {
+            return false;
+        }
+        entryPath = path;
+        entryStart = input.position;
+        return true;
+    }
+
+    @Override
+    public boolean onCompoundStart() {
+        return onContainerStart(-1, 0);
+    }
+
+    @Override
+    public void onCompoundEnd() {
+        onContainerEnd(LinTagId.COMPOUND);
+    }
+
+    @Override
+    public boolean onListStart(LinTagId elementId, int size) {
+        return onContainerStart(0, Byte.BYTES + Integer.BYTES);
+    }
+
+    @Override
+    public void onListEnd() {
+        onContainerEnd(LinTagId.LIST);
+    }
+
+    @Override
+    public void onByte(byte value) {
+        onPrimitive(LinTagId.BYTE, Byte.BYTES);
+    }
+
+    @Override
+    public void onShort(short value) {
+        onPrimitive(LinTagId.SHORT, Short.BYTES);
+    }
+
+    @Override
+    public void onInt(int value) {
+        onPrimitive(LinTagId.INT, Integer.BYTES);
+    }
+
+    @Override
+    public void onLong(long value) {
+        onPrimitive(LinTagId.LONG, Long.BYTES);
+    }
+
+    @Override
+    public void onFloat(float value) {
+        onPrimitive(LinTagId.FLOAT, Float.BYTES);
+    }
+
+    @Override
+    public void onDouble(double value) {
+        onPrimitive(LinTagId.DOUBLE, Double.BYTES);
+    }
+
+    @Override
+    public void onString(CharSequence value) {
+        int encodedLength = value instanceof ModifiedUtf8String encoded
+            ? encoded.encodedLength()
+            : ModifiedUtf8String.encodedLength(value);
+        onPrimitive(LinTagId.STRING, Short.BYTES + encodedLength);
+    }
+
+    @Override
+    public boolean onByteArrayStart(int length) {
+        return onArrayStart(LinTagId.BYTE_ARRAY, length, Byte.BYTES);
+    }
+
+    @Override
+    public boolean onIntArrayStart(int length) {
+        return onArrayStart(LinTagId.INT_ARRAY, length, Integer.BYTES);
+    }
+
+    @Override
+    public boolean onLongArrayStart(int length) {
+        return onArrayStart(LinTagId.LONG_ARRAY, length, Long.BYTES);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of {@link LinStream#listElements()}.
+ *
+ * <p>
+ * Elements are read from the source by whichever thread advances or splits this spliterator, and their tokens are
+ * recorded, so the streams handed out are independent of the source and of each other. Each split takes a batch of
+ * elements that is larger than the last, like {@link Spliterators.AbstractSpliterator}, so that parallel work starts
+ * early without splitting a long list into tiny batches. Batches are also limited in tokens, so a list of large
+ * elements is not read far ahead of the workers.
+ * </p>
+ */
+public final class ListElementSpliterator implements Spliterator<LinStream> {
+    private static final int BATCH_UNIT = 16;
+    private static final int MAX_BATCH_SIZE = 1 << 12;
+    private static final int MAX_BATCH_TOKENS = 1 << 16;
+
+    /**
+     * Create a spliterator over the elements of the list at the start of a stream.
+     *
+     * @param source the stream, which must start with a list
+     * @return the spliterator
+     * @throws IOException if an I/O error occurs
+     */
+    public static ListElementSpliterator create(LinStream source) throws IOException {
+        LinToken token = source.nextOrNull();
+        if (!(token instanceof LinToken.ListStart(OptionalInt size, _))) {
+            throw new NbtParseException("Expected list start, got " + token);
+        }
+        return new ListElementSpliterator(source, size);
+    }
+
+    private final LinStream source;
+    private final OptionalInt size;
+    private final List<LinToken> elementTokens = new ArrayList<>();
+    private int read;
+    private boolean done;
+    private int batchSize;
+
+    private ListElementSpliterator(LinStream source, OptionalInt size) {
+        this.source = source;
+        this.size = size;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super LinStream> action) {
+        LinToken[] element = nextElement();
+        if (element == null) {
+            return false;
+        }
+        action.accept(LinStream.of(element));
+        return true;
+    }
+
+    @Override
+    public @Nullable Spliterator<LinStream> trySplit() {
+        int batchSize = Math.min(this.batchSize + BATCH_UNIT, MAX_BATCH_SIZE);
+        var batch = new ArrayList<LinStream>(batchSize);
+        int tokens = 0;
+        while (batch.size() < batchSize && tokens < MAX_BATCH_TOKENS) {
+            LinToken[] element = nextElement();
+            if (element == null) {
+                break;
+            }
+            batch.add(LinStream.of(element));
+            tokens += element.length;
+        }
+        if (batch.isEmpty()) {
+            return null;
+        }
+        this.batchSize = batch.size();
+        return Spliterators.spliterator(batch, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    @Override
+    public long estimateSize() {
+        if (done) {
+            return 0;
+        }
+        return size.isPresent() ? size.getAsInt() - read : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        // Not SIZED, even with a declared size, as that would let a corrupt size allocate arrays before it is checked
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    /**
+     * Read the tokens of the next element.
+     *
+     * @return the tokens, or {@code null} if the list has ended
+     */
+    private LinToken @Nullable [] nextElement() {
+        if (done) {
+            return null;
+        }
+        try {
+            LinToken token = requireNext();
+            if (token instanceof LinToken.ListEnd) {
+                if (size.isPresent() && read != size.getAsInt()) {
+                    throw new NbtParseException("Expected " + size.getAsInt() + " elements, got " + read);
+                }
+                done = true;
+                return null;
+            }
+            if (size.isPresent() && read == size.getAsInt()) {
+                throw new NbtParseException("Expected list end, got " + token);
+            }
+            if (token.tagId().isEmpty()) {
+                throw new NbtParseException("Expected a value, got " + token);
+            }
+            elementTokens.clear();
+            int depth = 0;
+            while (true) {
+                switch (token) {
+                    case LinToken.CompoundStart _, LinToken.ListStart _, LinToken.ByteArrayStart _,
+                         LinToken.IntArrayStart _, LinToken.LongArrayStart _ -> depth++;
+                    case LinToken.CompoundEnd _, LinToken.ListEnd _, LinToken.ByteArrayEnd _,
+                         LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> depth--;
+                    default -> {
+                    }
+                }
+                // The source may reuse array content once the next token is read
+                elementTokens.add(ArrayContents.copy(token));
+                if (depth == 0) {
+                    break;
+                }
+                token = requireNext();
+            }
+            read++;
+            return elementTokens.toArray(LinToken[]::new);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private LinToken requireNext() throws IOException {
+        LinToken token = source.nextOrNull();
+        if (token == null) {
+            throw new NbtParseException("Unexpected end of stream");
+        }
+        return token;
+    }
+}
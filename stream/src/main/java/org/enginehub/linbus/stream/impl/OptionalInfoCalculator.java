@@ -20,6 +20,7 @@
 
 import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.PeekableLinStream;
 import org.enginehub.linbus.stream.exception.NbtParseException;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.jspecify.annotations.Nullable;
@@ -33,7 +34,7 @@
 /**
  * Implementation of {@link LinStream#calculateOptionalInfo()}.
  */
-public class OptionalInfoCalculator implements LinStream {
+public class OptionalInfoCalculator implements PeekableLinStream {
     private interface OptionalFill {
         /**
          * Try to fill the optional value with another token.
@@ -45,6 +46,7 @@ private interface OptionalFill {
 
     private final LinStream original;
     private @Nullable Deque<LinToken> tokenBuffer;
+    private @Nullable LinToken peeked;
 
     /**
      * Create a new {@link OptionalInfoCalculator}.
@@ -55,8 +57,25 @@ public OptionalInfoCalculator(LinStream original) {
         this.original = original;
     }
 
+    @Override
+    public @Nullable LinToken peekOrNull() throws IOException {
+        if (peeked == null) {
+            peeked = readNext();
+        }
+        return peeked;
+    }
+
     @Override
     public @Nullable LinToken nextOrNull() throws IOException {
+        var token = peeked;
+        if (token != null) {
+            peeked = null;
+            return token;
+        }
+        return readNext();
+    }
+
+    private @Nullable LinToken readNext() throws IOException {
         if (tokenBuffer != null) {
             var next = tokenBuffer.pollFirst();
             if (next != null) {
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPattern;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Implementation of {@link LinPattern}.
+ *
+ * <p>
+ * Patterns are compiled into a tree of nodes, which is walked alongside the candidate stream. Every method that
+ * matches a value returns as soon as the result is known, possibly in the middle of the value. The matcher tracks the
+ * nesting depth of the tokens it has read, so a caller that needs to continue can skip to the end of the value.
+ * </p>
+ */
+public final class PatternMatcher {
+    /**
+     * A compiled pattern.
+     */
+    public sealed interface Node permits CompoundNode, ListNode, ArrayNode, ValueNode {
+        /**
+         * {@return the type of the values this node can match}
+         */
+        LinTagId id();
+    }
+
+    private record CompoundNode(Map<String, Node> entries) implements Node {
+        @Override
+        public LinTagId id() {
+            return LinTagId.COMPOUND;
+        }
+    }
+
+    private record ListNode(List<Node> elements) implements Node {
+        @Override
+        public LinTagId id() {
+            return LinTagId.LIST;
+        }
+    }
+
+    /**
+     * An array, which must match exactly.
+     *
+     * @param id the type of the array
+     * @param contents the contents of the array, from position zero to the limit
+     */
+    private record ArrayNode(LinTagId id, Buffer contents) implements Node {
+    }
+
+    /**
+     * A number or string, which must match exactly.
+     *
+     * @param token the token of the value
+     */
+    private record ValueNode(LinToken token) implements Node {
+        @Override
+        public LinTagId id() {
+            return token.tagId().orElseThrow();
+        }
+    }
+
+    /**
+     * Compile a pattern. The stream may start with a name, which is ignored.
+     *
+     * @param stream the stream of the pattern
+     * @return the compiled pattern
+     * @throws IOException if an I/O error occurs
+     */
+    public static Node compile(LinStream stream) throws IOException {
+        LinToken token = requireNext(stream);
+        if (token instanceof LinToken.Name) {
+            token = requireNext(stream);
+        }
+        Node root = compileValue(stream, token);
+        LinToken extra = stream.nextOrNull();
+        if (extra != null) {
+            throw new NbtParseException("Expected the end of the pattern, got " + extra);
+        }
+        return root;
+    }
+
+    private static Node compileValue(LinStream stream, LinToken token) throws IOException {
+        switch (token) {
+            case LinToken.CompoundStart _ -> {
+                var entries = new LinkedHashMap<String, Node>();
+                while (!((token = requireNext(stream)) instanceof LinToken.CompoundEnd)) {
+                    if (!(token instanceof LinToken.Name(String name, var _))) {
+                        throw new NbtParseException("Expected a name, got " + token);
+                    }
+                    entries.put(name, compileValue(stream, requireNext(stream)));
+                }
+                return new CompoundNode(entries);
+            }
+            case LinToken.ListStart _ -> {
+                var elements = new ArrayList<Node>();
+                while (!((token = requireNext(stream)) instanceof LinToken.ListEnd)) {
+                    elements.add(compileValue(stream, token));
+                }
+                return new ListNode(List.copyOf(elements));
+            }
+            case LinToken.ByteArrayStart(OptionalInt size) -> {
+                return compileArray(stream, LinTagId.BYTE_ARRAY, size);
+            }
+            case LinToken.IntArrayStart(OptionalInt size) -> {
+                return compileArray(stream, LinTagId.INT_ARRAY, size);
+            }
+            case LinToken.LongArrayStart(OptionalInt size) -> {
+                return compileArray(stream, LinTagId.LONG_ARRAY, size);
+            }
+            default -> {
+                if (!token.isSimpleValue()) {
+                    throw new NbtParseException("Expected a value, got " + token);
+                }
+                return new ValueNode(token);
+            }
+        }
+    }
+
+    private static ArrayNode compileArray(LinStream stream, LinTagId id, OptionalInt size) throws IOException {
+        Buffer contents = allocate(id, size.orElse(16));
+        for (Buffer chunk; (chunk = chunkOf(requireNext(stream))) != null; ) {
+            if (contents.remaining() < chunk.remaining()) {
+                int length = contents.position() + chunk.remaining();
+                contents = put(allocate(id, Math.max(length, contents.capacity() * 2)), contents.flip());
+            }
+            put(contents, chunk.duplicate());
+        }
+        return new ArrayNode(id, contents.flip());
+    }
+
+    private static Buffer allocate(LinTagId id, int capacity) {
+        return switch (id) {
+            case BYTE_ARRAY -> ByteBuffer.allocate(capacity);
+            case INT_ARRAY -> IntBuffer.allocate(capacity);
+            case LONG_ARRAY -> LongBuffer.allocate(capacity);
+            default -> throw new IllegalStateException("Not an array type: " + id);
+        };
+    }
+
+    private static Buffer put(Buffer target, Buffer source) {
+        return switch (target) {
+            case ByteBuffer bytes -> bytes.put((ByteBuffer) source);
+            case IntBuffer ints -> ints.put((IntBuffer) source);
+            case LongBuffer longs -> longs.put((LongBuffer) source);
+            default -> throw new IllegalStateException("Unknown buffer type: " + target);
+        };
+    }
+
+    /**
+     * Get the chunk of array content in a token.
+     *
+     * @param token the token after the array start or a chunk
+     * @return the chunk, or {@code null} if the array ended
+     */
+    private static @Nullable Buffer chunkOf(LinToken token) {
+        return switch (token) {
+            case LinToken.ByteArrayContent(ByteBuffer buffer) -> buffer;
+            case LinToken.IntArrayContent(IntBuffer buffer) -> buffer;
+            case LinToken.LongArrayContent(LongBuffer buffer) -> buffer;
+            case LinToken.ByteArrayEnd _, LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> null;
+            default -> throw new NbtParseException("Expected array content, got " + token);
+        };
+    }
+
+    private static LinToken requireNext(LinStream stream) throws IOException {
+        LinToken token = stream.nextOrNull();
+        if (token == null) {
+            throw new NbtParseException("Unexpected end of stream");
+        }
+        return token;
+    }
+
+    /**
+     * Check if a stream matches a pattern, reading only as much of it as needed. The stream may start with a name,
+     * which is ignored.
+     *
+     * @param pattern the pattern
+     * @param stream the stream to check
+     * @return {@code true} if the stream matches
+     * @throws IOException if an I/O error occurs
+     */
+    public static boolean matches(Node pattern, LinStream stream) throws IOException {
+        var matcher = new PatternMatcher(stream);
+        LinToken token = matcher.next();
+        if (token instanceof LinToken.Name) {
+            token = matcher.next();
+        }
+        return matcher.matchValue(pattern, token);
+    }
+
+    private final LinStream stream;
+    private int depth;
+
+    private PatternMatcher(LinStream stream) {
+        this.stream = stream;
+    }
+
+    private LinToken next() throws IOException {
+        LinToken token = requireNext(stream);
+        switch (token) {
+            case LinToken.CompoundStart _, LinToken.ListStart _, LinToken.ByteArrayStart _,
+                 LinToken.IntArrayStart _, LinToken.LongArrayStart _ -> depth++;
+            case LinToken.CompoundEnd _, LinToken.ListEnd _, LinToken.ByteArrayEnd _,
+                 LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> depth--;
+            default -> {
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Read until the values that were started at a depth are finished.
+     *
+     * @param target the depth to return to
+     */
+    private void skipTo(int target) throws IOException {
+        while (depth > target) {
+            next();
+        }
+    }
+
+    /**
+     * Match a value, the first token of which has been read.
+     */
+    private boolean matchValue(Node pattern, LinToken start) throws IOException {
+        return switch (pattern) {
+            case ValueNode(LinToken token) -> token.equals(start);
+            case ArrayNode array -> matchArray(array, start);
+            case CompoundNode compound -> start instanceof LinToken.CompoundStart && matchCompound(compound);
+            case ListNode list -> start instanceof LinToken.ListStart listStart && matchList(list, listStart);
+        };
+    }
+
+    private boolean matchCompound(CompoundNode pattern) throws IOException {
+        int entryDepth = depth;
+        int remaining = pattern.entries().size();
+        if (remaining == 0) {
+            return true;
+        }
+        while (true) {
+            LinToken token = next();
+            if (token instanceof LinToken.CompoundEnd) {
+                return false;
+            }
+            if (!(token instanceof LinToken.Name(String name, var id))) {
+                throw new NbtParseException("Expected a name, got " + token);
+            }
+            Node entry = pattern.entries().get(name);
+            if (entry == null) {
+                next();
+                skipTo(entryDepth);
+                continue;
+            }
+            // Binary input tells us the type up front, so we can fail before the value
+            if (id.isPresent() && id.get() != entry.id()) {
+                return false;
+            }
+            if (!matchValue(entry, next())) {
+                return false;
+            }
+            // Names are unique, so every pattern entry is only matched once
+            if (--remaining == 0) {
+                return true;
+            }
+            skipTo(entryDepth);
+        }
+    }
+
+    private boolean matchList(ListNode pattern, LinToken.ListStart start) throws IOException {
+        int elementDepth = depth;
+        if (pattern.elements().isEmpty()) {
+            // An empty pattern only matches an empty list
+            return start.size().isPresent() ? start.size().getAsInt() == 0 : next() instanceof LinToken.ListEnd;
+        }
+        if (start.elementId().isPresent() && start.size().orElse(1) > 0) {
+            LinTagId elementId = start.elementId().get();
+            for (Node element : pattern.elements()) {
+                if (element.id() != elementId) {
+                    return false;
+                }
+            }
+        }
+        // Every pattern element must match some element of the list, in any order
+        List<Node> unmatched = new ArrayList<>(pattern.elements());
+        while (true) {
+            LinToken token = next();
+            if (token instanceof LinToken.ListEnd) {
+                return false;
+            }
+            if (unmatched.size() == 1) {
+                if (matchValue(unmatched.getFirst(), token)) {
+                    return true;
+                }
+                skipTo(elementDepth);
+                continue;
+            }
+            // The element can only be read once, so keep it to check against every remaining pattern
+            LinToken[] element = readValue(token, elementDepth);
+            for (Iterator<Node> iterator = unmatched.iterator(); iterator.hasNext(); ) {
+                var replay = new PatternMatcher(LinStream.of(element));
+                if (replay.matchValue(iterator.next(), replay.next())) {
+                    iterator.remove();
+                }
+            }
+            if (unmatched.isEmpty()) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Read the rest of a value into an array of tokens.
+     *
+     * @param start the first token of the value
+     * @param startDepth the depth before the first token was read
+     * @return the tokens of the value
+     */
+    private LinToken[] readValue(LinToken start, int startDepth) throws IOException {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(start);
+        while (depth > startDepth) {
+            // Array content may be reused by the source once the next token is read
+            tokens.add(ArrayContents.copy(next()));
+        }
+        return tokens.toArray(LinToken[]::new);
+    }
+
+    private boolean matchArray(ArrayNode pattern, LinToken start) throws IOException {
+        OptionalInt size = switch (start) {
+            case LinToken.ByteArrayStart(OptionalInt s) when pattern.id() == LinTagId.BYTE_ARRAY -> s;
+            case LinToken.IntArrayStart(OptionalInt s) when pattern.id() == LinTagId.INT_ARRAY -> s;
+            case LinToken.LongArrayStart(OptionalInt s) when pattern.id() == LinTagId.LONG_ARRAY -> s;
+            default -> null;
+        };
+        Buffer contents = pattern.contents();
+        int length = contents.limit();
+        if (size == null || (size.isPresent() && size.getAsInt() != length)) {
+            return false;
+        }
+        int offset = 0;
+        for (Buffer chunk; (chunk = chunkOf(next())) != null; ) {
+            int count = chunk.remaining();
+            if (count > length - offset || !contents.slice(offset, count).equals(chunk)) {
+                return false;
+            }
+            offset += count;
+        }
+        return offset == length;
+    }
+}
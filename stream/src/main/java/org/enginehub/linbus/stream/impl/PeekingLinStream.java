@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.PeekableLinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Implementation of {@link LinStream#peekable()} for streams that can't peek natively.
+ */
+public class PeekingLinStream implements PeekableLinStream {
+    private final LinStream original;
+    private @Nullable LinToken peeked;
+
+    /**
+     * Create a new {@link PeekingLinStream}.
+     *
+     * @param original the original stream
+     */
+    public PeekingLinStream(LinStream original) {
+        this.original = original;
+    }
+
+    @Override
+    public @Nullable LinToken peekOrNull() throws IOException {
+        if (peeked == null) {
+            peeked = original.nextOrNull();
+        }
+        return peeked;
+    }
+
+    @Override
+    public @Nullable LinToken nextOrNull() throws IOException {
+        var token = peeked;
+        if (token != null) {
+            peeked = null;
+            return token;
+        }
+        return original.nextOrNull();
+    }
+}
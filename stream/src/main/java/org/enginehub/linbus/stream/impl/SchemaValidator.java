@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinSchema;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtSchemaException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks tokens against a {@link LinSchema} as they stream past, failing at the first violation.
+ */
+public final class SchemaValidator implements LinStream {
+    private sealed interface Frame permits CompoundFrame, ListFrame, ArrayFrame {
+    }
+
+    private static final class CompoundFrame implements Frame {
+        final LinSchema.@Nullable CompoundOf schema;
+        final Set<String> seenRequired = new HashSet<>();
+
+        CompoundFrame(LinSchema.@Nullable CompoundOf schema) {
+            this.schema = schema;
+        }
+    }
+
+    private static final class ListFrame implements Frame {
+        final LinPath path;
+        final LinSchema element;
+        final int maxSize;
+        final int minSize;
+        int size;
+
+        ListFrame(LinPath path, LinSchema element, int minSize, int maxSize) {
+            this.path = path;
+            this.element = element;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+        }
+    }
+
+    private static final class ArrayFrame implements Frame {
+        final int minLength;
+        final int maxLength;
+        long length;
+
+        ArrayFrame(int minLength, int maxLength) {
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+        }
+    }
+
+    private final LinStream source;
+    private final LinSchema root;
+    private final LinPathTracker tracker = new LinPathTracker();
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private @Nullable LinSchema pendingEntry;
+
+    /**
+     * Create a new validator.
+     *
+     * @param source the stream to validate
+     * @param root the schema of the root value
+     */
+    public SchemaValidator(LinStream source, LinSchema root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    @Override
+    public @Nullable LinToken nextOrNull() throws IOException {
+        LinToken token = source.nextOrNull();
+        if (token != null) {
+            check(token);
+        }
+        return token;
+    }
+
+    private void check(LinToken token) {
+        LinPath path = tracker.track(token);
+        Frame top = stack.peekLast();
+        if (token instanceof LinToken.Name(String name, var id)) {
+            if (top == null) {
+                // The root name, the tracker rejects names anywhere else outside of compounds
+                return;
+            }
+            LinSchema.CompoundOf compound = ((CompoundFrame) top).schema;
+            LinSchema entry = LinSchema.any();
+            if (compound != null) {
+                LinSchema.Entry known = compound.entries().get(name);
+                if (known != null) {
+                    entry = known.schema();
+                    if (known.required()) {
+                        ((CompoundFrame) top).seenRequired.add(name);
+                    }
+                } else if (!compound.allowUnknownEntries()) {
+                    throw new NbtSchemaException(path, "Unknown entry");
+                }
+            }
+            // Binary input tells us the type up front, so we can fail before the value
+            if (id.isPresent()) {
+                checkType(path, entry, id.get());
+            }
+            pendingEntry = entry;
+            return;
+        }
+        if (token.tagId().isPresent()) {
+            LinSchema schema = switch (top) {
+                case null -> root;
+                case CompoundFrame _ -> {
+                    LinSchema entry = pendingEntry;
+                    pendingEntry = null;
+                    yield entry == null ? LinSchema.any() : entry;
+                }
+                case ListFrame list -> {
+                    if (++list.size > list.maxSize) {
+                        throw new NbtSchemaException(list.path, "List has more than " + list.maxSize + " elements");
+                    }
+                    yield list.element;
+                }
+                // The tracker rejects values inside arrays
+                case ArrayFrame _ -> throw new IllegalStateException("Value inside an array");
+            };
+            startValue(path, token, schema);
+            return;
+        }
+        switch (token) {
+            case LinToken.ByteArrayContent content -> addLength(path, (ArrayFrame) stack.getLast(),
+                content.buffer().remaining());
+            case LinToken.IntArrayContent content -> addLength(path, (ArrayFrame) stack.getLast(),
+                content.buffer().remaining());
+            case LinToken.LongArrayContent content -> addLength(path, (ArrayFrame) stack.getLast(),
+                content.buffer().remaining());
+            case LinToken.ByteArrayEnd _, LinToken.IntArrayEnd _, LinToken.LongArrayEnd _ -> {
+                var array = (ArrayFrame) stack.removeLast();
+                if (array.length < array.minLength) {
+                    throw new NbtSchemaException(path, "Array has fewer than " + array.minLength + " elements");
+                }
+            }
+            case LinToken.ListEnd _ -> {
+                var list = (ListFrame) stack.removeLast();
+                if (list.size < list.minSize) {
+                    throw new NbtSchemaException(path, "List has fewer than " + list.minSize + " elements");
+                }
+            }
+            case LinToken.CompoundEnd _ -> {
+                var compound = (CompoundFrame) stack.removeLast();
+                if (compound.schema != null) {
+                    checkRequired(path, compound.schema, compound.seenRequired);
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected token: " + token);
+        }
+    }
+
+    private static void checkType(LinPath path, LinSchema schema, LinTagId actual) {
+        LinTagId expected = switch (schema) {
+            case LinSchema.Any _ -> null;
+            case LinSchema.OfType(LinTagId type) -> type;
+            case LinSchema.ArrayOf array -> array.type();
+            case LinSchema.ListOf _ -> LinTagId.LIST;
+            case LinSchema.CompoundOf _ -> LinTagId.COMPOUND;
+        };
+        if (expected != null && expected != actual) {
+            throw new NbtSchemaException(path, "Expected " + expected.name() + ", got " + actual.name());
+        }
+    }
+
+    private void startValue(LinPath path, LinToken token, LinSchema schema) {
+        checkType(path, schema, token.tagId().orElseThrow());
+        switch (token) {
+            case LinToken.CompoundStart _ -> stack.addLast(new CompoundFrame(
+                schema instanceof LinSchema.CompoundOf compound ? compound : null
+            ));
+            case LinToken.ListStart start -> {
+                ListFrame list = schema instanceof LinSchema.ListOf listOf
+                    ? new ListFrame(path, listOf.element(), listOf.minSize(), listOf.maxSize())
+                    : new ListFrame(path, LinSchema.any(), 0, Integer.MAX_VALUE);
+                if (start.size().isPresent()) {
+                    // Failing on the declared size saves reading elements that are going to be rejected
+                    int size = start.size().getAsInt();
+                    if (size > list.maxSize) {
+                        throw new NbtSchemaException(path, "List has more than " + list.maxSize + " elements");
+                    }
+                    if (size < list.minSize) {
+                        throw new NbtSchemaException(path, "List has fewer than " + list.minSize + " elements");
+                    }
+                }
+                // Empty lists may declare any element type
+                if (start.elementId().isPresent() && start.size().orElse(1) > 0
+                    && start.elementId().get() != LinTagId.END) {
+                    checkType(path.resolve(0), list.element, start.elementId().get());
+                }
+                stack.addLast(list);
+            }
+            case LinToken.ByteArrayStart start -> startArray(path, schema, start.size().orElse(-1));
+            case LinToken.IntArrayStart start -> startArray(path, schema, start.size().orElse(-1));
+            case LinToken.LongArrayStart start -> startArray(path, schema, start.size().orElse(-1));
+            default -> {
+            }
+        }
+    }
+
+    private void startArray(LinPath path, LinSchema schema, int declaredSize) {
+        ArrayFrame array = schema instanceof LinSchema.ArrayOf arrayOf
+            ? new ArrayFrame(arrayOf.minLength(), arrayOf.maxLength())
+            : new ArrayFrame(0, Integer.MAX_VALUE);
+        if (declaredSize > array.maxLength) {
+            throw new NbtSchemaException(path, "Array has more than " + array.maxLength + " elements");
+        }
+        if (declaredSize != -1 && declaredSize < array.minLength) {
+            throw new NbtSchemaException(path, "Array has fewer than " + array.minLength + " elements");
+        }
+        stack.addLast(array);
+    }
+
+    private static void addLength(LinPath path, ArrayFrame array, int length) {
+        array.length += length;
+        if (array.length > array.maxLength) {
+            throw new NbtSchemaException(path, "Array has more than " + array.maxLength + " elements");
+        }
+    }
+
+    private static void checkRequired(LinPath path, LinSchema.CompoundOf schema, Set<String> seen) {
+        for (Map.Entry<String, LinSchema.Entry> entry : schema.entries().entrySet()) {
+            if (entry.getValue().required() && !seen.contains(entry.getKey())) {
+                throw new NbtSchemaException(path.resolve(entry.getKey()), "Missing required entry");
+            }
+        }
+    }
+}
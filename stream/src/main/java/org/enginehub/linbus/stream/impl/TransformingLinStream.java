@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Base for streams that rewrite another stream token by token, keeping track of the path of each token.
+ *
+ * <p>
+ * Tokens that are passed through unchanged are returned directly. Replacements are spliced in as streams, so memory
+ * use stays bounded by the nesting depth no matter how large the rewritten values are.
+ * </p>
+ */
+abstract class TransformingLinStream implements LinStream {
+    /**
+     * The stream being transformed.
+     */
+    final LinStream source;
+    /**
+     * The paths of the tokens from {@link #source}. Implementations must track every token they pass through.
+     */
+    final LinPathTracker tracker = new LinPathTracker();
+    private final Deque<LinStream> spliced = new ArrayDeque<>();
+
+    TransformingLinStream(LinStream source) {
+        this.source = source;
+    }
+
+    @Override
+    public final @Nullable LinToken nextOrNull() throws IOException {
+        while (true) {
+            LinStream splice = spliced.peekFirst();
+            if (splice != null) {
+                LinToken token = splice.nextOrNull();
+                if (token != null) {
+                    return token;
+                }
+                spliced.removeFirst();
+                continue;
+            }
+            LinToken token = source.nextOrNull();
+            if (token == null) {
+                return null;
+            }
+            token = transform(token);
+            if (token != null) {
+                return token;
+            }
+        }
+    }
+
+    /**
+     * Transform a token from the source.
+     *
+     * @param token the token
+     * @return the token to emit before anything {@linkplain #splice(LinStream) spliced}, or {@code null} to only
+     *     emit spliced tokens
+     * @throws IOException if an I/O error occurs
+     */
+    abstract @Nullable LinToken transform(LinToken token) throws IOException;
+
+    /**
+     * Emit the tokens of a stream before continuing with the source.
+     *
+     * @param stream the stream to emit
+     */
+    final void splice(LinStream stream) {
+        spliced.addLast(stream);
+    }
+
+    /**
+     * Get a view of the next value in the source. The view ends when the value does.
+     *
+     * @param first the first token of the value, if it was already taken from the source
+     * @return the value's tokens
+     */
+    final LinStream nextValue(@Nullable LinToken first) {
+        var counter = new ValueCounter();
+        return new LinStream() {
+            private @Nullable LinToken prefix = first;
+
+            @Override
+            public @Nullable LinToken nextOrNull() throws IOException {
+                if (counter.count() > 0) {
+                    return null;
+                }
+                LinToken token = prefix;
+                if (token != null) {
+                    prefix = null;
+                } else {
+                    token = source.nextOrNull();
+                    if (token == null) {
+                        throw new NbtParseException("Expected value, got end of stream");
+                    }
+                }
+                counter.add(token);
+                return token;
+            }
+        };
+    }
+
+    /**
+     * Consume the rest of a stream.
+     *
+     * @param stream the stream
+     * @return a stream that drains the given stream when read, emitting nothing
+     */
+    static LinStream draining(LinStream stream) {
+        return () -> {
+            while (stream.nextOrNull() != null) {
+                // Discard the rest of the value
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Skip the next value in the source, without tracking it.
+     *
+     * @param first the first token of the value, if it was already taken from the source
+     * @throws IOException if an I/O error occurs
+     */
+    final void skipValue(@Nullable LinToken first) throws IOException {
+        draining(nextValue(first)).nextOrNull();
+        tracker.skipValue();
+    }
+}
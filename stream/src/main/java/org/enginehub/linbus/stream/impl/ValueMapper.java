@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.IOFunction;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.PeekableLinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Implementation of {@link LinStream#mapValues(Predicate, IOFunction)}.
+ */
+public final class ValueMapper extends TransformingLinStream {
+    private final Predicate<? super LinPath> where;
+    private final IOFunction<? super LinStream, ? extends LinStreamable> mapper;
+
+    /**
+     * Create a new {@link ValueMapper}.
+     *
+     * @param source the stream to map values in
+     * @param where the paths of the values to map
+     * @param mapper the function giving the replacement for a value's tokens
+     */
+    public ValueMapper(
+        LinStream source,
+        Predicate<? super LinPath> where,
+        IOFunction<? super LinStream, ? extends LinStreamable> mapper
+    ) {
+        super(source);
+        this.where = where;
+        this.mapper = mapper;
+    }
+
+    @Override
+    @Nullable LinToken transform(LinToken token) throws IOException {
+        if (token instanceof LinToken.Name name && tracker.inCompound()) {
+            LinPath path = tracker.track(token);
+            if (!where.test(path)) {
+                return token;
+            }
+            LinTagId id = replaceNextValue(path, null);
+            return new LinToken.Name(name.name(), id);
+        }
+        if (token.tagId().isPresent() && tracker.inList()) {
+            LinPath path = tracker.nextValuePath();
+            if (where.test(path)) {
+                LinTagId elementId = tracker.listElementId();
+                LinTagId id = replaceNextValue(path, token);
+                if (elementId != null && id != elementId) {
+                    throw new NbtParseException(
+                        "Replacement at " + path + " is " + id.name() + ", but the list holds " + elementId.name()
+                    );
+                }
+                return null;
+            }
+        }
+        tracker.track(token);
+        return token;
+    }
+
+    private LinTagId replaceNextValue(LinPath path, @Nullable LinToken first) throws IOException {
+        LinStream original = nextValue(first);
+        PeekableLinStream replacement = mapper.apply(original).linStream().peekable();
+        LinToken replacementStart = replacement.peekOrNull();
+        LinTagId id = replacementStart == null ? null : replacementStart.tagId().orElse(null);
+        if (id == null) {
+            throw new NbtParseException("Replacement at " + path + " does not start with a value: " + replacementStart);
+        }
+        splice(replacement);
+        splice(draining(original));
+        tracker.skipValue();
+        return id;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import org.enginehub.linbus.stream.LinStream;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * A {@link LinStream} over binary input that can hand the input over to a decoder that doesn't need tokens.
+ */
+public interface DetachableLinStream extends LinStream {
+    /**
+     * The remaining input of a stream that was {@linkplain #detach() detached}.
+     *
+     * <p>
+     * A stream of several documents gives out the same instance for each of them, so the decoder that reads the
+     * documents can be kept in it and reused.
+     * </p>
+     */
+    final class Detached {
+        private final DataInput input;
+        private final NbtStringDecoder stringDecoder;
+        private @Nullable Object decoder;
+
+        /**
+         * Creates a new detached input.
+         *
+         * @param input the input
+         * @param stringDecoder the string decoder to use for the input
+         */
+        public Detached(DataInput input, NbtStringDecoder stringDecoder) {
+            this.input = input;
+            this.stringDecoder = stringDecoder;
+        }
+
+        /**
+         * {@return the input, positioned at the name of the root entry, after its id}
+         */
+        public DataInput input() {
+            return input;
+        }
+
+        /**
+         * {@return the string decoder to use for the input}
+         */
+        public NbtStringDecoder stringDecoder() {
+            return stringDecoder;
+        }
+
+        /**
+         * {@return the decoder that read the previous document, if any}
+         */
+        public @Nullable Object decoder() {
+            return decoder;
+        }
+
+        /**
+         * Keep a decoder for the next document.
+         *
+         * @param decoder the decoder
+         */
+        public void decoder(Object decoder) {
+            this.decoder = decoder;
+        }
+    }
+
+    /**
+     * Hand the input over to a decoder that doesn't need tokens, if no token of the current document has been read
+     * yet. After this, the stream is exhausted.
+     *
+     * @return the input and the string decoder for it, or {@code null} if reading has already started
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable Detached detach() throws IOException;
+}
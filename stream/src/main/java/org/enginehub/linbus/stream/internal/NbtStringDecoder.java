@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.ModifiedUtf8String;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes NBT strings from a {@link DataInput}, following the encoding rules of the {@link LinReadOptions}.
+ *
+ * <p>
+ * This is stateful, since it remembers which encoding a stream uses once it has been detected. Use one decoder per
+ * stream.
+ * </p>
+ */
+public final class NbtStringDecoder {
+
+    /**
+     * The start of a 2-byte null character in modified UTF-8.
+     */
+    private static final byte TWO_BYTE_NULL_START = (byte) 0b1100_0000;
+    /**
+     * The end of a 2-byte null character in modified UTF-8.
+     */
+    private static final byte TWO_BYTE_NULL_END = (byte) 0b10000000;
+    private static final int TOP_5_BITS = 0b1111_1000;
+    /**
+     * The start of a 4-byte character in UTF-8 (top 5 bits).
+     */
+    private static final int FOUR_BYTE_START = 0b1111_0000;
+    /**
+     * The 3-byte start {@code 1110} plus {@code 1101}, the start of the surrogate indicator bits.
+     */
+    private static final byte THREE_BYTE_SURROGATE_START = (byte) 0b1110_1101;
+    private static final int TOP_3_BITS = 0b1110_0000;
+    /**
+     * The continuation from {@link #THREE_BYTE_SURROGATE_START} for the surrogate indicator bits, with the
+     * {@code 10} bits for the second byte of a 3-byte character (top 3 bits).
+     */
+    private static final int THREE_BYTE_SURROGATE_CONTINUATION = 0b1010_0000;
+
+    private static StringEncoding getGuaranteedStringEncoding(ByteBuffer bytes) {
+        // The differences between the modified UTF-8 format and the standard UTF-8 format are the following:
+        // The null byte '\u0000' is encoded in 2-byte format rather than 1-byte, so that the encoded strings never have embedded nulls.
+        // Only the 1-byte, 2-byte, and 3-byte formats are used.
+        // Supplementary characters are represented in the form of surrogate pairs.
+
+        // However, the DataInputStream will accept a null-byte.
+        // So we can't use those as a definitive indicator of modified UTF-8 or not.
+        boolean sawTwoByteNullStart = false;
+        boolean sawThreeByteSurrogateStart = false;
+        for (int i = 0; i < bytes.remaining(); i++) {
+            byte b = bytes.get(i);
+            if (b == TWO_BYTE_NULL_START) {
+                sawTwoByteNullStart = true;
+            } else if (sawTwoByteNullStart) {
+                if (b == TWO_BYTE_NULL_END) {
+                    return StringEncoding.MODIFIED_UTF_8;
+                } else {
+                    sawTwoByteNullStart = false;
+                }
+            }
+
+            if ((b & TOP_5_BITS) == FOUR_BYTE_START) {
+                // 4-byte start
+                return StringEncoding.NORMAL_UTF_8;
+            }
+
+            if (b == THREE_BYTE_SURROGATE_START) {
+                sawThreeByteSurrogateStart = true;
+            } else if (sawThreeByteSurrogateStart) {
+                if ((b & TOP_3_BITS) == THREE_BYTE_SURROGATE_CONTINUATION) {
+                    // Assume this is a properly encoded surrogate, and that this is modified UTF-8
+                    // Any errors will be caught by the UTF-8 decoder.
+                    return StringEncoding.MODIFIED_UTF_8;
+                } else {
+                    sawThreeByteSurrogateStart = false;
+                }
+            }
+        }
+        return StringEncoding.UNKNOWN;
+    }
+
+    private enum StringEncoding {
+        MODIFIED_UTF_8,
+        NORMAL_UTF_8,
+        UNKNOWN,
+    }
+
+    private static final class NormalUtf8Decoder {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        // Default to some small allocation that is likely to cover most strings.
+        private ByteBuffer sourceBuffer = ByteBuffer.allocate(128);
+        private CharBuffer decodeBuffer = CharBuffer.allocate(128);
+
+        void fill(DataInput input, int length) throws IOException {
+            ensureSourceBufferCapacity(length);
+            input.readFully(sourceBuffer.array(), 0, length);
+            sourceBuffer.limit(length);
+        }
+
+        private void ensureSourceBufferCapacity(int requiredCapacity) {
+            if (sourceBuffer.capacity() < requiredCapacity) {
+                sourceBuffer = ByteBuffer.allocate(requiredCapacity);
+            } else {
+                sourceBuffer.clear();
+            }
+        }
+
+        private void ensureCharBufferCapacity(int requiredCapacity) {
+            if (decodeBuffer.capacity() < requiredCapacity) {
+                decodeBuffer = CharBuffer.allocate(requiredCapacity);
+            } else {
+                decodeBuffer.clear();
+            }
+        }
+
+        String decode() throws CharacterCodingException {
+            int n = (int) (sourceBuffer.remaining() * decoder.averageCharsPerByte());
+            ensureCharBufferCapacity(n);
+
+            if ((n == 0) && (sourceBuffer.remaining() == 0)) {
+                return "";
+            }
+            decoder.reset();
+            for (; ; ) {
+                CoderResult cr = sourceBuffer.hasRemaining()
+                    ? decoder.decode(sourceBuffer, decodeBuffer, true)
+                    : CoderResult.UNDERFLOW;
+                if (cr.isUnderflow()) {
+                    cr = decoder.flush(decodeBuffer);
+                }
+
+                if (cr.isUnderflow()) {
+                    break;
+                }
+                if (cr.isOverflow()) {
+                    // Ensure progress; n might be 0!
+                    n += n / 2 + 1;
+                    CharBuffer o = CharBuffer.allocate(n);
+                    decodeBuffer.flip();
+                    o.put(decodeBuffer);
+                    decodeBuffer = o;
+                    continue;
+                }
+                cr.throwException();
+            }
+            decodeBuffer.flip();
+            return decodeBuffer.toString();
+        }
+    }
+
+    private StringEncoding stringEncoding;
+    private final boolean lazy;
+    private @Nullable NormalUtf8Decoder decoder;
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param options the options to use when reading
+     */
+    public NbtStringDecoder(LinReadOptions options) {
+        // We only need to check strings if we're allowing normal UTF-8 encoding.
+        this.stringEncoding = options.allowNormalUtf8Encoding()
+            ? StringEncoding.UNKNOWN : StringEncoding.MODIFIED_UTF_8;
+        this.lazy = options.lazyStringDecoding();
+    }
+
+    private NormalUtf8Decoder getNormalUtf8Decoder() {
+        NormalUtf8Decoder decoder = this.decoder;
+        if (decoder == null) {
+            decoder = new NormalUtf8Decoder();
+            this.decoder = decoder;
+        }
+        return decoder;
+    }
+
+    /**
+     * Read a length-prefixed string from the input.
+     *
+     * @param input the input to read from
+     * @return the decoded string
+     * @throws IOException if an I/O error occurs
+     */
+    public String decode(DataInput input) throws IOException {
+        return switch (stringEncoding) {
+            case MODIFIED_UTF_8 -> input.readUTF();
+            case NORMAL_UTF_8 -> {
+                int length = input.readUnsignedShort();
+                NormalUtf8Decoder decoder = getNormalUtf8Decoder();
+                decoder.fill(input, length);
+                yield decoder.decode();
+            }
+            case UNKNOWN -> {
+                int length = input.readUnsignedShort();
+                NormalUtf8Decoder decoder = getNormalUtf8Decoder();
+                decoder.fill(input, length);
+                StringEncoding knownEncoding = getGuaranteedStringEncoding(decoder.sourceBuffer);
+                yield switch (knownEncoding) {
+                    case MODIFIED_UTF_8 -> {
+                        stringEncoding = knownEncoding;
+                        byte[] withLength = new byte[length + 2];
+                        withLength[0] = (byte) (length >> 8);
+                        withLength[1] = (byte) length;
+                        System.arraycopy(decoder.sourceBuffer.array(), 0, withLength, 2, length);
+                        yield new DataInputStream(new ByteArrayInputStream(withLength)).readUTF();
+                    }
+                    case NORMAL_UTF_8 -> {
+                        stringEncoding = knownEncoding;
+                        yield decoder.decode();
+                    }
+                    // These are valid UTF-8 bytes that fit either encoding. Just read them as normal UTF-8,
+                    // but don't change the encoding.
+                    case UNKNOWN -> decoder.decode();
+                };
+            }
+        };
+    }
+
+    /**
+     * Read a length-prefixed string from the input, leaving it encoded if the options allow it and the input is
+     * known to use modified UTF-8.
+     *
+     * @param input the input to read from
+     * @return a {@link ModifiedUtf8String} if the string was left encoded, otherwise the decoded {@link String}
+     * @throws IOException if an I/O error occurs
+     */
+    public CharSequence decodeLazily(DataInput input) throws IOException {
+        if (lazy && stringEncoding == StringEncoding.MODIFIED_UTF_8) {
+            return ModifiedUtf8String.read(input);
+        }
+        return decode(input);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.internal;
+
+/**
+ * Internal state of the SipHash algorithm, ported from the CC0-licensed reference implementation at
+ * <a href="https://github.com/veorq/SipHash">github.com/veorq/SipHash</a>.
+ *
+ * <p>
+ * Uses a class instead of an array, as it proved to inline better in benchmarks.
+ * In the future, we can also convert it to a value class, which will inline even better.
+ * </p>
+ */
+public final class SipHashState {
+    /**
+     * The first state word.
+     */
+    public long v0;
+    /**
+     * The second state word.
+     */
+    public long v1;
+    /**
+     * The third state word.
+     */
+    public long v2;
+    /**
+     * The fourth state word.
+     */
+    public long v3;
+
+    /**
+     * Creates the initial state for the given key.
+     *
+     * @param k0 the low half of the 128-bit key
+     * @param k1 the high half of the 128-bit key
+     */
+    public SipHashState(long k0, long k1) {
+        reset(k0, k1);
+    }
+
+    /**
+     * Go back to the initial state for the given key.
+     *
+     * @param k0 the low half of the 128-bit key
+     * @param k1 the high half of the 128-bit key
+     */
+    public void reset(long k0, long k1) {
+        this.v0 = 0x736F6D6570736575L ^ k0;
+        this.v1 = 0x646F72616E646F6DL ^ k1;
+        this.v2 = 0x6C7967656E657261L ^ k0;
+        this.v3 = 0x7465646279746573L ^ k1;
+    }
+
+    /**
+     * Absorb a little-endian message word.
+     *
+     * @param m the word
+     * @param rounds the number of compression rounds
+     */
+    public void absorb(long m, int rounds) {
+        this.v3 ^= m;
+        compress(rounds);
+        this.v0 ^= m;
+    }
+
+    /**
+     * Run SipRounds over the state.
+     *
+     * @param rounds the number of rounds
+     */
+    public void compress(int rounds) {
+        for (int r = 0; r < rounds; r++) {
+            // See SIPROUND macro in the reference implementation.
+            this.v0 += this.v1;
+            this.v1 = Long.rotateLeft(this.v1, 13);
+            this.v1 ^= this.v0;
+            this.v0 = Long.rotateLeft(this.v0, 32);
+            this.v2 += this.v3;
+            this.v3 = Long.rotateLeft(this.v3, 16);
+            this.v3 ^= this.v2;
+            this.v0 += this.v3;
+            this.v3 = Long.rotateLeft(this.v3, 21);
+            this.v3 ^= this.v0;
+            this.v2 += this.v1;
+            this.v1 = Long.rotateLeft(this.v1, 17);
+            this.v1 ^= this.v2;
+            this.v2 = Long.rotateLeft(this.v2, 32);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinFlowTest {
+    private static byte[] write(LinStreamable tokens) throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, tokens);
+        return output.toByteArray();
+    }
+
+    // Records every signal, and requests only when told to
+    private static class RecordingSubscriber implements Flow.Subscriber<LinToken> {
+        final List<LinToken> tokens = new ArrayList<>();
+        Flow.@Nullable Subscription subscription;
+        @Nullable Throwable error;
+        boolean complete;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(LinToken item) {
+            tokens.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+
+    private static LinStream counting(List<LinToken> tokens, AtomicInteger read) {
+        LinStream stream = LinStream.of(tokens.toArray(LinToken[]::new));
+        return () -> {
+            read.incrementAndGet();
+            return stream.nextOrNull();
+        };
+    }
+
+    @Test
+    void writesPublishedDocuments() throws Exception {
+        byte[] bigtest = StreamTestUtil.loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            var output = ByteStreams.newDataOutput();
+            var subscriber = LinFlow.subscriber(LinBinaryIO.writer(output), 4);
+            LinFlow.publisher(LinBinaryIO.read(ByteStreams.newDataInput(bigtest)), executor).subscribe(subscriber);
+            assertThat(subscriber.result().get()).isNull();
+            assertThat(output.toByteArray()).isEqualTo(bigtest);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void readsOnlyAsFarAsRequested() {
+        var read = new AtomicInteger();
+        var subscriber = new RecordingSubscriber();
+        LinFlow.publisher(counting(StreamTestUtil.sampleDocument(), read), Runnable::run).subscribe(subscriber);
+        assertThat(read.get()).isEqualTo(0);
+        var subscription = subscriber.subscription;
+        assertThat(subscription).isNotNull();
+
+        subscription.request(2);
+        assertThat(subscriber.tokens).isEqualTo(StreamTestUtil.sampleDocument().subList(0, 2));
+        assertThat(read.get()).isEqualTo(2);
+        subscription.request(3);
+        assertThat(subscriber.tokens).hasSize(5);
+        assertThat(read.get()).isEqualTo(5);
+
+        subscription.request(Long.MAX_VALUE);
+        subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.tokens).hasSize(StreamTestUtil.sampleDocument().size());
+        assertThat(subscriber.complete).isTrue();
+        assertThat(subscriber.error).isNull();
+        // Nothing happens after completion
+        subscription.request(1);
+        assertThat(read.get()).isEqualTo(StreamTestUtil.sampleDocument().size() + 1);
+    }
+
+    @Test
+    void handlesRequestsFromOnNext() {
+        var subscriber = new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(LinToken item) {
+                super.onNext(item);
+                // Re-entrant, but delivered in order by the running loop instead of recursing
+                subscription.request(1);
+            }
+        };
+        LinFlow.publisher(LinStream.of(StreamTestUtil.sampleDocument().toArray(LinToken[]::new)), Runnable::run)
+            .subscribe(subscriber);
+        assertThat(subscriber.tokens).isEqualTo(StreamTestUtil.sampleDocument());
+        assertThat(subscriber.complete).isTrue();
+    }
+
+    @Test
+    void stopsReadingWhenCancelled() {
+        var read = new AtomicInteger();
+        var subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(LinToken item) {
+                super.onNext(item);
+                if (tokens.size() == 3) {
+                    subscription.cancel();
+                }
+            }
+        };
+        LinFlow.publisher(counting(StreamTestUtil.sampleDocument(), read), Runnable::run).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.tokens).hasSize(3);
+        assertThat(read.get()).isEqualTo(3);
+        assertThat(subscriber.complete).isFalse();
+    }
+
+    @Test
+    void signalsErrors() {
+        var invalid = new RecordingSubscriber();
+        LinFlow.publisher(LinStream.of(new LinToken.Int(1)), Runnable::run).subscribe(invalid);
+        invalid.subscription.request(0);
+        assertThat(invalid.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(invalid.error).hasMessageThat().isEqualTo("Request must be positive: 0");
+        assertThat(invalid.tokens).isEmpty();
+
+        var failing = new RecordingSubscriber();
+        var failure = new IOException("broken");
+        LinStream broken = () -> {
+            throw failure;
+        };
+        LinFlow.publisher(broken, Runnable::run).subscribe(failing);
+        failing.subscription.request(1);
+        assertThat(failing.error).isSameInstanceAs(failure);
+
+        var rejected = new RecordingSubscriber();
+        LinFlow.publisher(LinStream.of(new LinToken.Int(1)), _ -> {
+            throw new RejectedExecutionException("full");
+        }).subscribe(rejected);
+        rejected.subscription.request(1);
+        assertThat(rejected.error).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void completesSubscriberResultsExceptionally() {
+        var publisherFailure = LinFlow.subscriber(LinBinaryIO.writer(ByteStreams.newDataOutput()));
+        var failure = new IOException("broken");
+        LinStream broken = () -> {
+            throw failure;
+        };
+        LinFlow.publisher(broken, Runnable::run).subscribe(publisherFailure);
+        var ex = assertThrows(CompletionException.class, () -> publisherFailure.result().join());
+        assertThat(ex).hasCauseThat().isSameInstanceAs(failure);
+
+        // The writer rejects documents without a root name, and the publisher is cancelled
+        var read = new AtomicInteger();
+        var sinkFailure = LinFlow.subscriber(LinBinaryIO.writer(ByteStreams.newDataOutput()), 1);
+        LinFlow.publisher(counting(List.of(new LinToken.Int(1), new LinToken.Int(2)), read), Runnable::run)
+            .subscribe(sinkFailure);
+        ex = assertThrows(CompletionException.class, () -> sinkFailure.result().join());
+        assertThat(ex).hasCauseThat().isInstanceOf(NbtWriteException.class);
+        assertThat(read.get()).isEqualTo(1);
+
+        // The document ends early
+        var incomplete = LinFlow.subscriber(LinBinaryIO.writer(ByteStreams.newDataOutput()));
+        LinFlow.publisher(LinStream.of(StreamTestUtil.sampleDocument().subList(0, 4).toArray(LinToken[]::new)),
+            Runnable::run).subscribe(incomplete);
+        ex = assertThrows(CompletionException.class, () -> incomplete.result().join());
+        assertThat(ex).hasCauseThat().hasMessageThat().isEqualTo("Tokens ended before the end of the root value");
+    }
+
+    @Test
+    void subscribersOnlySubscribeOnce() {
+        var subscriber = LinFlow.subscriber(LinBinaryIO.writer(ByteStreams.newDataOutput()));
+        var cancelled = new AtomicInteger();
+        Flow.Subscription counting = new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.incrementAndGet();
+            }
+        };
+        subscriber.onSubscribe(counting);
+        subscriber.onSubscribe(counting);
+        assertThat(cancelled.get()).isEqualTo(1);
+        // Late signals after the result is known are ignored
+        subscriber.onError(new IOException("first"));
+        subscriber.onNext(new LinToken.Int(1));
+        subscriber.onComplete();
+        assertThat(subscriber.result().isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    void rejectsInvalidBatchSizes() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinFlow.subscriber(
+            LinBinaryIO.writer(ByteStreams.newDataOutput()), 0
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Batch size must be positive: 0");
+    }
+
+    @Test
+    void writerCalculatesMissingInfo() throws IOException {
+        // Like SNBT input, without sizes or types
+        List<LinToken> tokens = List.of(
+            new LinToken.Name("root"),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("list"),
+            new LinToken.ListStart(),
+            new LinToken.ListStart(),
+            new LinToken.Int(1),
+            new LinToken.ListEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("bytes"),
+            new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{3}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("longs"),
+            new LinToken.LongArrayStart(),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{4}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name("complete", LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.STRING),
+            new LinToken.String("x"),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        );
+        var output = ByteStreams.newDataOutput();
+        LinTokenSink<@Nullable Void> writer = LinBinaryIO.writer(output);
+        for (LinToken token : tokens) {
+            writer.accept(token);
+        }
+        assertThat(writer.finish()).isNull();
+        // The array content was copied, so it can still be written again
+        assertThat(output.toByteArray()).isEqualTo(write(LinStream.of(tokens.toArray(LinToken[]::new))));
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinOffsetIndexTest {
+    private static final LinPath ENTITIES = LinPath.of("entities");
+    private static final LinPath NESTED = LinPath.of("nested");
+
+    // {id: i, tags: ["a", "b"], pos: {x: i, y: -i}}
+    private static List<LinToken> entity(int i) {
+        return List.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("id", LinTagId.INT),
+            new LinToken.Int(i),
+            new LinToken.Name("tags", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.STRING),
+            new LinToken.String("a"),
+            new LinToken.String("b"),
+            new LinToken.ListEnd(),
+            new LinToken.Name("pos", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("x", LinTagId.INT),
+            new LinToken.Int(i),
+            new LinToken.Name("y", LinTagId.INT),
+            new LinToken.Int(-i),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundEnd()
+        );
+    }
+
+    // {a: i}
+    private static List<LinToken> small(int i) {
+        return List.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a", LinTagId.BYTE),
+            new LinToken.Byte((byte) i),
+            new LinToken.CompoundEnd()
+        );
+    }
+
+    // {name: "x", bytes: [B; 1, 2, 3], entities: [entity(0)..entity(4)], nested: [[small(1)], [small(2), small(3)]]}
+    private static List<LinToken> rootContent() {
+        List<LinToken> tokens = new ArrayList<>();
+        tokens.add(new LinToken.CompoundStart());
+        tokens.add(new LinToken.Name("name", LinTagId.STRING));
+        tokens.add(new LinToken.String("x"));
+        tokens.add(new LinToken.Name("bytes", LinTagId.BYTE_ARRAY));
+        tokens.add(new LinToken.ByteArrayStart(3));
+        tokens.add(new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2, 3}).asReadOnlyBuffer()));
+        tokens.add(new LinToken.ByteArrayEnd());
+        tokens.add(new LinToken.Name("entities", LinTagId.LIST));
+        tokens.add(new LinToken.ListStart(5, LinTagId.COMPOUND));
+        for (int i = 0; i < 5; i++) {
+            tokens.addAll(entity(i));
+        }
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.Name("nested", LinTagId.LIST));
+        tokens.add(new LinToken.ListStart(2, LinTagId.LIST));
+        tokens.add(new LinToken.ListStart(1, LinTagId.COMPOUND));
+        tokens.addAll(small(1));
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.ListStart(2, LinTagId.COMPOUND));
+        tokens.addAll(small(2));
+        tokens.addAll(small(3));
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.CompoundEnd());
+        return tokens;
+    }
+
+    @TempDir
+    Path directory;
+    private Path file;
+    private byte[] document;
+
+    @BeforeEach
+    void writeDocument() throws IOException {
+        List<LinToken> tokens = new ArrayList<>();
+        tokens.add(new LinToken.Name("root", LinTagId.COMPOUND));
+        tokens.addAll(rootContent());
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, streamFromIterator(tokens.iterator()));
+        document = output.toByteArray();
+        file = directory.resolve("document.nbt");
+        Files.write(file, document);
+    }
+
+    private LinOffsetIndex index(long minimumLength) throws IOException {
+        return LinOffsetIndex.build(new ByteArrayInputStream(document), minimumLength);
+    }
+
+    private List<LinToken> read(LinOffsetIndex.Entry entry) throws IOException {
+        try (var channel = FileChannel.open(file)) {
+            return ImmutableList.copyOf(LinOffsetIndex.read(channel, entry).asIterator());
+        }
+    }
+
+    @Test
+    void indexesEveryCompound() throws IOException {
+        var index = index(0);
+        List<LinPath> paths = new ArrayList<>();
+        for (var entry : index.entries()) {
+            paths.add(entry.path());
+        }
+        List<LinPath> expected = new ArrayList<>();
+        expected.add(LinPath.root());
+        for (int i = 0; i < 5; i++) {
+            expected.add(ENTITIES.resolve(i));
+            expected.add(ENTITIES.resolve(i).resolve("pos"));
+        }
+        expected.add(NESTED.resolve(0).resolve(0));
+        expected.add(NESTED.resolve(1).resolve(0));
+        expected.add(NESTED.resolve(1).resolve(1));
+        assertThat(paths).containsExactlyElementsIn(expected).inOrder();
+
+        assertThat(read(index.find(LinPath.root()))).isEqualTo(rootContent());
+        assertThat(read(index.find(ENTITIES.resolve(3)))).isEqualTo(entity(3));
+        assertThat(read(index.find(ENTITIES.resolve(3).resolve("pos")))).isEqualTo(entity(3).subList(9, 15));
+        assertThat(read(index.find(NESTED.resolve(1).resolve(1)))).isEqualTo(small(3));
+        assertThat(index.find(LinPath.of("name"))).isNull();
+        // The root payload runs from after its name to the end of the document
+        assertThat(index.find(LinPath.root())).isEqualTo(
+            new LinOffsetIndex.Entry(LinPath.root(), 7, document.length - 7)
+        );
+    }
+
+    @Test
+    void skipsSmallCompounds() throws IOException {
+        var all = index(0);
+        long entityLength = all.find(ENTITIES.resolve(0)).length();
+        var index = index(entityLength);
+        assertThat(index.entries().stream().map(LinOffsetIndex.Entry::path).toList()).containsExactly(
+            LinPath.root(), ENTITIES.resolve(0), ENTITIES.resolve(1), ENTITIES.resolve(2), ENTITIES.resolve(3),
+            ENTITIES.resolve(4)
+        ).inOrder();
+        assertThrows(IllegalArgumentException.class, () -> index(-1));
+    }
+
+    @Test
+    void readsListElementsInParallel() throws IOException {
+        var index = index(0);
+        var children = index.children(ENTITIES);
+        assertThat(children).hasSize(5);
+        assertThat(index.children(LinPath.of("missing"))).isEmpty();
+        try (var channel = FileChannel.open(file)) {
+            List<List<LinToken>> read = children.parallelStream().<List<LinToken>>map(entry -> {
+                try {
+                    return ImmutableList.copyOf(LinOffsetIndex.read(channel, entry).asIterator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+            for (int i = 0; i < 5; i++) {
+                assertThat(read.get(i)).isEqualTo(entity(i));
+            }
+        }
+    }
+
+    @Test
+    void roundTripsThroughASidecar() throws IOException {
+        var index = index(0);
+        var output = ByteStreams.newDataOutput();
+        index.writeTo(output);
+        byte[] sidecar = output.toByteArray();
+        var read = LinOffsetIndex.readFrom(ByteStreams.newDataInput(sidecar));
+        assertThat(read).isEqualTo(index);
+        assertThat(read.hashCode()).isEqualTo(index.hashCode());
+        assertThat(read.toString()).isEqualTo("LinOffsetIndex{entries=14}");
+        // Paths share their prefix with the previous entry, so 14 entries take about 9 bytes each
+        assertThat(sidecar.length).isEqualTo(133);
+
+        var empty = new LinOffsetIndex(List.of());
+        output = ByteStreams.newDataOutput();
+        empty.writeTo(output);
+        assertThat(LinOffsetIndex.readFrom(ByteStreams.newDataInput(output.toByteArray()))).isEqualTo(empty);
+    }
+
+    @Test
+    void rejectsInvalidSidecars() throws IOException {
+        var output = ByteStreams.newDataOutput();
+        index(0).writeTo(output);
+        byte[] sidecar = output.toByteArray();
+
+        byte[] badMagic = Arrays.copyOf(sidecar, sidecar.length);
+        badMagic[0] = 0;
+        assertThat(assertThrows(NbtParseException.class, () -> readSidecar(badMagic)))
+            .hasMessageThat().isEqualTo("Not an offset index");
+
+        byte[] badVersion = Arrays.copyOf(sidecar, sidecar.length);
+        badVersion[4] = 2;
+        assertThat(assertThrows(NbtParseException.class, () -> readSidecar(badVersion)))
+            .hasMessageThat().isEqualTo("Unsupported offset index version: 2");
+
+        // One entry, at a path sharing more segments than the previous path has
+        assertThat(assertThrows(NbtParseException.class, () -> readSidecar(header(1, 1))))
+            .hasMessageThat().isEqualTo("Invalid shared path depth: 1");
+        // One entry, adding one segment of an unknown kind
+        assertThat(assertThrows(NbtParseException.class, () -> readSidecar(header(1, 0, 1, 7))))
+            .hasMessageThat().isEqualTo("Invalid path segment kind: 7");
+        // A count that doesn't fit in an int
+        assertThat(assertThrows(NbtParseException.class, () -> readSidecar(header(0xFF, 0xFF, 0xFF, 0xFF, 0x7F))))
+            .hasMessageThat().isEqualTo("Number is too large: 34359738367");
+        byte[] tooLong = new byte[15];
+        Arrays.fill(tooLong, (byte) 0xFF);
+        assertThat(assertThrows(NbtParseException.class, () -> readSidecar(header(toInts(tooLong)))))
+            .hasMessageThat().isEqualTo("Variable-length number is too long");
+    }
+
+    private static int[] toInts(byte[] bytes) {
+        int[] ints = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            ints[i] = bytes[i] & 0xFF;
+        }
+        return ints;
+    }
+
+    private static byte[] header(int... rest) {
+        var output = ByteStreams.newDataOutput();
+        output.writeInt(0x4C42_4958);
+        output.writeByte(1);
+        for (int b : rest) {
+            output.writeByte(b);
+        }
+        return output.toByteArray();
+    }
+
+    private static LinOffsetIndex readSidecar(byte[] sidecar) throws IOException {
+        return LinOffsetIndex.readFrom(ByteStreams.newDataInput(sidecar));
+    }
+
+    @Test
+    void failsOnTruncatedFiles() throws IOException {
+        var index = index(0);
+        Files.write(file, Arrays.copyOf(document, document.length - 1));
+        try (var channel = FileChannel.open(file)) {
+            // The compound is streamed, so the file ends when the reader gets to the missing byte
+            LinStream stream = LinOffsetIndex.read(channel, index.find(LinPath.root()));
+            var ex = assertThrows(EOFException.class, () -> {
+                while (stream.nextOrNull() != null) {
+                    // Read until the end
+                }
+            });
+            assertThat(ex).hasMessageThat().isEqualTo("File ends before the indexed compound at ");
+        }
+    }
+
+    @Test
+    void validatesEntries() {
+        assertThrows(IllegalArgumentException.class, () -> new LinOffsetIndex.Entry(LinPath.root(), -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new LinOffsetIndex.Entry(LinPath.root(), 0, 0));
+        var entry = new LinOffsetIndex.Entry(LinPath.root(), 0, 1);
+        var ex = assertThrows(IllegalArgumentException.class, () -> new LinOffsetIndex(List.of(entry, entry)));
+        assertThat(ex).hasMessageThat().isEqualTo("Duplicate path: ");
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class LinPatcherTest {
+    // Array contents are consumed when written, so the document is created for each use
+    private static LinToken[] document() {
+        return new LinToken[]{
+            new LinToken.Name("root", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("flag", LinTagId.BYTE),
+            new LinToken.Byte((byte) 0),
+            new LinToken.Name("name", LinTagId.STRING),
+            new LinToken.String("abc"),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(3),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1, 2, 3}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("scores", LinTagId.LIST),
+            new LinToken.ListStart(3, LinTagId.INT),
+            new LinToken.Int(10),
+            new LinToken.Int(20),
+            new LinToken.Int(30),
+            new LinToken.ListEnd(),
+            new LinToken.Name("names", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.STRING),
+            new LinToken.String("x"),
+            new LinToken.String("yy"),
+            new LinToken.ListEnd(),
+            new LinToken.Name("items", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("id", LinTagId.SHORT),
+            new LinToken.Short((short) 1),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("id", LinTagId.SHORT),
+            new LinToken.Short((short) 2),
+            new LinToken.CompoundEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("nested", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("deep", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("value", LinTagId.DOUBLE),
+            new LinToken.Double(1.5),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundEnd(),
+            new LinToken.Name("arrays", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{1}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.LongArrayStart(2),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{2, 3}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("lists", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.FLOAT),
+            new LinToken.Float(1),
+            new LinToken.ListEnd(),
+            new LinToken.ListStart(1, LinTagId.FLOAT),
+            new LinToken.Float(2),
+            new LinToken.ListEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("last", LinTagId.LONG),
+            new LinToken.Long(7),
+            new LinToken.CompoundEnd()
+        };
+    }
+
+    @TempDir
+    Path directory;
+    private Path file;
+
+    @BeforeEach
+    void writeDocument() throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, LinStream.of(document()));
+        file = directory.resolve("document.nbt");
+        Files.write(file, output.toByteArray());
+    }
+
+    private List<LinToken> readFile() throws IOException {
+        return ImmutableList.copyOf(LinBinaryIO.read(ByteStreams.newDataInput(Files.readAllBytes(file))).asIterator());
+    }
+
+    private void assertPatched(LinPatcher.Result result, LinPath path, LinToken value) throws IOException {
+        assertPatched(result, path, () -> new LinToken[]{value});
+    }
+
+    // Array contents are consumed when written, so the value is created for each use
+    private void assertPatched(
+        LinPatcher.Result result, LinPath path, Supplier<LinToken[]> value
+    ) throws IOException {
+        List<LinToken> before = readFile();
+        long size = Files.size(file);
+        assertThat(LinPatcher.patch(file, path, LinStream.of(value.get()))).isEqualTo(result);
+        // The patched file must match the value replaced by streaming
+        assertThat(readFile()).isEqualTo(ImmutableList.copyOf(
+            LinStream.of(before.toArray(LinToken[]::new)).mapValues(path::equals, _ -> LinStream.of(value.get()))
+                .asIterator()
+        ));
+        if (result == LinPatcher.Result.PATCHED_IN_PLACE) {
+            assertThat(Files.size(file)).isEqualTo(size);
+        }
+    }
+
+    @Test
+    void patchesFixedWidthValuesInPlace() throws IOException {
+        var inPlace = LinPatcher.Result.PATCHED_IN_PLACE;
+        assertPatched(inPlace, LinPath.of("flag"), new LinToken.Byte((byte) 1));
+        assertPatched(inPlace, LinPath.of("last"), new LinToken.Long(Long.MIN_VALUE));
+        assertPatched(inPlace, LinPath.of("nested", "deep", "value"), new LinToken.Double(-2.5));
+        assertPatched(inPlace, LinPath.of("scores").resolve(2), new LinToken.Int(-1));
+        assertPatched(inPlace, LinPath.of("items").resolve(1).resolve("id"), new LinToken.Short((short) 9));
+        assertPatched(inPlace, LinPath.of("lists").resolve(1).resolve(0), new LinToken.Float(3));
+    }
+
+    @Test
+    void patchesSameLengthStringsAndArraysInPlace() throws IOException {
+        var inPlace = LinPatcher.Result.PATCHED_IN_PLACE;
+        assertPatched(inPlace, LinPath.of("name"), new LinToken.String("xyz"));
+        assertPatched(inPlace, LinPath.of("names").resolve(1), new LinToken.String("zz"));
+        assertPatched(inPlace, LinPath.of("ints"), () -> new LinToken[]{
+            new LinToken.IntArrayStart(3),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{4, 5, 6}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        });
+        assertPatched(inPlace, LinPath.of("arrays").resolve(1), () -> new LinToken[]{
+            new LinToken.LongArrayStart(2),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{8, 9}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd()
+        });
+        assertPatched(inPlace, LinPath.of("items").resolve(0), () -> new LinToken[]{
+            new LinToken.CompoundStart(),
+            new LinToken.Name("id", LinTagId.SHORT),
+            new LinToken.Short((short) 5),
+            new LinToken.CompoundEnd()
+        });
+        assertPatched(inPlace, LinPath.of("lists").resolve(0), () -> new LinToken[]{
+            new LinToken.ListStart(1, LinTagId.FLOAT),
+            new LinToken.Float(5),
+            new LinToken.ListEnd()
+        });
+    }
+
+    @Test
+    void rewritesWhenTheValueDoesNotFit() throws IOException {
+        var rewritten = LinPatcher.Result.REWRITTEN;
+        assertPatched(rewritten, LinPath.of("name"), new LinToken.String("longer"));
+        assertPatched(rewritten, LinPath.of("flag"), new LinToken.Int(1));
+        assertPatched(rewritten, LinPath.of("names").resolve(0), new LinToken.String("x€"));
+        assertPatched(rewritten, LinPath.of("ints"), () -> new LinToken[]{
+            new LinToken.IntArrayStart(1),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{4}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        });
+        try (var files = Files.list(directory)) {
+            // The temporary file is gone
+            assertThat(files.toList()).containsExactly(file);
+        }
+    }
+
+    @Test
+    void keepsEverythingAfterTheDocumentWhenRewriting() throws IOException {
+        var second = ByteStreams.newDataOutput();
+        LinBinaryIO.write(second, LinStream.of(document()));
+        byte[] trailing = {1, 2, 3};
+        byte[] after = Bytes.concat(second.toByteArray(), trailing);
+        byte[] before = Files.readAllBytes(file);
+        Files.write(file, after, StandardOpenOption.APPEND);
+
+        assertThat(LinPatcher.patch(file, LinPath.of("name"), LinStream.of(new LinToken.String("longer"))))
+            .isEqualTo(LinPatcher.Result.REWRITTEN);
+        byte[] patched = Files.readAllBytes(file);
+        assertThat(patched.length).isEqualTo(before.length + "longer".length() - "abc".length() + after.length);
+        assertThat(Arrays.copyOfRange(patched, patched.length - after.length, patched.length)).isEqualTo(after);
+    }
+
+    @Test
+    void keepsPermissionsWhenRewriting() throws IOException {
+        assumeTrue(Files.getFileAttributeView(file, PosixFileAttributeView.class) != null);
+        var permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file, permissions);
+        assertThat(LinPatcher.patch(file, LinPath.of("name"), LinStream.of(new LinToken.String("longer"))))
+            .isEqualTo(LinPatcher.Result.REWRITTEN);
+        assertThat(Files.getPosixFilePermissions(file)).isEqualTo(permissions);
+    }
+
+    // Like a reader that reuses its array buffers, each content token overwrites the one before it
+    private static LinStreamable intArrayInOneBuffer(int... values) {
+        return () -> {
+            int[] shared = new int[1];
+            return StreamTestUtil.streamFromIterator(IntStream.rangeClosed(0, values.length + 1).<LinToken>mapToObj(i -> {
+                if (i == 0) {
+                    return new LinToken.IntArrayStart(values.length);
+                }
+                if (i > values.length) {
+                    return new LinToken.IntArrayEnd();
+                }
+                shared[0] = values[i - 1];
+                return new LinToken.IntArrayContent(IntBuffer.wrap(shared).asReadOnlyBuffer());
+            }).iterator());
+        };
+    }
+
+    @Test
+    void copiesArrayContentAsItIsCollected() throws IOException {
+        LinPath path = LinPath.of("ints");
+        for (int[] values : new int[][]{{7, 8, 9}, {7, 8, 9, 10}}) {
+            List<LinToken> before = readFile();
+            LinPatcher.patch(file, path, intArrayInOneBuffer(values));
+            assertThat(readFile()).isEqualTo(ImmutableList.copyOf(
+                LinStream.of(before.toArray(LinToken[]::new)).mapValues(path::equals, _ -> LinStream.of(
+                    new LinToken.IntArrayStart(values.length),
+                    new LinToken.IntArrayContent(IntBuffer.wrap(values).asReadOnlyBuffer()),
+                    new LinToken.IntArrayEnd()
+                )).asIterator()
+            ));
+        }
+    }
+
+    @Test
+    void leavesTheFileAloneIfNothingIsFound() throws IOException {
+        byte[] before = Files.readAllBytes(file);
+        var notFound = LinPatcher.Result.NOT_FOUND;
+        assertThat(LinPatcher.patch(file, LinPath.of("missing"), LinStream.of(new LinToken.Int(1))))
+            .isEqualTo(notFound);
+        assertThat(LinPatcher.patch(file, LinPath.of("scores").resolve(3), LinStream.of(new LinToken.Int(1))))
+            .isEqualTo(notFound);
+        assertThat(LinPatcher.patch(file, LinPath.of("flag", "inside"), LinStream.of(new LinToken.Int(1))))
+            .isEqualTo(notFound);
+        assertThat(Files.readAllBytes(file)).isEqualTo(before);
+    }
+
+    @Test
+    void patchesOpenChannels() throws IOException {
+        List<LinToken> before = readFile();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            assertThat(LinPatcher.patchInPlace(channel, LinPath.of("last"), LinStream.of(new LinToken.Long(8))))
+                .isTrue();
+            assertThat(LinPatcher.patchInPlace(channel, LinPath.of("last"), LinStream.of(new LinToken.Int(8))))
+                .isFalse();
+            assertThat(LinPatcher.patchInPlace(channel, LinPath.of("none"), LinStream.of(new LinToken.Int(8))))
+                .isFalse();
+        }
+        var patched = new ArrayList<>(before);
+        patched.set(patched.size() - 2, new LinToken.Long(8));
+        assertThat(readFile()).isEqualTo(patched);
+    }
+
+    @Test
+    void rejectsInvalidPatches() throws IOException {
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinPatcher.patch(
+            file, LinPath.root(), LinStream.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd())
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Cannot patch the root compound");
+        ex = assertThrows(
+            IllegalArgumentException.class, () -> LinPatcher.patch(file, LinPath.of("flag"), LinStream.of())
+        );
+        assertThat(ex).hasMessageThat().isEqualTo("Value does not start with a value: null");
+        ex = assertThrows(IllegalArgumentException.class, () -> LinPatcher.patch(
+            file, LinPath.of("flag"), LinStream.of(new LinToken.CompoundEnd())
+        ));
+        assertThat(ex).hasMessageThat().startsWith("Value does not start with a value: CompoundEnd");
+    }
+}
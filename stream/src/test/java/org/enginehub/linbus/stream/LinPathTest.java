@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinPathTest {
+    @Test
+    void root() {
+        var root = LinPath.root();
+        assertThat(root.isRoot()).isTrue();
+        assertThat(root.parent()).isNull();
+        assertThat(root.depth()).isEqualTo(0);
+        assertThat(root.name()).isNull();
+        assertThat(root.index()).isEqualTo(-1);
+        assertThat(root.toString()).isEmpty();
+        assertThat(LinPath.of()).isSameInstanceAs(root);
+    }
+
+    @Test
+    void segments() {
+        var path = LinPath.of("a", "b").resolve(3).resolve("c");
+        assertThat(path.depth()).isEqualTo(4);
+        assertThat(path.isRoot()).isFalse();
+        assertThat(path.name()).isEqualTo("c");
+        assertThat(path.index()).isEqualTo(-1);
+        var parent = path.parent();
+        assertThat(parent).isNotNull();
+        assertThat(parent.name()).isNull();
+        assertThat(parent.index()).isEqualTo(3);
+        assertThat(parent.parent()).isEqualTo(LinPath.of("a", "b"));
+    }
+
+    @Test
+    void rejectsNegativeIndex() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinPath.root().resolve(-1));
+        assertThat(ex).hasMessageThat().isEqualTo("Index must not be negative: -1");
+    }
+
+    @Test
+    void anyIndex() {
+        var path = LinPath.of("a").resolveAnyIndex().resolve("b");
+        var parent = path.parent();
+        assertThat(parent).isNotNull();
+        assertThat(parent.index()).isEqualTo(LinPath.ANY_INDEX);
+        assertThat(parent.name()).isNull();
+        assertThat(path).isEqualTo(LinPath.of("a").resolveAnyIndex().resolve("b"));
+        assertThat(path).isNotEqualTo(LinPath.of("a").resolve(0).resolve("b"));
+        assertThat(path.toString()).isEqualTo("a[*].b");
+    }
+
+    @Test
+    void equality() {
+        var path = LinPath.of("a").resolve(0);
+        assertThat(path).isEqualTo(LinPath.of("a").resolve(0));
+        assertThat(path.hashCode()).isEqualTo(LinPath.of("a").resolve(0).hashCode());
+        assertThat(path).isNotEqualTo(LinPath.of("a").resolve(1));
+        assertThat(path).isNotEqualTo(LinPath.of("b").resolve(0));
+        assertThat(path).isNotEqualTo(LinPath.of("a", "b"));
+        assertThat(path).isNotEqualTo(LinPath.of("a"));
+        assertThat(path).isNotEqualTo("a[0]");
+        assertThat(path).isEqualTo(path);
+    }
+
+    @Test
+    void startsWith() {
+        var path = LinPath.of("a", "b").resolve(0);
+        assertThat(path.startsWith(LinPath.root())).isTrue();
+        assertThat(path.startsWith(LinPath.of("a"))).isTrue();
+        assertThat(path.startsWith(path)).isTrue();
+        assertThat(path.startsWith(LinPath.of("b"))).isFalse();
+        assertThat(LinPath.of("a").startsWith(path)).isFalse();
+    }
+
+    @Test
+    void toStringQuotesUnusualNames() {
+        assertThat(LinPath.of("a", "b-c").resolve(2).resolve("d").toString()).isEqualTo("a.b-c[2].d");
+        assertThat(LinPath.root().resolve(0).resolve(1).toString()).isEqualTo("[0][1]");
+        assertThat(LinPath.of("with space", "", "q\"\\").toString()).isEqualTo("\"with space\".\"\".\"q\\\"\\\\\"");
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinPatternTest {
+    private static LinToken[] value(LinToken token) {
+        return new LinToken[]{token};
+    }
+
+    private static LinToken[] compound(LinToken[]... entries) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.CompoundStart());
+        for (LinToken[] entry : entries) {
+            tokens.addAll(List.of(entry));
+        }
+        tokens.add(new LinToken.CompoundEnd());
+        return tokens.toArray(LinToken[]::new);
+    }
+
+    // Names without types, like SNBT input
+    private static LinToken[] entry(String name, LinToken[] value) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.Name(name));
+        tokens.addAll(List.of(value));
+        return tokens.toArray(LinToken[]::new);
+    }
+
+    private static LinToken[] list(LinToken[]... elements) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.ListStart());
+        for (LinToken[] element : elements) {
+            tokens.addAll(List.of(element));
+        }
+        tokens.add(new LinToken.ListEnd());
+        return tokens.toArray(LinToken[]::new);
+    }
+
+    private static LinToken[] ints(int... values) {
+        return new LinToken[]{
+            new LinToken.IntArrayStart(),
+            new LinToken.IntArrayContent(IntBuffer.wrap(values).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        };
+    }
+
+    private static LinToken[] bytes(byte... values) {
+        return new LinToken[]{
+            new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(values).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd()
+        };
+    }
+
+    private static LinToken[] longs(long... values) {
+        return new LinToken[]{
+            new LinToken.LongArrayStart(),
+            new LinToken.LongArrayContent(LongBuffer.wrap(values).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd()
+        };
+    }
+
+    private static LinToken[] i(int value) {
+        return value(new LinToken.Int(value));
+    }
+
+    // Check with and without types in names and sizes, as binary input has them
+    private static boolean matches(LinToken[] pattern, LinToken[] candidate) throws IOException {
+        LinPattern compiled = LinPattern.compile(LinStream.of(pattern));
+        boolean result = compiled.matches(LinStream.of(candidate));
+        assertThat(compiled.matches(LinStream.of(candidate).calculateOptionalInfo())).isEqualTo(result);
+        return result;
+    }
+
+    @Test
+    void matchesPartialCompounds() throws IOException {
+        var candidate = compound(entry("a", i(1)), entry("b", compound(entry("c", i(2)), entry("d", i(3)))));
+        assertThat(matches(compound(), candidate)).isTrue();
+        assertThat(matches(compound(entry("b", compound(entry("d", i(3))))), candidate)).isTrue();
+        assertThat(matches(compound(entry("b", compound()), entry("a", i(1))), candidate)).isTrue();
+        assertThat(matches(compound(entry("a", i(2))), candidate)).isFalse();
+        assertThat(matches(compound(entry("e", i(1))), candidate)).isFalse();
+        assertThat(matches(compound(entry("a", compound())), candidate)).isFalse();
+        assertThat(matches(compound(), list())).isFalse();
+    }
+
+    @Test
+    void requiresExactTypes() throws IOException {
+        assertThat(matches(value(new LinToken.Byte((byte) 1)), value(new LinToken.Byte((byte) 1)))).isTrue();
+        assertThat(matches(value(new LinToken.Byte((byte) 1)), i(1))).isFalse();
+        assertThat(matches(value(new LinToken.String("a")), value(new LinToken.String("a")))).isTrue();
+        assertThat(matches(value(new LinToken.String("a")), value(new LinToken.String("b")))).isFalse();
+        assertThat(matches(compound(entry("a", i(1))), compound(entry("a", value(new LinToken.Long(1)))))).isFalse();
+        assertThat(matches(compound(entry("a", ints(1))), compound(entry("a", longs(1))))).isFalse();
+        assertThat(matches(compound(entry("a", ints(1))), compound(entry("a", i(1))))).isFalse();
+    }
+
+    @Test
+    void matchesListElementsInAnyOrder() throws IOException {
+        var candidate = list(i(3), i(2), i(1));
+        assertThat(matches(list(i(1), i(3)), candidate)).isTrue();
+        assertThat(matches(list(i(1), i(1)), candidate)).isTrue();
+        assertThat(matches(list(i(1), i(4)), candidate)).isFalse();
+        assertThat(matches(list(value(new LinToken.Byte((byte) 1))), candidate)).isFalse();
+        assertThat(matches(list(i(1)), list())).isFalse();
+        assertThat(matches(list(), list())).isTrue();
+        assertThat(matches(list(), candidate)).isFalse();
+        assertThat(matches(list(list(i(2))), list(list(i(1)), list(i(3), i(2))))).isTrue();
+    }
+
+    @Test
+    void matchesEveryPatternElementAgainstBufferedElements() throws IOException {
+        var candidate = list(
+            compound(entry("a", longs(4)), entry("c", bytes((byte) 1))),
+            compound(entry("a", longs(5)), entry("b", i(1)), entry("c", bytes((byte) 2)))
+        );
+        assertThat(matches(list(compound(entry("a", longs(5))), compound(entry("b", i(1)))), candidate)).isTrue();
+        assertThat(matches(
+            list(compound(entry("c", bytes((byte) 1))), compound(entry("c", bytes((byte) 2)))), candidate
+        )).isTrue();
+        assertThat(matches(list(compound(entry("a", longs(6))), compound(entry("b", i(1)))), candidate)).isFalse();
+        assertThat(matches(list(compound(entry("c", ints(1))), compound(entry("b", i(1)))), candidate)).isFalse();
+    }
+
+    @Test
+    void matchesArraysExactly() throws IOException {
+        assertThat(matches(bytes((byte) 1, (byte) 2), bytes((byte) 1, (byte) 2))).isTrue();
+        assertThat(matches(ints(1, 2), ints(1, 2))).isTrue();
+        assertThat(matches(longs(1, 2), longs(1, 2))).isTrue();
+        assertThat(matches(ints(), ints())).isTrue();
+        assertThat(matches(ints(1, 2), ints(1, 3))).isFalse();
+        assertThat(matches(ints(1, 2), ints(1))).isFalse();
+        assertThat(matches(ints(1), ints(1, 2))).isFalse();
+        assertThat(matches(bytes((byte) 1), longs(1))).isFalse();
+        assertThat(matches(longs(1), bytes((byte) 1))).isFalse();
+    }
+
+    @Test
+    void matchesArraysInChunks() throws IOException {
+        LinPattern pattern = LinPattern.compile(LinStream.of(
+            new LinToken.IntArrayStart(),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1, 2, 3}).asReadOnlyBuffer()),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{}).asReadOnlyBuffer()),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{4}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        ));
+        assertThat(pattern.matches(LinStream.of(
+            new LinToken.IntArrayStart(),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{3, 4}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        ))).isTrue();
+        assertThat(pattern.matches(LinStream.of(
+            new LinToken.IntArrayStart(),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1, 2, 3, 4, 5}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        ))).isFalse();
+        assertThat(pattern.matches(LinStream.of(ints(1, 2, 3)))).isFalse();
+        // Declared sizes are checked before the content
+        assertThat(pattern.matches(LinStream.of(new LinToken.IntArrayStart(5)))).isFalse();
+    }
+
+    @Test
+    void ignoresRootNames() throws IOException {
+        var pattern = new ArrayList<LinToken>();
+        pattern.add(new LinToken.Name("pattern", LinTagId.COMPOUND));
+        pattern.addAll(List.of(compound(entry("a", i(1)))));
+        var candidate = new ArrayList<LinToken>();
+        candidate.add(new LinToken.Name("root", LinTagId.COMPOUND));
+        candidate.addAll(List.of(compound(entry("a", i(1)))));
+        assertThat(LinPattern.compile(LinStream.of(pattern.toArray(LinToken[]::new)))
+            .matches(LinStream.of(candidate.toArray(LinToken[]::new)))).isTrue();
+    }
+
+    @Test
+    void stopsReadingOnceTheResultIsKnown() throws IOException {
+        var candidate = compound(entry("a", i(1)), entry("b", list(compound(entry("c", i(2))))), entry("d", i(3)));
+        var read = new AtomicInteger();
+        LinStream stream = LinStream.of(candidate);
+        LinStream counted = () -> {
+            read.incrementAndGet();
+            return stream.nextOrNull();
+        };
+        // Reads the compound start, then the name and value of a
+        assertThat(LinPattern.compile(LinStream.of(compound(entry("a", i(2)), entry("d", i(3))))).matches(counted))
+            .isFalse();
+        assertThat(read.get()).isEqualTo(3);
+
+        read.set(0);
+        LinStream second = LinStream.of(candidate);
+        LinStream secondCounted = () -> {
+            read.incrementAndGet();
+            return second.nextOrNull();
+        };
+        // Skips b, and stops at d without reading the end of the root
+        assertThat(LinPattern.compile(LinStream.of(compound(entry("d", i(3))))).matches(secondCounted)).isTrue();
+        assertThat(read.get()).isEqualTo(candidate.length - 1);
+        assertThat(second.nextOrNull()).isEqualTo(new LinToken.CompoundEnd());
+    }
+
+    @Test
+    void rejectsInvalidStreams() throws IOException {
+        var ex = assertThrows(NbtParseException.class, () -> LinPattern.compile(LinStream.of()));
+        assertThat(ex).hasMessageThat().isEqualTo("Unexpected end of stream");
+        ex = assertThrows(NbtParseException.class, () -> LinPattern.compile(
+            LinStream.of(new LinToken.Int(1), new LinToken.Int(2))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected the end of the pattern, got Int[value=2]");
+        ex = assertThrows(NbtParseException.class, () -> LinPattern.compile(LinStream.of(new LinToken.ListEnd())));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected a value, got ListEnd[]");
+        ex = assertThrows(NbtParseException.class, () -> LinPattern.compile(
+            LinStream.of(new LinToken.CompoundStart(), new LinToken.Int(1))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected a name, got Int[value=1]");
+        ex = assertThrows(NbtParseException.class, () -> LinPattern.compile(
+            LinStream.of(new LinToken.ByteArrayStart(), new LinToken.Int(1))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected array content, got Int[value=1]");
+
+        LinPattern pattern = LinPattern.compile(LinStream.of(compound(entry("a", i(1)))));
+        ex = assertThrows(NbtParseException.class, () -> pattern.matches(LinStream.of(new LinToken.CompoundStart())));
+        assertThat(ex).hasMessageThat().isEqualTo("Unexpected end of stream");
+        ex = assertThrows(NbtParseException.class, () -> pattern.matches(
+            LinStream.of(new LinToken.CompoundStart(), new LinToken.Int(1))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected a name, got Int[value=1]");
+    }
+}
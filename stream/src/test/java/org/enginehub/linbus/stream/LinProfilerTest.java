@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinProfilerTest {
+    private static LinStream stream(List<LinToken> tokens) {
+        return streamFromIterator(tokens.iterator());
+    }
+
+    private static LinProfile profile(List<LinToken> tokens) throws IOException {
+        var profiler = new LinProfiler(3);
+        profiler.add(stream(tokens));
+        return profiler.profile();
+    }
+
+    private static int binarySize(List<LinToken> tokens) throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, stream(tokens));
+        return output.toByteArray().length;
+    }
+
+    @Test
+    void sizesMatchTheBinaryFormat() throws IOException {
+        var bigtest = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        for (List<LinToken> tokens : List.of(bigtest, sampleDocument())) {
+            var root = profile(tokens).paths().get(LinPath.root());
+            assertThat(root).isNotNull();
+            assertThat(root.bytes()).isEqualTo(binarySize(tokens));
+            assertThat(root.tags()).isEqualTo(tokens.stream().filter(t -> !(t instanceof LinToken.Name)).count()
+                - tokens.stream().filter(t -> t instanceof LinToken.CompoundEnd
+                    || t instanceof LinToken.ListEnd || t instanceof LinToken.IntArrayEnd
+                    || t instanceof LinToken.ByteArrayEnd || t instanceof LinToken.LongArrayEnd
+                    || t instanceof LinToken.IntArrayContent || t instanceof LinToken.ByteArrayContent
+                    || t instanceof LinToken.LongArrayContent).count());
+        }
+    }
+
+    @Test
+    void aggregatesListElements() throws IOException {
+        var profile = profile(sampleDocument());
+        assertThat(profile.paths().keySet()).containsExactly(
+            LinPath.root(),
+            LinPath.of("a"),
+            LinPath.of("uuid"),
+            LinPath.of("uuid", "most"),
+            LinPath.of("uuid", "least"),
+            LinPath.of("list"),
+            LinPath.of("list").resolveAnyIndex(),
+            LinPath.of("list").resolveAnyIndex().resolve("x"),
+            LinPath.of("ints")
+        ).inOrder();
+
+        // id, name length, "a", value
+        assertThat(profile.paths().get(LinPath.of("a")))
+            .isEqualTo(new LinProfile.PathStats(1, 1, 1 + 2 + 1 + 4, Map.of(LinTagId.INT, 1L)));
+        // Two compounds holding one int each, and their END tags
+        assertThat(profile.paths().get(LinPath.of("list").resolveAnyIndex()))
+            .isEqualTo(new LinProfile.PathStats(2, 4, 2 * (1 + 2 + 1 + 4 + 1), Map.of(LinTagId.COMPOUND, 2L)));
+        assertThat(profile.paths().get(LinPath.of("list").resolveAnyIndex().resolve("x")))
+            .isEqualTo(new LinProfile.PathStats(2, 2, 2 * (1 + 2 + 1 + 4), Map.of(LinTagId.INT, 2L)));
+        assertThat(profile.paths().get(LinPath.of("ints")))
+            .isEqualTo(new LinProfile.PathStats(1, 1, 1 + 2 + 4 + 4 + 2 * 4, Map.of(LinTagId.INT_ARRAY, 1L)));
+    }
+
+    @Test
+    void countsTypesPerPath() throws IOException {
+        var tokens = List.<LinToken>of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("mixed"), new LinToken.ListStart(),
+            new LinToken.Byte((byte) 1), new LinToken.Short((short) 2), new LinToken.Float(3),
+            new LinToken.Double(4), new LinToken.String("ÅÄÖ\u0000€"), new LinToken.Byte((byte) 5),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        );
+        var element = profile(tokens).paths().get(LinPath.of("mixed").resolveAnyIndex());
+        assertThat(element).isEqualTo(new LinProfile.PathStats(6, 6, 1 + 2 + 4 + 8 + (2 + 6 + 2 + 3) + 1, Map.of(
+            LinTagId.BYTE, 2L,
+            LinTagId.SHORT, 1L,
+            LinTagId.FLOAT, 1L,
+            LinTagId.DOUBLE, 1L,
+            LinTagId.STRING, 1L
+        )));
+        // No root name, so no header
+        assertThat(profile(tokens).paths().get(LinPath.root()).bytes()).isEqualTo(1 + 2 + 5 + 5 + 29 + 1);
+    }
+
+    @Test
+    void keepsTheHeaviestValues() throws IOException {
+        var profiler = new LinProfiler(2);
+        profiler.add(stream(sampleDocument()));
+        profiler.add(stream(List.of(
+            new LinToken.Name(""), new LinToken.CompoundStart(),
+            new LinToken.Name("list"), new LinToken.ListStart(),
+            new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.allocate(100).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.LongArrayStart(),
+            new LinToken.LongArrayContent(LongBuffer.allocate(20).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        )));
+        var profile = profiler.profile();
+        assertThat(profile.heaviest()).containsExactly(
+            new LinProfile.Subtree(1, LinPath.root(), LinTagId.COMPOUND, 3 + 7 + 5 + 104 + 164 + 1),
+            new LinProfile.Subtree(1, LinPath.of("list"), LinTagId.LIST, 7 + 5 + 104 + 164)
+        ).inOrder();
+        assertThat(profile.paths().get(LinPath.of("list").resolveAnyIndex()).types())
+            .isEqualTo(Map.of(LinTagId.COMPOUND, 2L, LinTagId.BYTE_ARRAY, 1L, LinTagId.LONG_ARRAY, 1L));
+
+        var exact = new LinProfiler(10);
+        exact.add(stream(sampleDocument()));
+        assertThat(exact.profile().heaviest().stream().map(LinProfile.Subtree::path).toList())
+            .contains(LinPath.of("list").resolve(1).resolve("x"));
+
+        var none = new LinProfiler(0);
+        none.add(stream(sampleDocument()));
+        assertThat(none.profile().heaviest()).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedStreams() {
+        assertThrows(IllegalArgumentException.class, () -> new LinProfiler(-1));
+        assertThrows(NbtParseException.class, () -> profile(List.of(new LinToken.CompoundStart())));
+        assertThrows(NbtParseException.class, () -> profile(List.of(new LinToken.Name("root"))));
+        assertThrows(NbtParseException.class, () -> profile(List.of(
+            new LinToken.CompoundStart(), new LinToken.Int(1)
+        )));
+        assertThrows(NbtParseException.class, () -> profile(List.of(
+            new LinToken.ListStart(), new LinToken.Name("a")
+        )));
+        assertThrows(NbtParseException.class, () -> profile(List.of(
+            new LinToken.IntArrayStart(), new LinToken.Int(1)
+        )));
+        assertThrows(NbtParseException.class, () -> profile(List.of(
+            new LinToken.ListStart(), new LinToken.CompoundEnd()
+        )));
+        assertThrows(NbtParseException.class, () -> profile(List.of(
+            new LinToken.ListStart(), new LinToken.LongArrayContent(LongBuffer.allocate(1).asReadOnlyBuffer())
+        )));
+        assertThrows(NbtParseException.class, () -> profile(List.of(new LinToken.ListEnd())));
+    }
+}
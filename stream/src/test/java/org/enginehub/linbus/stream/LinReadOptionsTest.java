@@ -21,6 +21,7 @@
 import org.junit.jupiter.api.Test;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class LinReadOptionsTest {
     @Test
@@ -33,15 +34,39 @@ void allowNormalUtf8Encoding() {
         assertThat(LinReadOptions.builder().allowNormalUtf8Encoding(true).build().allowNormalUtf8Encoding()).isTrue();
     }
 
+    @Test
+    void lazyStringDecoding() {
+        assertThat(LinReadOptions.builder().build().lazyStringDecoding()).isFalse();
+        assertThat(LinReadOptions.builder().lazyStringDecoding(true).build().lazyStringDecoding()).isTrue();
+    }
+
+    @Test
+    void arrayChunkSize() {
+        assertThat(LinReadOptions.builder().build().arrayChunkSize()).isEqualTo(LinReadOptions.DEFAULT_ARRAY_CHUNK_SIZE);
+        assertThat(LinReadOptions.builder().arrayChunkSize(16).build().arrayChunkSize()).isEqualTo(16);
+        var builder = LinReadOptions.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.arrayChunkSize(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.arrayChunkSize(-8));
+        assertThrows(IllegalArgumentException.class, () -> builder.arrayChunkSize(12));
+    }
+
+    @Test
+    void reuseArrayBuffers() {
+        assertThat(LinReadOptions.builder().build().reuseArrayBuffers()).isFalse();
+        assertThat(LinReadOptions.builder().reuseArrayBuffers(true).build().reuseArrayBuffers()).isTrue();
+    }
+
     @Test
     void builderToString() {
         assertThat(LinReadOptions.builder().toString())
-            .isEqualTo("LinReadOptions.Builder{allowNormalUtf8Encoding=false}");
+            .isEqualTo("LinReadOptions.Builder{allowNormalUtf8Encoding=false, lazyStringDecoding=false, arrayChunkSize=8192, "
+                + "reuseArrayBuffers=false}");
     }
 
     @Test
     void optionsToString() {
         assertThat(LinReadOptions.builder().allowNormalUtf8Encoding(true).build().toString())
-            .isEqualTo("LinReadOptions{allowNormalUtf8Encoding=true}");
+            .isEqualTo("LinReadOptions{allowNormalUtf8Encoding=true, lazyStringDecoding=false, arrayChunkSize=8192, "
+                + "reuseArrayBuffers=false}");
     }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.stream.exception.NbtWriteException;
+import org.enginehub.linbus.stream.impl.ArrayContents;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinTeeTest {
+    private enum Mode {
+        SYNCHRONOUS,
+        PARALLEL,
+        PARALLEL_SINGLE_TOKEN_QUEUE,
+        PARALLEL_VIRTUAL_THREADS,
+    }
+
+    private static List<@Nullable Object> broadcast(
+        Mode mode, LinStreamable source, List<? extends LinTokenSink<?>> sinks
+    ) throws IOException {
+        return switch (mode) {
+            case SYNCHRONOUS -> LinTee.broadcast(source, sinks);
+            case PARALLEL -> LinTee.broadcastInParallel(source, sinks);
+            case PARALLEL_SINGLE_TOKEN_QUEUE -> LinTee.broadcastInParallel(
+                source, sinks, 1, Thread.ofPlatform().factory()
+            );
+            case PARALLEL_VIRTUAL_THREADS -> LinTee.broadcastInParallel(
+                source, sinks, 100, Thread.ofVirtual().factory()
+            );
+        };
+    }
+
+    // Keeps copies of the tokens, as their array content is only valid while they are pushed
+    private static class CollectingSink implements LinTokenSink<List<LinToken>> {
+        final List<LinToken> tokens = new ArrayList<>();
+        boolean finished;
+
+        @Override
+        public void accept(LinToken token) throws IOException {
+            tokens.add(ArrayContents.copy(token));
+        }
+
+        @Override
+        public List<LinToken> finish() {
+            finished = true;
+            return tokens;
+        }
+    }
+
+    private static List<LinToken> readAll(LinStreamable source) throws IOException {
+        var sink = new CollectingSink();
+        LinStream stream = source.linStream();
+        for (LinToken token; (token = stream.nextOrNull()) != null; ) {
+            sink.accept(token);
+        }
+        return sink.finish();
+    }
+
+    private static LinStreamable bigTest() throws IOException {
+        byte[] bytes = StreamTestUtil.loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        return () -> LinBinaryIO.read(ByteStreams.newDataInput(bytes));
+    }
+
+    // A stream of the sample document that fails after some tokens
+    private static LinStream failingAfter(int count, IOException failure) {
+        LinStream stream = LinStream.of(StreamTestUtil.sampleDocument().toArray(LinToken[]::new));
+        var read = new AtomicInteger();
+        return () -> {
+            if (read.getAndIncrement() == count) {
+                throw failure;
+            }
+            return stream.nextOrNull();
+        };
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void servesEveryOutputFromOnePass(Mode mode) throws IOException {
+        LinStreamable document = bigTest();
+        var opened = new AtomicInteger();
+        LinStreamable source = () -> {
+            opened.incrementAndGet();
+            return document.linStream();
+        };
+        var binary = ByteStreams.newDataOutput();
+        var collected = new CollectingSink();
+
+        var results = broadcast(mode, source, List.of(LinBinaryIO.writer(binary), LinDigest.sink(), collected));
+
+        assertThat(opened.get()).isEqualTo(1);
+        var expectedBinary = ByteStreams.newDataOutput();
+        LinBinaryIO.write(expectedBinary, document);
+        assertThat(binary.toByteArray()).isEqualTo(expectedBinary.toByteArray());
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).isNull();
+        assertThat(results.get(1)).isEqualTo(LinDigest.of(document));
+        assertThat(results.get(2)).isEqualTo(readAll(document));
+        assertThat(collected.finished).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void readsTheStreamWithoutSinks(Mode mode) throws IOException {
+        var stream = LinStream.of(StreamTestUtil.sampleDocument().toArray(LinToken[]::new));
+        assertThat(broadcast(mode, stream, List.of())).isEmpty();
+        assertThat(stream.nextOrNull()).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void throwsSinkFailuresWithoutFinishingTheOthers(Mode mode) throws IOException {
+        var failure = new IOException("Sink failed");
+        var failing = new CollectingSink() {
+            @Override
+            public void accept(LinToken token) throws IOException {
+                super.accept(token);
+                if (tokens.size() == 5) {
+                    throw failure;
+                }
+            }
+        };
+        var other = new CollectingSink();
+        var ex = assertThrows(IOException.class, () -> broadcast(mode, bigTest(), List.of(other, failing)));
+        assertThat(ex).isSameInstanceAs(failure);
+        assertThat(failing.finished).isFalse();
+        if (mode == Mode.SYNCHRONOUS) {
+            // Sink threads may have already finished with all the tokens
+            assertThat(other.finished).isFalse();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void throwsStreamFailuresWithoutFinishingSinks(Mode mode) {
+        var failure = new IOException("Stream failed");
+        var sink = new CollectingSink();
+        LinStream stream = failingAfter(3, failure);
+        var ex = assertThrows(IOException.class, () -> broadcast(mode, stream, List.of(sink)));
+        assertThat(ex).isSameInstanceAs(failure);
+        assertThat(sink.finished).isFalse();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void throwsFinishFailures(Mode mode) {
+        // The root compound never ends
+        var tokens = StreamTestUtil.sampleDocument();
+        LinStream stream = LinStream.of(tokens.subList(0, tokens.size() - 1).toArray(LinToken[]::new));
+        var ex = assertThrows(
+            NbtWriteException.class,
+            () -> broadcast(mode, stream, List.of(LinBinaryIO.writer(ByteStreams.newDataOutput())))
+        );
+        assertThat(ex).hasMessageThat().isEqualTo("Tokens ended before the end of the root value");
+    }
+
+    @Test
+    void rethrowsErrorsFromSinkThreads() {
+        var sink = new CollectingSink() {
+            @Override
+            public List<LinToken> finish() {
+                throw new AssertionError("Sink broke");
+            }
+        };
+        LinStream stream = LinStream.of(StreamTestUtil.sampleDocument().toArray(LinToken[]::new));
+        var ex = assertThrows(AssertionError.class, () -> LinTee.broadcastInParallel(stream, List.of(sink)));
+        assertThat(ex).hasMessageThat().isEqualTo("Sink broke");
+    }
+
+    @Test
+    void stopsAllThreadsBeforeReturning() throws IOException {
+        var threads = new ArrayList<Thread>();
+        ThreadFactory factory = task -> {
+            var thread = new Thread(task);
+            threads.add(thread);
+            return thread;
+        };
+        var failing = new CollectingSink() {
+            @Override
+            public void accept(LinToken token) throws IOException {
+                throw new IOException("Sink failed");
+            }
+        };
+        var sinks = List.of(new CollectingSink(), failing, new CollectingSink());
+        assertThrows(IOException.class, () -> LinTee.broadcastInParallel(bigTest(), sinks, 1, factory));
+        assertThat(threads).hasSize(3);
+        for (Thread thread : threads) {
+            assertThat(thread.isAlive()).isFalse();
+        }
+
+        threads.clear();
+        LinTee.broadcastInParallel(bigTest(), List.of(new CollectingSink(), new CollectingSink()), 1, factory);
+        assertThat(threads).hasSize(2);
+        for (Thread thread : threads) {
+            assertThat(thread.isAlive()).isFalse();
+        }
+    }
+
+    @Test
+    void keepsTheInterruptWhenInterrupted() throws IOException {
+        var sink = new CollectingSink();
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> LinTee.broadcastInParallel(bigTest(), List.of(sink)));
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+        assertThat(sink.finished).isFalse();
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        List<LinTokenSink<?>> sinks = List.of(new CollectingSink());
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinTee.broadcastInParallel(
+            LinStream.of(), sinks, 0, Thread.ofPlatform().factory()
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Queue capacity must be positive: 0");
+        ex = assertThrows(IllegalArgumentException.class, () -> LinTee.broadcastInParallel(
+            LinStream.of(), sinks, 1, _ -> null
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Thread factory did not create a thread");
+    }
+}
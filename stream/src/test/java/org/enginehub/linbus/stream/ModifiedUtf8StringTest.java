@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ModifiedUtf8StringTest {
+    private static final List<String> SAMPLES = List.of("", "plain", "ÅÄÖ", "€￿", "😀", "a\u0000b");
+
+    @Test
+    void encodesLikeWriteUtf() throws IOException {
+        for (String sample : SAMPLES) {
+            var expected = ByteStreams.newDataOutput();
+            expected.writeUTF(sample);
+            var actual = ByteStreams.newDataOutput();
+            ModifiedUtf8String.of(sample).writeTo(actual);
+            assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+        }
+    }
+
+    @Test
+    void encodesIntoBuffersWithoutWrapping() throws IOException {
+        for (String sample : SAMPLES) {
+            var expected = ByteStreams.newDataOutput();
+            expected.writeUTF(sample);
+            byte[] expectedBytes = expected.toByteArray();
+            assertThat(ModifiedUtf8String.encodedLength(sample)).isEqualTo(expectedBytes.length - 2);
+            var buffer = ByteBuffer.allocate(expectedBytes.length - 2);
+            ModifiedUtf8String.encode(new StringBuilder(sample), buffer);
+            assertThat(buffer.hasRemaining()).isFalse();
+            assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(expectedBytes, 2, expectedBytes.length));
+        }
+        assertThrows(BufferOverflowException.class, () -> ModifiedUtf8String.encode("€", ByteBuffer.allocate(2)));
+    }
+
+    @Test
+    void decodesLikeReadUtf() throws IOException {
+        for (String sample : SAMPLES) {
+            var output = ByteStreams.newDataOutput();
+            output.writeUTF(sample);
+            var read = ModifiedUtf8String.read(ByteStreams.newDataInput(output.toByteArray()));
+            assertThat(read.isDecoded()).isFalse();
+            assertThat(read.toString()).isEqualTo(sample);
+            assertThat(read.isDecoded()).isTrue();
+            assertThat(read.encodedLength()).isEqualTo(output.toByteArray().length - 2);
+        }
+    }
+
+    @Test
+    void comparesWithoutDecoding() {
+        var key = ModifiedUtf8String.of("key");
+        var read = ModifiedUtf8String.ofEncoded(new byte[]{'k', 'e', 'y'});
+        assertThat(read.contentEquals(key)).isTrue();
+        assertThat(read).isEqualTo(key);
+        assertThat(read.hashCode()).isEqualTo(key.hashCode());
+        assertThat(read).isNotEqualTo(ModifiedUtf8String.of("kez"));
+        assertThat(read).isNotEqualTo("key");
+        assertThat(read.isEmpty()).isFalse();
+        assertThat(read.isDecoded()).isFalse();
+        assertThat(read.encoded().isReadOnly()).isTrue();
+        assertThat(read.encoded().remaining()).isEqualTo(3);
+    }
+
+    @Test
+    void actsAsCharSequence() {
+        var value = ModifiedUtf8String.ofEncoded(new byte[]{'a', (byte) 0xC3, (byte) 0x85, 'c'});
+        assertThat(value.length()).isEqualTo(3);
+        assertThat(value.charAt(1)).isEqualTo('Å');
+        assertThat(value.subSequence(1, 3).toString()).isEqualTo("Åc");
+        assertThat(ModifiedUtf8String.of("").isEmpty()).isTrue();
+    }
+
+    @Test
+    void ownsItsBytes() {
+        byte[] bytes = {'a'};
+        var value = ModifiedUtf8String.ofEncoded(bytes);
+        bytes[0] = 'b';
+        assertThat(value.toString()).isEqualTo("a");
+    }
+
+    @Test
+    void rejectsMalformedBytes() {
+        for (byte[] bytes : List.of(
+            new byte[]{(byte) 0x80},
+            new byte[]{(byte) 0xC3},
+            new byte[]{(byte) 0xE2, (byte) 0x82, 'a'},
+            new byte[]{(byte) 0xF0, (byte) 0x9F, (byte) 0x98, (byte) 0x80}
+        )) {
+            var value = ModifiedUtf8String.ofEncoded(bytes);
+            assertThrows(NbtParseException.class, value::toString);
+        }
+    }
+
+    @Test
+    void rejectsWritingTooLongStrings() {
+        var value = ModifiedUtf8String.of("€".repeat(30_000));
+        assertThat(value.encodedLength()).isGreaterThan(ModifiedUtf8String.MAX_ENCODED_LENGTH);
+        assertThrows(UTFDataFormatException.class, () -> value.writeTo(ByteStreams.newDataOutput()));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PeekableLinStreamTest {
+    private static void assertPeeksMatchTokens(PeekableLinStream stream, List<LinToken> expected) throws IOException {
+        var actual = new ArrayList<LinToken>();
+        while (true) {
+            var peeked = stream.peekOrNull();
+            // Peeking twice must not advance
+            assertThat(stream.peekOrNull()).isSameInstanceAs(peeked);
+            var next = stream.nextOrNull();
+            assertThat(next).isSameInstanceAs(peeked);
+            if (next == null) {
+                break;
+            }
+            actual.add(next);
+        }
+        assertThat(actual).containsExactlyElementsIn(expected).inOrder();
+        assertThat(stream.peek()).isEmpty();
+    }
+
+    @Test
+    void wrappedStreamPeeks() throws IOException {
+        var tokens = List.<LinToken>of(new LinToken.Int(1), new LinToken.Int(2));
+        var stream = LinStream.of(tokens.toArray(LinToken[]::new)).peekable();
+        assertThat(stream.peek()).hasValue(new LinToken.Int(1));
+        assertPeeksMatchTokens(stream, tokens);
+    }
+
+    @Test
+    void peekableStreamReturnsItself() {
+        var stream = LinStream.of().peekable();
+        assertThat(stream.peekable()).isSameInstanceAs(stream);
+    }
+
+    @Test
+    void binaryReaderPeeksNatively() throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, LinStream.of(
+            new LinToken.Name("root", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.INT),
+            new LinToken.Int(3),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ));
+        var stream = LinBinaryIO.read(ByteStreams.newDataInput(output.toByteArray()));
+        assertThat(stream.peekable()).isSameInstanceAs(stream);
+        assertThat(stream.calculateOptionalInfo()).isSameInstanceAs(stream);
+        assertPeeksMatchTokens(stream.peekable(), List.of(
+            new LinToken.Name("root", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.INT),
+            new LinToken.Int(3),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ));
+    }
+
+    @Test
+    void optionalInfoCalculatorPeeksNatively() throws IOException {
+        var stream = LinStream.of(
+            new LinToken.ListStart(),
+            new LinToken.Int(1),
+            new LinToken.ListEnd()
+        ).calculateOptionalInfo();
+        assertThat(stream.peekable()).isSameInstanceAs(stream);
+        assertPeeksMatchTokens(stream.peekable(), List.of(
+            new LinToken.ListStart(1, LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.ListEnd()
+        ));
+    }
+}
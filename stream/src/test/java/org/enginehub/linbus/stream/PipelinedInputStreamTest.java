@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PipelinedInputStreamTest {
+    private static final ThreadFactory THREADS = Thread.ofVirtual().factory();
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static PipelinedInputStream pipelined(InputStream source) {
+        return new PipelinedInputStream(source, 16, 2, THREADS);
+    }
+
+    // Fails after a number of bytes, with an IOException unless an unchecked exception is given
+    private static final class FailingInputStream extends InputStream {
+        private final InputStream delegate;
+        private final @Nullable RuntimeException unchecked;
+        private int remaining;
+
+        FailingInputStream(byte[] bytes, int failAfter, @Nullable RuntimeException unchecked) {
+            this.delegate = new ByteArrayInputStream(bytes);
+            this.remaining = failAfter;
+            this.unchecked = unchecked;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                if (unchecked != null) {
+                    throw unchecked;
+                }
+                throw new IOException("Source failed");
+            }
+            remaining--;
+            return delegate.read();
+        }
+    }
+
+    @Test
+    void readsEverything() throws IOException {
+        for (int size : new int[]{0, 1, 15, 16, 32, 1000}) {
+            byte[] bytes = randomBytes(size);
+            try (var input = pipelined(new ByteArrayInputStream(bytes))) {
+                assertThat(input.readAllBytes()).isEqualTo(bytes);
+                assertThat(input.read()).isEqualTo(-1);
+                assertThat(input.read(new byte[1], 0, 1)).isEqualTo(-1);
+            }
+        }
+    }
+
+    @Test
+    void readsSingleBytesAndSkips() throws IOException {
+        byte[] bytes = randomBytes(100);
+        try (var input = pipelined(new ByteArrayInputStream(bytes))) {
+            assertThat(input.read()).isEqualTo(bytes[0] & 0xFF);
+            assertThat(input.available()).isEqualTo(15);
+            assertThat(input.read(new byte[0], 0, 0)).isEqualTo(0);
+            assertThat(input.skip(40)).isEqualTo(40);
+            byte[] chunk = new byte[10];
+            assertThat(input.read(chunk, 0, 10)).isEqualTo(7);
+            assertThat(chunk[0]).isEqualTo(bytes[41]);
+            assertThat(input.skip(1000)).isEqualTo(52);
+            assertThat(input.available()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void readsNbtFromGzip() throws IOException {
+        List<LinToken> expected = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        try (var source = Resources.asByteSource(Resources.getResource("bigtest.nbt.gz")).openStream();
+             var input = new DataInputStream(new PipelinedInputStream(new GZIPInputStream(source)))) {
+            assertThat(ImmutableList.copyOf(LinBinaryIO.read(input).asIterator())).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void rethrowsSourceFailuresAfterTheBytesBeforeThem() throws IOException {
+        byte[] bytes = randomBytes(40);
+        try (var input = pipelined(new FailingInputStream(bytes, 20, null))) {
+            byte[] read = new byte[20];
+            new DataInputStream(input).readFully(read);
+            assertThat(read).isEqualTo(Arrays.copyOf(bytes, 20));
+            var e = assertThrows(IOException.class, input::read);
+            assertThat(e).hasMessageThat().isEqualTo("Source failed");
+            // The failure sticks
+            assertThrows(IOException.class, input::read);
+        }
+        var unchecked = new IllegalStateException("Broken");
+        try (var input = pipelined(new FailingInputStream(bytes, 0, unchecked))) {
+            assertThat(assertThrows(IllegalStateException.class, input::read)).isSameInstanceAs(unchecked);
+        }
+    }
+
+    @Test
+    void closingStopsTheProducerAndClosesTheSource() throws IOException, InterruptedException {
+        var closed = new AtomicBoolean();
+        var producer = new AtomicReference<Thread>();
+        // An endless source
+        InputStream source = new InputStream() {
+            @Override
+            public int read() {
+                return 1;
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        var input = new PipelinedInputStream(source, 16, 2, r -> {
+            Thread thread = THREADS.newThread(r);
+            producer.set(thread);
+            return thread;
+        });
+        assertThat(input.read()).isEqualTo(1);
+        input.close();
+        assertThat(closed.get()).isTrue();
+        assertThat(producer.get().isAlive()).isFalse();
+        assertThrows(IOException.class, input::read);
+        assertThrows(IOException.class, input::available);
+        // Closing twice is fine
+        input.close();
+    }
+
+    @Test
+    void interruptingTheConsumer() throws IOException, InterruptedException {
+        var release = new CountDownLatch(1);
+        InputStream source = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        };
+        try (var input = pipelined(source)) {
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedIOException.class, input::read);
+            assertThat(Thread.interrupted()).isTrue();
+            release.countDown();
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        var source = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new PipelinedInputStream(source, 0, 2, THREADS));
+        assertThrows(IllegalArgumentException.class, () -> new PipelinedInputStream(source, 16, 1, THREADS));
+        assertThrows(IllegalArgumentException.class, () -> new PipelinedInputStream(source, 16, 2, _ -> null));
+    }
+
+    @Test
+    void readsWithDefaults() throws IOException {
+        byte[] bytes = randomBytes(PipelinedInputStream.DEFAULT_BUFFER_SIZE * 3 + 5);
+        try (var input = new PipelinedInputStream(new ByteArrayInputStream(bytes))) {
+            assertThat(input.readAllBytes()).isEqualTo(bytes);
+        }
+    }
+}
@@ -19,13 +19,16 @@
 package org.enginehub.linbus.stream;
 
 import com.google.common.io.Resources;
+import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.token.LinToken;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.IntBuffer;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.zip.GZIPInputStream;
@@ -55,6 +58,39 @@ public static <T> T convertNbtStream(String name, LinReadOptions options, Functi
         return loadResource(name, stream -> converter.apply(LinBinaryIO.read(new DataInputStream(stream), options)));
     }
 
+    // {a: 1, uuid: {most: 1L, least: 2L}, list: [{x: 1}, {x: 2}], ints: [I; 1, 2]}
+    public static List<LinToken> sampleDocument() {
+        return List.of(
+            new LinToken.Name("root", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a", LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.Name("uuid", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("most", LinTagId.LONG),
+            new LinToken.Long(1),
+            new LinToken.Name("least", LinTagId.LONG),
+            new LinToken.Long(2),
+            new LinToken.CompoundEnd(),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("x", LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("x", LinTagId.INT),
+            new LinToken.Int(2),
+            new LinToken.CompoundEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(2),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.CompoundEnd()
+        );
+    }
+
     public static LinStream streamFromIterator(Iterator<LinToken> tokens) {
         return () -> tokens.hasNext()
             ? Objects.requireNonNull(tokens.next(), "Cannot return null, violates contract")
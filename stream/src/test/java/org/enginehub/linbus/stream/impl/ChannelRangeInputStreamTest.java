@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChannelRangeInputStreamTest {
+    @TempDir
+    Path directory;
+
+    private FileChannel open() throws IOException {
+        Path file = directory.resolve("data");
+        Files.write(file, new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        return FileChannel.open(file);
+    }
+
+    @Test
+    void readsOnlyTheRange() throws IOException {
+        try (var channel = open()) {
+            var stream = new ChannelRangeInputStream(channel, 2, 5, "the range");
+            assertThat(stream.read()).isEqualTo(2);
+            assertThat(stream.skip(2)).isEqualTo(2);
+            assertThat(stream.available()).isEqualTo(2);
+            assertThat(stream.read(new byte[4], 0, 0)).isEqualTo(0);
+            byte[] rest = new byte[4];
+            assertThat(stream.read(rest, 1, 3)).isEqualTo(2);
+            assertThat(rest).isEqualTo(new byte[]{0, 5, 6, 0});
+            assertThat(stream.read()).isEqualTo(-1);
+            assertThat(stream.read(rest, 0, 4)).isEqualTo(-1);
+            assertThat(stream.skip(1)).isEqualTo(0);
+            // The channel's own position is left alone
+            assertThat(channel.position()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void failsIfTheFileEndsFirst() throws IOException {
+        try (var channel = open()) {
+            var stream = new ChannelRangeInputStream(channel, 8, 5, "the range");
+            assertThat(stream.readNBytes(2)).isEqualTo(new byte[]{8, 9});
+            var ex = assertThrows(EOFException.class, stream::read);
+            assertThat(ex).hasMessageThat().isEqualTo("File ends before the range");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EntryFilterTest {
+    @Test
+    void dropsMatchingEntries() throws IOException {
+        var seen = new ArrayList<String>();
+        var result = ImmutableList.copyOf(streamFromIterator(sampleDocument().iterator())
+            .filterEntries(path -> {
+                seen.add(path.toString());
+                return !path.equals(LinPath.of("uuid")) && !"x".equals(path.name());
+            })
+            .asIterator());
+        assertThat(result).containsExactly(
+            new LinToken.Name("root", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a", LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundStart(),
+            new LinToken.CompoundEnd(),
+            new LinToken.ListEnd(),
+            sampleDocument().get(22),
+            sampleDocument().get(23),
+            sampleDocument().get(24),
+            sampleDocument().get(25),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+        // Dropped entries are not descended into
+        assertThat(seen).containsExactly("a", "uuid", "list", "list[0].x", "list[1].x", "ints").inOrder();
+    }
+
+    @Test
+    void keepingEverythingIsPassthrough() throws IOException {
+        var original = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        var result = ImmutableList.copyOf(
+            streamFromIterator(original.iterator()).filterEntries(_ -> true).asIterator()
+        );
+        assertThat(result).containsExactlyElementsIn(original).inOrder();
+    }
+
+    @Test
+    void streamsBetweenBinaryReaderAndWriter() throws IOException {
+        var output = ByteStreams.newDataOutput();
+        convertNbtStream("bigtest.nbt.gz", s -> {
+            try {
+                LinBinaryIO.write(output, s.filterEntries(
+                    path -> !path.startsWith(LinPath.of("nested compound test"))
+                ));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return null;
+        });
+        var names = new ArrayList<String>();
+        LinStream reread = LinBinaryIO.read(ByteStreams.newDataInput(output.toByteArray()));
+        for (LinToken token : (Iterable<LinToken>) reread::asIterator) {
+            if (token instanceof LinToken.Name name) {
+                names.add(name.name());
+            }
+        }
+        assertThat(names).isNotEmpty();
+        assertThat(names).doesNotContain("nested compound test");
+        assertThat(names).doesNotContain("ham");
+    }
+
+    @Test
+    void failsOnTruncatedValue() {
+        var stream = LinStream.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("a"),
+            new LinToken.CompoundStart()
+        ).filterEntries(_ -> false);
+        var ex = assertThrows(NbtParseException.class, () -> ImmutableList.copyOf(stream.asIterator()));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected value, got end of stream");
+    }
+
+    @Test
+    void rootIsNotFiltered() throws IOException {
+        var tokens = List.<LinToken>of(
+            new LinToken.Name(""),
+            new LinToken.CompoundStart(),
+            new LinToken.CompoundEnd()
+        );
+        var result = ImmutableList.copyOf(streamFromIterator(tokens.iterator()).filterEntries(_ -> false).asIterator());
+        assertThat(result).containsExactlyElementsIn(tokens).inOrder();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EntryInserterTest {
+    private static List<LinToken> insert(List<LinToken> tokens, LinPath path, LinStreamable value) {
+        return ImmutableList.copyOf(streamFromIterator(tokens.iterator()).insertAt(path, value).asIterator());
+    }
+
+    @Test
+    void appendsNewCompoundEntry() {
+        var result = insert(
+            sampleDocument(), LinPath.of("uuid", "extra"), () -> LinStream.of(new LinToken.Byte((byte) 5))
+        );
+        var expected = new ArrayList<>(sampleDocument());
+        expected.addAll(10, List.of(new LinToken.Name("extra", LinTagId.BYTE), new LinToken.Byte((byte) 5)));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void appendsToRootCompound() {
+        var result = insert(sampleDocument(), LinPath.of("b"), () -> LinStream.of(new LinToken.Byte((byte) 5)));
+        var expected = new ArrayList<>(sampleDocument());
+        expected.addAll(26, List.of(new LinToken.Name("b", LinTagId.BYTE), new LinToken.Byte((byte) 5)));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void replacesExistingCompoundEntry() {
+        var result = insert(sampleDocument(), LinPath.of("uuid"), () -> LinStream.of(new LinToken.String("u")));
+        var expected = new ArrayList<>(sampleDocument());
+        expected.subList(4, 11).clear();
+        expected.addAll(4, List.of(new LinToken.Name("uuid", LinTagId.STRING), new LinToken.String("u")));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void insertsIntoList() {
+        LinStreamable value = () -> LinStream.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd());
+        var result = insert(sampleDocument(), LinPath.of("list").resolve(1), value);
+        var expected = new ArrayList<>(sampleDocument());
+        expected.set(12, new LinToken.ListStart(3, LinTagId.COMPOUND));
+        expected.addAll(17, List.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd()));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+
+        result = insert(sampleDocument(), LinPath.of("list").resolve(2), value);
+        expected = new ArrayList<>(sampleDocument());
+        expected.set(12, new LinToken.ListStart(3, LinTagId.COMPOUND));
+        expected.addAll(21, List.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd()));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void insertsIntoEmptyList() {
+        var result = insert(List.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("l", LinTagId.LIST),
+            new LinToken.ListStart(0, LinTagId.END),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ), LinPath.of("l").resolve(0), () -> LinStream.of(new LinToken.Int(1)));
+        assertThat(result).containsExactly(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("l", LinTagId.LIST),
+            new LinToken.ListStart(1, LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+    }
+
+    @Test
+    void keepsMissingListInfoMissing() {
+        var result = insert(List.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("l"),
+            new LinToken.ListStart(),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ), LinPath.of("l").resolve(0), () -> LinStream.of(new LinToken.Int(1)));
+        assertThat(result.get(2)).isEqualTo(new LinToken.ListStart());
+        assertThat(result.get(3)).isEqualTo(new LinToken.Int(1));
+    }
+
+    @Test
+    void missingParentLeavesStreamUnchanged() {
+        var result = insert(sampleDocument(), LinPath.of("missing", "x"), () -> LinStream.of(new LinToken.Int(1)));
+        assertThat(result).containsExactlyElementsIn(sampleDocument()).inOrder();
+    }
+
+    @Test
+    void rejectsRootPath() {
+        var ex = assertThrows(
+            IllegalArgumentException.class, () -> LinStream.of().insertAt(LinPath.root(), LinStream::of)
+        );
+        assertThat(ex).hasMessageThat().isEqualTo("Cannot insert at the root path");
+    }
+
+    @Test
+    void rejectsIndexPastEnd() {
+        var ex = assertThrows(NbtParseException.class, () -> insert(
+            sampleDocument(), LinPath.of("list").resolve(3),
+            () -> LinStream.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd())
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Cannot insert at list[3], the list only has 2 elements");
+    }
+
+    @Test
+    void rejectsIndexPastDeclaredSizeAtListStart() throws IOException {
+        LinStream stream = streamFromIterator(sampleDocument().iterator()).insertAt(
+            LinPath.of("list").resolve(3), () -> LinStream.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd())
+        );
+        var emitted = new ArrayList<LinToken>();
+        var ex = assertThrows(NbtParseException.class, () -> {
+            for (LinToken token; (token = stream.nextOrNull()) != null; ) {
+                emitted.add(token);
+            }
+        });
+        assertThat(ex).hasMessageThat().isEqualTo("Cannot insert at list[3], the list only has 2 elements");
+        // Nothing of the list was passed on
+        assertThat(emitted).isEqualTo(sampleDocument().subList(0, 12));
+    }
+
+    @Test
+    void rejectsWrongListType() {
+        var ex = assertThrows(NbtParseException.class, () -> insert(
+            sampleDocument(), LinPath.of("list").resolve(0), () -> LinStream.of(new LinToken.Int(1))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Value inserted at list[0] is INT, but the list holds COMPOUND");
+    }
+
+    @Test
+    void rejectsNonValue() {
+        var ex = assertThrows(NbtParseException.class, () -> insert(
+            sampleDocument(), LinPath.of("b"), () -> LinStream.of(new LinToken.CompoundEnd())
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo(
+            "Value inserted at b does not start with a value: " + new LinToken.CompoundEnd()
+        );
+    }
+}
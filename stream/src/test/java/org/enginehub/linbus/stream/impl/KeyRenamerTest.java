@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+
+public class KeyRenamerTest {
+    @Test
+    void renamesEntries() {
+        var original = sampleDocument();
+        var result = ImmutableList.copyOf(streamFromIterator(original.iterator())
+            .renameKeys(path -> {
+                if (path.equals(LinPath.of("uuid", "most"))) {
+                    return "UUIDMost";
+                }
+                if ("x".equals(path.name()) && path.startsWith(LinPath.of("list"))) {
+                    return "y";
+                }
+                return Objects.requireNonNull(path.name());
+            })
+            .asIterator());
+        var expected = new ArrayList<>(original);
+        expected.set(6, new LinToken.Name("UUIDMost", LinTagId.LONG));
+        expected.set(14, new LinToken.Name("y", LinTagId.INT));
+        expected.set(18, new LinToken.Name("y", LinTagId.INT));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+        // Unchanged names are passed through as-is
+        assertThat(result.get(2)).isSameInstanceAs(original.get(2));
+    }
+}
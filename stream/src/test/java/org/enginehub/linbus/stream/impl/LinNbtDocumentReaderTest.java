@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinDocumentStream;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.loadResource;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinNbtDocumentReaderTest {
+    private static List<LinToken> named(String name) {
+        var tokens = new ArrayList<>(sampleDocument());
+        tokens.set(0, new LinToken.Name(name, LinTagId.COMPOUND));
+        return tokens;
+    }
+
+    private static byte[] concatenate(byte[]... documents) throws IOException {
+        var output = ByteStreams.newDataOutput();
+        for (byte[] document : documents) {
+            output.write(document);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] write(List<LinToken> tokens) throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, streamFromIterator(tokens.iterator()));
+        return output.toByteArray();
+    }
+
+    private static LinDocumentStream readAll(byte[] data) {
+        return LinBinaryIO.readAll(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    void readsEveryDocument() throws IOException {
+        byte[] bigtest = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var documents = readAll(concatenate(write(named("one")), bigtest, write(named("two"))));
+        List<List<LinToken>> read = new ArrayList<>();
+        documents.asIterator().forEachRemaining(stream -> read.add(ImmutableList.copyOf(stream.asIterator())));
+        assertThat(read).containsExactly(
+            named("one"),
+            ImmutableList.copyOf(LinBinaryIO.read(ByteStreams.newDataInput(bigtest)).asIterator()),
+            named("two")
+        ).inOrder();
+        assertThat(documents.nextOrNull()).isNull();
+        assertThat(documents.skip()).isFalse();
+    }
+
+    @Test
+    void reusesTheReader() throws IOException {
+        var documents = readAll(concatenate(write(named("one")), write(named("two"))));
+        LinStream first = documents.nextOrNull();
+        assertThat(first).isNotNull();
+        first.nextOrNull();
+        assertThat(documents.nextOrNull()).isSameInstanceAs(first);
+    }
+
+    @Test
+    void discardsTheRestOfADocument() throws IOException {
+        var documents = readAll(concatenate(write(named("one")), write(named("two")), write(named("three"))));
+        LinStream first = documents.nextOrNull();
+        assertThat(first.nextOrNull()).isEqualTo(new LinToken.Name("one", LinTagId.COMPOUND));
+        assertThat(first.nextOrNull()).isEqualTo(new LinToken.CompoundStart());
+        // Peeked tokens are discarded too
+        var second = (LinNbtReader) documents.nextOrNull();
+        assertThat(second.peekOrNull()).isEqualTo(new LinToken.Name("two", LinTagId.COMPOUND));
+        assertThat(ImmutableList.copyOf(documents.nextOrNull().asIterator())).isEqualTo(named("three"));
+    }
+
+    @Test
+    void skipsDocuments() throws IOException {
+        byte[] bigtest = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        byte[] arrays = write(List.of(
+            new LinToken.Name("arrays", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(3),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2, 3}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{4}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.CompoundEnd()
+        ));
+        var documents = readAll(concatenate(bigtest, arrays, write(named("last"))));
+        assertThat(documents.skip()).isTrue();
+        assertThat(documents.skip()).isTrue();
+        assertThat(ImmutableList.copyOf(documents.nextOrNull().asIterator())).isEqualTo(named("last"));
+        assertThat(documents.skip()).isFalse();
+    }
+
+    @Test
+    void readsNothingFromEmptyInput() throws IOException {
+        assertThat(readAll(new byte[0]).nextOrNull()).isNull();
+        assertThat(readAll(new byte[0]).skip()).isFalse();
+    }
+
+    @Test
+    void rejectsNonCompoundDocuments() throws IOException {
+        var documents = readAll(concatenate(write(named("one")), new byte[]{(byte) LinTagId.INT.id()}));
+        assertThat(documents.nextOrNull()).isNotNull();
+        var ex = assertThrows(NbtParseException.class, documents::nextOrNull);
+        assertThat(ex).hasMessageThat().isEqualTo("NBT stream does not start with a compound tag");
+    }
+
+    @Test
+    void onlySkipsJustStartedDocuments() throws IOException {
+        var reader = new LinNbtReader(
+            new DataInputStream(new ByteArrayInputStream(write(named("one")))), LinReadOptions.builder().build()
+        );
+        assertThrows(IllegalStateException.class, reader::skipDocument);
+        assertThat(reader.nextDocument()).isTrue();
+        reader.peekOrNull();
+        assertThrows(IllegalStateException.class, reader::skipDocument);
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinHandler;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.ModifiedUtf8String;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.loadResource;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinNbtPushParserTest {
+    // Turns the callbacks back into tokens, copying the reused chunks
+    private static class RecordingHandler implements LinHandler {
+        final List<LinToken> tokens = new ArrayList<>();
+
+        @Override
+        public boolean onName(CharSequence name, LinTagId id) {
+            tokens.add(new LinToken.Name(name.toString(), id));
+            return true;
+        }
+
+        @Override
+        public boolean onCompoundStart() {
+            tokens.add(new LinToken.CompoundStart());
+            return true;
+        }
+
+        @Override
+        public void onCompoundEnd() {
+            tokens.add(new LinToken.CompoundEnd());
+        }
+
+        @Override
+        public boolean onListStart(LinTagId elementId, int size) {
+            tokens.add(new LinToken.ListStart(size, elementId));
+            return true;
+        }
+
+        @Override
+        public void onListEnd() {
+            tokens.add(new LinToken.ListEnd());
+        }
+
+        @Override
+        public void onByte(byte value) {
+            tokens.add(new LinToken.Byte(value));
+        }
+
+        @Override
+        public void onShort(short value) {
+            tokens.add(new LinToken.Short(value));
+        }
+
+        @Override
+        public void onInt(int value) {
+            tokens.add(new LinToken.Int(value));
+        }
+
+        @Override
+        public void onLong(long value) {
+            tokens.add(new LinToken.Long(value));
+        }
+
+        @Override
+        public void onFloat(float value) {
+            tokens.add(new LinToken.Float(value));
+        }
+
+        @Override
+        public void onDouble(double value) {
+            tokens.add(new LinToken.Double(value));
+        }
+
+        @Override
+        public void onString(CharSequence value) {
+            tokens.add(new LinToken.String(value.toString()));
+        }
+
+        @Override
+        public boolean onByteArrayStart(int length) {
+            tokens.add(new LinToken.ByteArrayStart(length));
+            return true;
+        }
+
+        @Override
+        public void onByteArrayChunk(ByteBuffer chunk) {
+            assertThat(chunk.isReadOnly()).isTrue();
+            var copy = ByteBuffer.allocate(chunk.remaining()).put(chunk).flip();
+            tokens.add(new LinToken.ByteArrayContent(copy.asReadOnlyBuffer()));
+        }
+
+        @Override
+        public void onByteArrayEnd() {
+            tokens.add(new LinToken.ByteArrayEnd());
+        }
+
+        @Override
+        public boolean onIntArrayStart(int length) {
+            tokens.add(new LinToken.IntArrayStart(length));
+            return true;
+        }
+
+        @Override
+        public void onIntArrayChunk(IntBuffer chunk) {
+            assertThat(chunk.isReadOnly()).isTrue();
+            var copy = IntBuffer.allocate(chunk.remaining()).put(chunk).flip();
+            tokens.add(new LinToken.IntArrayContent(copy.asReadOnlyBuffer()));
+        }
+
+        @Override
+        public void onIntArrayEnd() {
+            tokens.add(new LinToken.IntArrayEnd());
+        }
+
+        @Override
+        public boolean onLongArrayStart(int length) {
+            tokens.add(new LinToken.LongArrayStart(length));
+            return true;
+        }
+
+        @Override
+        public void onLongArrayChunk(LongBuffer chunk) {
+            assertThat(chunk.isReadOnly()).isTrue();
+            var copy = LongBuffer.allocate(chunk.remaining()).put(chunk).flip();
+            tokens.add(new LinToken.LongArrayContent(copy.asReadOnlyBuffer()));
+        }
+
+        @Override
+        public void onLongArrayEnd() {
+            tokens.add(new LinToken.LongArrayEnd());
+        }
+    }
+
+    private static byte[] write(List<LinToken> tokens) throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, streamFromIterator(tokens.iterator()));
+        return output.toByteArray();
+    }
+
+    private static List<LinToken> parse(byte[] bytes) throws IOException {
+        var handler = new RecordingHandler();
+        LinBinaryIO.parse(ByteStreams.newDataInput(bytes), handler);
+        return handler.tokens;
+    }
+
+    private static void assertSameAsReader(byte[] bytes) throws IOException {
+        var expected = ImmutableList.copyOf(LinBinaryIO.read(ByteStreams.newDataInput(bytes)).asIterator());
+        assertThat(parse(bytes)).isEqualTo(expected);
+    }
+
+    @Test
+    void matchesTheTokenReader() throws IOException {
+        assertSameAsReader(loadResource("bigtest.nbt.gz", InputStream::readAllBytes));
+        assertSameAsReader(loadResource("all-types.nbt.gz", InputStream::readAllBytes));
+        assertSameAsReader(write(sampleDocument()));
+    }
+
+    @Test
+    void readsArraysInChunks() throws IOException {
+        byte[] bytes = new byte[20_000];
+        int[] ints = IntStream.range(0, 5_000).toArray();
+        long[] longs = IntStream.range(0, 3_000).mapToLong(i -> i * 31L << 32).toArray();
+        assertSameAsReader(write(List.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(bytes.length),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(bytes).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(ints.length),
+            new LinToken.IntArrayContent(IntBuffer.wrap(ints).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(longs.length),
+            new LinToken.LongArrayContent(LongBuffer.wrap(longs).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.CompoundEnd()
+        )));
+    }
+
+    @Test
+    void skipsSubtrees() throws IOException {
+        byte[] bytes = loadResource("bigtest.nbt.gz", InputStream::readAllBytes);
+        var all = parse(bytes);
+
+        // Skipping every entry, the root compound and every container leaves only the root name
+        var skipEverything = new RecordingHandler() {
+            @Override
+            public boolean onName(CharSequence name, LinTagId id) {
+                super.onName(name, id);
+                return tokens.size() == 1;
+            }
+
+            @Override
+            public boolean onCompoundStart() {
+                return false;
+            }
+        };
+        LinBinaryIO.parse(ByteStreams.newDataInput(bytes), skipEverything);
+        assertThat(skipEverything.tokens).containsExactly(all.getFirst());
+
+        // Skipping named entries is the same as filtering them out
+        Predicate<String> skippedName = name -> name.startsWith("listTest");
+        var skipNamed = new RecordingHandler() {
+            @Override
+            public boolean onName(CharSequence name, LinTagId id) {
+                if (skippedName.test(name.toString())) {
+                    return false;
+                }
+                return super.onName(name, id);
+            }
+        };
+        LinBinaryIO.parse(ByteStreams.newDataInput(bytes), skipNamed);
+        var expected = ImmutableList.copyOf(LinBinaryIO.read(ByteStreams.newDataInput(bytes))
+            .filterEntries(path -> !skippedName.test(path.name()))
+            .asIterator());
+        assertThat(expected.size()).isLessThan(all.size());
+        assertThat(skipNamed.tokens).isEqualTo(expected);
+    }
+
+    @Test
+    void skipsContainersWithoutEndCallbacks() throws IOException {
+        byte[] bytes = write(List.of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.STRING),
+            new LinToken.String("a"),
+            new LinToken.String("b"),
+            new LinToken.ListEnd(),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(2),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(1),
+            new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{3}).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{4}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name("after", LinTagId.BYTE),
+            new LinToken.Byte((byte) 5),
+            new LinToken.CompoundEnd()
+        ));
+        var handler = new RecordingHandler() {
+            @Override
+            public boolean onListStart(LinTagId elementId, int size) {
+                super.onListStart(elementId, size);
+                return false;
+            }
+
+            @Override
+            public boolean onByteArrayStart(int length) {
+                super.onByteArrayStart(length);
+                return false;
+            }
+
+            @Override
+            public boolean onIntArrayStart(int length) {
+                super.onIntArrayStart(length);
+                return false;
+            }
+
+            @Override
+            public boolean onLongArrayStart(int length) {
+                super.onLongArrayStart(length);
+                return false;
+            }
+        };
+        // skipBytes of this input never skips anything, so every skip falls back to reading
+        var input = new DataInputStream(new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public long skip(long n) {
+                return 0;
+            }
+        });
+        LinBinaryIO.parse(input, handler);
+        assertThat(handler.tokens).containsExactly(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("list", LinTagId.LIST),
+            new LinToken.ListStart(2, LinTagId.STRING),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(2),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(1),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(1),
+            new LinToken.Name("after", LinTagId.BYTE),
+            new LinToken.Byte((byte) 5),
+            new LinToken.CompoundEnd()
+        ).inOrder();
+    }
+
+    @Test
+    void passesEncodedStringsWhenLazy() throws IOException {
+        var key = ModifiedUtf8String.of("stringTest");
+        var names = new ArrayList<ModifiedUtf8String>();
+        var values = new ArrayList<ModifiedUtf8String>();
+        var options = LinReadOptions.builder().lazyStringDecoding(true).build();
+        LinBinaryIO.parse(
+            ByteStreams.newDataInput(loadResource("bigtest.nbt.gz", InputStream::readAllBytes)),
+            options,
+            new LinHandler() {
+                @Override
+                public boolean onName(CharSequence name, LinTagId id) {
+                    names.add((ModifiedUtf8String) name);
+                    return true;
+                }
+
+                @Override
+                public void onString(CharSequence value) {
+                    values.add((ModifiedUtf8String) value);
+                }
+            }
+        );
+        assertThat(names).contains(key);
+        assertThat(values).hasSize(5);
+        assertThat(names.stream().noneMatch(ModifiedUtf8String::isDecoded)).isTrue();
+        assertThat(values.getFirst().toString()).startsWith("HELLO WORLD");
+    }
+
+    @Test
+    void defaultHandlerIgnoresEverything() throws IOException {
+        LinBinaryIO.parse(
+            ByteStreams.newDataInput(loadResource("all-types.nbt.gz", InputStream::readAllBytes)),
+            new LinHandler() {
+            }
+        );
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        var ex = assertThrows(NbtParseException.class, () -> parse(new byte[]{(byte) LinTagId.BYTE.id()}));
+        assertThat(ex).hasMessageThat().isEqualTo("NBT stream does not start with a compound tag");
+        // root, name, then a list of END with one element
+        ex = assertThrows(NbtParseException.class, () -> parse(new byte[]{10, 0, 0, 9, 0, 0, 0, 0, 0, 0, 1}));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid id: " + LinTagId.END);
+        ex = assertThrows(NbtParseException.class, () -> parse(new byte[]{10, 0, 0, 9, 0, 0, 1, -1, -1, -1, -1}));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid list size: -1");
+        ex = assertThrows(NbtParseException.class, () -> parse(new byte[]{10, 0, 0, 11, 0, 0, -1, -1, -1, -2}));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid array size: -2");
+        assertThrows(EOFException.class, () -> LinBinaryIO.parse(
+            new DataInputStream(new ByteArrayInputStream(new byte[]{10, 0, 0, 8, 0, 0, 0, 5, 'a'})),
+            new LinHandler() {
+            }
+        ));
+    }
+}
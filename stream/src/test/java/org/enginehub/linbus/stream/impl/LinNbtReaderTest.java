@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+
+public class LinNbtReaderTest {
+    private static final byte[] BYTES = new byte[100];
+    private static final int[] INTS = IntStream.range(0, 50).map(i -> i * 31).toArray();
+    private static final long[] LONGS = LongStream.range(0, 30).map(i -> i * 31L << 32).toArray();
+
+    static {
+        for (int i = 0; i < BYTES.length; i++) {
+            BYTES[i] = (byte) i;
+        }
+    }
+
+    private static byte[] arrayDocument() throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, streamFromIterator(List.<LinToken>of(
+            new LinToken.Name("", LinTagId.COMPOUND),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("bytes", LinTagId.BYTE_ARRAY),
+            new LinToken.ByteArrayStart(BYTES.length),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(BYTES).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints", LinTagId.INT_ARRAY),
+            new LinToken.IntArrayStart(INTS.length),
+            new LinToken.IntArrayContent(IntBuffer.wrap(INTS).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs", LinTagId.LONG_ARRAY),
+            new LinToken.LongArrayStart(LONGS.length),
+            new LinToken.LongArrayContent(LongBuffer.wrap(LONGS).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.CompoundEnd()
+        ).iterator()));
+        return output.toByteArray();
+    }
+
+    // Reads every content buffer, copying its contents out before reading the next token
+    private static List<Buffer> readContents(LinReadOptions options, ArrayCollector collector) throws IOException {
+        var reader = new LinNbtReader(ByteStreams.newDataInput(arrayDocument()), options);
+        List<Buffer> buffers = new ArrayList<>();
+        for (LinToken token; (token = reader.nextOrNull()) != null; ) {
+            switch (token) {
+                case LinToken.ByteArrayContent(ByteBuffer buffer) -> {
+                    buffers.add(buffer);
+                    collector.bytes.put(buffer.duplicate());
+                }
+                case LinToken.IntArrayContent(IntBuffer buffer) -> {
+                    buffers.add(buffer);
+                    collector.ints.put(buffer.duplicate());
+                }
+                case LinToken.LongArrayContent(LongBuffer buffer) -> {
+                    buffers.add(buffer);
+                    collector.longs.put(buffer.duplicate());
+                }
+                default -> {
+                }
+            }
+        }
+        return buffers;
+    }
+
+    private static int distinctInstances(List<Buffer> buffers) {
+        Set<Buffer> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        instances.addAll(buffers);
+        return instances.size();
+    }
+
+    private static final class ArrayCollector {
+        final ByteBuffer bytes = ByteBuffer.allocate(BYTES.length);
+        final IntBuffer ints = IntBuffer.allocate(INTS.length);
+        final LongBuffer longs = LongBuffer.allocate(LONGS.length);
+
+        void assertComplete() {
+            assertThat(bytes.array()).isEqualTo(BYTES);
+            assertThat(ints.array()).isEqualTo(INTS);
+            assertThat(longs.array()).isEqualTo(LONGS);
+        }
+    }
+
+    @Test
+    void splitsArraysIntoConfiguredChunks() throws IOException {
+        var collector = new ArrayCollector();
+        var buffers = readContents(LinReadOptions.builder().arrayChunkSize(32).build(), collector);
+        collector.assertComplete();
+        // 100 bytes in 32 byte chunks, 50 ints in 8 int chunks, 30 longs in 4 long chunks
+        assertThat(buffers).hasSize(4 + 7 + 8);
+        assertThat(buffers.stream().map(Buffer::isReadOnly).distinct().toList()).containsExactly(true);
+        assertThat(buffers.get(0).remaining()).isEqualTo(32);
+        assertThat(buffers.get(3).remaining()).isEqualTo(4);
+        assertThat(buffers.get(4).remaining()).isEqualTo(8);
+        assertThat(buffers.get(10).remaining()).isEqualTo(2);
+        assertThat(buffers.get(11).remaining()).isEqualTo(4);
+        assertThat(buffers.get(18).remaining()).isEqualTo(2);
+        // Without reuse, every chunk is its own buffer
+        assertThat(distinctInstances(buffers)).isEqualTo(buffers.size());
+    }
+
+    @Test
+    void reusesArrayBuffers() throws IOException {
+        var collector = new ArrayCollector();
+        var buffers = readContents(
+            LinReadOptions.builder().arrayChunkSize(32).reuseArrayBuffers(true).build(), collector
+        );
+        collector.assertComplete();
+        assertThat(buffers).hasSize(4 + 7 + 8);
+        assertThat(buffers.stream().map(Buffer::isReadOnly).distinct().toList()).containsExactly(true);
+        // One buffer for each array type, shared by all of its chunks
+        assertThat(distinctInstances(buffers)).isEqualTo(3);
+    }
+
+    @Test
+    void reusedBuffersRoundTrip() throws IOException {
+        byte[] document = arrayDocument();
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, new LinNbtReader(
+            ByteStreams.newDataInput(document),
+            LinReadOptions.builder().arrayChunkSize(8).reuseArrayBuffers(true).build()
+        ));
+        assertThat(output.toByteArray()).isEqualTo(document);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinPathTrackerTest {
+    @Test
+    void tracksSampleDocument() {
+        var tracker = new LinPathTracker();
+        var paths = new ArrayList<String>();
+        for (LinToken token : sampleDocument()) {
+            paths.add(tracker.track(token).toString());
+        }
+        assertThat(paths).containsExactly(
+            "", "",
+            "a", "a",
+            "uuid", "uuid", "uuid.most", "uuid.most", "uuid.least", "uuid.least", "uuid",
+            "list", "list", "list[0]", "list[0].x", "list[0].x", "list[0]",
+            "list[1]", "list[1].x", "list[1].x", "list[1]", "list",
+            "ints", "ints", "ints", "ints",
+            ""
+        ).inOrder();
+        assertThat(tracker.depth()).isEqualTo(0);
+        assertThat(tracker.containerPath()).isNull();
+    }
+
+    @Test
+    void listState() {
+        var tracker = new LinPathTracker();
+        tracker.track(new LinToken.CompoundStart());
+        tracker.track(new LinToken.Name("l"));
+        assertThat(tracker.nextValuePath()).isEqualTo(LinPath.of("l"));
+        tracker.track(new LinToken.ListStart());
+        assertThat(tracker.inList()).isTrue();
+        assertThat(tracker.inCompound()).isFalse();
+        assertThat(tracker.listElementId()).isNull();
+        tracker.skipValue();
+        assertThat(tracker.nextIndex()).isEqualTo(1);
+        assertThat(tracker.nextValuePath()).isEqualTo(LinPath.of("l").resolve(1));
+        assertThat(tracker.containerPath()).isEqualTo(LinPath.of("l"));
+        assertThat(tracker.depth()).isEqualTo(2);
+        tracker.track(new LinToken.ListEnd());
+        assertThat(tracker.inCompound()).isTrue();
+        var ex = assertThrows(IllegalStateException.class, tracker::nextIndex);
+        assertThat(ex).hasMessageThat().isEqualTo("Not in a list");
+        ex = assertThrows(IllegalStateException.class, tracker::listElementId);
+        assertThat(ex).hasMessageThat().isEqualTo("Not in a list");
+    }
+
+    @Test
+    void listElementIdIsKnown() {
+        var tracker = new LinPathTracker();
+        tracker.track(new LinToken.ListStart(0, LinTagId.INT));
+        assertThat(tracker.listElementId()).isEqualTo(LinTagId.INT);
+    }
+
+    @Test
+    void skipValueOutsideRootDoesNothing() {
+        var tracker = new LinPathTracker();
+        tracker.skipValue();
+        assertThat(tracker.nextValuePath()).isEqualTo(LinPath.root());
+        assertThat(tracker.inList()).isFalse();
+        assertThat(tracker.inCompound()).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedStreams() {
+        var tracker = new LinPathTracker();
+        var ex = assertThrows(NbtParseException.class, () -> tracker.track(new LinToken.CompoundEnd()));
+        assertThat(ex).hasMessageThat().isEqualTo("Token outside of any value: " + new LinToken.CompoundEnd());
+
+        tracker.track(new LinToken.CompoundStart());
+        ex = assertThrows(NbtParseException.class, () -> tracker.track(new LinToken.Int(1)));
+        assertThat(ex).hasMessageThat().isEqualTo("Value in a compound without a name");
+
+        tracker.track(new LinToken.Name("list"));
+        tracker.track(new LinToken.ListStart());
+        ex = assertThrows(NbtParseException.class, () -> tracker.track(new LinToken.Name("x")));
+        assertThat(ex).hasMessageThat().isEqualTo("Name outside of a compound: " + new LinToken.Name("x"));
+
+        tracker.track(new LinToken.IntArrayStart());
+        ex = assertThrows(NbtParseException.class, tracker::nextValuePath);
+        assertThat(ex).hasMessageThat().isEqualTo("Value inside an array");
+    }
+}
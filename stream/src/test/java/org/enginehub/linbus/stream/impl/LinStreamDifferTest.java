@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinDiffStream;
+import org.enginehub.linbus.stream.LinDifference;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinStreamDifferTest {
+    private static List<LinDifference> diff(List<LinToken> left, List<LinToken> right) {
+        return diff(left, right, LinDiffStream.DEFAULT_LOOK_ASIDE_TOKENS);
+    }
+
+    private static List<LinDifference> diff(List<LinToken> left, List<LinToken> right, int lookAsideTokens) {
+        return ImmutableList.copyOf(LinDiffStream.of(
+            streamFromIterator(left.iterator()), streamFromIterator(right.iterator()), lookAsideTokens
+        ).asIterator());
+    }
+
+    private static List<LinToken> compound(LinToken... entryTokens) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.Name("root", LinTagId.COMPOUND));
+        tokens.add(new LinToken.CompoundStart());
+        tokens.addAll(List.of(entryTokens));
+        tokens.add(new LinToken.CompoundEnd());
+        return tokens;
+    }
+
+    @Test
+    void identicalStreamsHaveNoDifferences() throws IOException {
+        var tokens = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        assertThat(diff(tokens, tokens)).isEmpty();
+        assertThat(diff(List.of(), List.of())).isEmpty();
+    }
+
+    @Test
+    void reorderedEntriesAreMatched() {
+        var left = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("b"), new LinToken.CompoundStart(),
+            new LinToken.Name("c"), new LinToken.Int(2),
+            new LinToken.CompoundEnd(),
+            new LinToken.Name("d"), new LinToken.Int(3)
+        );
+        var right = compound(
+            new LinToken.Name("d"), new LinToken.Int(3),
+            new LinToken.Name("b"), new LinToken.CompoundStart(),
+            new LinToken.Name("c"), new LinToken.Int(5),
+            new LinToken.CompoundEnd(),
+            new LinToken.Name("a"), new LinToken.Int(1)
+        );
+        assertThat(diff(left, right)).containsExactly(
+            new LinDifference.ValueChanged(LinPath.of("b", "c"), new LinToken.Int(2), new LinToken.Int(5))
+        );
+        assertThat(diff(right, left)).containsExactly(
+            new LinDifference.ValueChanged(LinPath.of("b", "c"), new LinToken.Int(5), new LinToken.Int(2))
+        );
+    }
+
+    @Test
+    void lookAsideOverflowReportsUnmatchedEntries() {
+        var left = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("b"), new LinToken.Int(2)
+        );
+        var right = compound(
+            new LinToken.Name("b"), new LinToken.Int(2),
+            new LinToken.Name("a"), new LinToken.Int(1)
+        );
+        assertThat(diff(left, right, 0)).containsExactly(
+            new LinDifference.Removed(LinPath.of("a")),
+            new LinDifference.Added(LinPath.of("b")),
+            new LinDifference.Removed(LinPath.of("b")),
+            new LinDifference.Added(LinPath.of("a"))
+        ).inOrder();
+        assertThat(diff(left, right, 2)).isEmpty();
+    }
+
+    @Test
+    void addedAndRemovedEntries() {
+        var left = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("gone"), new LinToken.ListStart(), new LinToken.Int(1), new LinToken.ListEnd(),
+            new LinToken.Name("z"), new LinToken.Int(1)
+        );
+        var right = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("new"), new LinToken.Int(1),
+            new LinToken.Name("newer"), new LinToken.Int(1)
+        );
+        assertThat(diff(left, right)).containsExactly(
+            new LinDifference.Removed(LinPath.of("gone")),
+            new LinDifference.Removed(LinPath.of("z")),
+            new LinDifference.Added(LinPath.of("new")),
+            new LinDifference.Added(LinPath.of("newer"))
+        );
+    }
+
+    @Test
+    void entriesAfterOneSideEnds() {
+        var left = compound(new LinToken.Name("a"), new LinToken.Int(1));
+        var right = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("b"), new LinToken.CompoundStart(), new LinToken.CompoundEnd()
+        );
+        assertThat(diff(left, right)).containsExactly(new LinDifference.Added(LinPath.of("b")));
+        assertThat(diff(right, left)).containsExactly(new LinDifference.Removed(LinPath.of("b")));
+    }
+
+    @Test
+    void typeChanges() {
+        var left = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("b"), new LinToken.CompoundStart(), new LinToken.CompoundEnd()
+        );
+        var right = compound(
+            new LinToken.Name("a"), new LinToken.Long(1),
+            new LinToken.Name("b"), new LinToken.ListStart(), new LinToken.ListEnd()
+        );
+        assertThat(diff(left, right)).containsExactly(
+            new LinDifference.TypeChanged(LinPath.of("a"), LinTagId.INT, LinTagId.LONG),
+            new LinDifference.TypeChanged(LinPath.of("b"), LinTagId.COMPOUND, LinTagId.LIST)
+        ).inOrder();
+    }
+
+    @Test
+    void listElementsAreComparedByIndex() {
+        var tokens = sampleDocument();
+        var right = new ArrayList<>(tokens);
+        // Drop the second list element, and change the first
+        right.subList(17, 21).clear();
+        right.set(15, new LinToken.Int(9));
+        right.set(12, new LinToken.ListStart(1, LinTagId.COMPOUND));
+        assertThat(diff(tokens, right)).containsExactly(
+            new LinDifference.ValueChanged(
+                LinPath.of("list").resolve(0).resolve("x"), new LinToken.Int(1), new LinToken.Int(9)
+            ),
+            new LinDifference.Removed(LinPath.of("list").resolve(1))
+        ).inOrder();
+        assertThat(diff(right, tokens)).containsExactly(
+            new LinDifference.ValueChanged(
+                LinPath.of("list").resolve(0).resolve("x"), new LinToken.Int(9), new LinToken.Int(1)
+            ),
+            new LinDifference.Added(LinPath.of("list").resolve(1))
+        ).inOrder();
+    }
+
+    private static List<LinToken> intArray(int[]... chunks) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.Name("arr"));
+        tokens.add(new LinToken.IntArrayStart());
+        for (int[] chunk : chunks) {
+            tokens.add(new LinToken.IntArrayContent(IntBuffer.wrap(chunk).asReadOnlyBuffer()));
+        }
+        tokens.add(new LinToken.IntArrayEnd());
+        return compound(tokens.toArray(LinToken[]::new));
+    }
+
+    @Test
+    void arraysAreComparedAcrossChunkBoundaries() {
+        var left = intArray(new int[]{1, 2, 3}, new int[0], new int[]{4, 5});
+        assertThat(diff(left, intArray(new int[]{1}, new int[]{2, 3, 4, 5}))).isEmpty();
+        assertThat(diff(left, intArray(new int[]{1}, new int[]{2, 3, 4, 6}))).containsExactly(
+            new LinDifference.ArrayChanged(LinPath.of("arr"), 4)
+        );
+        assertThat(diff(left, intArray(new int[]{1, 2}))).containsExactly(
+            new LinDifference.ArrayChanged(LinPath.of("arr"), 2)
+        );
+        assertThat(diff(intArray(new int[]{1, 2}), left)).containsExactly(
+            new LinDifference.ArrayChanged(LinPath.of("arr"), 2)
+        );
+    }
+
+    @Test
+    void byteAndLongArrays() {
+        var left = compound(
+            new LinToken.Name("b"), new LinToken.ByteArrayStart(2),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("l"), new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{1}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd()
+        );
+        var right = compound(
+            new LinToken.Name("b"), new LinToken.ByteArrayStart(2),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 3}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("l"), new LinToken.LongArrayStart(1),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{2}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd()
+        );
+        assertThat(diff(left, right)).containsExactly(
+            new LinDifference.ArrayChanged(LinPath.of("b"), 1),
+            new LinDifference.ArrayChanged(LinPath.of("l"), 0)
+        ).inOrder();
+    }
+
+    @Test
+    void missingRoot() {
+        var tokens = sampleDocument();
+        assertThat(diff(tokens, List.of())).containsExactly(new LinDifference.Removed(LinPath.root()));
+        assertThat(diff(List.of(), tokens)).containsExactly(new LinDifference.Added(LinPath.root()));
+    }
+
+    @Test
+    void rejectsNegativeLookAside() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinDiffStream.of(LinStream.of(), LinStream.of(), -1));
+        assertThat(ex).hasMessageThat().isEqualTo("Look-aside buffer size must not be negative: -1");
+    }
+
+    @Test
+    void rejectsMalformedStreams() {
+        var ex = assertThrows(NbtParseException.class, () -> diff(
+            compound(new LinToken.Int(1)), compound()
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected name, got " + new LinToken.Int(1));
+
+        ex = assertThrows(NbtParseException.class, () -> diff(
+            List.of(new LinToken.CompoundStart()), List.of(new LinToken.CompoundStart())
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Unexpected end of stream");
+
+        ex = assertThrows(NbtParseException.class, () -> diff(
+            List.of(new LinToken.CompoundEnd()), List.of(new LinToken.CompoundEnd())
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected value, got " + new LinToken.CompoundEnd());
+
+        ex = assertThrows(NbtParseException.class, () -> diff(
+            List.of(new LinToken.IntArrayStart(), new LinToken.Int(1)),
+            List.of(new LinToken.IntArrayStart(), new LinToken.Int(1))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Expected array content, got " + new LinToken.Int(1));
+
+        ex = assertThrows(NbtParseException.class, () -> diff(
+            List.of(new LinToken.IntArrayStart(), new LinToken.IntArrayContent(IntBuffer.allocate(1).asReadOnlyBuffer())),
+            List.of(new LinToken.IntArrayStart(), new LinToken.ByteArrayContent(ByteBuffer.allocate(1).asReadOnlyBuffer()))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Array content types do not match");
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinDigest;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinStreamDigesterTest {
+    private static LinDigest digest(List<LinToken> tokens) throws IOException {
+        return LinDigest.of(streamFromIterator(tokens.iterator()));
+    }
+
+    private static List<LinToken> compound(LinToken... entryTokens) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.Name("root", LinTagId.COMPOUND));
+        tokens.add(new LinToken.CompoundStart());
+        tokens.addAll(List.of(entryTokens));
+        tokens.add(new LinToken.CompoundEnd());
+        return tokens;
+    }
+
+    @Test
+    void sameContentHasSameDigest() throws IOException {
+        assertThat(digest(sampleDocument())).isEqualTo(digest(sampleDocument()));
+        var bigtest = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        assertThat(digest(bigtest)).isEqualTo(digest(bigtest));
+        assertThat(digest(bigtest)).isNotEqualTo(digest(sampleDocument()));
+    }
+
+    @Test
+    void entryOrderDoesNotMatter() throws IOException {
+        var left = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("b"), new LinToken.CompoundStart(),
+            new LinToken.Name("c"), new LinToken.String("x"),
+            new LinToken.Name("d"), new LinToken.Double(2.5),
+            new LinToken.CompoundEnd()
+        );
+        var right = compound(
+            new LinToken.Name("b"), new LinToken.CompoundStart(),
+            new LinToken.Name("d"), new LinToken.Double(2.5),
+            new LinToken.Name("c"), new LinToken.String("x"),
+            new LinToken.CompoundEnd(),
+            new LinToken.Name("a"), new LinToken.Int(1)
+        );
+        assertThat(digest(left)).isEqualTo(digest(right));
+    }
+
+    @Test
+    void listOrderMatters() throws IOException {
+        var left = compound(
+            new LinToken.Name("list"), new LinToken.ListStart(),
+            new LinToken.Byte((byte) 1), new LinToken.Byte((byte) 2),
+            new LinToken.ListEnd()
+        );
+        var right = compound(
+            new LinToken.Name("list"), new LinToken.ListStart(),
+            new LinToken.Byte((byte) 2), new LinToken.Byte((byte) 1),
+            new LinToken.ListEnd()
+        );
+        assertThat(digest(left)).isNotEqualTo(digest(right));
+    }
+
+    @Test
+    void everyValueChangeIsSignificant() throws IOException {
+        List<List<LinToken>> values = List.of(
+            List.of(new LinToken.Byte((byte) 1)),
+            List.of(new LinToken.Short((short) 1)),
+            List.of(new LinToken.Int(1)),
+            List.of(new LinToken.Long(1)),
+            List.of(new LinToken.Float(1)),
+            List.of(new LinToken.Double(1)),
+            List.of(new LinToken.String("1")),
+            List.of(new LinToken.String("1\u0000")),
+            List.of(new LinToken.ListStart(), new LinToken.ListEnd()),
+            List.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd()),
+            List.of(
+                new LinToken.ByteArrayStart(),
+                new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1}).asReadOnlyBuffer()),
+                new LinToken.ByteArrayEnd()
+            ),
+            List.of(
+                new LinToken.IntArrayStart(),
+                new LinToken.IntArrayContent(IntBuffer.wrap(new int[]{1}).asReadOnlyBuffer()),
+                new LinToken.IntArrayEnd()
+            ),
+            List.of(
+                new LinToken.LongArrayStart(),
+                new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{1}).asReadOnlyBuffer()),
+                new LinToken.LongArrayEnd()
+            ),
+            List.of(new LinToken.LongArrayStart(), new LinToken.LongArrayEnd())
+        );
+        var digests = new ArrayList<LinDigest>();
+        for (List<LinToken> value : values) {
+            var tokens = new ArrayList<LinToken>();
+            tokens.add(new LinToken.Name("value"));
+            tokens.addAll(value);
+            digests.add(digest(compound(tokens.toArray(LinToken[]::new))));
+        }
+        assertThat(digests).containsNoDuplicates();
+
+        assertThat(digest(compound(new LinToken.Name("a"), new LinToken.Int(1))))
+            .isNotEqualTo(digest(compound(new LinToken.Name("b"), new LinToken.Int(1))));
+        assertThat(digest(List.of(new LinToken.Name("a"), new LinToken.CompoundStart(), new LinToken.CompoundEnd())))
+            .isNotEqualTo(digest(List.of(new LinToken.Name("b"), new LinToken.CompoundStart(), new LinToken.CompoundEnd())));
+    }
+
+    @Test
+    void duplicateEntriesDoNotCancelOut() throws IOException {
+        var twice = compound(
+            new LinToken.Name("a"), new LinToken.Int(1),
+            new LinToken.Name("a"), new LinToken.Int(1)
+        );
+        assertThat(digest(twice)).isNotEqualTo(digest(compound()));
+        assertThat(digest(twice)).isNotEqualTo(digest(compound(new LinToken.Name("a"), new LinToken.Int(1))));
+    }
+
+    @Test
+    void arrayChunkingDoesNotMatter() throws IOException {
+        byte[] bytes = new byte[37];
+        int[] ints = new int[13];
+        long[] longs = new long[7];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 0x01010101;
+        }
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i * 0x0101010101010101L;
+        }
+        var whole = compound(
+            new LinToken.Name("bytes"), new LinToken.ByteArrayStart(bytes.length),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(bytes).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints"), new LinToken.IntArrayStart(ints.length),
+            new LinToken.IntArrayContent(IntBuffer.wrap(ints).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs"), new LinToken.LongArrayStart(longs.length),
+            new LinToken.LongArrayContent(LongBuffer.wrap(longs).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd()
+        );
+        var chunked = compound(
+            new LinToken.Name("bytes"), new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(bytes, 0, 3).slice().asReadOnlyBuffer()),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(bytes, 3, 20).slice().asReadOnlyBuffer()),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(bytes, 23, 14).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints"), new LinToken.IntArrayStart(),
+            new LinToken.IntArrayContent(IntBuffer.wrap(ints, 0, 5).slice().asReadOnlyBuffer()),
+            new LinToken.IntArrayContent(IntBuffer.wrap(ints, 5, 8).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs"), new LinToken.LongArrayStart(),
+            new LinToken.LongArrayContent(LongBuffer.wrap(longs, 0, 2).slice().asReadOnlyBuffer()),
+            new LinToken.LongArrayContent(LongBuffer.wrap(longs, 2, 5).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd()
+        );
+        assertThat(digest(whole)).isEqualTo(digest(chunked));
+    }
+
+    @Test
+    void hexStringHasBothHalves() {
+        var digest = new LinDigest(0x0123456789ABCDEFL, 0xFL);
+        assertThat(digest.toHexString()).isEqualTo("0123456789abcdef000000000000000f");
+        assertThat(digest.toString()).isEqualTo("LinDigest[0123456789abcdef000000000000000f]");
+    }
+
+    @Test
+    void rejectsMalformedStreams() {
+        assertThrows(NbtParseException.class, () -> digest(List.of(
+            new LinToken.Name("root"), new LinToken.CompoundStart()
+        )));
+        assertThrows(NbtParseException.class, () -> digest(List.of(
+            new LinToken.CompoundStart(), new LinToken.Int(1)
+        )));
+        assertThrows(NbtParseException.class, () -> digest(List.of(
+            new LinToken.ListStart(), new LinToken.Name("a")
+        )));
+        assertThrows(NbtParseException.class, () -> digest(List.of(new LinToken.ListEnd())));
+        assertThrows(NbtParseException.class, () -> digest(List.of(new LinToken.CompoundEnd())));
+    }
+}
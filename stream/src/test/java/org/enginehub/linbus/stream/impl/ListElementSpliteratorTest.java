@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.StreamTestUtil;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ListElementSpliteratorTest {
+    // A list of compounds with an id and an int array, reusing one buffer for all array content like a reader does
+    private static LinStream compoundList(int size, boolean withInfo) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(withInfo ? new LinToken.ListStart(size, LinTagId.COMPOUND) : new LinToken.ListStart());
+        for (int i = 0; i < size; i++) {
+            tokens.add(new LinToken.CompoundStart());
+            tokens.add(new LinToken.Name("id", LinTagId.INT));
+            tokens.add(new LinToken.Int(i));
+            tokens.add(new LinToken.Name("data", LinTagId.INT_ARRAY));
+            tokens.add(withInfo ? new LinToken.IntArrayStart(2) : new LinToken.IntArrayStart());
+            // Filled in when read
+            tokens.add(null);
+            tokens.add(new LinToken.IntArrayEnd());
+            tokens.add(new LinToken.CompoundEnd());
+        }
+        tokens.add(new LinToken.ListEnd());
+        tokens.add(new LinToken.Name("after", LinTagId.BYTE));
+        var shared = new int[2];
+        var iterator = tokens.iterator();
+        var ids = new int[1];
+        return () -> {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            LinToken token = iterator.next();
+            if (token instanceof LinToken.Int(int id)) {
+                ids[0] = id;
+            }
+            if (token == null) {
+                shared[0] = ids[0];
+                shared[1] = -ids[0];
+                return new LinToken.IntArrayContent(IntBuffer.wrap(shared).asReadOnlyBuffer());
+            }
+            return token;
+        };
+    }
+
+    // Reads the id and checks the array content of a compound element
+    private static int readId(LinStream element) {
+        var tokens = ImmutableList.copyOf(element.asIterator());
+        int id = ((LinToken.Int) tokens.get(2)).value();
+        var content = ((LinToken.IntArrayContent) tokens.get(5)).buffer();
+        assertThat(content.get(0)).isEqualTo(id);
+        assertThat(content.get(1)).isEqualTo(-id);
+        return id;
+    }
+
+    @Test
+    void splitsElementsAndContinuesAfterTheList() throws IOException {
+        var document = StreamTestUtil.sampleDocument();
+        int listStart = document.indexOf(new LinToken.ListStart(2, LinTagId.COMPOUND));
+        LinStream stream = LinStream.of(document.subList(listStart, document.size()).toArray(LinToken[]::new));
+
+        var elements = stream.listElements().map(e -> ImmutableList.copyOf(e.asIterator())).toList();
+
+        assertThat(elements).containsExactly(
+            document.subList(listStart + 1, listStart + 5),
+            document.subList(listStart + 5, listStart + 9)
+        ).inOrder();
+        assertThat(stream.nextOrNull()).isEqualTo(new LinToken.Name("ints", LinTagId.INT_ARRAY));
+    }
+
+    @Test
+    void keepsOrderInParallel() throws IOException {
+        for (boolean withInfo : new boolean[]{true, false}) {
+            LinStream stream = compoundList(20_000, withInfo);
+
+            var ids = stream.listElements().parallel().map(ListElementSpliteratorTest::readId).toList();
+
+            assertThat(ids).isEqualTo(IntStream.range(0, 20_000).boxed().toList());
+            assertThat(stream.nextOrNull()).isEqualTo(new LinToken.Name("after", LinTagId.BYTE));
+        }
+    }
+
+    @Test
+    void splitsInGrowingBatches() throws IOException {
+        var spliterator = ListElementSpliterator.create(compoundList(100, true));
+        assertThat(spliterator.estimateSize()).isEqualTo(100);
+        assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED)).isTrue();
+
+        var sizes = new ArrayList<Long>();
+        Spliterator<LinStream> batch;
+        while ((batch = spliterator.trySplit()) != null) {
+            assertThat(batch.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED)).isTrue();
+            sizes.add(batch.estimateSize());
+            batch.forEachRemaining(ListElementSpliteratorTest::readId);
+        }
+        assertThat(sizes).containsExactly(16L, 32L, 48L, 4L).inOrder();
+        assertThat(spliterator.estimateSize()).isEqualTo(0);
+        assertThat(spliterator.tryAdvance(_ -> {
+        })).isFalse();
+    }
+
+    @Test
+    void limitsBatchesByTokens() throws IOException {
+        // Each element is a list of 9999 ints, plus its start and end
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.ListStart(20, LinTagId.LIST));
+        for (int i = 0; i < 20; i++) {
+            tokens.add(new LinToken.ListStart(9999, LinTagId.INT));
+            for (int j = 0; j < 9999; j++) {
+                tokens.add(new LinToken.Int(j));
+            }
+            tokens.add(new LinToken.ListEnd());
+        }
+        tokens.add(new LinToken.ListEnd());
+        var spliterator = ListElementSpliterator.create(LinStream.of(tokens.toArray(LinToken[]::new)));
+
+        var batch = spliterator.trySplit();
+
+        assertThat(batch).isNotNull();
+        assertThat(batch.estimateSize()).isEqualTo(7);
+        assertThat(spliterator.estimateSize()).isEqualTo(13);
+    }
+
+    @Test
+    void declaredSizeIsNotTrusted() throws IOException {
+        var spliterator = ListElementSpliterator.create(compoundList(3, true));
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isFalse();
+
+        // Collecting must not allocate room for the declared size before checking it
+        var stream = LinStream.of(
+            new LinToken.ListStart(Integer.MAX_VALUE, LinTagId.INT),
+            new LinToken.Int(1),
+            new LinToken.ListEnd()
+        );
+        var ex = assertThrows(NbtParseException.class, () -> stream.listElements().toList());
+        assertThat(ex).hasMessageThat().isEqualTo("Expected " + Integer.MAX_VALUE + " elements, got 1");
+    }
+
+    @Test
+    void unknownSizeIsNotSized() throws IOException {
+        var spliterator = ListElementSpliterator.create(compoundList(3, false));
+        assertThat(spliterator.estimateSize()).isEqualTo(Long.MAX_VALUE);
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isFalse();
+        assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED)).isTrue();
+    }
+
+    @Test
+    void rejectsInvalidLists() {
+        var ex = assertThrows(NbtParseException.class, () -> LinStream.of(new LinToken.Int(1)).listElements());
+        assertThat(ex).hasMessageThat().isEqualTo("Expected list start, got Int[value=1]");
+
+        List<LinStream> invalid = List.of(
+            LinStream.of(new LinToken.ListStart(2, LinTagId.INT), new LinToken.Int(1), new LinToken.ListEnd()),
+            LinStream.of(new LinToken.ListStart(1, LinTagId.INT), new LinToken.Int(1), new LinToken.Int(2)),
+            LinStream.of(new LinToken.ListStart(), new LinToken.Name("x", LinTagId.INT)),
+            LinStream.of(new LinToken.ListStart(), new LinToken.CompoundStart())
+        );
+        List<String> messages = List.of(
+            "Expected 2 elements, got 1",
+            "Expected list end, got Int[value=2]",
+            "Expected a value, got " + new LinToken.Name("x", LinTagId.INT),
+            "Unexpected end of stream"
+        );
+        for (int i = 0; i < invalid.size(); i++) {
+            LinStream stream = invalid.get(i);
+            ex = assertThrows(NbtParseException.class, () -> stream.listElements().toList());
+            assertThat(ex).hasMessageThat().isEqualTo(messages.get(i));
+        }
+    }
+
+    @Test
+    void wrapsIoExceptions() throws IOException {
+        var failure = new IOException("Read failed");
+        var tokens = List.of(new LinToken.ListStart(), new LinToken.Int(1)).iterator();
+        LinStream stream = () -> {
+            if (!tokens.hasNext()) {
+                throw failure;
+            }
+            return tokens.next();
+        };
+        var elements = stream.listElements().iterator();
+        assertThat(elements.hasNext()).isTrue();
+        elements.next();
+        var ex = assertThrows(UncheckedIOException.class, elements::hasNext);
+        assertThat(ex).hasCauseThat().isSameInstanceAs(failure);
+    }
+}
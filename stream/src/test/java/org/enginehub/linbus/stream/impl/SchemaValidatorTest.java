@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinSchema;
+import org.enginehub.linbus.stream.exception.NbtSchemaException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.convertNbtStream;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SchemaValidatorTest {
+    private static final LinSchema SAMPLE_SCHEMA = LinSchema.compound()
+        .required("a", LinSchema.type(LinTagId.INT))
+        .required("uuid", LinSchema.compound()
+            .required("most", LinSchema.type(LinTagId.LONG))
+            .required("least", LinSchema.type(LinTagId.LONG))
+            .allowUnknownEntries(false)
+            .build())
+        .optional("list", LinSchema.list(LinSchema.compound()
+            .required("x", LinSchema.type(LinTagId.INT))
+            .build(), 1, 2))
+        .optional("missing", LinSchema.type(LinTagId.STRING))
+        .required("ints", LinSchema.array(LinTagId.INT_ARRAY, 2, 2))
+        .build();
+
+    private static List<LinToken> validate(List<LinToken> tokens, LinSchema schema) {
+        return ImmutableList.copyOf(streamFromIterator(tokens.iterator()).validate(schema).asIterator());
+    }
+
+    // Also checks how many tokens got through before the violation
+    private static NbtSchemaException violation(List<LinToken> tokens, LinSchema schema, int expectedReturned) {
+        var stream = streamFromIterator(tokens.iterator()).validate(schema);
+        var returned = new ArrayList<LinToken>();
+        var ex = assertThrows(NbtSchemaException.class, () -> {
+            LinToken token;
+            while ((token = stream.nextOrNull()) != null) {
+                returned.add(token);
+            }
+        });
+        assertThat(returned).hasSize(expectedReturned);
+        return ex;
+    }
+
+    private static List<LinToken> compound(LinToken... entryTokens) {
+        var tokens = new ArrayList<LinToken>();
+        tokens.add(new LinToken.CompoundStart());
+        tokens.addAll(List.of(entryTokens));
+        tokens.add(new LinToken.CompoundEnd());
+        return tokens;
+    }
+
+    @Test
+    void passesMatchingStreamsThrough() throws IOException {
+        assertThat(validate(sampleDocument(), SAMPLE_SCHEMA)).isEqualTo(sampleDocument());
+        var bigtest = convertNbtStream("bigtest.nbt.gz", s -> ImmutableList.copyOf(s.asIterator()));
+        assertThat(validate(bigtest, LinSchema.any())).isEqualTo(bigtest);
+        assertThat(validate(bigtest, LinSchema.type(LinTagId.COMPOUND))).isEqualTo(bigtest);
+        assertThat(validate(bigtest, LinSchema.compound().build())).isEqualTo(bigtest);
+    }
+
+    @Test
+    void failsAtTheFirstWrongType() {
+        var tokens = new ArrayList<>(sampleDocument());
+        // Replace the second long in uuid with a string
+        tokens.set(8, new LinToken.Name("least", LinTagId.STRING));
+        tokens.set(9, new LinToken.String("2"));
+        var ex = violation(tokens, SAMPLE_SCHEMA, 8);
+        assertThat(ex.path()).isEqualTo(LinPath.of("uuid", "least"));
+        assertThat(ex).hasMessageThat().isEqualTo("uuid.least: Expected LONG, got STRING");
+
+        // Without the type in the name, the value is rejected instead
+        tokens.set(8, new LinToken.Name("least"));
+        ex = violation(tokens, SAMPLE_SCHEMA, 9);
+        assertThat(ex.path()).isEqualTo(LinPath.of("uuid", "least"));
+
+        ex = violation(sampleDocument(), LinSchema.type(LinTagId.LIST), 1);
+        assertThat(ex).hasMessageThat().isEqualTo("<root>: Expected LIST, got COMPOUND");
+    }
+
+    @Test
+    void rejectsUnknownAndMissingEntries() {
+        var unknown = compound(
+            new LinToken.Name("uuid"), new LinToken.CompoundStart(),
+            new LinToken.Name("most"), new LinToken.Long(1),
+            new LinToken.Name("extra"), new LinToken.Long(2)
+        );
+        var ex = violation(unknown, SAMPLE_SCHEMA, 5);
+        assertThat(ex).hasMessageThat().isEqualTo("uuid.extra: Unknown entry");
+
+        var missing = compound(new LinToken.Name("a"), new LinToken.Int(1));
+        ex = violation(missing, SAMPLE_SCHEMA, 3);
+        assertThat(ex.path()).isEqualTo(LinPath.of("uuid"));
+        assertThat(ex).hasMessageThat().isEqualTo("uuid: Missing required entry");
+    }
+
+    @Test
+    void checksListSizesAndElements() {
+        var schema = LinSchema.compound()
+            .required("list", LinSchema.list(LinSchema.type(LinTagId.INT), 1, 2))
+            .build();
+        assertThat(validate(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(0, LinTagId.END), new LinToken.ListEnd()
+        ), LinSchema.compound().required("list", LinSchema.list(LinSchema.type(LinTagId.INT))).build()))
+            .hasSize(5);
+
+        var ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(3, LinTagId.INT)
+        ), schema, 2);
+        assertThat(ex).hasMessageThat().isEqualTo("list: List has more than 2 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(),
+            new LinToken.Int(1), new LinToken.Int(2), new LinToken.Int(3)
+        ), schema, 5);
+        assertThat(ex).hasMessageThat().isEqualTo("list: List has more than 2 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(), new LinToken.ListEnd()
+        ), schema, 3);
+        assertThat(ex).hasMessageThat().isEqualTo("list: List has fewer than 1 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(0, LinTagId.END)
+        ), schema, 2);
+        assertThat(ex).hasMessageThat().isEqualTo("list: List has fewer than 1 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(),
+            new LinToken.CompoundStart(), new LinToken.CompoundEnd(),
+            new LinToken.CompoundStart(), new LinToken.CompoundEnd(),
+            new LinToken.CompoundStart()
+        ), LinSchema.compound().required("list", LinSchema.list(LinSchema.any(), 0, 2)).build(), 7);
+        // Reported at the list, not at the element that went over
+        assertThat(ex).hasMessageThat().isEqualTo("list: List has more than 2 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(1, LinTagId.STRING)
+        ), schema, 2);
+        assertThat(ex).hasMessageThat().isEqualTo("list[0]: Expected INT, got STRING");
+
+        ex = violation(compound(
+            new LinToken.Name("list"), new LinToken.ListStart(), new LinToken.Int(1), new LinToken.Long(2)
+        ), schema, 4);
+        assertThat(ex).hasMessageThat().isEqualTo("list[1]: Expected INT, got LONG");
+    }
+
+    @Test
+    void checksArrayLengths() {
+        var schema = LinSchema.compound()
+            .optional("bytes", LinSchema.array(LinTagId.BYTE_ARRAY, 2, 3))
+            .optional("longs", LinSchema.array(LinTagId.LONG_ARRAY, 0, 1))
+            .build();
+        assertThat(validate(compound(
+            new LinToken.Name("bytes"), new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.allocate(1).asReadOnlyBuffer()),
+            new LinToken.ByteArrayContent(ByteBuffer.allocate(2).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints"), new LinToken.IntArrayStart(),
+            new LinToken.IntArrayContent(IntBuffer.allocate(100).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd()
+        ), schema)).hasSize(11);
+
+        var ex = violation(compound(
+            new LinToken.Name("bytes"), new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.allocate(2).asReadOnlyBuffer()),
+            new LinToken.ByteArrayContent(ByteBuffer.allocate(2).asReadOnlyBuffer())
+        ), schema, 4);
+        assertThat(ex).hasMessageThat().isEqualTo("bytes: Array has more than 3 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("bytes"), new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.allocate(1).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd()
+        ), schema, 4);
+        assertThat(ex).hasMessageThat().isEqualTo("bytes: Array has fewer than 2 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("bytes"), new LinToken.ByteArrayStart(1)
+        ), schema, 2);
+        assertThat(ex).hasMessageThat().isEqualTo("bytes: Array has fewer than 2 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("longs"), new LinToken.LongArrayStart(2)
+        ), schema, 2);
+        assertThat(ex).hasMessageThat().isEqualTo("longs: Array has more than 1 elements");
+
+        ex = violation(compound(
+            new LinToken.Name("longs"), new LinToken.LongArrayStart(),
+            new LinToken.LongArrayContent(LongBuffer.allocate(2).asReadOnlyBuffer())
+        ), schema, 3);
+        assertThat(ex).hasMessageThat().isEqualTo("longs: Array has more than 1 elements");
+    }
+
+    @Test
+    void rejectsInvalidSchemas() {
+        assertThrows(IllegalArgumentException.class, () -> LinSchema.type(LinTagId.END));
+        assertThrows(IllegalArgumentException.class, () -> LinSchema.array(LinTagId.INT, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> LinSchema.array(LinTagId.INT_ARRAY, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> LinSchema.list(LinSchema.any(), 2, 1));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.enginehub.linbus.stream.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SipHasher128Test {
+    // First entries of vectors_sip128 from
+    // https://github.com/veorq/SipHash/blob/32d067603b93b47828700880649198e0bfbbcffa/vectors.h
+    // Each row is the output bytes for the message 00, 01, ..., read as two little-endian longs
+    private static final long[][] EXPECTED = {
+        {0xe6a825ba047f81a3L, 0x930255c71472f66dL},
+        {0x44af996bd8c187daL, 0x45fc229b11597634L},
+    };
+
+    private static SipHasher128 referenceHasher() {
+        return new SipHasher128(0x0706050403020100L, 0x0F0E0D0C0B0A0908L);
+    }
+
+    @Test
+    void matchesReferenceVectors() {
+        var hasher = referenceHasher();
+        for (int length = 0; length < EXPECTED.length; length++) {
+            hasher.reset();
+            for (int i = 0; i < length; i++) {
+                hasher.putByte((byte) i);
+            }
+            hasher.finish();
+            assertThat(new long[]{hasher.first(), hasher.second()}).isEqualTo(EXPECTED[length]);
+        }
+    }
+
+    @Test
+    void wideValuesAreAbsorbedAsBytes() {
+        var bytes = referenceHasher();
+        for (int i = 0; i < 23; i++) {
+            bytes.putByte((byte) i);
+        }
+        bytes.finish();
+
+        var mixed = referenceHasher();
+        mixed.putByte((byte) 0x00);
+        mixed.putLong(0x0807060504030201L);
+        mixed.putChar((char) 0x0A09);
+        mixed.putInt(0x0E0D0C0B);
+        mixed.putInt(0x1211100F);
+        mixed.putInt(0x16151413);
+        mixed.finish();
+
+        assertThat(mixed.first()).isEqualTo(bytes.first());
+        assertThat(mixed.second()).isEqualTo(bytes.second());
+    }
+}
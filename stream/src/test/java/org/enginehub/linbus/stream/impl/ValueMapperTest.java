@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.stream.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.enginehub.linbus.common.IOFunction;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinPath;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.enginehub.linbus.stream.StreamTestUtil.sampleDocument;
+import static org.enginehub.linbus.stream.StreamTestUtil.streamFromIterator;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ValueMapperTest {
+    private static List<LinToken> map(
+        LinStream stream, LinPath path, IOFunction<LinStream, LinStream> mapper
+    ) {
+        return ImmutableList.copyOf(stream.mapValues(path::equals, mapper::apply).asIterator());
+    }
+
+    @Test
+    void retypesCompoundEntry() {
+        // Read only the first token of the original, the rest must be skipped
+        var result = map(streamFromIterator(sampleDocument().iterator()), LinPath.of("uuid"), original -> {
+            assertThat(original.nextOrNull()).isEqualTo(new LinToken.CompoundStart());
+            return LinStream.of(new LinToken.String("replaced"));
+        });
+        var expected = new ArrayList<>(sampleDocument());
+        expected.subList(4, 11).clear();
+        expected.addAll(4, List.of(new LinToken.Name("uuid", LinTagId.STRING), new LinToken.String("replaced")));
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void mapsListElementsWithTheirOwnTokens() {
+        var result = map(streamFromIterator(sampleDocument().iterator()), LinPath.of("list").resolve(1), original -> {
+            var tokens = ImmutableList.copyOf(original.asIterator());
+            assertThat(tokens).containsExactlyElementsIn(sampleDocument().subList(17, 21)).inOrder();
+            return LinStream.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd());
+        });
+        var expected = new ArrayList<>(sampleDocument());
+        expected.subList(18, 20).clear();
+        assertThat(result).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void pathsAfterMappedElementAreUnchanged() {
+        var seen = new ArrayList<String>();
+        ImmutableList.copyOf(streamFromIterator(sampleDocument().iterator()).mapValues(
+            path -> {
+                seen.add(path.toString());
+                return path.equals(LinPath.of("list").resolve(0));
+            },
+            original -> LinStream.of(new LinToken.CompoundStart(), new LinToken.CompoundEnd())
+        ).asIterator());
+        assertThat(seen).containsExactly(
+            "a", "uuid", "uuid.most", "uuid.least", "list", "list[0]", "list[1]", "list[1].x", "ints"
+        ).inOrder();
+    }
+
+    @Test
+    void rejectsListElementTypeChange() {
+        var ex = assertThrows(NbtParseException.class, () -> map(
+            streamFromIterator(sampleDocument().iterator()), LinPath.of("list").resolve(0),
+            original -> LinStream.of(new LinToken.Int(1))
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Replacement at list[0] is INT, but the list holds COMPOUND");
+    }
+
+    @Test
+    void allowsAnyTypeInListsWithoutElementId() throws IOException {
+        var result = map(LinStream.of(
+            new LinToken.CompoundStart(),
+            new LinToken.Name("l"),
+            new LinToken.ListStart(),
+            new LinToken.Int(1),
+            new LinToken.ListEnd(),
+            new LinToken.CompoundEnd()
+        ), LinPath.of("l").resolve(0), original -> LinStream.of(new LinToken.Int(2)));
+        assertThat(result.get(3)).isEqualTo(new LinToken.Int(2));
+    }
+
+    @Test
+    void rejectsEmptyReplacement() {
+        var ex = assertThrows(NbtParseException.class, () -> map(
+            streamFromIterator(sampleDocument().iterator()), LinPath.of("a"), original -> LinStream.of()
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Replacement at a does not start with a value: null");
+    }
+}
@@ -22,6 +22,7 @@
 
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -29,26 +30,29 @@
 import java.util.Set;
 
 /**
- * Shared base for the immutable, insertion-ordered map backings of {@link LinCompoundTag}. Entries
- * are held in parallel {@code keys}/{@code values} arrays in insertion order; subclasses only supply
- * the key lookup strategy via {@link #indexOf(Object)}.
+ * Shared base for the immutable, insertion-ordered map backings of {@link LinCompoundTag}. Keys are held in insertion
+ * order by a {@link CompoundShape}, which is shared with other compounds that have the same keys, and values in a
+ * parallel {@code values} array; subclasses only supply the key lookup strategy via {@link #indexOf(Object)}.
  */
 abstract class AbstractCompoundValueMap extends AbstractMap<String, LinTag<?>> {
-    final String[] keys;
+    final CompoundShape shape;
     final LinTag<?>[] values;
 
     AbstractCompoundValueMap(Map<String, ? extends LinTag<?>> source) {
-        int size = source.size();
-        this.keys = new String[size];
-        this.values = new LinTag<?>[size];
+        this.shape = CompoundShape.of(source);
+        this.values = new LinTag<?>[this.shape.keys.length];
         int i = 0;
-        for (Map.Entry<String, ? extends LinTag<?>> entry : source.entrySet()) {
-            this.keys[i] = Objects.requireNonNull(entry.getKey(), "compound key is null");
-            this.values[i] = Objects.requireNonNull(entry.getValue(), "compound value is null");
+        for (LinTag<?> value : source.values()) {
+            this.values[i] = Objects.requireNonNull(value, "compound value is null");
             i++;
         }
     }
 
+    AbstractCompoundValueMap(CompoundShape shape, LinTag<?>[] values) {
+        this.shape = shape;
+        this.values = values;
+    }
+
     /**
      * {@return the entry index of the given key, or {@code -1} if it is absent}
      *
@@ -69,7 +73,7 @@ public final boolean containsKey(@Nullable Object key) {
 
     @Override
     public final int size() {
-        return this.keys.length;
+        return this.values.length;
     }
 
     @Override
@@ -92,6 +96,54 @@ public final void clear() {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public final boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        String[] keys = this.shape.keys;
+        if (o instanceof AbstractCompoundValueMap that) {
+            if (this.values.length != that.values.length) {
+                return false;
+            }
+            // Same keys in the same order, so the values line up
+            if (this.shape == that.shape || Arrays.equals(keys, that.shape.keys)) {
+                return Arrays.equals(this.values, that.values);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                int index = that.indexOf(keys[i]);
+                if (index < 0 || !this.values[i].equals(that.values[index])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!(o instanceof Map<?, ?> map) || map.size() != this.values.length) {
+            return false;
+        }
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                if (!this.values[i].equals(map.get(keys[i]))) {
+                    return false;
+                }
+            }
+        } catch (ClassCastException | NullPointerException ignored) {
+            // The other map doesn't accept string keys, like AbstractMap#equals
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public final int hashCode() {
+        String[] keys = this.shape.keys;
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            hash += keys[i].hashCode() ^ this.values[i].hashCode();
+        }
+        return hash;
+    }
+
     @Override
     public final Set<Map.Entry<String, LinTag<?>>> entrySet() {
         return new EntrySet();
@@ -114,17 +166,17 @@ public Iterator<Map.Entry<String, LinTag<?>>> iterator() {
 
                 @Override
                 public boolean hasNext() {
-                    return this.cursor < AbstractCompoundValueMap.this.keys.length;
+                    return this.cursor < AbstractCompoundValueMap.this.values.length;
                 }
 
                 @Override
                 public Map.Entry<String, LinTag<?>> next() {
-                    if (this.cursor >= AbstractCompoundValueMap.this.keys.length) {
+                    if (this.cursor >= AbstractCompoundValueMap.this.values.length) {
                         throw new NoSuchElementException();
                     }
                     int index = this.cursor++;
                     return new SimpleImmutableEntry<>(
-                        AbstractCompoundValueMap.this.keys[index],
+                        AbstractCompoundValueMap.this.shape.keys[index],
                         AbstractCompoundValueMap.this.values[index]
                     );
                 }
@@ -133,7 +185,7 @@ public Map.Entry<String, LinTag<?>> next() {
 
         @Override
         public int size() {
-            return AbstractCompoundValueMap.this.keys.length;
+            return AbstractCompoundValueMap.this.values.length;
         }
     }
 }
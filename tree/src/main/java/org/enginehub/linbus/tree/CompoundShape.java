@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The keys of a {@link LinCompoundTag}, in insertion order, along with the index used to look them up.
+ *
+ * <p>
+ * Many compounds have the same keys in the same order, e.g. every item or entity in a chunk, so shapes are shared
+ * between them, much like hidden classes in JavaScript engines. A compound then only holds its own values. Shapes are
+ * found by following transitions from the empty shape, one per key. Most shapes only have a few transitions, which
+ * are compared against directly rather than hashed.
+ * </p>
+ *
+ * <p>
+ * A shape holds on to the transitions that lead to it, but transitions only weakly hold on to the shapes after them.
+ * Shapes are therefore dropped from the tree once no compound uses them, and the tree never outgrows the compounds
+ * that are alive, whatever keys the input has. Compounds over {@link #MAX_SHARED_SIZE} entries get a shape of their
+ * own, as they are rarely repeated.
+ * </p>
+ */
+final class CompoundShape {
+    /**
+     * The largest compound size that a shared shape is looked up for.
+     */
+    static final int MAX_SHARED_SIZE = 64;
+    /**
+     * The most transitions that are scanned linearly, before they're looked up in a map instead.
+     */
+    private static final int MAX_LINEAR_TRANSITIONS = 8;
+    private static final Node ROOT = new Node(null, "", 0);
+
+    /**
+     * Find the shape for the keys of the given map.
+     *
+     * @param source the map
+     * @return the shape
+     */
+    static CompoundShape of(Map<String, ?> source) {
+        if (source.size() <= MAX_SHARED_SIZE) {
+            Node node = ROOT;
+            for (String key : source.keySet()) {
+                node = node.next(Objects.requireNonNull(key, "compound key is null"));
+            }
+            return node.shape();
+        }
+        String[] keys = source.keySet().toArray(String[]::new);
+        for (String key : keys) {
+            Objects.requireNonNull(key, "compound key is null");
+        }
+        return new CompoundShape(keys, null);
+    }
+
+    /**
+     * Find the shape for the given keys.
+     *
+     * @param keys the keys, which are taken over if the shape is not shared and the length matches
+     * @param size the number of keys to use from the start of the array
+     * @return the shape
+     */
+    static CompoundShape of(String[] keys, int size) {
+        if (size <= MAX_SHARED_SIZE) {
+            Node node = ROOT;
+            for (int i = 0; i < size; i++) {
+                node = node.next(keys[i]);
+            }
+            return node.shape();
+        }
+        return new CompoundShape(size == keys.length ? keys : Arrays.copyOf(keys, size), null);
+    }
+
+    /**
+     * A weak transition, which is cleared once nothing uses the node it leads to.
+     */
+    private static final class Transition extends WeakReference<Node> {
+        private final String key;
+
+        private Transition(Node node) {
+            super(node);
+            this.key = node.key;
+        }
+    }
+
+    /**
+     * A node for a shape with one more key than its parent. The shape itself is only created if a compound actually
+     * uses it.
+     */
+    private static final class Node {
+        private final @Nullable Node parent;
+        private final String key;
+        private final int size;
+        private volatile Transition[] transitions = new Transition[0];
+        private volatile @Nullable Map<String, Transition> transitionMap;
+        // Racy initialization is fine, as shapes are immutable and there's no harm in creating a few duplicates
+        private @Nullable CompoundShape shape;
+
+        private Node(@Nullable Node parent, String key, int size) {
+            this.parent = parent;
+            this.key = key;
+            this.size = size;
+        }
+
+        /**
+         * Follow the transition for the given key, creating it if needed.
+         *
+         * @param key the key to add
+         * @return the node for the new shape
+         */
+        Node next(String key) {
+            Map<String, Transition> transitionMap = this.transitionMap;
+            if (transitionMap != null) {
+                Transition transition = transitionMap.get(key);
+                Node node = transition != null ? transition.get() : null;
+                return node != null ? node : addTransition(key);
+            }
+            for (Transition transition : transitions) {
+                if (transition.key.equals(key)) {
+                    Node node = transition.get();
+                    return node != null ? node : addTransition(key);
+                }
+            }
+            return addTransition(key);
+        }
+
+        private synchronized Node addTransition(String key) {
+            Transition[] transitions = this.transitions;
+            // Another thread may have added it since the unlocked scan
+            for (Transition transition : transitions) {
+                Node node = transition.get();
+                if (node != null && transition.key.equals(key)) {
+                    return node;
+                }
+            }
+            Node node = new Node(this, key, size + 1);
+            // Drop the transitions to shapes that are gone while we're copying anyway
+            Transition[] grown = new Transition[transitions.length + 1];
+            int count = 0;
+            for (Transition transition : transitions) {
+                if (!transition.refersTo(null)) {
+                    grown[count++] = transition;
+                }
+            }
+            grown[count++] = new Transition(node);
+            grown = Arrays.copyOf(grown, count);
+            this.transitions = grown;
+            if (grown.length > MAX_LINEAR_TRANSITIONS) {
+                var transitionMap = new HashMap<String, Transition>();
+                for (Transition transition : grown) {
+                    transitionMap.put(transition.key, transition);
+                }
+                this.transitionMap = Collections.unmodifiableMap(transitionMap);
+            } else {
+                this.transitionMap = null;
+            }
+            return node;
+        }
+
+        CompoundShape shape() {
+            CompoundShape shape = this.shape;
+            if (shape == null) {
+                String[] keys = new String[size];
+                Node node = this;
+                for (int i = size - 1; i >= 0; i--) {
+                    keys[i] = node.key;
+                    node = Objects.requireNonNull(node.parent);
+                }
+                shape = new CompoundShape(keys, this);
+                this.shape = shape;
+            }
+            return shape;
+        }
+    }
+
+    final String[] keys;
+    // Racy initialization is fine, as the index is immutable
+    private CompoundValueHashMap.@Nullable Index hashIndex;
+
+    /**
+     * The node of a shared shape, which keeps the transitions to it from being cleared.
+     */
+    private final @Nullable Node node;
+
+    private CompoundShape(String[] keys, @Nullable Node node) {
+        this.keys = keys;
+        this.node = node;
+    }
+
+    /**
+     * {@return the hash index of the keys, creating it if needed}
+     */
+    CompoundValueHashMap.Index hashIndex() {
+        CompoundValueHashMap.Index hashIndex = this.hashIndex;
+        if (hashIndex == null) {
+            hashIndex = CompoundValueHashMap.Index.of(keys);
+            this.hashIndex = hashIndex;
+        }
+        return hashIndex;
+    }
+}
@@ -129,36 +129,78 @@ private static int sipHash(String key) {
         return (int) h ^ (int) (h >>> 32);
     }
 
-    // Open-addressed index: table[slot] holds entryIndex + 1, with 0 meaning empty.
-    private final int[] table;
-    private final boolean usingSipHash;
+    /**
+     * The hash table for a set of keys. It's held by the {@link CompoundShape}, so it's shared with every map that
+     * has the same keys.
+     */
+    static final class Index {
+        /**
+         * Build the index for the given keys.
+         *
+         * @param keys the keys, in entry order
+         * @return the index
+         */
+        static Index of(String[] keys) {
+            int[] table = new int[tableSizeFor(keys.length)];
+            boolean notHashFlooded = fillWithStringHash(keys, table);
+            if (!notHashFlooded) {
+                table = new int[table.length];
+                fillWithSipHash(keys, table);
+            }
+            return new Index(table, !notHashFlooded);
+        }
+
+        // Open-addressed index: table[slot] holds entryIndex + 1, with 0 meaning empty.
+        private final int[] table;
+        private final boolean usingSipHash;
+
+        private Index(int[] table, boolean usingSipHash) {
+            this.table = table;
+            this.usingSipHash = usingSipHash;
+        }
+
+        /**
+         * {@return the entry index of the given key, or {@code -1} if it is absent}
+         *
+         * @param keys the keys this index was built for
+         * @param key the key to look up
+         */
+        int indexOf(String[] keys, String key) {
+            int slot = (this.usingSipHash ? sipHash(key) : stringHash(key)) & mask(this.table);
+            int probed;
+            while ((probed = this.table[slot]) != 0) {
+                int index = probed - 1;
+                if (keys[index].equals(key)) {
+                    return index;
+                }
+                slot = (slot + 1) & mask(this.table);
+            }
+            return -1;
+        }
+    }
 
     CompoundValueHashMap(Map<String, ? extends LinTag<?>> source) {
         super(source);
-        int[] table = new int[tableSizeFor(this.keys.length)];
-        boolean notHashFlooded = fillWithStringHash(this.keys, table);
-        if (!notHashFlooded) {
-            table = new int[table.length];
-            fillWithSipHash(this.keys, table);
-        }
-        this.table = table;
-        this.usingSipHash = !notHashFlooded;
+        // Build the index up front rather than on the first lookup
+        this.shape.hashIndex();
+    }
+
+    /**
+     * Wraps the given values without copying them. The caller must not modify the array afterwards.
+     *
+     * @param shape the shape of the map
+     * @param values the values, in the order of the shape's keys
+     */
+    CompoundValueHashMap(CompoundShape shape, LinTag<?>[] values) {
+        super(shape, values);
+        this.shape.hashIndex();
     }
 
     @Override
     int indexOf(@Nullable Object key) {
-        if (!(key instanceof String stringKey) || this.keys.length == 0) {
+        if (!(key instanceof String stringKey) || this.values.length == 0) {
             return -1;
         }
-        int slot = (this.usingSipHash ? sipHash(stringKey) : stringHash(stringKey)) & mask(this.table);
-        int probed;
-        while ((probed = this.table[slot]) != 0) {
-            int index = probed - 1;
-            if (this.keys[index].equals(stringKey)) {
-                return index;
-            }
-            slot = (slot + 1) & mask(this.table);
-        }
-        return -1;
+        return this.shape.hashIndex().indexOf(this.shape.keys, stringKey);
     }
 }
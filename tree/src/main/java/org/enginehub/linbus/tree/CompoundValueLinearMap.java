@@ -43,12 +43,22 @@ final class CompoundValueLinearMap extends AbstractCompoundValueMap {
         super(source);
     }
 
+    /**
+     * Wraps the given values without copying them. The caller must not modify the array afterwards.
+     *
+     * @param shape the shape of the map
+     * @param values the values, in the order of the shape's keys
+     */
+    CompoundValueLinearMap(CompoundShape shape, LinTag<?>[] values) {
+        super(shape, values);
+    }
+
     @Override
     int indexOf(@Nullable Object key) {
         if (!(key instanceof String stringKey)) {
             return -1;
         }
-        String[] keys = this.keys;
+        String[] keys = this.shape.keys;
         for (int i = 0; i < keys.length; i++) {
             if (keys[i].equals(stringKey)) {
                 return i;
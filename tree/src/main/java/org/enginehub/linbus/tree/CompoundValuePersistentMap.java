@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable, insertion-ordered map backing for {@link LinCompoundTag}, which shares structure with the map it was
+ * changed from.
+ *
+ * <p>
+ * Keys and values are held in insertion order by {@link PersistentVector PersistentVectors}, and keys are looked up
+ * in a hash array mapped trie that maps them to their index. Replacing a value only copies a path in the values, and
+ * the keys and their trie are shared as-is. Adding a key also copies a path in the keys and the trie.
+ * </p>
+ *
+ * <p>
+ * {@link LinCompoundTag} switches to this on the first change of a map with at least {@link #RECOMMENDED_MIN_SIZE}
+ * entries, as copying and rehashing the whole map gets expensive there. Smaller maps are cheap enough to copy, and
+ * keep the faster lookups of {@link AbstractCompoundValueMap}.
+ * </p>
+ */
+final class CompoundValuePersistentMap extends AbstractMap<String, LinTag<?>> {
+    /**
+     * The smallest map size for which a change switches to this map.
+     */
+    static final int RECOMMENDED_MIN_SIZE = 256;
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * The deepest shift that is taken from {@link String#hashCode()}. Deeper levels take their bits from SipHash, so
+     * that keys crafted to collide can't pile up in a single node.
+     */
+    private static final int MAX_STRING_HASH_SHIFT = 25;
+    private static final int MAX_SHIFT = MAX_STRING_HASH_SHIFT + BITS + Long.SIZE - BITS;
+
+    /**
+     * Copy the given map.
+     *
+     * @param source the map to copy
+     * @return the copy
+     */
+    static CompoundValuePersistentMap copyOf(Map<String, ? extends LinTag<?>> source) {
+        String[] keys = new String[source.size()];
+        LinTag<?>[] values = new LinTag<?>[keys.length];
+        Node index = BitmapNode.EMPTY;
+        int i = 0;
+        for (Map.Entry<String, ? extends LinTag<?>> entry : source.entrySet()) {
+            keys[i] = Objects.requireNonNull(entry.getKey(), "compound key is null");
+            values[i] = Objects.requireNonNull(entry.getValue(), "compound value is null");
+            index = index.put(keys[i], keys[i].hashCode(), 0, i);
+            i++;
+        }
+        return new CompoundValuePersistentMap(PersistentVector.copyOf(keys), PersistentVector.copyOf(values), index);
+    }
+
+    private static int bitsAt(String key, int hash, int shift) {
+        if (shift <= MAX_STRING_HASH_SHIFT) {
+            return (hash >>> shift) & MASK;
+        }
+        long sipHash = SipHash.hash(1, 3, CompoundValueHashMap.K0, CompoundValueHashMap.K1, key);
+        return (int) (sipHash >>> (shift - MAX_STRING_HASH_SHIFT - BITS)) & MASK;
+    }
+
+    /**
+     * A node of the trie from keys to their index.
+     */
+    sealed interface Node permits BitmapNode, CollisionNode {
+        /**
+         * {@return the index of the given key, or {@code -1} if it is absent}
+         *
+         * @param key the key
+         * @param hash the hash code of the key
+         * @param shift the shift of this node
+         */
+        int indexOf(String key, int hash, int shift);
+
+        /**
+         * {@return a copy of this node with the given key mapped to the given index}
+         *
+         * @param key the key
+         * @param hash the hash code of the key
+         * @param shift the shift of this node
+         * @param index the index
+         */
+        Node put(String key, int hash, int shift, int index);
+    }
+
+    /**
+     * A node with a slot for each set bit in the bitmap. Each slot holds either a key, with its index, or a child.
+     */
+    private record BitmapNode(int bitmap, Object[] slots, int[] indexes) implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0], new int[0]);
+
+        @Override
+        public int indexOf(String key, int hash, int shift) {
+            int bit = 1 << bitsAt(key, hash, shift);
+            if ((bitmap & bit) == 0) {
+                return -1;
+            }
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            return switch (slots[position]) {
+                case String existing -> existing.equals(key) ? indexes[position] : -1;
+                case Node child -> child.indexOf(key, hash, shift + BITS);
+                default -> throw new IllegalStateException("Unexpected slot: " + slots[position]);
+            };
+        }
+
+        @Override
+        public Node put(String key, int hash, int shift, int index) {
+            int bit = 1 << bitsAt(key, hash, shift);
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] slots = new Object[this.slots.length + 1];
+                int[] indexes = new int[slots.length];
+                System.arraycopy(this.slots, 0, slots, 0, position);
+                System.arraycopy(this.indexes, 0, indexes, 0, position);
+                slots[position] = key;
+                indexes[position] = index;
+                System.arraycopy(this.slots, position, slots, position + 1, this.slots.length - position);
+                System.arraycopy(this.indexes, position, indexes, position + 1, this.slots.length - position);
+                return new BitmapNode(bitmap | bit, slots, indexes);
+            }
+            Object[] slots = this.slots.clone();
+            int[] indexes = this.indexes.clone();
+            switch (slots[position]) {
+                case String existing when existing.equals(key) -> indexes[position] = index;
+                case String existing -> {
+                    slots[position] = merge(existing, indexes[position], key, hash, shift + BITS, index);
+                    indexes[position] = 0;
+                }
+                case Node child -> slots[position] = child.put(key, hash, shift + BITS, index);
+                default -> throw new IllegalStateException("Unexpected slot: " + slots[position]);
+            }
+            return new BitmapNode(bitmap, slots, indexes);
+        }
+
+        private static Node merge(String first, int firstIndex, String second, int hash, int shift, int secondIndex) {
+            if (shift > MAX_SHIFT) {
+                return new CollisionNode(new String[] {first, second}, new int[] {firstIndex, secondIndex});
+            }
+            return EMPTY.put(first, first.hashCode(), shift, firstIndex).put(second, hash, shift, secondIndex);
+        }
+    }
+
+    /**
+     * A node for keys whose hashes match at every level, which are searched linearly.
+     *
+     * <p>
+     * This can only be reached with a full SipHash collision, so it's package-private for testing.
+     * </p>
+     */
+    record CollisionNode(String[] keys, int[] indexes) implements Node {
+        @Override
+        public int indexOf(String key, int hash, int shift) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return indexes[i];
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Node put(String key, int hash, int shift, int index) {
+            int existing = Arrays.asList(keys).indexOf(key);
+            if (existing >= 0) {
+                int[] indexes = this.indexes.clone();
+                indexes[existing] = index;
+                return new CollisionNode(keys, indexes);
+            }
+            String[] keys = Arrays.copyOf(this.keys, this.keys.length + 1);
+            int[] indexes = Arrays.copyOf(this.indexes, keys.length);
+            keys[keys.length - 1] = key;
+            indexes[keys.length - 1] = index;
+            return new CollisionNode(keys, indexes);
+        }
+    }
+
+    private final PersistentVector<String> keys;
+    private final PersistentVector<LinTag<?>> values;
+    private final Node index;
+
+    private CompoundValuePersistentMap(PersistentVector<String> keys, PersistentVector<LinTag<?>> values, Node index) {
+        this.keys = keys;
+        this.values = values;
+        this.index = index;
+    }
+
+    /**
+     * {@return a copy of this map with the given entry added or replaced}
+     *
+     * @param key the key
+     * @param value the value
+     */
+    CompoundValuePersistentMap with(String key, LinTag<?> value) {
+        int existing = indexOf(key);
+        if (existing >= 0) {
+            return new CompoundValuePersistentMap(keys, values.with(existing, value), index);
+        }
+        return new CompoundValuePersistentMap(
+            keys.plus(key), values.plus(value), index.put(key, key.hashCode(), 0, keys.size())
+        );
+    }
+
+    private int indexOf(@Nullable Object key) {
+        if (!(key instanceof String stringKey)) {
+            return -1;
+        }
+        return index.indexOf(stringKey, stringKey.hashCode(), 0);
+    }
+
+    @Override
+    public @Nullable LinTag<?> get(@Nullable Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values.get(index);
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public @Nullable LinTag<?> put(String key, LinTag<?> value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public @Nullable LinTag<?> remove(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends LinTag<?>> m) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<Map.Entry<String, LinTag<?>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry<?, ?> entry)) {
+                    return false;
+                }
+                int index = indexOf(entry.getKey());
+                return index >= 0 && values.get(index).equals(entry.getValue());
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, LinTag<?>>> iterator() {
+                Iterator<String> keyIterator = keys.iterator();
+                Iterator<LinTag<?>> valueIterator = values.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keyIterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, LinTag<?>> next() {
+                        return new SimpleImmutableEntry<>(keyIterator.next(), valueIterator.next());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.ModifiedUtf8String;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.internal.DetachableLinStream;
+import org.enginehub.linbus.stream.internal.NbtStringDecoder;
+import org.enginehub.linbus.tree.impl.LinTagReader;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Reads a tag tree from the binary NBT format without going through tokens.
+ *
+ * <p>
+ * Unlike {@link LinTagReader}, this never needs optional info to be calculated, as the binary format always provides
+ * it. Nesting is tracked with an explicit stack instead of recursion, and arrays are read directly into the arrays
+ * that back the resulting tags.
+ * </p>
+ *
+ * <p>
+ * With an {@link LinTagInterner}, each tag is interned as soon as it is complete. Its children have been interned by
+ * then, so this is the same as interning the finished tree, without building the duplicates up first.
+ * </p>
+ */
+final class DirectBinaryReader {
+    private static final int SCRATCH_SIZE = 8192;
+    /**
+     * The largest size we trust a list header with for pre-sizing, since it's not validated until the elements are
+     * actually read.
+     */
+    private static final int MAX_EXPECTED_LIST_SIZE = 1 << 16;
+
+    /**
+     * Read a root entry, the id of which has already been read, interning its tags.
+     *
+     * <p>
+     * The reader is kept in the detached input, so the documents of a stream share one reader and its buffers.
+     * </p>
+     *
+     * @param detached the detached input
+     * @param interner the interner to use, if any
+     * @return the root entry
+     * @throws IOException if an I/O error occurs
+     */
+    static LinRootEntry readRootAfterId(
+        DetachableLinStream.Detached detached, @Nullable LinTagInterner interner
+    ) throws IOException {
+        DirectBinaryReader reader;
+        if (detached.decoder() instanceof DirectBinaryReader previous) {
+            reader = previous;
+        } else {
+            reader = new DirectBinaryReader(detached.input(), detached.stringDecoder());
+            detached.decoder(reader);
+        }
+        return reader.readRoot(interner);
+    }
+
+    /**
+     * A compound or list that is still being read.
+     */
+    private abstract static sealed class Frame permits CompoundFrame, ListFrame {
+        /**
+         * The name to put the finished tag under, if the parent is a compound.
+         */
+        final @Nullable String name;
+        /**
+         * Whether every child so far was kept by the interner.
+         */
+        boolean childrenShared = true;
+
+        Frame(@Nullable String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class CompoundFrame extends Frame {
+        final LinCompoundTag.Builder builder = LinCompoundTag.builder();
+
+        CompoundFrame(@Nullable String name) {
+            super(name);
+        }
+    }
+
+    private static final class ListFrame extends Frame {
+        final LinListTag.Builder<LinTag<?>> builder;
+        final LinTagId elementId;
+        int remaining;
+
+        ListFrame(@Nullable String name, LinTagId elementId, int size) {
+            super(name);
+            LinTagType<LinTag<?>> elementType = LinTagType.fromId(elementId);
+            this.builder = LinListTag.builderWithExpectedSize(elementType, Math.min(size, MAX_EXPECTED_LIST_SIZE));
+            this.elementId = elementId;
+            this.remaining = size;
+        }
+    }
+
+    private final DataInput input;
+    private final NbtStringDecoder stringDecoder;
+    private @Nullable LinTagInterner interner;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private @Nullable ByteBuffer scratch;
+    private @Nullable IntBuffer scratchInts;
+    private @Nullable LongBuffer scratchLongs;
+
+    private DirectBinaryReader(DataInput input, NbtStringDecoder stringDecoder) {
+        this.input = input;
+        this.stringDecoder = stringDecoder;
+    }
+
+    private LinRootEntry readRoot(@Nullable LinTagInterner interner) throws IOException {
+        // A failed read may have left frames behind
+        stack.clear();
+        this.interner = interner;
+        String name = stringDecoder.decode(input);
+        return new LinRootEntry(name, readCompound());
+    }
+
+    /**
+     * Read the entries of a compound, the id and name of which have already been read.
+     *
+     * @return the compound tag
+     * @throws IOException if an I/O error occurs
+     */
+    private LinCompoundTag readCompound() throws IOException {
+        stack.addLast(new CompoundFrame(null));
+        while (true) {
+            Frame top = stack.getLast();
+            LinTag<?> completed;
+            switch (top) {
+                case CompoundFrame compound -> {
+                    var id = LinTagId.fromId(input.readUnsignedByte());
+                    if (id != LinTagId.END) {
+                        String name = stringDecoder.decode(input);
+                        LinTag<?> value = readValueOrPushFrame(id, name);
+                        if (value != null) {
+                            compound.builder.put(name, share(compound, value, true));
+                        }
+                        continue;
+                    }
+                    stack.removeLast();
+                    completed = compound.builder.build();
+                }
+                case ListFrame list -> {
+                    if (list.remaining > 0) {
+                        list.remaining--;
+                        LinTag<?> value = readValueOrPushFrame(list.elementId, null);
+                        if (value != null) {
+                            list.builder.add(share(list, value, true));
+                        }
+                        continue;
+                    }
+                    stack.removeLast();
+                    completed = list.builder.build();
+                }
+            }
+            switch (stack.peekLast()) {
+                case null -> {
+                    // Only the root compound has no parent
+                    return (LinCompoundTag) completed;
+                }
+                case CompoundFrame parent -> {
+                    String name = top.name;
+                    if (name == null) {
+                        throw new IllegalStateException("Compound entry has no name");
+                    }
+                    parent.builder.put(name, share(parent, completed, top.childrenShared));
+                }
+                case ListFrame parent -> parent.builder.add(share(parent, completed, top.childrenShared));
+            }
+        }
+    }
+
+    /**
+     * Intern a complete value, if there is an interner.
+     *
+     * @param parent the frame the value is added to
+     * @param value the value
+     * @param childrenShared whether the children of the value were all kept by the interner
+     * @return the value to add
+     */
+    private LinTag<?> share(Frame parent, LinTag<?> value, boolean childrenShared) {
+        LinTagInterner interner = this.interner;
+        if (interner == null) {
+            return value;
+        }
+        if (!LinTagInterner.isShareable(value, childrenShared)) {
+            parent.childrenShared = false;
+            return value;
+        }
+        return interner.canonical(value);
+    }
+
+    /**
+     * Read a value. If it's a compound or a non-empty list, a frame is pushed for it instead.
+     *
+     * @param id the id of the value
+     * @param name the name of the value, if it's in a compound
+     * @return the value, or {@code null} if a frame was pushed
+     * @throws IOException if an I/O error occurs
+     */
+    private @Nullable LinTag<?> readValueOrPushFrame(LinTagId id, @Nullable String name) throws IOException {
+        return switch (id) {
+            case BYTE -> LinByteTag.of(input.readByte());
+            case SHORT -> LinShortTag.of(input.readShort());
+            case INT -> LinIntTag.of(input.readInt());
+            case LONG -> LinLongTag.of(input.readLong());
+            case FLOAT -> LinFloatTag.of(input.readFloat());
+            case DOUBLE -> LinDoubleTag.of(input.readDouble());
+            case STRING -> switch (stringDecoder.decodeLazily(input)) {
+                case ModifiedUtf8String encoded -> LinStringTag.of(encoded);
+                case CharSequence decoded -> LinStringTag.of(decoded.toString());
+            };
+            case BYTE_ARRAY -> readByteArray();
+            case INT_ARRAY -> readIntArray();
+            case LONG_ARRAY -> readLongArray();
+            case LIST -> {
+                var elementId = LinTagId.fromId(input.readUnsignedByte());
+                int size = input.readInt();
+                if (size < 0) {
+                    throw new NbtParseException("Invalid list size: " + size);
+                }
+                if (size == 0) {
+                    yield LinListTag.empty(LinTagType.fromId(elementId));
+                }
+                if (elementId == LinTagId.END) {
+                    throw new NbtParseException("Invalid id: " + elementId);
+                }
+                LinListTag<?> numbers = readNumberList(elementId, size);
+                if (numbers != null) {
+                    yield numbers;
+                }
+                stack.addLast(new ListFrame(name, elementId, size));
+                yield null;
+            }
+            case COMPOUND -> {
+                stack.addLast(new CompoundFrame(name));
+                yield null;
+            }
+            case END -> throw new NbtParseException("Invalid id: " + id);
+        };
+    }
+
+    /**
+     * Read the elements of a list of numbers straight into a primitive array.
+     *
+     * @param elementId the id of the elements
+     * @param size the number of elements, which is not trusted for allocation until they're read
+     * @return the list, or {@code null} if the elements are not numbers
+     * @throws IOException if an I/O error occurs
+     */
+    private @Nullable LinListTag<?> readNumberList(LinTagId elementId, int size) throws IOException {
+        return switch (elementId) {
+            case BYTE -> {
+                byte[] values = new byte[Math.min(size, MAX_EXPECTED_LIST_SIZE)];
+                for (int offset = 0; offset < size; ) {
+                    int count = Math.min(size - offset, SCRATCH_SIZE);
+                    if (offset + count > values.length) {
+                        values = Arrays.copyOf(values, grownLength(values.length, offset + count, size));
+                    }
+                    input.readFully(values, offset, count);
+                    offset += count;
+                }
+                yield LinListTag.of(LinTagType.byteTag(), new ListValuePrimitiveList.Bytes(values));
+            }
+            case SHORT -> {
+                short[] values = new short[Math.min(size, MAX_EXPECTED_LIST_SIZE)];
+                ShortBuffer shorts = scratch().asShortBuffer();
+                for (int offset = 0; offset < size; ) {
+                    int count = Math.min(size - offset, shorts.capacity());
+                    if (offset + count > values.length) {
+                        values = Arrays.copyOf(values, grownLength(values.length, offset + count, size));
+                    }
+                    input.readFully(scratch().array(), 0, count * Short.BYTES);
+                    shorts.get(0, values, offset, count);
+                    offset += count;
+                }
+                yield LinListTag.of(LinTagType.shortTag(), new ListValuePrimitiveList.Shorts(values));
+            }
+            case INT -> {
+                int[] values = new int[Math.min(size, MAX_EXPECTED_LIST_SIZE)];
+                IntBuffer ints = scratchInts();
+                for (int offset = 0; offset < size; ) {
+                    int count = Math.min(size - offset, ints.capacity());
+                    if (offset + count > values.length) {
+                        values = Arrays.copyOf(values, grownLength(values.length, offset + count, size));
+                    }
+                    input.readFully(scratch().array(), 0, count * Integer.BYTES);
+                    ints.get(0, values, offset, count);
+                    offset += count;
+                }
+                yield LinListTag.of(LinTagType.intTag(), new ListValuePrimitiveList.Ints(values));
+            }
+            case LONG -> {
+                long[] values = new long[Math.min(size, MAX_EXPECTED_LIST_SIZE)];
+                LongBuffer longs = scratchLongs();
+                for (int offset = 0; offset < size; ) {
+                    int count = Math.min(size - offset, longs.capacity());
+                    if (offset + count > values.length) {
+                        values = Arrays.copyOf(values, grownLength(values.length, offset + count, size));
+                    }
+                    input.readFully(scratch().array(), 0, count * Long.BYTES);
+                    longs.get(0, values, offset, count);
+                    offset += count;
+                }
+                yield LinListTag.of(LinTagType.longTag(), new ListValuePrimitiveList.Longs(values));
+            }
+            case FLOAT -> {
+                float[] values = new float[Math.min(size, MAX_EXPECTED_LIST_SIZE)];
+                FloatBuffer floats = scratch().asFloatBuffer();
+                for (int offset = 0; offset < size; ) {
+                    int count = Math.min(size - offset, floats.capacity());
+                    if (offset + count > values.length) {
+                        values = Arrays.copyOf(values, grownLength(values.length, offset + count, size));
+                    }
+                    input.readFully(scratch().array(), 0, count * Float.BYTES);
+                    floats.get(0, values, offset, count);
+                    offset += count;
+                }
+                yield LinListTag.of(LinTagType.floatTag(), new ListValuePrimitiveList.Floats(values));
+            }
+            case DOUBLE -> {
+                double[] values = new double[Math.min(size, MAX_EXPECTED_LIST_SIZE)];
+                DoubleBuffer doubles = scratch().asDoubleBuffer();
+                for (int offset = 0; offset < size; ) {
+                    int count = Math.min(size - offset, doubles.capacity());
+                    if (offset + count > values.length) {
+                        values = Arrays.copyOf(values, grownLength(values.length, offset + count, size));
+                    }
+                    input.readFully(scratch().array(), 0, count * Double.BYTES);
+                    doubles.get(0, values, offset, count);
+                    offset += count;
+                }
+                yield LinListTag.of(LinTagType.doubleTag(), new ListValuePrimitiveList.Doubles(values));
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Compute the length of a list's array after making room for more elements. It doubles until the list's size,
+     * so an untrusted size does not allocate anything until its elements are actually read.
+     *
+     * @param length the current length
+     * @param needed the number of elements it must hold
+     * @param size the final number of elements
+     * @return the new length
+     */
+    private static int grownLength(int length, int needed, int size) {
+        return (int) Math.min(size, Math.max(needed, 2L * length));
+    }
+
+    private int readArraySize() throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new NbtParseException("Invalid array size: " + size);
+        }
+        return size;
+    }
+
+    private ByteBuffer scratch() {
+        ByteBuffer scratch = this.scratch;
+        if (scratch == null) {
+            scratch = ByteBuffer.allocate(SCRATCH_SIZE);
+            this.scratch = scratch;
+        }
+        return scratch;
+    }
+
+    private IntBuffer scratchInts() {
+        IntBuffer ints = this.scratchInts;
+        if (ints == null) {
+            ints = scratch().asIntBuffer();
+            this.scratchInts = ints;
+        }
+        return ints;
+    }
+
+    private LongBuffer scratchLongs() {
+        LongBuffer longs = this.scratchLongs;
+        if (longs == null) {
+            longs = scratch().asLongBuffer();
+            this.scratchLongs = longs;
+        }
+        return longs;
+    }
+
+    private LinByteArrayTag readByteArray() throws IOException {
+        byte[] value = new byte[readArraySize()];
+        input.readFully(value);
+        return new LinByteArrayTag(value);
+    }
+
+    private LinIntArrayTag readIntArray() throws IOException {
+        int[] value = new int[readArraySize()];
+        IntBuffer ints = scratchInts();
+        for (int offset = 0; offset < value.length; ) {
+            int count = Math.min(value.length - offset, ints.capacity());
+            input.readFully(scratch().array(), 0, count * Integer.BYTES);
+            ints.get(0, value, offset, count);
+            offset += count;
+        }
+        return new LinIntArrayTag(value);
+    }
+
+    private LinLongArrayTag readLongArray() throws IOException {
+        long[] value = new long[readArraySize()];
+        LongBuffer longs = scratchLongs();
+        for (int offset = 0; offset < value.length; ) {
+            int count = Math.min(value.length - offset, longs.capacity());
+            input.readFully(scratch().array(), 0, count * Long.BYTES);
+            longs.get(0, value, offset, count);
+            offset += count;
+        }
+        return new LinLongArrayTag(value);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.ModifiedUtf8String;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a tag tree to the binary NBT format by walking it directly.
+ *
+ * <p>
+ * Unlike {@link LinBinaryIO#write(DataOutput, org.enginehub.linbus.stream.LinStreamable)}, this never creates
+ * tokens or calculates optional info, since every size is already known from the tree. Output is collected in a
+ * buffer and handed to the {@link DataOutput} in large chunks, and array contents are copied into that buffer in
+ * bulk.
+ * </p>
+ */
+final class DirectBinaryWriter {
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * The maximum length of an encoded string, as it is prefixed by an unsigned short.
+     */
+    private static final int MAX_UTF_LENGTH = 0xFFFF;
+
+    /**
+     * Write a root entry.
+     *
+     * @param output the output to write to
+     * @param name the name of the root entry
+     * @param value the value of the root entry
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeRoot(DataOutput output, String name, LinCompoundTag value) throws IOException {
+        var writer = new DirectBinaryWriter(output);
+        writer.putByte((byte) LinTagId.COMPOUND.id());
+        writer.putUtf(name);
+        writer.putCompound(value);
+        writer.flush();
+    }
+
+    private final DataOutput output;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private DirectBinaryWriter(DataOutput output) {
+        this.output = output;
+    }
+
+    private void flush() throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void putByte(byte value) throws IOException {
+        ensureRemaining(Byte.BYTES);
+        buffer.put(value);
+    }
+
+    private void putInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    private void putUtf(String value) throws IOException {
+        int utfLength = ModifiedUtf8String.encodedLength(value);
+        if (utfLength > BUFFER_SIZE - Short.BYTES) {
+            // Too long to encode in place, putEncoded will spread it over several flushes
+            putEncoded(ModifiedUtf8String.of(value));
+            return;
+        }
+        ensureRemaining(Short.BYTES + utfLength);
+        buffer.putShort((short) utfLength);
+        ModifiedUtf8String.encode(value, buffer);
+    }
+
+    private void putEncoded(ModifiedUtf8String value) throws IOException {
+        if (value.encodedLength() > MAX_UTF_LENGTH) {
+            throw new UTFDataFormatException("encoded string too long: " + value.encodedLength() + " bytes");
+        }
+        ensureRemaining(Short.BYTES);
+        buffer.putShort((short) value.encodedLength());
+        putBytes(value.encoded());
+    }
+
+    private void putCompound(LinCompoundTag tag) throws IOException {
+        Map<String, LinTag<?>> value = tag.value();
+        if (value instanceof AbstractCompoundValueMap map) {
+            // Skip the entry objects, we can read the arrays directly
+            String[] keys = map.shape.keys;
+            for (int i = 0; i < keys.length; i++) {
+                putEntry(keys[i], map.values[i]);
+            }
+        } else {
+            for (Map.Entry<String, LinTag<?>> entry : value.entrySet()) {
+                putEntry(entry.getKey(), entry.getValue());
+            }
+        }
+        putByte((byte) LinTagId.END.id());
+    }
+
+    private void putEntry(String name, LinTag<?> value) throws IOException {
+        putByte((byte) value.type().id().id());
+        putUtf(name);
+        putPayload(value);
+    }
+
+    private void putPayload(LinTag<?> tag) throws IOException {
+        switch (tag) {
+            case LinByteTag byteTag -> putByte(byteTag.valueAsByte());
+            case LinShortTag shortTag -> {
+                ensureRemaining(Short.BYTES);
+                buffer.putShort(shortTag.valueAsShort());
+            }
+            case LinIntTag intTag -> putInt(intTag.valueAsInt());
+            case LinLongTag longTag -> {
+                ensureRemaining(Long.BYTES);
+                buffer.putLong(longTag.valueAsLong());
+            }
+            case LinFloatTag floatTag -> {
+                ensureRemaining(Float.BYTES);
+                buffer.putFloat(floatTag.valueAsFloat());
+            }
+            case LinDoubleTag doubleTag -> {
+                ensureRemaining(Double.BYTES);
+                buffer.putDouble(doubleTag.valueAsDouble());
+            }
+            case LinStringTag stringTag -> {
+                ModifiedUtf8String encoded = stringTag.encodedOrNull();
+                if (encoded != null) {
+                    putEncoded(encoded);
+                } else {
+                    putUtf(stringTag.value());
+                }
+            }
+            case LinByteArrayTag byteArrayTag -> putByteArray(byteArrayTag.view());
+            case LinIntArrayTag intArrayTag -> putIntArray(intArrayTag.view());
+            case LinLongArrayTag longArrayTag -> putLongArray(longArrayTag.view());
+            case LinListTag<?> listTag -> putList(listTag);
+            case LinCompoundTag compoundTag -> putCompound(compoundTag);
+            case LinEndTag _ -> throw new IllegalStateException("END tags have no payload");
+        }
+    }
+
+    private void putList(LinListTag<?> tag) throws IOException {
+        List<? extends LinTag<?>> value = tag.value();
+        putByte((byte) tag.elementType().id().id());
+        putInt(value.size());
+        switch (value) {
+            case ListValuePrimitiveList.Bytes bytes -> putBytes(ByteBuffer.wrap(bytes.values));
+            case ListValuePrimitiveList.Shorts shorts -> {
+                for (short element : shorts.values) {
+                    ensureRemaining(Short.BYTES);
+                    buffer.putShort(element);
+                }
+            }
+            case ListValuePrimitiveList.Ints ints -> {
+                for (int element : ints.values) {
+                    putInt(element);
+                }
+            }
+            case ListValuePrimitiveList.Longs longs -> {
+                for (long element : longs.values) {
+                    ensureRemaining(Long.BYTES);
+                    buffer.putLong(element);
+                }
+            }
+            case ListValuePrimitiveList.Floats floats -> {
+                for (float element : floats.values) {
+                    ensureRemaining(Float.BYTES);
+                    buffer.putFloat(element);
+                }
+            }
+            case ListValuePrimitiveList.Doubles doubles -> {
+                for (double element : doubles.values) {
+                    ensureRemaining(Double.BYTES);
+                    buffer.putDouble(element);
+                }
+            }
+            default -> {
+                for (LinTag<?> element : value) {
+                    putPayload(element);
+                }
+            }
+        }
+    }
+
+    private void putByteArray(ByteBuffer view) throws IOException {
+        putInt(view.remaining());
+        putBytes(view);
+    }
+
+    private void putBytes(ByteBuffer view) throws IOException {
+        int end = view.limit();
+        while (view.hasRemaining()) {
+            ensureRemaining(1);
+            view.limit(view.position() + Math.min(view.remaining(), buffer.remaining()));
+            buffer.put(view);
+            view.limit(end);
+        }
+    }
+
+    private void putIntArray(IntBuffer view) throws IOException {
+        putInt(view.remaining());
+        int end = view.limit();
+        while (view.hasRemaining()) {
+            ensureRemaining(Integer.BYTES);
+            int count = Math.min(view.remaining(), buffer.remaining() / Integer.BYTES);
+            view.limit(view.position() + count);
+            buffer.asIntBuffer().put(view);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            view.limit(end);
+        }
+    }
+
+    private void putLongArray(LongBuffer view) throws IOException {
+        putInt(view.remaining());
+        int end = view.limit();
+        while (view.hasRemaining()) {
+            ensureRemaining(Long.BYTES);
+            int count = Math.min(view.remaining(), buffer.remaining() / Long.BYTES);
+            view.limit(view.position() + count);
+            buffer.asLongBuffer().put(view);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            view.limit(end);
+        }
+    }
+}
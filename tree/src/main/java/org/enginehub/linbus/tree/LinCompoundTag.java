@@ -28,6 +28,8 @@
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -79,16 +81,81 @@ public static Builder builder() {
 
     /**
      * A builder for {@link LinCompoundTag LinCompoundTags}.
+     *
+     * <p>
+     * Entries are collected into arrays, which are handed over to the built tag if they're the right size. The
+     * builder then copies them before changing them again, as does a builder from {@link #toBuilder()}.
+     * </p>
      */
     public static final class Builder {
-        private final LinkedHashMap<String, LinTag<?>> collector;
+        private static final int DEFAULT_CAPACITY = 8;
+
+        private String[] keys;
+        private LinTag<?>[] values;
+        private int size;
+        /**
+         * Whether {@link #keys} and {@link #values} are also held by a tag, and must be copied before they're changed.
+         */
+        private boolean shared;
+        /**
+         * The index of each key, only kept once there are too many keys to scan.
+         */
+        private @Nullable HashMap<String, Integer> index;
+        /**
+         * The tag this builder was created from, as long as nothing has changed since.
+         */
+        private @Nullable LinCompoundTag unchanged;
 
         private Builder() {
-            this.collector = new LinkedHashMap<>();
+            this.keys = new String[DEFAULT_CAPACITY];
+            this.values = new LinTag<?>[DEFAULT_CAPACITY];
         }
 
         private Builder(LinCompoundTag base) {
-            this.collector = new LinkedHashMap<>(base.value);
+            if (base.value instanceof AbstractCompoundValueMap map) {
+                this.keys = map.shape.keys;
+                this.values = map.values;
+                this.shared = true;
+            } else {
+                this.keys = base.value.keySet().toArray(String[]::new);
+                this.values = base.value.values().toArray(LinTag<?>[]::new);
+            }
+            this.size = this.keys.length;
+            this.unchanged = base;
+        }
+
+        private int indexOf(String name) {
+            if (this.size <= CompoundValueLinearMap.RECOMMENDED_MAX_LINEAR_SIZE) {
+                for (int i = 0; i < this.size; i++) {
+                    if (this.keys[i].equals(name)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            HashMap<String, Integer> index = this.index;
+            if (index == null) {
+                index = HashMap.newHashMap(this.size);
+                for (int i = 0; i < this.size; i++) {
+                    index.put(this.keys[i], i);
+                }
+                this.index = index;
+            }
+            Integer found = index.get(name);
+            return found == null ? -1 : found;
+        }
+
+        private void prepareChange(int capacity) {
+            this.unchanged = null;
+            if (this.shared || capacity > this.keys.length) {
+                int length = this.keys.length;
+                if (capacity > length) {
+                    length = Math.max(capacity, length + (length >> 1));
+                }
+                this.keys = Arrays.copyOf(this.keys, length);
+                this.values = Arrays.copyOf(this.values, length);
+                this.shared = false;
+            }
         }
 
         /**
@@ -99,10 +166,23 @@ private Builder(LinCompoundTag base) {
          * @return this builder
          */
         public Builder put(String name, LinTag<?> value) {
+            Objects.requireNonNull(name, "compound key is null");
             if (value.type().id() == LinTagId.END) {
                 throw new IllegalArgumentException("Cannot add END tag to compound tag");
             }
-            this.collector.put(name, value);
+            int existing = indexOf(name);
+            if (existing >= 0) {
+                prepareChange(this.size);
+                this.values[existing] = value;
+                return this;
+            }
+            prepareChange(this.size + 1);
+            this.keys[this.size] = name;
+            this.values[this.size] = value;
+            if (this.index != null) {
+                this.index.put(name, this.size);
+            }
+            this.size++;
             return this;
         }
 
@@ -124,7 +204,18 @@ public Builder putAll(Map<String, ? extends LinTag<?>> map) {
          * @return this builder
          */
         public Builder remove(String name) {
-            this.collector.remove(name);
+            int existing = indexOf(name);
+            if (existing >= 0) {
+                prepareChange(this.size);
+                int moved = this.size - existing - 1;
+                System.arraycopy(this.keys, existing + 1, this.keys, existing, moved);
+                System.arraycopy(this.values, existing + 1, this.values, existing, moved);
+                this.size--;
+                this.keys[this.size] = null;
+                this.values[this.size] = null;
+                // The indexes of the later keys have changed
+                this.index = null;
+            }
             return this;
         }
 
@@ -268,10 +359,26 @@ public Builder putString(String name, String value) {
          * @return the built tag
          */
         public LinCompoundTag build() {
-            if (this.collector.isEmpty()) {
+            if (this.size == 0) {
                 return EMPTY;
             }
-            return new LinCompoundTag(copyImmutable(this.collector), false);
+            LinCompoundTag unchanged = this.unchanged;
+            if (unchanged != null) {
+                return unchanged;
+            }
+            if (this.size == 1) {
+                return new LinCompoundTag(Map.of(this.keys[0], this.values[0]), false);
+            }
+            if (this.size != this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size);
+                this.values = Arrays.copyOf(this.values, this.size);
+            }
+            this.shared = true;
+            CompoundShape shape = CompoundShape.of(this.keys, this.size);
+            if (this.size <= CompoundValueLinearMap.RECOMMENDED_MAX_LINEAR_SIZE) {
+                return new LinCompoundTag(new CompoundValueLinearMap(shape, this.values), false);
+            }
+            return new LinCompoundTag(new CompoundValueHashMap(shape, this.values), false);
         }
     }
 
@@ -306,6 +413,7 @@ private static Map<String, LinTag<?>> copyImmutable(
     }
 
     private final Map<String, LinTag<?>> value;
+    private int hash;
 
     private LinCompoundTag(Map<String, LinTag<?>> value, boolean check) {
         if (check) {
@@ -328,6 +436,34 @@ public Map<String, LinTag<?>> value() {
         return value;
     }
 
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LinCompoundTag that)) {
+            return false;
+        }
+        // Different hashes mean different values, but only check them if both are known already
+        int hash = this.hash;
+        int thatHash = that.hash;
+        if (hash != 0 && thatHash != 0 && hash != thatHash) {
+            return false;
+        }
+        return value.equals(that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        // Tags are immutable, so a racy write is fine, every thread computes the same hash
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = value.hashCode();
+            this.hash = hash;
+        }
+        return hash;
+    }
+
     @Override
     public LinStream linStream() {
         return new SurroundingLinStream(
@@ -446,6 +582,13 @@ private LinCompoundTag withChangedTag(String name, LinTag<?> value) {
         if (value.type().id() == LinTagId.END) {
             throw new IllegalArgumentException("Cannot add END tag to compound tag");
         }
+        if (this.value instanceof CompoundValuePersistentMap persistent) {
+            return new LinCompoundTag(persistent.with(name, value), false);
+        }
+        if (this.value.size() >= CompoundValuePersistentMap.RECOMMENDED_MIN_SIZE) {
+            // Large maps switch to sharing structure, so further changes don't copy the whole map
+            return new LinCompoundTag(CompoundValuePersistentMap.copyOf(this.value).with(name, value), false);
+        }
         LinkedHashMap<String, LinTag<?>> newMap = new LinkedHashMap<>(this.value);
         newMap.put(name, value);
         return new LinCompoundTag(copyImmutable(newMap), false);
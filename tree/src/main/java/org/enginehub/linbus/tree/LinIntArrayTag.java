@@ -42,8 +42,14 @@ public static LinIntArrayTag of(int... value) {
     }
 
     private final int[] value;
+    private int hash;
 
-    private LinIntArrayTag(int[] value) {
+    /**
+     * Wraps the given array without cloning it. The caller must not modify the array afterwards.
+     *
+     * @param value the value
+     */
+    LinIntArrayTag(int[] value) {
         this.value = value;
     }
 
@@ -91,22 +97,31 @@ public LinStream linStream() {
     }
 
     @Override
-    public boolean equals(Object o) {
+    public boolean equals(@Nullable Object o) {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        if (!(o instanceof LinIntArrayTag that)) {
+            return false;
+        }
+        // Different hashes mean different values, but only check them if both are known already
+        int hash = this.hash;
+        int thatHash = that.hash;
+        if (hash != 0 && thatHash != 0 && hash != thatHash) {
             return false;
         }
-        LinIntArrayTag that = (LinIntArrayTag) o;
         return Arrays.equals(value, that.value);
     }
 
     @Override
     public int hashCode() {
-        int result = 1;
-        result = 31 * result + Arrays.hashCode(value);
-        return result;
+        // Tags are immutable, so a racy write is fine, every thread computes the same hash
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = 31 + Arrays.hashCode(value);
+            this.hash = hash;
+        }
+        return hash;
     }
 
     @Override
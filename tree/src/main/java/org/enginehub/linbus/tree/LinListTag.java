@@ -20,17 +20,24 @@
 
 import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.PeekableLinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
 import org.enginehub.linbus.stream.internal.FlatteningLinStream;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
+import org.enginehub.linbus.tree.impl.LinTagReader;
+import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Represents a list of {@link LinTag LinTags}.
@@ -43,7 +50,8 @@
      * Creates a new list tag.
      *
      * <p>
-     * The list will be copied as per the {@link List#copyOf(Collection)} method.
+     * The list will be copied as per the {@link List#copyOf(Collection)} method. Lists of numbers are copied into a
+     * primitive array, and their elements are only created when they're read.
      * </p>
      *
      * @param elementType the element type of the list
@@ -63,7 +71,33 @@ public static <T extends LinTag<?>> LinListTag<T> of(
                     + t.type().name());
             }
         }
-        return new LinListTag<>(elementType, List.copyOf(value));
+        return new LinListTag<>(elementType, wrap(elementType, value.toArray()));
+    }
+
+    /**
+     * Wrap the given elements, which must all be of the element type, in a list without copying them, unless they
+     * are numbers that go in a primitive array instead.
+     *
+     * @param elementType the element type
+     * @param elements the elements
+     * @param <T> the type of the elements
+     * @return the list
+     */
+    private static <T extends LinTag<?>> List<T> wrap(LinTagType<T> elementType, Object[] elements) {
+        ListValuePrimitiveList<T> primitives = ListValuePrimitiveList.copyOf(elementType, elements);
+        return primitives != null ? primitives : new ListValueArrayList<>(elements);
+    }
+
+    /**
+     * Wraps the given primitive list.
+     *
+     * @param elementType the element type of the list
+     * @param value the elements, which must not be empty
+     * @param <T> the type of the elements in the list
+     * @return the tag
+     */
+    static <T extends LinTag<?>> LinListTag<T> of(LinTagType<T> elementType, ListValuePrimitiveList<T> value) {
+        return new LinListTag<>(elementType, value);
     }
 
     private static final List<LinListTag<?>> EMPTY_LISTS = Arrays.stream(LinTagId.values())
@@ -84,6 +118,40 @@ public static <T extends LinTag<?>> LinListTag<T> empty(LinTagType<T> elementTyp
         return empty;
     }
 
+    /**
+     * Read the elements of the list at the start of the given stream one by one, without building the list.
+     *
+     * <p>
+     * Elements are split off with {@link LinStream#listElements()} and decoded into tags by whichever thread
+     * processes them, so a {@linkplain Stream#parallel() parallel} stream decodes a large list on several threads.
+     * Once the returned stream is exhausted, the given stream continues after the list.
+     * </p>
+     *
+     * @param tokens the stream to read from, which must start with a list
+     * @param elementType the element type of the list
+     * @param <T> the type of the elements in the list
+     * @return the elements
+     * @throws IOException if an I/O error occurs
+     */
+    public static <T extends LinTag<?>> Stream<T> readElements(
+        LinStream tokens, LinTagType<T> elementType
+    ) throws IOException {
+        PeekableLinStream peekable = tokens.peekable();
+        if (peekable.peekOrNull() instanceof LinToken.ListStart(_, Optional<LinTagId> elementId)
+            && elementId.isPresent() && elementId.get() != LinTagId.END && elementId.get() != elementType.id()) {
+            throw new NbtParseException(
+                "Expected list of " + elementType.name() + ", got list of " + elementId.get().name()
+            );
+        }
+        return peekable.listElements().map(element -> {
+            try {
+                return LinTagReader.readValue(element, elementType);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     /**
      * Creates a new builder for a list of the given element type.
      *
@@ -113,25 +181,69 @@ public static <T extends LinTag<?>> Builder<T> builderWithExpectedSize(
     /**
      * A builder for {@link LinListTag LinListTags}.
      *
+     * <p>
+     * Elements are collected into an array, which is handed over to the built tag if it's the right size. The
+     * builder then copies it before changing it again, as does a builder from {@link #toBuilder()}.
+     * </p>
+     *
      * @param <T> the type of the elements in the list
      */
     public static final class Builder<T extends LinTag<?>> {
+        private static final int DEFAULT_CAPACITY = 10;
+
         private final LinTagType<T> elementType;
-        private final List<T> collector;
+        private Object[] elements;
+        private int size;
+        /**
+         * Whether {@link #elements} is also held by a tag, and must be copied before it's changed.
+         */
+        private boolean shared;
+        /**
+         * The tag this builder was created from, as long as nothing has changed since.
+         */
+        private @Nullable LinListTag<T> unchanged;
 
         private Builder(LinTagType<T> elementType) {
-            this.elementType = elementType;
-            this.collector = new ArrayList<>();
+            this(elementType, DEFAULT_CAPACITY);
         }
 
         private Builder(LinTagType<T> elementType, int expectedSize) {
+            if (expectedSize < 0) {
+                throw new IllegalArgumentException("Illegal Capacity: " + expectedSize);
+            }
             this.elementType = elementType;
-            this.collector = new ArrayList<>(expectedSize);
+            this.elements = new Object[expectedSize];
         }
 
         private Builder(LinListTag<T> base) {
             this.elementType = base.elementType;
-            this.collector = new ArrayList<>(base.value);
+            if (base.value instanceof ListValueArrayList<T> array) {
+                this.elements = array.elements;
+                this.shared = true;
+            } else {
+                this.elements = base.value.toArray();
+            }
+            this.size = this.elements.length;
+            this.unchanged = base;
+        }
+
+        private void checkType(T tag) {
+            if (tag.type() != elementType) {
+                throw new IllegalArgumentException("Element is not of type " + elementType.name() + " but "
+                    + tag.type().name());
+            }
+        }
+
+        private void prepareChange(int capacity) {
+            this.unchanged = null;
+            if (this.shared || capacity > this.elements.length) {
+                int length = this.elements.length;
+                if (capacity > length) {
+                    length = Math.max(capacity, length + (length >> 1));
+                }
+                this.elements = Arrays.copyOf(this.elements, length);
+                this.shared = false;
+            }
         }
 
         /**
@@ -141,11 +253,9 @@ private Builder(LinListTag<T> base) {
          * @return this builder
          */
         public Builder<T> add(T tag) {
-            if (tag.type() != elementType) {
-                throw new IllegalArgumentException("Element is not of type " + elementType.name() + " but "
-                    + tag.type().name());
-            }
-            this.collector.add(tag);
+            checkType(tag);
+            prepareChange(this.size + 1);
+            this.elements[this.size++] = tag;
             return this;
         }
 
@@ -156,6 +266,7 @@ public Builder<T> add(T tag) {
          * @return this builder
          */
         public Builder<T> addAll(Collection<? extends T> tags) {
+            prepareChange(this.size + tags.size());
             tags.forEach(this::add);
             return this;
         }
@@ -168,11 +279,10 @@ public Builder<T> addAll(Collection<? extends T> tags) {
          * @return this builder
          */
         public Builder<T> set(int index, T tag) {
-            if (tag.type() != elementType) {
-                throw new IllegalArgumentException("Element is not of type " + elementType.name() + " but "
-                    + tag.type().name());
-            }
-            this.collector.set(index, tag);
+            checkType(tag);
+            Objects.checkIndex(index, this.size);
+            prepareChange(this.size);
+            this.elements[index] = tag;
             return this;
         }
 
@@ -182,15 +292,34 @@ public Builder<T> set(int index, T tag) {
          * @return the built tag
          */
         public LinListTag<T> build() {
-            if (this.collector.isEmpty()) {
+            if (this.size == 0) {
                 return empty(this.elementType);
             }
-            return new LinListTag<>(this.elementType, List.copyOf(this.collector));
+            LinListTag<T> unchanged = this.unchanged;
+            if (unchanged != null) {
+                return unchanged;
+            }
+            if (this.size != this.elements.length) {
+                this.elements = Arrays.copyOf(this.elements, this.size);
+            }
+            ListValuePrimitiveList<T> primitives = ListValuePrimitiveList.copyOf(this.elementType, this.elements);
+            if (primitives != null) {
+                return new LinListTag<>(this.elementType, primitives);
+            }
+            this.shared = true;
+            return new LinListTag<>(this.elementType, new ListValueArrayList<>(this.elements));
         }
     }
 
+    /**
+     * The smallest list size for which a change switches to a {@link PersistentVector}. Smaller lists are cheap enough
+     * to copy, and keep the faster lookups of a flat array.
+     */
+    private static final int MIN_PERSISTENT_SIZE = 1024;
+
     private final LinTagType<T> elementType;
     private final List<T> value;
+    private int hash;
 
     private LinListTag(LinTagType<T> elementType, List<T> value) {
         Objects.requireNonNull(value, "value is null");
@@ -237,11 +366,53 @@ public List<T> value() {
         return value;
     }
 
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LinListTag<?> that)) {
+            return false;
+        }
+        // Different hashes mean different values, but only check them if both are known already
+        int hash = this.hash;
+        int thatHash = that.hash;
+        if (hash != 0 && thatHash != 0 && hash != thatHash) {
+            return false;
+        }
+        return value.equals(that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        // Tags are immutable, so a racy write is fine, every thread computes the same hash
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = value.hashCode();
+            this.hash = hash;
+        }
+        return hash;
+    }
+
     @Override
     public LinStream linStream() {
+        LinStream elements;
+        if (value instanceof ListValuePrimitiveList<T> primitives) {
+            // Stream the numbers directly, instead of creating a tag for each
+            elements = new LinStream() {
+                private int index;
+
+                @Override
+                public @Nullable LinToken nextOrNull() {
+                    return index < primitives.size() ? primitives.token(index++) : null;
+                }
+            };
+        } else {
+            elements = new FlatteningLinStream(value.iterator());
+        }
         return new SurroundingLinStream(
             new LinToken.ListStart(value.size(), elementType.id()),
-            new FlatteningLinStream(value.iterator()),
+            elements,
             new LinToken.ListEnd()
         );
     }
@@ -256,6 +427,90 @@ public T get(int index) {
         return value.get(index);
     }
 
+    /**
+     * Get the element at the given index as a primitive byte, without creating a tag for it.
+     *
+     * @param index the index of the element to get
+     * @return the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#byteTag()}
+     */
+    public byte getByte(int index) {
+        if (value instanceof ListValuePrimitiveList.Bytes bytes) {
+            return bytes.values[index];
+        }
+        return asTypeChecked(LinTagType.byteTag()).get(index).valueAsByte();
+    }
+
+    /**
+     * Get the element at the given index as a primitive short, without creating a tag for it.
+     *
+     * @param index the index of the element to get
+     * @return the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#shortTag()}
+     */
+    public short getShort(int index) {
+        if (value instanceof ListValuePrimitiveList.Shorts shorts) {
+            return shorts.values[index];
+        }
+        return asTypeChecked(LinTagType.shortTag()).get(index).valueAsShort();
+    }
+
+    /**
+     * Get the element at the given index as a primitive int, without creating a tag for it.
+     *
+     * @param index the index of the element to get
+     * @return the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#intTag()}
+     */
+    public int getInt(int index) {
+        if (value instanceof ListValuePrimitiveList.Ints ints) {
+            return ints.values[index];
+        }
+        return asTypeChecked(LinTagType.intTag()).get(index).valueAsInt();
+    }
+
+    /**
+     * Get the element at the given index as a primitive long, without creating a tag for it.
+     *
+     * @param index the index of the element to get
+     * @return the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#longTag()}
+     */
+    public long getLong(int index) {
+        if (value instanceof ListValuePrimitiveList.Longs longs) {
+            return longs.values[index];
+        }
+        return asTypeChecked(LinTagType.longTag()).get(index).valueAsLong();
+    }
+
+    /**
+     * Get the element at the given index as a primitive float, without creating a tag for it.
+     *
+     * @param index the index of the element to get
+     * @return the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#floatTag()}
+     */
+    public float getFloat(int index) {
+        if (value instanceof ListValuePrimitiveList.Floats floats) {
+            return floats.values[index];
+        }
+        return asTypeChecked(LinTagType.floatTag()).get(index).valueAsFloat();
+    }
+
+    /**
+     * Get the element at the given index as a primitive double, without creating a tag for it.
+     *
+     * @param index the index of the element to get
+     * @return the element at the given index
+     * @throws IllegalStateException if the {@link #elementType()} is not {@link LinTagType#doubleTag()}
+     */
+    public double getDouble(int index) {
+        if (value instanceof ListValuePrimitiveList.Doubles doubles) {
+            return doubles.values[index];
+        }
+        return asTypeChecked(LinTagType.doubleTag()).get(index).valueAsDouble();
+    }
+
     /**
      * Transform the tag at the given index.
      *
@@ -264,9 +519,21 @@ public T get(int index) {
      * @return the new list tag
      */
     public LinListTag<T> transformTag(int index, Function<T, T> transformer) {
-        var newValue = new ArrayList<>(value);
-        newValue.set(index, transformer.apply(value.get(index)));
-        return new LinListTag<>(elementType, List.copyOf(newValue));
+        T transformed = Objects.requireNonNull(transformer.apply(value.get(index)), "transformer returned a null tag");
+        if (value instanceof ListValuePrimitiveList<T> primitives) {
+            // Copying the numbers is cheap enough that they don't need sharing
+            return new LinListTag<>(elementType, primitives.with(index, transformed));
+        }
+        if (value instanceof PersistentVector<T> persistent) {
+            return new LinListTag<>(elementType, persistent.with(index, transformed));
+        }
+        if (value.size() >= MIN_PERSISTENT_SIZE) {
+            // Large lists switch to sharing structure, so further changes don't copy the whole list
+            return new LinListTag<>(elementType, PersistentVector.copyOf(value).with(index, transformed));
+        }
+        Object[] newValue = value.toArray();
+        newValue[index] = transformed;
+        return new LinListTag<>(elementType, new ListValueArrayList<>(newValue));
     }
 
     /**
@@ -43,8 +43,14 @@ public static LinLongArrayTag of(long... value) {
     }
 
     private final long[] value;
+    private int hash;
 
-    private LinLongArrayTag(long[] value) {
+    /**
+     * Wraps the given array without cloning it. The caller must not modify the array afterwards.
+     *
+     * @param value the value
+     */
+    LinLongArrayTag(long[] value) {
         this.value = value;
     }
 
@@ -92,22 +98,31 @@ public LinStream linStream() {
     }
 
     @Override
-    public boolean equals(Object o) {
+    public boolean equals(@Nullable Object o) {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        if (!(o instanceof LinLongArrayTag that)) {
+            return false;
+        }
+        // Different hashes mean different values, but only check them if both are known already
+        int hash = this.hash;
+        int thatHash = that.hash;
+        if (hash != 0 && thatHash != 0 && hash != thatHash) {
             return false;
         }
-        LinLongArrayTag that = (LinLongArrayTag) o;
         return Arrays.equals(value, that.value);
     }
 
     @Override
     public int hashCode() {
-        int result = 1;
-        result = 31 * result + Arrays.hashCode(value);
-        return result;
+        // Tags are immutable, so a racy write is fine, every thread computes the same hash
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = 31 + Arrays.hashCode(value);
+            this.hash = hash;
+        }
+        return hash;
     }
 
     @Override
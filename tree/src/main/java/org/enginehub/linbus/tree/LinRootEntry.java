@@ -22,11 +22,14 @@
 import org.enginehub.linbus.stream.LinBinaryIO;
 import org.enginehub.linbus.stream.LinStream;
 import org.enginehub.linbus.stream.LinStreamable;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.enginehub.linbus.stream.internal.DetachableLinStream;
 import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.enginehub.linbus.tree.impl.LinTagReader;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -47,14 +50,65 @@ public record LinRootEntry(
     /**
      * Read a root entry from the given stream.
      *
+     * <p>
+     * If the stream comes directly from {@link LinBinaryIO#read(java.io.DataInput)} or
+     * {@link LinBinaryIO#readAll(java.io.DataInput)} and hasn't been read from yet, the binary input is decoded
+     * directly into the tree, skipping tokens entirely. The stream is exhausted afterwards in either case.
+     * </p>
+     *
      * @param tokens the stream to read from
      * @return the root entry
      * @throws IOException if an I/O error occurs
      */
     public static LinRootEntry readFrom(LinStream tokens) throws IOException {
+        if (tokens instanceof DetachableLinStream reader) {
+            DetachableLinStream.Detached detached = reader.detach();
+            if (detached != null) {
+                return DirectBinaryReader.readRootAfterId(detached, null);
+            }
+        }
         return LinTagReader.readRoot(tokens);
     }
 
+    /**
+     * Read a root entry from the given stream, {@linkplain LinTagInterner#intern(LinTag) interning} its tags.
+     *
+     * <p>
+     * When the binary input is decoded directly into the tree, as described in {@link #readFrom(LinStream)}, each tag
+     * is interned as soon as it is read, so duplicates become garbage right away instead of making up a second tree.
+     * Otherwise, the tree is interned once it is read. The root compound itself is not interned.
+     * </p>
+     *
+     * @param tokens the stream to read from
+     * @param interner the interner to use
+     * @return the root entry
+     * @throws IOException if an I/O error occurs
+     */
+    public static LinRootEntry readFrom(LinStream tokens, LinTagInterner interner) throws IOException {
+        if (tokens instanceof DetachableLinStream reader) {
+            DetachableLinStream.Detached detached = reader.detach();
+            if (detached != null) {
+                return DirectBinaryReader.readRootAfterId(detached, interner);
+            }
+        }
+        LinRootEntry entry = LinTagReader.readRoot(tokens);
+        return entry.transformValue(interner::internEntries);
+    }
+
+    /**
+     * Create a sink that assembles a root entry from tokens pushed to it, e.g. from a
+     * {@linkplain org.enginehub.linbus.stream.LinFlow#subscriber(LinTokenSink) Flow subscriber}.
+     *
+     * <p>
+     * Optional info is not needed, so nothing is held back: each value is added to the tree as soon as it ends.
+     * </p>
+     *
+     * @return the sink
+     */
+    public static LinTokenSink<LinRootEntry> sink() {
+        return new RootEntryAssembler();
+    }
+
     /**
      * Create a new root entry with the given name and value.
      *
@@ -94,13 +148,32 @@ public LinRootEntry transformValue(Function<LinCompoundTag, LinCompoundTag> valu
     public byte[] writeToArray() {
         var output = new ByteArrayOutputStream();
         try (var dataOutputStream = new DataOutputStream(output)) {
-            LinBinaryIO.write(dataOutputStream, this);
+            writeTo(dataOutputStream);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
         return output.toByteArray();
     }
 
+    /**
+     * Write this entry to a {@link DataOutput}.
+     *
+     * <p>
+     * This produces the same bytes as {@link LinBinaryIO#write(DataOutput, LinStreamable)}, but walks the tree
+     * directly instead of going through a token stream, which is considerably faster.
+     * </p>
+     *
+     * <p>
+     * The output will not be closed by this method. The caller is responsible for managing the lifetime of the output.
+     * </p>
+     *
+     * @param output the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        DirectBinaryWriter.writeRoot(output, name, value);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -19,7 +19,9 @@
 package org.enginehub.linbus.tree;
 
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.ModifiedUtf8String;
 import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
 
 import java.util.Objects;
 
@@ -38,10 +40,27 @@ public static LinStringTag of(String value) {
         return new LinStringTag(value);
     }
 
-    private final String value;
+    /**
+     * Creates a new string tag from its encoded form. It is decoded when the value is first accessed, and written
+     * back byte-for-byte by {@link LinRootEntry#writeTo(java.io.DataOutput)}.
+     *
+     * @param value the encoded value
+     * @return the tag
+     */
+    public static LinStringTag of(ModifiedUtf8String value) {
+        return new LinStringTag(null, Objects.requireNonNull(value, "value is null"));
+    }
+
+    private @Nullable String value;
+    private final @Nullable ModifiedUtf8String encoded;
 
     private LinStringTag(String value) {
-        this.value = Objects.requireNonNull(value, "value is null");
+        this(Objects.requireNonNull(value, "value is null"), null);
+    }
+
+    private LinStringTag(@Nullable String value, @Nullable ModifiedUtf8String encoded) {
+        this.value = value;
+        this.encoded = encoded;
     }
 
     @Override
@@ -51,11 +70,38 @@ public LinTagType<LinStringTag> type() {
 
     @Override
     public String value() {
+        String value = this.value;
+        if (value == null) {
+            value = Objects.requireNonNull(encoded).toString();
+            this.value = value;
+        }
         return value;
     }
 
+    /**
+     * {@return the encoded form this tag was created from, or {@code null} if it was created from a string}
+     */
+    @Nullable ModifiedUtf8String encodedOrNull() {
+        return encoded;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        // Equal bytes always decode to equal strings, so this avoids decoding passed-through strings
+        if (o instanceof LinStringTag that && encoded != null && that.encoded != null
+            && encoded.contentEquals(that.encoded)) {
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
     @Override
     public LinStream linStream() {
-        return LinStream.of(new LinToken.String(value));
+        return LinStream.of(new LinToken.String(value()));
     }
 }
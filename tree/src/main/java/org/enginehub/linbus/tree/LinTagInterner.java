@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.stream.LinStream;
+import org.jspecify.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonicalizes tags, so that equal tags share one instance.
+ *
+ * <p>
+ * Trees read from many documents often repeat the same small tags, such as {@code 0b} and {@code 1b},
+ * {@code "minecraft:air"}, or entire item compounds. Since tags are immutable, one instance can stand in for all the
+ * equal ones. {@link #intern(LinTag)} does this bottom-up: the entries and elements of a compound or list are interned
+ * first, so even compounds that differ only in one entry share the rest.
+ * </p>
+ *
+ * <p>
+ * Only tags that are cheap to compare and likely to repeat are kept: scalars, strings, and compounds and lists of at
+ * most {@value #MAX_CONTAINER_SIZE} entries that consist only of such tags. Arrays are never kept, so a bounded number
+ * of tags also bounds memory. The least recently used tags are evicted once the interner is full.
+ * </p>
+ *
+ * <p>
+ * The interner is safe to use from multiple threads. It is split into stripes, each with its own lock, so that
+ * threads reading different documents rarely wait for each other. To intern trees as they are read, use
+ * {@link LinRootEntry#readFrom(LinStream, LinTagInterner)}.
+ * </p>
+ */
+public final class LinTagInterner {
+    /**
+     * The default {@linkplain #create(int) maximum number of tags}.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1 << 16;
+    /**
+     * The most entries a compound or list may have to be kept.
+     */
+    public static final int MAX_CONTAINER_SIZE = 32;
+
+    private static final int STRIPE_COUNT = 16;
+
+    /**
+     * Create an interner that keeps up to {@value #DEFAULT_MAXIMUM_SIZE} tags.
+     *
+     * @return the interner
+     */
+    public static LinTagInterner create() {
+        return create(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Create an interner.
+     *
+     * @param maximumSize the most tags to keep
+     * @return the interner
+     */
+    public static LinTagInterner create(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        return new LinTagInterner(maximumSize);
+    }
+
+    /**
+     * Check if a tag may be kept.
+     *
+     * @param tag the tag
+     * @param childrenShared whether the entries or elements of the tag, if any, are all kept
+     * @return {@code true} if the tag may be kept
+     */
+    static boolean isShareable(LinTag<?> tag, boolean childrenShared) {
+        return switch (tag) {
+            case LinByteArrayTag _, LinIntArrayTag _, LinLongArrayTag _, LinEndTag _ -> false;
+            case LinCompoundTag compound -> childrenShared && compound.value().size() <= MAX_CONTAINER_SIZE;
+            case LinListTag<?> list -> childrenShared && list.value().size() <= MAX_CONTAINER_SIZE;
+            default -> true;
+        };
+    }
+
+    /**
+     * A part of the interner, with the least recently used tag first.
+     */
+    private static final class Stripe {
+        private final Map<LinTag<?>, LinTag<?>> tags = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maximumSize;
+
+        Stripe(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        int size() {
+            return tags.size();
+        }
+
+        void clear() {
+            tags.clear();
+        }
+
+        @Nullable LinTag<?> putIfAbsent(LinTag<?> tag) {
+            LinTag<?> existing = tags.putIfAbsent(tag, tag);
+            if (existing == null && tags.size() > maximumSize) {
+                var iterator = tags.values().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+            return existing;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    private LinTagInterner(int maximumSize) {
+        int stripeSize = Math.max(1, Math.ceilDiv(maximumSize, STRIPE_COUNT));
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    /**
+     * Get the canonical instance of a tag, interning its entries or elements first.
+     *
+     * <p>
+     * The result is equal to the given tag. It is the given tag itself if the tag is new to this interner and none of
+     * its entries or elements were replaced.
+     * </p>
+     *
+     * @param tag the tag
+     * @param <T> the type of the tag
+     * @return the canonical instance
+     */
+    public <T extends LinTag<?>> T intern(T tag) {
+        @SuppressWarnings("unchecked")
+        T interned = (T) intern(tag, new boolean[]{true});
+        return interned;
+    }
+
+    /**
+     * {@return the number of tags currently kept}
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drop every kept tag.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Intern a tag and its children.
+     *
+     * @param tag the tag
+     * @param shared set to {@code false} if the result is not kept, otherwise left alone
+     * @return the canonical instance
+     */
+    private LinTag<?> intern(LinTag<?> tag, boolean[] shared) {
+        boolean[] childrenShared = {true};
+        LinTag<?> rebuilt = switch (tag) {
+            case LinCompoundTag compound -> internEntries(compound, childrenShared);
+            case LinListTag<?> list -> internElements(list, childrenShared);
+            default -> tag;
+        };
+        if (!isShareable(rebuilt, childrenShared[0])) {
+            shared[0] = false;
+            return rebuilt;
+        }
+        return canonical(rebuilt);
+    }
+
+    /**
+     * Intern the entries of a compound, but not the compound itself, such as a root compound that is unlikely to
+     * repeat.
+     *
+     * @param compound the compound
+     * @return the compound with its entries interned
+     */
+    LinCompoundTag internEntries(LinCompoundTag compound) {
+        return internEntries(compound, new boolean[]{true});
+    }
+
+    private LinCompoundTag internEntries(LinCompoundTag compound, boolean[] childrenShared) {
+        LinCompoundTag.Builder builder = null;
+        for (Map.Entry<String, LinTag<?>> entry : compound.value().entrySet()) {
+            LinTag<?> value = intern(entry.getValue(), childrenShared);
+            if (value != entry.getValue()) {
+                if (builder == null) {
+                    builder = compound.toBuilder();
+                }
+                builder.put(entry.getKey(), value);
+            }
+        }
+        return builder == null ? compound : builder.build();
+    }
+
+    private <T extends LinTag<?>> LinListTag<T> internElements(LinListTag<T> list, boolean[] childrenShared) {
+        List<T> elements = list.value();
+        if (elements instanceof ListValuePrimitiveList<T>) {
+            // The elements are created when they're read, so there's nothing to share
+            return list;
+        }
+        LinListTag.Builder<T> builder = null;
+        for (int i = 0; i < elements.size(); i++) {
+            T element = elements.get(i);
+            @SuppressWarnings("unchecked")
+            T value = (T) intern(element, childrenShared);
+            if (value != element && builder == null) {
+                builder = LinListTag.builderWithExpectedSize(list.elementType(), elements.size());
+                builder.addAll(elements.subList(0, i));
+            }
+            if (builder != null) {
+                builder.add(value);
+            }
+        }
+        return builder == null ? list : builder.build();
+    }
+
+    /**
+     * Get the canonical instance of a tag without looking at its children, keeping the tag if it is new.
+     *
+     * @param tag the tag, which must be {@linkplain #isShareable(LinTag, boolean) shareable}
+     * @return the canonical instance
+     */
+    LinTag<?> canonical(LinTag<?> tag) {
+        int hash = tag.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+        synchronized (stripe) {
+            LinTag<?> existing = stripe.putIfAbsent(tag);
+            return existing == null ? tag : existing;
+        }
+    }
+}
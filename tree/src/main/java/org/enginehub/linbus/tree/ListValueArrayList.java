@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * An immutable list backing for {@link LinListTag} that wraps an array it owns.
+ *
+ * <p>
+ * Unlike {@link java.util.List#copyOf(java.util.Collection)}, this takes the array as-is, so
+ * {@link LinListTag.Builder} can hand its array over to the tag without copying it again.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ */
+final class ListValueArrayList<E> extends AbstractList<E> implements RandomAccess {
+    final Object[] elements;
+
+    /**
+     * Wraps the given array without copying it. The caller must not modify the array afterwards.
+     *
+     * @param elements the elements, none of which may be {@code null}
+     */
+    ListValueArrayList(Object[] elements) {
+        this.elements = elements;
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, elements.length);
+        @SuppressWarnings("unchecked")
+        E element = (E) elements[index];
+        return element;
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        for (Object element : elements) {
+            @SuppressWarnings("unchecked")
+            E cast = (E) element;
+            action.accept(cast);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(elements);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list backing for {@link LinListTag} of numbers, which stores them in a primitive array.
+ *
+ * <p>
+ * A list of number tags holds an object per element, which is several times the size of the number itself and needs
+ * a pointer followed to read it. This holds the numbers directly instead, and creates the element tags when they're
+ * asked for, so element tags from this list are equal to, but not the same as, the tags that were put in it.
+ * {@link LinListTag} offers unboxed accessors, and streams and writes the numbers without creating any tags.
+ * </p>
+ *
+ * @param <T> the type of the elements
+ */
+abstract sealed class ListValuePrimitiveList<T extends LinTag<?>> extends AbstractList<T> implements RandomAccess
+    permits ListValuePrimitiveList.Bytes, ListValuePrimitiveList.Shorts, ListValuePrimitiveList.Ints,
+    ListValuePrimitiveList.Longs, ListValuePrimitiveList.Floats, ListValuePrimitiveList.Doubles {
+
+    /**
+     * Copy the given elements into a primitive array, if the element type is a number type.
+     *
+     * @param elementType the element type
+     * @param elements the elements, all of which must be of the element type
+     * @param <T> the type of the elements
+     * @return the list, or {@code null} if the element type is not a number type
+     */
+    static <T extends LinTag<?>> @Nullable ListValuePrimitiveList<T> copyOf(
+        LinTagType<T> elementType, Object[] elements
+    ) {
+        ListValuePrimitiveList<?> list = switch (elementType.id()) {
+            case BYTE -> {
+                byte[] values = new byte[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ((LinByteTag) elements[i]).valueAsByte();
+                }
+                yield new Bytes(values);
+            }
+            case SHORT -> {
+                short[] values = new short[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ((LinShortTag) elements[i]).valueAsShort();
+                }
+                yield new Shorts(values);
+            }
+            case INT -> {
+                int[] values = new int[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ((LinIntTag) elements[i]).valueAsInt();
+                }
+                yield new Ints(values);
+            }
+            case LONG -> {
+                long[] values = new long[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ((LinLongTag) elements[i]).valueAsLong();
+                }
+                yield new Longs(values);
+            }
+            case FLOAT -> {
+                float[] values = new float[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ((LinFloatTag) elements[i]).valueAsFloat();
+                }
+                yield new Floats(values);
+            }
+            case DOUBLE -> {
+                double[] values = new double[elements.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ((LinDoubleTag) elements[i]).valueAsDouble();
+                }
+                yield new Doubles(values);
+            }
+            default -> null;
+        };
+        @SuppressWarnings("unchecked")
+        ListValuePrimitiveList<T> cast = (ListValuePrimitiveList<T>) list;
+        return cast;
+    }
+
+    /**
+     * {@return the token for the element at the given index}
+     *
+     * @param index the index
+     */
+    abstract LinToken token(int index);
+
+    /**
+     * {@return a copy of this list with the element at the given index replaced}
+     *
+     * @param index the index
+     * @param element the new element
+     */
+    abstract ListValuePrimitiveList<T> with(int index, T element);
+
+    static final class Bytes extends ListValuePrimitiveList<LinByteTag> {
+        final byte[] values;
+
+        /**
+         * Wraps the given array without copying it. The caller must not modify the array afterwards.
+         *
+         * @param values the values
+         */
+        Bytes(byte[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public LinByteTag get(int index) {
+            return LinByteTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Byte(values[index]);
+        }
+
+        @Override
+        Bytes with(int index, LinByteTag element) {
+            byte[] values = this.values.clone();
+            values[index] = element.valueAsByte();
+            return new Bytes(values);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof Bytes that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // The same as hashing the element tags, which hash their boxed value
+            int hash = 1;
+            for (byte value : values) {
+                hash = 31 * hash + Byte.hashCode(value);
+            }
+            return hash;
+        }
+    }
+
+    static final class Shorts extends ListValuePrimitiveList<LinShortTag> {
+        final short[] values;
+
+        /**
+         * Wraps the given array without copying it. The caller must not modify the array afterwards.
+         *
+         * @param values the values
+         */
+        Shorts(short[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public LinShortTag get(int index) {
+            return LinShortTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Short(values[index]);
+        }
+
+        @Override
+        Shorts with(int index, LinShortTag element) {
+            short[] values = this.values.clone();
+            values[index] = element.valueAsShort();
+            return new Shorts(values);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof Shorts that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // The same as hashing the element tags, which hash their boxed value
+            int hash = 1;
+            for (short value : values) {
+                hash = 31 * hash + Short.hashCode(value);
+            }
+            return hash;
+        }
+    }
+
+    static final class Ints extends ListValuePrimitiveList<LinIntTag> {
+        final int[] values;
+
+        /**
+         * Wraps the given array without copying it. The caller must not modify the array afterwards.
+         *
+         * @param values the values
+         */
+        Ints(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public LinIntTag get(int index) {
+            return LinIntTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Int(values[index]);
+        }
+
+        @Override
+        Ints with(int index, LinIntTag element) {
+            int[] values = this.values.clone();
+            values[index] = element.valueAsInt();
+            return new Ints(values);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof Ints that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // The same as hashing the element tags, which hash their boxed value
+            int hash = 1;
+            for (int value : values) {
+                hash = 31 * hash + Integer.hashCode(value);
+            }
+            return hash;
+        }
+    }
+
+    static final class Longs extends ListValuePrimitiveList<LinLongTag> {
+        final long[] values;
+
+        /**
+         * Wraps the given array without copying it. The caller must not modify the array afterwards.
+         *
+         * @param values the values
+         */
+        Longs(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public LinLongTag get(int index) {
+            return LinLongTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Long(values[index]);
+        }
+
+        @Override
+        Longs with(int index, LinLongTag element) {
+            long[] values = this.values.clone();
+            values[index] = element.valueAsLong();
+            return new Longs(values);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof Longs that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // The same as hashing the element tags, which hash their boxed value
+            int hash = 1;
+            for (long value : values) {
+                hash = 31 * hash + Long.hashCode(value);
+            }
+            return hash;
+        }
+    }
+
+    static final class Floats extends ListValuePrimitiveList<LinFloatTag> {
+        final float[] values;
+
+        /**
+         * Wraps the given array without copying it. The caller must not modify the array afterwards.
+         *
+         * @param values the values
+         */
+        Floats(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public LinFloatTag get(int index) {
+            return LinFloatTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Float(values[index]);
+        }
+
+        @Override
+        Floats with(int index, LinFloatTag element) {
+            float[] values = this.values.clone();
+            values[index] = element.valueAsFloat();
+            return new Floats(values);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof Floats that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // The same as hashing the element tags, which hash their boxed value
+            int hash = 1;
+            for (float value : values) {
+                hash = 31 * hash + Float.hashCode(value);
+            }
+            return hash;
+        }
+    }
+
+    static final class Doubles extends ListValuePrimitiveList<LinDoubleTag> {
+        final double[] values;
+
+        /**
+         * Wraps the given array without copying it. The caller must not modify the array afterwards.
+         *
+         * @param values the values
+         */
+        Doubles(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public LinDoubleTag get(int index) {
+            return LinDoubleTag.of(values[index]);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        LinToken token(int index) {
+            return new LinToken.Double(values[index]);
+        }
+
+        @Override
+        Doubles with(int index, LinDoubleTag element) {
+            double[] values = this.values.clone();
+            values[index] = element.valueAsDouble();
+            return new Doubles(values);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (o instanceof Doubles that) {
+                return Arrays.equals(values, that.values);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // The same as hashing the element tags, which hash their boxed value
+            int hash = 1;
+            for (double value : values) {
+                hash = 31 * hash + Double.hashCode(value);
+            }
+            return hash;
+        }
+    }
+}
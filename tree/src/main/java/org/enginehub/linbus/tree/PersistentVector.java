@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list stored in a 32-way trie, so that a changed copy shares everything but the path to the change.
+ *
+ * <p>
+ * Replacing or appending an element copies at most one node per level, which is a handful of small arrays even for
+ * millions of elements. Lookups pay for that with one indirection per level, so this is only used for large tags that
+ * are actually being changed.
+ * </p>
+ *
+ * @param <E> the type of the elements
+ */
+final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[0]);
+
+    /**
+     * Copy the given list into a vector.
+     *
+     * @param source the list to copy
+     * @param <E> the type of the elements
+     * @return the vector
+     */
+    static <E> PersistentVector<E> copyOf(List<? extends E> source) {
+        if (source instanceof PersistentVector<? extends E> vector) {
+            @SuppressWarnings("unchecked")
+            PersistentVector<E> cast = (PersistentVector<E>) vector;
+            return cast;
+        }
+        return copyOf(source.toArray());
+    }
+
+    /**
+     * Copy the given elements into a vector.
+     *
+     * @param elements the elements to copy
+     * @param <E> the type of the elements
+     * @return the vector
+     */
+    static <E> PersistentVector<E> copyOf(Object[] elements) {
+        if (elements.length == 0) {
+            @SuppressWarnings("unchecked")
+            PersistentVector<E> empty = (PersistentVector<E>) EMPTY;
+            return empty;
+        }
+        // Build the trie bottom-up, a full level at a time
+        Object[] level = elements;
+        int shift = 0;
+        while (true) {
+            Object[] nodes = new Object[Math.ceilDiv(level.length, WIDTH)];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = Arrays.copyOfRange(level, i * WIDTH, Math.min(level.length, (i + 1) * WIDTH));
+            }
+            if (nodes.length == 1) {
+                return new PersistentVector<>(elements.length, shift, (Object[]) nodes[0]);
+            }
+            level = nodes;
+            shift += BITS;
+        }
+    }
+
+    private final int size;
+    /**
+     * The shift to get the index in the root node, which is {@code 0} if the root is a leaf.
+     */
+    private final int shift;
+    /**
+     * The root node. Nodes are only as long as the children they hold, so the rightmost ones may be short.
+     */
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    private Object[] leafFor(int index) {
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        @SuppressWarnings("unchecked")
+        E element = (E) leafFor(index)[index & MASK];
+        return element;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@return a copy of this vector with the element at the given index replaced}
+     *
+     * @param index the index of the element to replace
+     * @param element the new element
+     */
+    PersistentVector<E> with(int index, E element) {
+        Objects.checkIndex(index, size);
+        return new PersistentVector<>(size, shift, setIn(root, shift, index, element));
+    }
+
+    private static Object[] setIn(Object[] node, int level, int index, Object element) {
+        Object[] copy = node.clone();
+        int slot = (index >>> level) & MASK;
+        copy[slot] = level == 0 ? element : setIn((Object[]) node[slot], level - BITS, index, element);
+        return copy;
+    }
+
+    /**
+     * {@return a copy of this vector with the given element appended}
+     *
+     * @param element the element to append
+     */
+    PersistentVector<E> plus(E element) {
+        if (size == 0) {
+            return new PersistentVector<>(1, 0, new Object[] {element});
+        }
+        // The trie is full if the index would need another level
+        if ((size >>> shift) >= WIDTH) {
+            Object[] root = {this.root, newPath(shift, element)};
+            return new PersistentVector<>(size + 1, shift + BITS, root);
+        }
+        return new PersistentVector<>(size + 1, shift, pushIn(root, shift, size, element));
+    }
+
+    private static Object[] pushIn(Object[] node, int level, int index, Object element) {
+        int slot = (index >>> level) & MASK;
+        Object[] copy = Arrays.copyOf(node, Math.max(node.length, slot + 1));
+        if (level == 0) {
+            copy[slot] = element;
+        } else if (slot < node.length) {
+            copy[slot] = pushIn((Object[]) node[slot], level - BITS, index, element);
+        } else {
+            copy[slot] = newPath(level - BITS, element);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object element) {
+        Object[] node = {element};
+        for (int i = 0; i < level; i += BITS) {
+            node = new Object[] {node};
+        }
+        return node;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int index;
+            private Object[] leaf = root;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                // Only walk down the trie once per leaf
+                if ((index & MASK) == 0) {
+                    leaf = leafFor(index);
+                }
+                @SuppressWarnings("unchecked")
+                E element = (E) leaf[index & MASK];
+                index++;
+                return element;
+            }
+        };
+    }
+}
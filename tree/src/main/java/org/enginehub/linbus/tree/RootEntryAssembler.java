@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Assembles a root entry from tokens pushed to it, for {@link LinRootEntry#sink()}.
+ *
+ * <p>
+ * Unlike {@link org.enginehub.linbus.tree.impl.LinTagReader}, this never needs optional info to be calculated: list
+ * element types are taken from the elements if they're not declared, and arrays grow as their content arrives.
+ * Nesting is tracked with an explicit stack, like {@link DirectBinaryReader}.
+ * </p>
+ */
+final class RootEntryAssembler implements LinTokenSink<LinRootEntry> {
+    /**
+     * The largest declared array size we trust for pre-sizing, since it's not validated until the content arrives.
+     */
+    private static final int MAX_EXPECTED_SIZE = 1 << 16;
+
+    /**
+     * A compound, list or array that is still being assembled.
+     */
+    private abstract static sealed class Frame permits CompoundFrame, ListFrame, ArrayFrame {
+        /**
+         * The name to put the finished tag under, if the parent is a compound.
+         */
+        final @Nullable String name;
+
+        Frame(@Nullable String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class CompoundFrame extends Frame {
+        final LinCompoundTag.Builder builder = LinCompoundTag.builder();
+        @Nullable String nextName;
+
+        CompoundFrame(@Nullable String name) {
+            super(name);
+        }
+    }
+
+    private static final class ListFrame extends Frame {
+        final @Nullable LinTagId declaredElementId;
+        final List<LinTag<?>> elements = new ArrayList<>();
+
+        ListFrame(@Nullable String name, @Nullable LinTagId declaredElementId) {
+            super(name);
+            this.declaredElementId = declaredElementId;
+        }
+    }
+
+    private static final class ArrayFrame extends Frame {
+        final LinTagId id;
+        ByteBuffer data;
+
+        ArrayFrame(@Nullable String name, LinTagId id, int width, int expectedLength) {
+            super(name);
+            this.id = id;
+            this.data = ByteBuffer.allocate(Math.min(expectedLength, MAX_EXPECTED_SIZE) * width);
+        }
+
+        ByteBuffer reserve(int bytes) {
+            if (data.remaining() < bytes) {
+                int capacity = Math.max(data.position() + bytes, data.capacity() * 2);
+                data = ByteBuffer.allocate(capacity).put(data.flip());
+            }
+            return data;
+        }
+    }
+
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private @Nullable String rootName;
+    private @Nullable LinRootEntry result;
+
+    @Override
+    public void accept(LinToken token) {
+        if (result != null) {
+            throw new NbtParseException("Expected the end of the root, got " + token);
+        }
+        if (rootName == null) {
+            if (!(token instanceof LinToken.Name(String name, var id))
+                || id.isPresent() && id.get() != LinTagId.COMPOUND) {
+                throw new NbtParseException("Expected root name, got " + token);
+            }
+            rootName = name;
+            return;
+        }
+        Frame top = stack.peekLast();
+        if (top == null && !(token instanceof LinToken.CompoundStart)) {
+            throw new NbtParseException("Expected compound tag for root tag, got " + token);
+        }
+        if (top instanceof ArrayFrame array) {
+            acceptArrayToken(array, token);
+            return;
+        }
+        if (token instanceof LinToken.Name(String name, var _)) {
+            if (!(top instanceof CompoundFrame compound) || compound.nextName != null) {
+                throw new NbtParseException("Unexpected name: " + name);
+            }
+            compound.nextName = name;
+            return;
+        }
+        String name = null;
+        if (top instanceof CompoundFrame compound && !(token instanceof LinToken.CompoundEnd)) {
+            name = compound.nextName;
+            if (name == null) {
+                throw new NbtParseException("Expected name, got " + token);
+            }
+            compound.nextName = null;
+        }
+        switch (token) {
+            case LinToken.Byte(byte value) -> complete(name, LinByteTag.of(value));
+            case LinToken.Short(short value) -> complete(name, LinShortTag.of(value));
+            case LinToken.Int(int value) -> complete(name, LinIntTag.of(value));
+            case LinToken.Long(long value) -> complete(name, LinLongTag.of(value));
+            case LinToken.Float(float value) -> complete(name, LinFloatTag.of(value));
+            case LinToken.Double(double value) -> complete(name, LinDoubleTag.of(value));
+            case LinToken.String(String value) -> complete(name, LinStringTag.of(value));
+            case LinToken.CompoundStart _ -> stack.addLast(new CompoundFrame(name));
+            case LinToken.ListStart(var _, var elementId) -> {
+                // Empty lists may declare any element type, so it only matters if there are no elements
+                stack.addLast(new ListFrame(name, elementId.orElse(null)));
+            }
+            case LinToken.ByteArrayStart(var size) -> stack.addLast(
+                new ArrayFrame(name, LinTagId.BYTE_ARRAY, Byte.BYTES, size.orElse(0))
+            );
+            case LinToken.IntArrayStart(var size) -> stack.addLast(
+                new ArrayFrame(name, LinTagId.INT_ARRAY, Integer.BYTES, size.orElse(0))
+            );
+            case LinToken.LongArrayStart(var size) -> stack.addLast(
+                new ArrayFrame(name, LinTagId.LONG_ARRAY, Long.BYTES, size.orElse(0))
+            );
+            case LinToken.CompoundEnd _ when top instanceof CompoundFrame compound -> {
+                if (compound.nextName != null) {
+                    throw new NbtParseException("Expected value for " + compound.nextName + ", got " + token);
+                }
+                stack.removeLast();
+                complete(compound.name, compound.builder.build());
+            }
+            case LinToken.ListEnd _ when top instanceof ListFrame list -> {
+                stack.removeLast();
+                complete(list.name, buildList(list));
+            }
+            default -> throw new NbtParseException("Unexpected token: " + token);
+        }
+    }
+
+    private void acceptArrayToken(ArrayFrame array, LinToken token) {
+        switch (token) {
+            case LinToken.ByteArrayContent(ByteBuffer buffer) when array.id == LinTagId.BYTE_ARRAY ->
+                array.reserve(buffer.remaining()).put(buffer.duplicate());
+            case LinToken.IntArrayContent(IntBuffer buffer) when array.id == LinTagId.INT_ARRAY -> {
+                ByteBuffer data = array.reserve(buffer.remaining() * Integer.BYTES);
+                data.asIntBuffer().put(buffer.duplicate());
+                data.position(data.position() + buffer.remaining() * Integer.BYTES);
+            }
+            case LinToken.LongArrayContent(LongBuffer buffer) when array.id == LinTagId.LONG_ARRAY -> {
+                ByteBuffer data = array.reserve(buffer.remaining() * Long.BYTES);
+                data.asLongBuffer().put(buffer.duplicate());
+                data.position(data.position() + buffer.remaining() * Long.BYTES);
+            }
+            case LinToken.ByteArrayEnd _ when array.id == LinTagId.BYTE_ARRAY -> {
+                byte[] value = new byte[array.data.flip().remaining()];
+                array.data.get(value);
+                stack.removeLast();
+                complete(array.name, new LinByteArrayTag(value));
+            }
+            case LinToken.IntArrayEnd _ when array.id == LinTagId.INT_ARRAY -> {
+                IntBuffer data = array.data.flip().asIntBuffer();
+                int[] value = new int[data.remaining()];
+                data.get(value);
+                stack.removeLast();
+                complete(array.name, new LinIntArrayTag(value));
+            }
+            case LinToken.LongArrayEnd _ when array.id == LinTagId.LONG_ARRAY -> {
+                LongBuffer data = array.data.flip().asLongBuffer();
+                long[] value = new long[data.remaining()];
+                data.get(value);
+                stack.removeLast();
+                complete(array.name, new LinLongArrayTag(value));
+            }
+            default -> throw new NbtParseException("Expected " + array.id.name() + " content, got " + token);
+        }
+    }
+
+    private static LinListTag<?> buildList(ListFrame list) {
+        LinTagType<LinTag<?>> elementType;
+        if (!list.elements.isEmpty()) {
+            elementType = LinTagType.fromId(list.elements.getFirst().type().id());
+        } else {
+            elementType = LinTagType.fromId(list.declaredElementId == null ? LinTagId.END : list.declaredElementId);
+        }
+        var builder = LinListTag.builderWithExpectedSize(elementType, list.elements.size());
+        for (LinTag<?> element : list.elements) {
+            builder.add(element);
+        }
+        return builder.build();
+    }
+
+    private void complete(@Nullable String name, LinTag<?> tag) {
+        switch (stack.peekLast()) {
+            case null -> {
+                // Only the root compound has no parent
+                String rootName = this.rootName;
+                if (rootName == null) {
+                    throw new IllegalStateException("Root completed before its name");
+                }
+                result = new LinRootEntry(rootName, (LinCompoundTag) tag);
+            }
+            case CompoundFrame parent -> {
+                if (name == null) {
+                    throw new IllegalStateException("Compound entry has no name");
+                }
+                parent.builder.put(name, tag);
+            }
+            case ListFrame parent -> parent.elements.add(tag);
+            case ArrayFrame _ -> throw new IllegalStateException("Value inside an array");
+        }
+    }
+
+    @Override
+    public LinRootEntry finish() {
+        LinRootEntry result = this.result;
+        if (result == null) {
+            throw new NbtParseException("Tokens ended before the end of the root value");
+        }
+        return result;
+    }
+}
@@ -20,8 +20,8 @@
 
 import org.enginehub.linbus.common.LinTagId;
 import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.PeekableLinStream;
 import org.enginehub.linbus.stream.exception.NbtParseException;
-import org.enginehub.linbus.stream.internal.SurroundingLinStream;
 import org.enginehub.linbus.stream.token.LinToken;
 import org.enginehub.linbus.tree.LinByteArrayTag;
 import org.enginehub.linbus.tree.LinByteTag;
@@ -61,14 +61,14 @@ public class LinTagReader {
      * @throws IOException if an I/O error occurs
      */
     public static LinRootEntry readRoot(LinStream tokens) throws IOException {
-        tokens = tokens.calculateOptionalInfo();
-        if (!(tokens.nextOrNull() instanceof LinToken.Name name)) {
+        PeekableLinStream peekable = tokens.calculateOptionalInfo().peekable();
+        if (!(peekable.nextOrNull() instanceof LinToken.Name name)) {
             throw new NbtParseException("Expected root name");
         }
         if (name.id().orElseThrow() != LinTagId.COMPOUND) {
             throw new NbtParseException("Expected compound tag for root tag");
         }
-        var tag = readCompound(tokens);
+        var tag = readCompound(peekable);
         return new LinRootEntry(name.name(), tag);
     }
 
@@ -84,7 +84,32 @@ public static LinRootEntry readRoot(LinStream tokens) throws IOException {
      * @throws IOException if an I/O error occurs
      */
     public static LinCompoundTag readCompound(LinStream tokens) throws IOException {
-        tokens = tokens.calculateOptionalInfo();
+        return readCompound(tokens.calculateOptionalInfo().peekable());
+    }
+
+    /**
+     * Read a value of a known type.
+     *
+     * <p>
+     * This will {@linkplain LinStream#calculateOptionalInfo() calculate optional info} before reading.
+     * </p>
+     *
+     * @param tokens the tokens to read from
+     * @param type the type of the value
+     * @param <T> the type of the value
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     */
+    public static <T extends LinTag<?>> T readValue(LinStream tokens, LinTagType<T> type) throws IOException {
+        PeekableLinStream peekable = tokens.calculateOptionalInfo().peekable();
+        var next = peekable.peekOrNull();
+        if (next == null || next.tagId().orElse(null) != type.id()) {
+            throw new NbtParseException("Expected " + type.name() + " value, got " + next);
+        }
+        return readValue(peekable, type);
+    }
+
+    private static LinCompoundTag readCompound(PeekableLinStream tokens) throws IOException {
         if (!(tokens.nextOrNull() instanceof LinToken.CompoundStart)) {
             throw new NbtParseException("Expected compound start");
         }
@@ -106,7 +131,7 @@ public static LinCompoundTag readCompound(LinStream tokens) throws IOException {
         throw new NbtParseException("Expected compound end");
     }
 
-    private static LinByteArrayTag readByteArray(LinStream tokens) throws IOException {
+    private static LinByteArrayTag readByteArray(PeekableLinStream tokens) throws IOException {
         if (!(tokens.nextOrNull() instanceof LinToken.ByteArrayStart start)) {
             throw new NbtParseException("Expected byte array start");
         }
@@ -130,7 +155,7 @@ private static LinByteArrayTag readByteArray(LinStream tokens) throws IOExceptio
         throw new NbtParseException("Expected byte array end");
     }
 
-    private static LinIntArrayTag readIntArray(LinStream tokens) throws IOException {
+    private static LinIntArrayTag readIntArray(PeekableLinStream tokens) throws IOException {
         if (!(tokens.nextOrNull() instanceof LinToken.IntArrayStart start)) {
             throw new NbtParseException("Expected int array start");
         }
@@ -154,7 +179,7 @@ private static LinIntArrayTag readIntArray(LinStream tokens) throws IOException
         throw new NbtParseException("Expected int array end");
     }
 
-    private static LinLongArrayTag readLongArray(LinStream tokens) throws IOException {
+    private static LinLongArrayTag readLongArray(PeekableLinStream tokens) throws IOException {
         if (!(tokens.nextOrNull() instanceof LinToken.LongArrayStart start)) {
             throw new NbtParseException("Expected long array start");
         }
@@ -178,7 +203,7 @@ private static LinLongArrayTag readLongArray(LinStream tokens) throws IOExceptio
         throw new NbtParseException("Expected long array end");
     }
 
-    private static <T extends LinTag<?>> LinListTag<T> readList(LinStream tokens) throws IOException {
+    private static <T extends LinTag<?>> LinListTag<T> readList(PeekableLinStream tokens) throws IOException {
         if (!(tokens.nextOrNull() instanceof LinToken.ListStart start)) {
             throw new NbtParseException("Expected list start");
         }
@@ -194,14 +219,13 @@ private static <T extends LinTag<?>> LinListTag<T> readList(LinStream tokens) th
         return builder.build();
     }
 
-    private static <T extends LinTag<?>> T readValue(LinStream tokens, @Nullable LinTagType<T> id) throws IOException {
+    private static <T extends LinTag<?>> T readValue(PeekableLinStream tokens, @Nullable LinTagType<T> id) throws IOException {
         if (id == null) {
-            var next = tokens.nextOrNull();
+            var next = tokens.peekOrNull();
             if (next == null) {
                 throw new NbtParseException("Expected value, got end of stream");
             }
             id = LinTagType.fromId(next.tagId().orElseThrow(() -> new NbtParseException("Expected value, got " + next)));
-            tokens = new SurroundingLinStream(next, tokens, null);
         }
         return id.cast(switch (id.id()) {
             case BYTE_ARRAY -> readByteArray(tokens);
@@ -20,6 +20,8 @@
 
 import org.junit.jupiter.api.Test;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -182,4 +184,113 @@ void largeMapLookupsAndOrder() {
         assertThat(map.get("key-200")).isNull();
         assertThat(List.copyOf(map.keySet())).isEqualTo(expectedOrder);
     }
+
+    private static CompoundShape shapeOf(Map<String, ? extends LinTag<?>> entries) {
+        return ((AbstractCompoundValueMap) valueOf(entries)).shape;
+    }
+
+    @Test
+    void sharesShapesBetweenCompoundsWithTheSameKeys() {
+        var stone = LinCompoundTag.builder().putString("id", "minecraft:stone").putByte("Count", (byte) 1).build();
+        var dirt = LinCompoundTag.builder().putString("id", "minecraft:dirt").putByte("Count", (byte) 64).build();
+        var shape = ((AbstractCompoundValueMap) stone.value()).shape;
+        assertThat(((AbstractCompoundValueMap) dirt.value()).shape).isSameInstanceAs(shape);
+        assertThat(shape.keys).asList().containsExactly("id", "Count").inOrder();
+
+        // The order is part of the shape
+        var reversed = LinCompoundTag.builder().putByte("Count", (byte) 1).putString("id", "minecraft:stone").build();
+        assertThat(((AbstractCompoundValueMap) reversed.value()).shape).isNotSameInstanceAs(shape);
+        assertThat(reversed).isEqualTo(stone);
+
+        // Hash indexes are shared too
+        var large = sizedSource(CompoundValueLinearMap.RECOMMENDED_MAX_LINEAR_SIZE + 1);
+        assertThat(shapeOf(large).hashIndex()).isSameInstanceAs(shapeOf(sizedSource(large.size())).hashIndex());
+    }
+
+    @Test
+    void givesLargeCompoundsTheirOwnShape() {
+        var source = sizedSource(CompoundShape.MAX_SHARED_SIZE + 1);
+        assertThat(shapeOf(source)).isNotSameInstanceAs(shapeOf(source));
+        assertThat(shapeOf(source).keys).asList().isEqualTo(List.copyOf(source.keySet()));
+    }
+
+    @Test
+    void sharesShapesForAnyNumberOfDistinctKeys() {
+        var maps = new ArrayList<Map<String, LinTag<?>>>();
+        for (int i = 0; i < 20_000; i++) {
+            var source = new LinkedHashMap<String, LinTag<?>>();
+            source.put("transition_" + i, LinIntTag.of(i));
+            source.put("transitions", LinIntTag.of(i));
+            var map = valueOf(source);
+            assertThat(List.copyOf(map.keySet())).isEqualTo(List.copyOf(source.keySet()));
+            assertThat(map.get("transition_" + i)).isEqualTo(LinIntTag.of(i));
+            maps.add(map);
+        }
+        // Even after many keys from the empty shape, the same keys still find the same shape
+        for (int i : new int[]{0, 19_999}) {
+            var again = new LinkedHashMap<String, LinTag<?>>();
+            again.put("transition_" + i, LinIntTag.of(0));
+            again.put("transitions", LinIntTag.of(0));
+            assertThat(shapeOf(again)).isSameInstanceAs(((AbstractCompoundValueMap) maps.get(i)).shape);
+        }
+    }
+
+    @Test
+    void dropsShapesThatAreNoLongerUsed() throws InterruptedException {
+        var source = new LinkedHashMap<String, LinTag<?>>();
+        source.put("only_used_here", LinIntTag.of(0));
+        source.put("and_here", LinIntTag.of(0));
+        var shape = new WeakReference<>(shapeOf(source));
+        for (int i = 0; i < 100 && !shape.refersTo(null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(shape.refersTo(null)).isTrue();
+    }
+
+    @Test
+    void rejectsNullKeysAndValues() {
+        var nullKey = new LinkedHashMap<String, LinTag<?>>();
+        nullKey.put("a", LinIntTag.of(1));
+        nullKey.put(null, LinIntTag.of(2));
+        var ex = assertThrows(NullPointerException.class, () -> new CompoundValueLinearMap(nullKey));
+        assertThat(ex).hasMessageThat().isEqualTo("compound key is null");
+        var nullValue = new LinkedHashMap<String, LinTag<?>>();
+        nullValue.put("a", LinIntTag.of(1));
+        nullValue.put("b", null);
+        ex = assertThrows(NullPointerException.class, () -> new CompoundValueLinearMap(nullValue));
+        assertThat(ex).hasMessageThat().isEqualTo("compound value is null");
+    }
+
+    @Test
+    void equalsComparesAcrossShapesAndMaps() {
+        for (int size : new int[] {2, CompoundShape.MAX_SHARED_SIZE + 1}) {
+            Map<String, LinTag<?>> source = sizedSource(size);
+            var map = valueOf(source);
+            // Shared shapes for small maps, equal keys in their own shapes for large ones
+            assertWithMessage("size %s", size).that(map).isEqualTo(valueOf(sizedSource(size)));
+            assertWithMessage("size %s", size).that(map.hashCode()).isEqualTo(source.hashCode());
+
+            var reversed = new LinkedHashMap<String, LinTag<?>>();
+            List.copyOf(source.entrySet()).reversed().forEach(e -> reversed.put(e.getKey(), e.getValue()));
+            assertWithMessage("size %s", size).that(map).isEqualTo(valueOf(reversed));
+            assertWithMessage("size %s", size).that(map).isEqualTo(reversed);
+
+            var changed = new LinkedHashMap<>(reversed);
+            changed.put("entry_0", LinIntTag.of(-1));
+            assertWithMessage("size %s", size).that(map).isNotEqualTo(valueOf(changed));
+            assertWithMessage("size %s", size).that(map).isNotEqualTo(changed);
+            var renamed = new LinkedHashMap<>(reversed);
+            renamed.put("other", renamed.remove("entry_0"));
+            assertWithMessage("size %s", size).that(map).isNotEqualTo(valueOf(renamed));
+            assertWithMessage("size %s", size).that(map).isNotEqualTo(renamed);
+        }
+        var map = valueOf(sizedSource(2));
+        assertThat(map).isNotEqualTo(valueOf(sizedSource(3)));
+        assertThat(map).isNotEqualTo(sizedSource(3));
+        assertThat(map).isNotEqualTo(List.of());
+        // Maps that can't take string keys are just not equal
+        var integerKeys = new java.util.TreeMap<Integer, LinTag<?>>(Map.of(0, LinIntTag.of(0), 1, LinIntTag.of(1)));
+        assertThat(map.equals(integerKeys)).isFalse();
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompoundValuePersistentMapTest {
+    private static LinkedHashMap<String, LinTag<?>> sizedSource(int size) {
+        var source = new LinkedHashMap<String, LinTag<?>>();
+        for (int i = 0; i < size; i++) {
+            source.put("entry_" + i, LinIntTag.of(i));
+        }
+        return source;
+    }
+
+    private static void assertMatches(Map<String, LinTag<?>> map, Map<String, LinTag<?>> expected) {
+        assertThat(map).isEqualTo(expected);
+        assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(List.copyOf(map.keySet())).isEqualTo(List.copyOf(expected.keySet()));
+        for (var entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+            assertThat(map.containsKey(entry.getKey())).isTrue();
+            assertThat(map.entrySet().contains(entry)).isTrue();
+        }
+    }
+
+    @Test
+    void matchesALinkedHashMapWhenChanged() {
+        var random = new Random(42);
+        var expected = sizedSource(300);
+        var map = CompoundValuePersistentMap.copyOf(expected);
+        for (int i = 0; i < 2000; i++) {
+            // Mostly replacements, some new keys
+            String key = random.nextInt(4) == 0 ? "new_" + i : "entry_" + random.nextInt(300);
+            expected.put(key, LinIntTag.of(-i));
+            map = map.with(key, LinIntTag.of(-i));
+        }
+        assertMatches(map, expected);
+        assertThat(map.get("missing")).isNull();
+        assertThat(map.containsKey(42)).isFalse();
+        assertThat(map.entrySet().contains(Map.entry("entry_0", LinIntTag.of(1_000_000)))).isFalse();
+        assertThat(map.entrySet().contains((Object) "not an entry")).isFalse();
+    }
+
+    @Test
+    void leavesTheOriginalAlone() {
+        var source = sizedSource(10);
+        var original = CompoundValuePersistentMap.copyOf(source);
+        var changed = original.with("entry_5", LinStringTag.of("five")).with("extra", LinByteTag.of((byte) 1));
+        assertMatches(original, source);
+        assertThat(changed.get("entry_5")).isEqualTo(LinStringTag.of("five"));
+        assertThat(changed.get("extra")).isEqualTo(LinByteTag.of((byte) 1));
+        assertThat(changed).hasSize(11);
+    }
+
+    @Test
+    void handlesHashCodeCollisions() {
+        // Every key shares the same String.hashCode(), so only the deeper levels can tell them apart
+        var expected = new LinkedHashMap<String, LinTag<?>>();
+        for (int i = 0; i < 512; i++) {
+            var key = new StringBuilder();
+            for (int bit = 0; bit < 9; bit++) {
+                key.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+            }
+            expected.put(key.toString(), LinIntTag.of(i));
+        }
+        assertThat(expected.keySet().stream().map(String::hashCode).distinct().count()).isEqualTo(1);
+        var map = CompoundValuePersistentMap.copyOf(expected);
+        assertMatches(map, expected);
+        map = map.with("AaAaAaAaAaAaAaAaAa", LinIntTag.of(-1));
+        expected.put("AaAaAaAaAaAaAaAaAa", LinIntTag.of(-1));
+        assertMatches(map, expected);
+        assertThat(map.get("AaAaAaAaAaAaAaAaBBBB")).isNull();
+    }
+
+    @Test
+    void collisionNodesSearchLinearly() {
+        CompoundValuePersistentMap.Node node = new CompoundValuePersistentMap.CollisionNode(
+            new String[] {"a", "b"}, new int[] {0, 1}
+        );
+        node = node.put("c", "c".hashCode(), 0, 2).put("a", "a".hashCode(), 0, 3);
+        assertThat(node.indexOf("a", "a".hashCode(), 0)).isEqualTo(3);
+        assertThat(node.indexOf("b", "b".hashCode(), 0)).isEqualTo(1);
+        assertThat(node.indexOf("c", "c".hashCode(), 0)).isEqualTo(2);
+        assertThat(node.indexOf("d", "d".hashCode(), 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void isImmutable() {
+        var map = CompoundValuePersistentMap.copyOf(sizedSource(3));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", LinIntTag.of(1)));
+        assertThrows(UnsupportedOperationException.class, () -> map.remove("absent"));
+        assertThrows(UnsupportedOperationException.class, () -> map.putAll(Map.of()));
+        assertThrows(UnsupportedOperationException.class, map::clear);
+        var entry = map.entrySet().iterator().next();
+        assertThrows(UnsupportedOperationException.class, () -> entry.setValue(LinIntTag.of(9)));
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinReadOptions;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.internal.DetachableLinStream;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DirectBinaryReaderTest {
+    private static byte[] loadResource(String name) throws IOException {
+        try (var stream = new GZIPInputStream(Resources.asByteSource(Resources.getResource(name)).openStream())) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static LinRootEntry readDirectly(byte[] data) throws IOException {
+        return LinRootEntry.readFrom(LinBinaryIO.read(ByteStreams.newDataInput(data)));
+    }
+
+    private static LinRootEntry readWithTokens(byte[] data) throws IOException {
+        // Wrapping the stream hides the binary reader, forcing the token path
+        LinStream reader = LinBinaryIO.read(ByteStreams.newDataInput(data));
+        return LinRootEntry.readFrom(reader::nextOrNull);
+    }
+
+    private static void assertSameAsTokenReader(byte[] data) throws IOException {
+        assertThat(readDirectly(data)).isEqualTo(readWithTokens(data));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"all-types.nbt.gz", "bigtest.nbt.gz"})
+    void readsFixtures(String name) throws IOException {
+        assertSameAsTokenReader(loadResource(name));
+    }
+
+    @Test
+    void readsEveryTagType() throws IOException {
+        var entry = new LinRootEntry("root", LinCompoundTag.builder()
+            .putByte("byte", (byte) 1)
+            .putShort("short", (short) -2)
+            .putInt("int", 3)
+            .putLong("long", -4L)
+            .putFloat("float", 5.5F)
+            .putDouble("double", -6.25)
+            .putString("string", "seven")
+            .putByteArray("byteArray", new byte[]{8, 9})
+            .putIntArray("intArray", new int[]{10, -11})
+            .putLongArray("longArray", new long[]{12, Long.MIN_VALUE})
+            .putList("list", LinTagType.intTag(), List.of(LinIntTag.of(14), LinIntTag.of(15)))
+            .putList("emptyList", LinTagType.endTag(), List.of())
+            .putList("emptyStringList", LinTagType.stringTag(), List.of())
+            .putList("nestedLists", LinTagType.<LinByteTag>listTag(), List.of(
+                LinListTag.of(LinTagType.byteTag(), List.of(LinByteTag.of((byte) 16))),
+                LinListTag.empty(LinTagType.byteTag())
+            ))
+            .putList("compounds", LinTagType.compoundTag(), List.of(
+                LinCompoundTag.of(Map.of("a", LinIntTag.of(17))),
+                LinCompoundTag.of(Map.of())
+            ))
+            .putCompound("compound", Map.of("nested", LinStringTag.of("value")))
+            .build()
+        );
+        byte[] data = entry.writeToArray();
+        assertThat(readDirectly(data)).isEqualTo(entry);
+        assertSameAsTokenReader(data);
+    }
+
+    @Test
+    void readsArraysLargerThanTheScratchBuffer() throws IOException {
+        byte[] bytes = new byte[20_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        var entry = new LinRootEntry("", LinCompoundTag.builder()
+            .putByte("pad", (byte) 0)
+            .putByteArray("bytes", bytes)
+            .putIntArray("ints", IntStream.range(0, 5_000).map(i -> i * 31).toArray())
+            .putLongArray("longs", IntStream.range(0, 3_000).mapToLong(i -> i * 31L << 32).toArray())
+            .putIntArray("emptyInts", new int[0])
+            .build()
+        );
+        assertThat(readDirectly(entry.writeToArray())).isEqualTo(entry);
+    }
+
+    @Test
+    void readsNumberListsIntoPrimitiveArrays() throws IOException {
+        // Large enough to grow past the expected size, and to take more than one scratch buffer
+        int size = 70_000;
+        var entry = new LinRootEntry("", LinCompoundTag.builder()
+            .putList("bytes", LinTagType.byteTag(), IntStream.range(0, size)
+                .mapToObj(i -> LinByteTag.of((byte) i)).toList())
+            .putList("shorts", LinTagType.shortTag(), IntStream.range(0, size)
+                .mapToObj(i -> LinShortTag.of((short) i)).toList())
+            .putList("ints", LinTagType.intTag(), IntStream.range(0, size)
+                .mapToObj(i -> LinIntTag.of(i * 31)).toList())
+            .putList("longs", LinTagType.longTag(), IntStream.range(0, size)
+                .mapToObj(i -> LinLongTag.of(i * 31L << 32)).toList())
+            .putList("floats", LinTagType.floatTag(), IntStream.range(0, size)
+                .mapToObj(i -> LinFloatTag.of(i / 3.0F)).toList())
+            .putList("doubles", LinTagType.doubleTag(), IntStream.range(0, size)
+                .mapToObj(i -> LinDoubleTag.of(i / 3.0)).toList())
+            .build()
+        );
+        byte[] data = entry.writeToArray();
+        var read = readDirectly(data);
+        assertThat(read).isEqualTo(entry);
+        for (var tag : read.value().value().values()) {
+            assertThat(((LinListTag<?>) tag).value()).isInstanceOf(ListValuePrimitiveList.class);
+        }
+        assertSameAsTokenReader(data);
+    }
+
+    @Test
+    void doesNotTrustNumberListSizes() {
+        // The list claims to be huge, but ends after one element
+        var ex = assertThrows(IllegalStateException.class, () -> readDirectly(
+            rootWithEntry(LinTagId.LIST, LinTagId.LONG.id(), 0x7F, 0xFF, 0xFF, 0xFF, 0, 0, 0, 0, 0, 0, 0, 1)
+        ));
+        assertThat(ex).hasCauseThat().isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void readsDeepNestingWithoutRecursion() throws IOException {
+        int depth = 100_000;
+        ByteArrayDataOutput output = ByteStreams.newDataOutput();
+        output.writeByte(LinTagId.COMPOUND.id());
+        output.writeUTF("");
+        for (int i = 0; i < depth; i++) {
+            output.writeByte(LinTagId.LIST.id());
+            output.writeUTF("");
+            output.writeByte(LinTagId.COMPOUND.id());
+            output.writeInt(1);
+        }
+        output.writeByte(LinTagId.END.id());
+        for (int i = 0; i < depth; i++) {
+            output.writeByte(LinTagId.END.id());
+        }
+
+        LinCompoundTag current = readDirectly(output.toByteArray()).value();
+        for (int i = 0; i < depth; i++) {
+            current = current.getListTag("", LinTagType.compoundTag()).get(0);
+        }
+        assertThat(current.value()).isEmpty();
+    }
+
+    @Test
+    void readsNormalUtf8WhenAllowed() throws IOException {
+        byte[] encoded = "😀".getBytes(StandardCharsets.UTF_8);
+        ByteArrayDataOutput output = ByteStreams.newDataOutput();
+        output.writeByte(LinTagId.COMPOUND.id());
+        output.writeUTF("");
+        output.writeByte(LinTagId.STRING.id());
+        output.writeUTF("emoji");
+        output.writeShort(encoded.length);
+        output.write(encoded);
+        output.writeByte(LinTagId.END.id());
+
+        var options = LinReadOptions.builder().allowNormalUtf8Encoding(true).build();
+        var entry = LinRootEntry.readFrom(LinBinaryIO.read(ByteStreams.newDataInput(output.toByteArray()), options));
+        assertThat(entry.value().getTag("emoji", LinTagType.stringTag()).value()).isEqualTo("😀");
+    }
+
+    @Test
+    void keepsStringsEncodedWhenLazy() throws IOException {
+        byte[] data = loadResource("bigtest.nbt.gz");
+        var options = LinReadOptions.builder().lazyStringDecoding(true).build();
+        var entry = LinRootEntry.readFrom(LinBinaryIO.read(ByteStreams.newDataInput(data), options));
+        var tag = entry.value().getTag("stringTest", LinTagType.stringTag());
+        var encoded = tag.encodedOrNull();
+        assertThat(encoded).isNotNull();
+        assertThat(encoded.isDecoded()).isFalse();
+
+        // Written back byte-for-byte without decoding
+        assertThat(entry.writeToArray()).isEqualTo(data);
+        assertThat(encoded.isDecoded()).isFalse();
+
+        assertThat(entry).isEqualTo(readDirectly(data));
+    }
+
+    @Test
+    void sharesShapesBetweenDocuments() throws IOException {
+        byte[] data = loadResource("bigtest.nbt.gz");
+        var first = readDirectly(data).value().getTag("nested compound test", LinTagType.compoundTag());
+        var second = readDirectly(data).value().getTag("nested compound test", LinTagType.compoundTag());
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(((AbstractCompoundValueMap) second.value()).shape)
+            .isSameInstanceAs(((AbstractCompoundValueMap) first.value()).shape);
+    }
+
+    @Test
+    void exhaustsTheReader() throws IOException {
+        var stream = LinBinaryIO.read(ByteStreams.newDataInput(loadResource("bigtest.nbt.gz")));
+        LinRootEntry.readFrom(stream);
+        assertThat(stream.nextOrNull()).isNull();
+    }
+
+    @Test
+    void readsConcatenatedDocuments() throws IOException {
+        var first = new LinRootEntry("first", LinCompoundTag.builder().putInt("int", 1).build());
+        var second = new LinRootEntry("second", LinCompoundTag.builder().putString("string", "two").build());
+        var output = ByteStreams.newDataOutput();
+        first.writeTo(output);
+        second.writeTo(output);
+        var documents = LinBinaryIO.readAll(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        List<LinRootEntry> read = new ArrayList<>();
+        for (LinStream document; (document = documents.nextOrNull()) != null; ) {
+            read.add(LinRootEntry.readFrom(document));
+            assertThat(document.nextOrNull()).isNull();
+        }
+        assertThat(read).containsExactly(first, second).inOrder();
+    }
+
+    @Test
+    void reusesOneReaderForEveryDocument() throws IOException {
+        var entry = new LinRootEntry("root", LinCompoundTag.builder().putIntArray("ints", new int[]{1, 2}).build());
+        var output = ByteStreams.newDataOutput();
+        for (int i = 0; i < 3; i++) {
+            entry.writeTo(output);
+        }
+        var documents = LinBinaryIO.readAll(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        List<Object> decoders = new ArrayList<>();
+        for (LinStream document; (document = documents.nextOrNull()) != null; ) {
+            var detached = ((DetachableLinStream) document).detach();
+            assertThat(detached).isNotNull();
+            assertThat(DirectBinaryReader.readRootAfterId(detached, null)).isEqualTo(entry);
+            decoders.add(detached.decoder());
+        }
+        assertThat(decoders).hasSize(3);
+        assertThat(decoders.get(0)).isInstanceOf(DirectBinaryReader.class);
+        assertThat(decoders.get(1)).isSameInstanceAs(decoders.get(0));
+        assertThat(decoders.get(2)).isSameInstanceAs(decoders.get(0));
+    }
+
+    @Test
+    void onlyDetachesBeforeReadingStarts() throws IOException {
+        var entry = new LinRootEntry("root", LinCompoundTag.builder().putInt("int", 1).build());
+        var reader = (DetachableLinStream) LinBinaryIO.read(ByteStreams.newDataInput(entry.writeToArray()));
+        assertThat(reader.nextOrNull()).isEqualTo(new LinToken.Name("root", LinTagId.COMPOUND));
+        assertThat(reader.detach()).isNull();
+        // The token stream is unaffected
+        assertThat(reader.nextOrNull()).isEqualTo(new LinToken.CompoundStart());
+    }
+
+    private static byte[] rootWithEntry(LinTagId id, int... payload) {
+        ByteArrayDataOutput output = ByteStreams.newDataOutput();
+        output.writeByte(LinTagId.COMPOUND.id());
+        output.writeUTF("");
+        output.writeByte(id.id());
+        output.writeUTF("entry");
+        for (int b : payload) {
+            output.writeByte(b);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    void rejectsNonCompoundRoot() {
+        var ex = assertThrows(NbtParseException.class, () -> readDirectly(new byte[]{(byte) LinTagId.INT.id()}));
+        assertThat(ex).hasMessageThat().isEqualTo("NBT stream does not start with a compound tag");
+    }
+
+    @Test
+    void rejectsNegativeArraySize() {
+        var ex = assertThrows(NbtParseException.class, () -> readDirectly(
+            rootWithEntry(LinTagId.INT_ARRAY, 0xFF, 0xFF, 0xFF, 0xFF)
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid array size: -1");
+    }
+
+    @Test
+    void rejectsNegativeListSize() {
+        var ex = assertThrows(NbtParseException.class, () -> readDirectly(
+            rootWithEntry(LinTagId.LIST, LinTagId.INT.id(), 0xFF, 0xFF, 0xFF, 0xFF)
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid list size: -1");
+    }
+
+    @Test
+    void rejectsNonEmptyEndList() {
+        var ex = assertThrows(NbtParseException.class, () -> readDirectly(
+            rootWithEntry(LinTagId.LIST, LinTagId.END.id(), 0, 0, 0, 1)
+        ));
+        assertThat(ex).hasMessageThat().isEqualTo("Invalid id: " + LinTagId.END);
+    }
+}
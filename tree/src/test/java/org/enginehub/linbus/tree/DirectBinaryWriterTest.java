@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import com.google.common.io.ByteStreams;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DirectBinaryWriterTest {
+    private static byte[] writeWithTokens(LinRootEntry entry) throws IOException {
+        var output = ByteStreams.newDataOutput();
+        LinBinaryIO.write(output, entry);
+        return output.toByteArray();
+    }
+
+    private static void assertSameAsTokenWriter(LinRootEntry entry) throws IOException {
+        assertThat(entry.writeToArray()).isEqualTo(writeWithTokens(entry));
+    }
+
+    @Test
+    void writesEveryTagType() throws IOException {
+        assertSameAsTokenWriter(new LinRootEntry("root", LinCompoundTag.builder()
+            .putByte("byte", (byte) 1)
+            .putShort("short", (short) -2)
+            .putInt("int", 3)
+            .putLong("long", -4L)
+            .putFloat("float", 5.5F)
+            .putDouble("double", -6.25)
+            .putString("string", "seven")
+            .putByteArray("byteArray", new byte[]{8, 9})
+            .putIntArray("intArray", new int[]{10, -11})
+            .putLongArray("longArray", new long[]{12, Long.MIN_VALUE})
+            .putList("list", LinTagType.intTag(), List.of(LinIntTag.of(14), LinIntTag.of(15)))
+            .putList("emptyList", LinTagType.endTag(), List.of())
+            .putCompound("compound", Map.of("nested", LinStringTag.of("value")))
+            .put("single", LinCompoundTag.of(Map.of("only", LinByteTag.of((byte) 16))))
+            .build()
+        ));
+    }
+
+    @Test
+    void writesLargeCompounds() throws IOException {
+        var builder = LinCompoundTag.builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.putInt("key" + i, i);
+        }
+        assertSameAsTokenWriter(new LinRootEntry("", builder.build()));
+    }
+
+    @Test
+    void writesArraysLargerThanTheBuffer() throws IOException {
+        byte[] bytes = new byte[20_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        assertSameAsTokenWriter(new LinRootEntry("", LinCompoundTag.builder()
+            // Offset the arrays so they don't line up with the buffer
+            .putByte("pad", (byte) 0)
+            .putByteArray("bytes", bytes)
+            .putIntArray("ints", IntStream.range(0, 5_000).map(i -> i * 31).toArray())
+            .putLongArray("longs", IntStream.range(0, 3_000).mapToLong(i -> i * 31L << 32).toArray())
+            .build()
+        ));
+    }
+
+    @Test
+    void writesModifiedUtf8() throws IOException {
+        assertSameAsTokenWriter(new LinRootEntry("\u0000", LinCompoundTag.builder()
+            .putString("ascii", "plain")
+            .putString("twoByte", "ÅÄÖ")
+            .putString("threeByte", "€￿")
+            .putString("surrogates", "😀")
+            .putString("nul", "a\u0000b")
+            .putString("long", "€".repeat(10_000))
+            .build()
+        ));
+    }
+
+    @Test
+    void rejectsStringsThatAreTooLong() {
+        var entry = new LinRootEntry("", LinCompoundTag.builder()
+            .putString("tooLong", "€".repeat(30_000))
+            .build()
+        );
+        assertThrows(UTFDataFormatException.class, () -> entry.writeTo(ByteStreams.newDataOutput()));
+    }
+}
@@ -50,6 +50,55 @@ void roundTripBuilder() {
         assertThat(initial).isEqualTo(initial.toBuilder().build());
     }
 
+    @Test
+    void equalsAndHashCodeImplementation() {
+        SimpleObjectVerifier.assertEqualsHashCodeImplementation(
+            LinCompoundTag.builder().putString("id", "minecraft:stone").putByte("Count", (byte) 1).build(),
+            LinCompoundTag.builder().putString("id", "minecraft:stone").putByte("Count", (byte) 1).build(),
+            LinCompoundTag.builder().putByte("Count", (byte) 1).putString("id", "minecraft:stone").build(),
+            LinCompoundTag.builder().putString("id", "minecraft:stone").putByte("Count", (byte) 2).build()
+        );
+    }
+
+    @Test
+    void comparesCachedHashCodes() {
+        var stone = LinCompoundTag.builder().putString("id", "minecraft:stone").putByte("Count", (byte) 1).build();
+        var dirt = LinCompoundTag.builder().putString("id", "minecraft:dirt").putByte("Count", (byte) 1).build();
+        var moreStone = LinCompoundTag.builder().putString("id", "minecraft:stone").putByte("Count", (byte) 1).build();
+        // Before and after the hashes are known
+        assertThat(stone).isNotEqualTo(dirt);
+        assertThat(stone).isEqualTo(moreStone);
+        assertThat(stone.hashCode()).isEqualTo(stone.value().hashCode());
+        assertThat(dirt.hashCode()).isNotEqualTo(stone.hashCode());
+        assertThat(moreStone.hashCode()).isEqualTo(stone.hashCode());
+        assertThat(stone).isNotEqualTo(dirt);
+        assertThat(stone).isEqualTo(moreStone);
+    }
+
+    @Test
+    void transformLargeCompoundsWithoutCopying() throws IOException {
+        var builder = LinCompoundTag.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.putInt("entry_" + i, i);
+        }
+        var initial = builder.build();
+        var transformed = initial;
+        for (int i = 0; i < 100; i++) {
+            int index = i * 37;
+            transformed = transformed.transformTag("entry_" + index, LinTagType.intTag(), _ -> LinIntTag.of(-index));
+            builder.putInt("entry_" + index, -index);
+        }
+        transformed = transformed.transformTagOrInsert("added", LinTagType.stringTag(), _ -> LinStringTag.of("new"));
+        builder.putString("added", "new");
+
+        assertThat(transformed.value()).isInstanceOf(CompoundValuePersistentMap.class);
+        assertThat(transformed).isEqualTo(builder.build());
+        assertThat(List.copyOf(transformed.value().keySet())).isEqualTo(List.copyOf(builder.build().value().keySet()));
+        assertThat(initial.value()).hasSize(5000);
+        assertThat(transformed.toBuilder().build()).isEqualTo(transformed);
+        TagTestUtil.assertRoundTrip(transformed);
+    }
+
     @Test
     void emptyImplementation() {
         assertThat(LinCompoundTag.empty()).compoundValue().isEmpty();
@@ -86,6 +135,52 @@ void checksForEndTag() {
         assertThat(ex).hasMessageThat().isEqualTo("Cannot add END tag to compound tag");
     }
 
+    @Test
+    void buildersCopyOnWrite() {
+        var builder = LinCompoundTag.builder().putInt("a", 1).putInt("b", 2);
+        var first = builder.build();
+        var second = builder.putInt("a", 3).putInt("c", 4).build();
+        assertThat(first).compoundValue().containsExactly("a", LinIntTag.of(1), "b", LinIntTag.of(2)).inOrder();
+        assertThat(second).compoundValue()
+            .containsExactly("a", LinIntTag.of(3), "b", LinIntTag.of(2), "c", LinIntTag.of(4)).inOrder();
+
+        // Unchanged builders give the tag back, changed ones leave it alone
+        assertThat(second.toBuilder().build()).isSameInstanceAs(second);
+        var derived = second.toBuilder().remove("b").build();
+        assertThat(derived).compoundValue().containsExactly("a", LinIntTag.of(3), "c", LinIntTag.of(4)).inOrder();
+        assertThat(second.value()).hasSize(3);
+        assertThat(second.toBuilder().remove("missing").build()).isSameInstanceAs(second);
+        var single = LinCompoundTag.builder().putInt("a", 1).build();
+        assertThat(single.toBuilder().putInt("b", 2).build())
+            .compoundValue().containsExactly("a", LinIntTag.of(1), "b", LinIntTag.of(2)).inOrder();
+
+        assertThrows(NullPointerException.class, () -> LinCompoundTag.builder().putInt(null, 1));
+    }
+
+    @Test
+    void largeBuildersKeepKeysUnique() {
+        var builder = LinCompoundTag.builder();
+        var expected = new java.util.LinkedHashMap<String, LinTag<?>>();
+        for (int i = 0; i < 100; i++) {
+            builder.putInt("entry_" + i, i);
+            expected.put("entry_" + i, LinIntTag.of(i));
+        }
+        for (int i = 0; i < 100; i += 3) {
+            builder.putInt("entry_" + i, -i);
+            expected.put("entry_" + i, LinIntTag.of(-i));
+        }
+        for (int i = 0; i < 100; i += 7) {
+            builder.remove("entry_" + i);
+            expected.remove("entry_" + i);
+        }
+        builder.putInt("entry_1", 1000).putInt("entry_7", 7);
+        expected.put("entry_1", LinIntTag.of(1000));
+        expected.put("entry_7", LinIntTag.of(7));
+        var tag = builder.build();
+        assertThat(tag.value()).isEqualTo(expected);
+        assertThat(List.copyOf(tag.value().keySet())).isEqualTo(List.copyOf(expected.keySet()));
+    }
+
     @Test
     void builderChecksForEndTag() {
         var ex = assertThrows(
@@ -18,10 +18,16 @@
 
 package org.enginehub.linbus.tree;
 
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.enginehub.linbus.tree.impl.LinTagReader;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.enginehub.linbus.tree.truth.LinTagSubject.assertThat;
@@ -41,6 +47,20 @@ void roundTrip() throws IOException {
         )));
     }
 
+    @Test
+    void equalsAndHashCodeImplementation() {
+        SimpleObjectVerifier.assertEqualsHashCodeImplementation(
+            LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(1), LinIntTag.of(2))),
+            LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(1), LinIntTag.of(2))),
+            LinListTag.builder(LinTagType.intTag()).add(LinIntTag.of(1)).add(LinIntTag.of(2)).build(),
+            LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(2), LinIntTag.of(1)))
+        );
+        var list = LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(1), LinIntTag.of(2)));
+        assertThat(list.hashCode()).isEqualTo(list.value().hashCode());
+        // The hashes are known now
+        assertThat(list).isNotEqualTo(LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(3))));
+    }
+
     @Test
     void roundTripBuilder() {
         var initial = LinListTag.of(LinTagType.stringTag(), List.of(
@@ -78,6 +98,117 @@ void transformByIndex() {
         ).isEqualTo(initial.transformTag(1, _ -> LinStringTag.of("Goodbye...")));
     }
 
+    @Test
+    void transformLargeListsWithoutCopying() throws IOException {
+        var elements = IntStream.range(0, 5000).mapToObj(LinIntTag::of).toList();
+        var initial = LinListTag.of(LinTagType.intTag(), elements);
+        var expected = new java.util.ArrayList<>(elements);
+        var transformed = initial;
+        for (int i = 0; i < 100; i++) {
+            int index = i * 37;
+            transformed = transformed.transformTag(index, t -> LinIntTag.of(-t.valueAsInt()));
+            expected.set(index, LinIntTag.of(-index));
+        }
+        // Number lists keep their primitive array, which is cheap to copy, rather than boxing every element
+        assertThat(transformed.value()).isInstanceOf(ListValuePrimitiveList.class);
+        assertThat(transformed).isEqualTo(LinListTag.of(LinTagType.intTag(), expected));
+        assertThat(initial).isEqualTo(LinListTag.of(LinTagType.intTag(), elements));
+        assertThat(transformed.toBuilder().build()).isEqualTo(transformed);
+        TagTestUtil.assertRoundTrip(transformed);
+
+        var strings = IntStream.range(0, 5000).mapToObj(i -> LinStringTag.of(String.valueOf(i))).toList();
+        var transformedStrings = LinListTag.of(LinTagType.stringTag(), strings);
+        for (int i = 0; i < 100; i++) {
+            transformedStrings = transformedStrings.transformTag(i * 37, t -> LinStringTag.of("-" + t.value()));
+        }
+        assertThat(transformedStrings.value()).isInstanceOf(PersistentVector.class);
+        assertThat(transformedStrings.get(37)).isEqualTo(LinStringTag.of("-37"));
+        assertThat(transformedStrings.get(38)).isSameInstanceAs(strings.get(38));
+        TagTestUtil.assertRoundTrip(transformedStrings);
+
+        var small = LinListTag.of(LinTagType.stringTag(), List.of(LinStringTag.of("1")));
+        assertThat(small.transformTag(0, _ -> LinStringTag.of("2")).value()).isNotInstanceOf(PersistentVector.class);
+        LinListTag<LinIntTag> large = transformed;
+        assertThrows(IndexOutOfBoundsException.class, () -> large.transformTag(5000, t -> t));
+        assertThrows(NullPointerException.class, () -> large.transformTag(0, _ -> null));
+    }
+
+    @Test
+    void numberListsUsePrimitiveArrays() throws IOException {
+        List<LinListTag<?>> lists = List.of(
+            LinListTag.of(LinTagType.byteTag(), List.of(LinByteTag.of((byte) 1), LinByteTag.of((byte) -2))),
+            LinListTag.of(LinTagType.shortTag(), List.of(LinShortTag.of((short) 3), LinShortTag.of((short) -4))),
+            LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(5), LinIntTag.of(-6))),
+            LinListTag.of(LinTagType.longTag(), List.of(LinLongTag.of(7), LinLongTag.of(Long.MIN_VALUE))),
+            LinListTag.of(LinTagType.floatTag(), List.of(LinFloatTag.of(Float.NaN), LinFloatTag.of(-0.0F))),
+            LinListTag.of(LinTagType.doubleTag(), List.of(LinDoubleTag.of(Double.NaN), LinDoubleTag.of(-0.0)))
+        );
+        for (LinListTag<?> list : lists) {
+            assertBehavesLikeTags(list);
+        }
+        // Lists of different number types are never equal, even with the same values
+        assertThat(lists.get(0).value()).isNotEqualTo(LinListTag.of(LinTagType.shortTag(), List.of(
+            LinShortTag.of((short) 1), LinShortTag.of((short) -2)
+        )).value());
+        assertThat(lists.get(4).value()).isNotEqualTo(LinListTag.of(LinTagType.floatTag(), List.of(
+            LinFloatTag.of(Float.NaN), LinFloatTag.of(0.0F)
+        )).value());
+    }
+
+    private static <T extends LinTag<?>> void assertBehavesLikeTags(LinListTag<T> list) throws IOException {
+        assertThat(list.value()).isInstanceOf(ListValuePrimitiveList.class);
+        // The elements behave like the tags they were made from
+        List<T> tags = List.copyOf(list.value());
+        assertThat(list.value()).isEqualTo(tags);
+        assertThat(tags).isEqualTo(list.value());
+        assertThat(list.value().hashCode()).isEqualTo(tags.hashCode());
+        assertThat(list).isEqualTo(LinListTag.of(list.elementType(), tags));
+        assertThat(list.toBuilder().build()).isEqualTo(list);
+        assertThat(list.transformTag(1, _ -> tags.getFirst()).value())
+            .containsExactly(tags.getFirst(), tags.getFirst()).inOrder();
+        assertThat(LinTagReader.readValue(list.linStream(), list.type())).isEqualTo(list);
+        TagTestUtil.assertRoundTrip(list);
+    }
+
+    @Test
+    void keepsOnlyTheNumbers() {
+        var element = LinDoubleTag.of(1.5);
+        var list = LinListTag.of(LinTagType.doubleTag(), List.of(element, LinDoubleTag.of(2.5)));
+        // Element tags are created from the numbers, so they are equal to the tags put in but not the same
+        assertThat(list.get(0)).isEqualTo(element);
+        assertThat(list.value().iterator().next()).isEqualTo(element);
+
+        var changed = list.transformTag(0, _ -> LinDoubleTag.of(3.5));
+        assertThat(changed.value()).isInstanceOf(ListValuePrimitiveList.class);
+        assertThat(changed.getDouble(0)).isEqualTo(3.5);
+        assertThat(changed.getDouble(1)).isEqualTo(2.5);
+        assertThat(list.getDouble(0)).isEqualTo(1.5);
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(2));
+    }
+
+    @Test
+    void getsPrimitiveElements() {
+        assertThat(LinListTag.of(LinTagType.byteTag(), List.of(LinByteTag.of((byte) 1))).getByte(0))
+            .isEqualTo((byte) 1);
+        assertThat(LinListTag.of(LinTagType.shortTag(), List.of(LinShortTag.of((short) 2))).getShort(0))
+            .isEqualTo((short) 2);
+        assertThat(LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(3))).getInt(0)).isEqualTo(3);
+        assertThat(LinListTag.of(LinTagType.longTag(), List.of(LinLongTag.of(4))).getLong(0)).isEqualTo(4);
+        assertThat(LinListTag.of(LinTagType.floatTag(), List.of(LinFloatTag.of(5))).getFloat(0)).isEqualTo(5);
+        assertThat(LinListTag.of(LinTagType.doubleTag(), List.of(LinDoubleTag.of(6))).getDouble(0)).isEqualTo(6);
+
+        var strings = LinListTag.of(LinTagType.stringTag(), List.of(LinStringTag.of("7")));
+        var ex = assertThrows(IllegalStateException.class, () -> strings.getInt(0));
+        assertThat(ex).hasMessageThat().isEqualTo("List is of type STRING, not INT");
+        assertThrows(IllegalStateException.class, () -> strings.getByte(0));
+        assertThrows(IllegalStateException.class, () -> strings.getShort(0));
+        assertThrows(IllegalStateException.class, () -> strings.getLong(0));
+        assertThrows(IllegalStateException.class, () -> strings.getFloat(0));
+        assertThrows(IllegalStateException.class, () -> strings.getDouble(0));
+        var ints = LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(3)));
+        assertThrows(IndexOutOfBoundsException.class, () -> ints.getInt(1));
+    }
+
     @Test
     void transformByIndexOutOfRange() {
         var initial = LinListTag.of(LinTagType.stringTag(), List.of(
@@ -98,6 +229,30 @@ void emptyImplementation() {
         assertThat(empty).isSameInstanceAs(LinListTag.empty(LinTagType.stringTag()));
     }
 
+    @Test
+    void buildersCopyOnWrite() {
+        var builder = LinListTag.builder(LinTagType.intTag()).add(LinIntTag.of(1)).add(LinIntTag.of(2));
+        var first = builder.build();
+        var second = builder.set(0, LinIntTag.of(3)).add(LinIntTag.of(4)).build();
+        assertThat(first.value()).containsExactly(LinIntTag.of(1), LinIntTag.of(2)).inOrder();
+        assertThat(second.value()).containsExactly(LinIntTag.of(3), LinIntTag.of(2), LinIntTag.of(4)).inOrder();
+
+        // Unchanged builders give the tag back, changed ones leave it alone
+        assertThat(second.toBuilder().build()).isSameInstanceAs(second);
+        var derived = second.toBuilder().addAll(List.of(LinIntTag.of(5), LinIntTag.of(6))).build();
+        assertThat(derived.value()).hasSize(5);
+        assertThat(second.value()).hasSize(3);
+        assertThat(second.value().toArray()).asList().isEqualTo(second.value());
+        assertThat(second.value().hashCode()).isEqualTo(List.copyOf(second.value()).hashCode());
+
+        var builderWithoutElements = LinListTag.builder(LinTagType.intTag());
+        assertThrows(IndexOutOfBoundsException.class, () -> builderWithoutElements.set(0, LinIntTag.of(1)));
+        var ex = assertThrows(
+            IllegalArgumentException.class, () -> LinListTag.builderWithExpectedSize(LinTagType.intTag(), -1)
+        );
+        assertThat(ex).hasMessageThat().isEqualTo("Illegal Capacity: -1");
+    }
+
     @Test
     void builderReturnsEmptySingleton() {
         assertThat(LinListTag.builder(LinTagType.stringTag()).build())
@@ -184,4 +339,53 @@ void builderWithExpectedSizeBuildsList() {
             LinStringTag.of("World!")
         )));
     }
+
+    @Test
+    void readsElementsInParallel() throws IOException {
+        var list = LinListTag.of(LinTagType.compoundTag(), IntStream.range(0, 5000)
+            .mapToObj(i -> LinCompoundTag.builder().putInt("id", i).putIntArray("data", new int[]{i, -i}).build())
+            .toList());
+
+        var elements = LinListTag.readElements(list.linStream(), LinTagType.compoundTag()).parallel().toList();
+
+        assertThat(elements).isEqualTo(list.value());
+    }
+
+    @Test
+    void readsElementsWithoutOptionalInfo() throws IOException {
+        LinStream tokens = LinStream.of(
+            new LinToken.ListStart(),
+            new LinToken.ListStart(),
+            new LinToken.String("a"),
+            new LinToken.ListEnd(),
+            new LinToken.ListEnd()
+        );
+
+        var elements = LinListTag.readElements(tokens, LinTagType.listTag()).toList();
+
+        assertThat(elements).containsExactly(LinListTag.of(LinTagType.stringTag(), List.of(LinStringTag.of("a"))));
+    }
+
+    @Test
+    void readElementsRejectsOtherTypes() {
+        var list = LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(1)));
+        var thrown = assertThrows(
+            NbtParseException.class, () -> LinListTag.readElements(list.linStream(), LinTagType.longTag())
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Expected list of LONG, got list of INT");
+
+        LinStream undeclared = LinStream.of(new LinToken.ListStart(), new LinToken.Int(1), new LinToken.ListEnd());
+        thrown = assertThrows(
+            NbtParseException.class, () -> LinListTag.readElements(undeclared, LinTagType.longTag()).toList()
+        );
+        assertThat(thrown).hasMessageThat().isEqualTo("Expected LONG value, got Int[value=1]");
+    }
+
+    @Test
+    void readElementsOfEmptyLists() throws IOException {
+        var empty = LinListTag.empty(LinTagType.endTag());
+        assertThat(LinListTag.readElements(empty.linStream(), LinTagType.intTag()).toList()).isEmpty();
+        LinStream tokens = LinStream.of(new LinToken.ListStart(0, LinTagId.INT), new LinToken.ListEnd());
+        assertThat(LinListTag.readElements(tokens, LinTagType.intTag()).toList()).isEmpty();
+    }
 }
@@ -18,10 +18,13 @@
 
 package org.enginehub.linbus.tree;
 
+import org.enginehub.linbus.stream.ModifiedUtf8String;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 
+import static com.google.common.truth.Truth.assertThat;
+
 public class LinStringTagTest {
     @Test
     void roundTrip() throws IOException {
@@ -29,4 +32,21 @@ void roundTrip() throws IOException {
         TagTestUtil.assertRoundTrip(LinStringTag.of("Hello World!"));
         TagTestUtil.assertRoundTrip(LinStringTag.of("ⓝⓘⓒⓔ ⓜⓔⓜⓔ!"));
     }
+
+    @Test
+    void encodedValueIsDecodedOnAccess() throws IOException {
+        var encoded = ModifiedUtf8String.ofEncoded(new byte[]{'h', 'i', (byte) 0xC0, (byte) 0x80});
+        var tag = LinStringTag.of(encoded);
+        assertThat(tag.encodedOrNull()).isSameInstanceAs(encoded);
+        var sameBytes = ModifiedUtf8String.ofEncoded(new byte[]{'h', 'i', (byte) 0xC0, (byte) 0x80});
+        assertThat(tag).isEqualTo(LinStringTag.of(sameBytes));
+        assertThat(encoded.isDecoded()).isFalse();
+
+        assertThat(tag.value()).isEqualTo("hi\u0000");
+        assertThat(tag).isEqualTo(LinStringTag.of("hi\u0000"));
+        assertThat(tag.hashCode()).isEqualTo(LinStringTag.of("hi\u0000").hashCode());
+        assertThat(tag).isNotEqualTo(LinStringTag.of(ModifiedUtf8String.of("hi")));
+        assertThat(LinStringTag.of("hi").encodedOrNull()).isNull();
+        TagTestUtil.assertRoundTrip(tag);
+    }
 }
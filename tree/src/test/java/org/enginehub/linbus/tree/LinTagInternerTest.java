@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinTagInternerTest {
+    private static byte[] loadResource(String name) throws IOException {
+        try (var stream = new GZIPInputStream(Resources.asByteSource(Resources.getResource(name)).openStream())) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static LinCompoundTag item(String id, int count) {
+        return LinCompoundTag.builder().putString("id", id).putByte("Count", (byte) count).build();
+    }
+
+    @Test
+    void sharesEqualTags() {
+        var interner = LinTagInterner.create();
+        var first = interner.intern(LinByteTag.of((byte) 1));
+        assertThat(interner.intern(LinByteTag.of((byte) 1))).isSameInstanceAs(first);
+        var air = interner.intern(LinStringTag.of("minecraft:air"));
+        assertThat(interner.intern(LinStringTag.of("minecraft:air"))).isSameInstanceAs(air);
+        assertThat(interner.intern(LinByteTag.of((byte) 2))).isNotSameInstanceAs(first);
+        assertThat(interner.size()).isEqualTo(3);
+    }
+
+    @Test
+    void internsBottomUp() {
+        var interner = LinTagInterner.create();
+        var stone = interner.intern(item("minecraft:stone", 1));
+        assertThat(interner.intern(item("minecraft:stone", 1))).isSameInstanceAs(stone);
+
+        // Only the count differs, so the id is shared
+        var moreStone = interner.intern(item("minecraft:stone", 2));
+        assertThat(moreStone).isEqualTo(item("minecraft:stone", 2));
+        assertThat(moreStone.getTag("id", LinTagType.stringTag()))
+            .isSameInstanceAs(stone.getTag("id", LinTagType.stringTag()));
+
+        var inventory = LinListTag.of(LinTagType.compoundTag(), List.of(item("minecraft:stone", 1), item("a", 2)));
+        var interned = interner.intern(inventory);
+        assertThat(interned).isEqualTo(inventory);
+        assertThat(interned.value().get(0)).isSameInstanceAs(stone);
+        assertThat(interned.value().get(1).getTag("Count", LinTagType.byteTag()))
+            .isSameInstanceAs(moreStone.getTag("Count", LinTagType.byteTag()));
+        assertThat(interner.intern(inventory)).isSameInstanceAs(interned);
+    }
+
+    @Test
+    void keepsTheTagIfItIsNew() {
+        var interner = LinTagInterner.create();
+        var stone = item("minecraft:stone", 1);
+        assertThat(interner.intern(stone)).isSameInstanceAs(stone);
+        var list = LinListTag.of(LinTagType.intTag(), List.of(LinIntTag.of(1)));
+        assertThat(interner.intern(list)).isSameInstanceAs(list);
+    }
+
+    @Test
+    void neverKeepsArraysOrLargeContainers() {
+        var interner = LinTagInterner.create();
+        var ints = LinIntArrayTag.of(1, 2, 3);
+        assertThat(interner.intern(LinIntArrayTag.of(1, 2, 3))).isNotSameInstanceAs(interner.intern(ints));
+
+        // The compound holds an array, so only its other entries are shared
+        var first = interner.intern(LinCompoundTag.builder().putString("id", "a").put("data", ints).build());
+        var second = interner.intern(LinCompoundTag.builder().putString("id", "a").put("data", ints).build());
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(second.getTag("id", LinTagType.stringTag()))
+            .isSameInstanceAs(first.getTag("id", LinTagType.stringTag()));
+
+        var large = LinListTag.of(LinTagType.intTag(), IntStream.range(0, LinTagInterner.MAX_CONTAINER_SIZE + 1)
+            .mapToObj(LinIntTag::of)
+            .toList());
+        var internedLarge = interner.intern(large);
+        assertThat(interner.intern(LinListTag.of(LinTagType.intTag(), large.value())))
+            .isNotSameInstanceAs(internedLarge);
+        // Number lists hold numbers rather than tags, so they are left as they are instead of boxing every element
+        assertThat(internedLarge.value()).isSameInstanceAs(large.value());
+        assertThat(internedLarge.value().get(0)).isEqualTo(LinIntTag.of(0));
+
+        // A container of an unshared container is not shared either
+        var nested = interner.intern(LinListTag.of(LinTagType.listTag(), List.of(large)));
+        assertThat(interner.intern(LinListTag.of(LinTagType.listTag(), List.of(large)))).isNotSameInstanceAs(nested);
+        assertThat(interner.intern(LinEndTag.instance())).isSameInstanceAs(LinEndTag.instance());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTags() {
+        var interner = LinTagInterner.create(16);
+        for (int i = 0; i < 1000; i++) {
+            interner.intern(LinIntTag.of(i));
+        }
+        assertThat(interner.size()).isAtMost(16);
+        interner.clear();
+        assertThat(interner.size()).isEqualTo(0);
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> LinTagInterner.create(0));
+        assertThat(ex).hasMessageThat().isEqualTo("Maximum size must be positive: 0");
+    }
+
+    @Test
+    void sharesAcrossThreads() throws ExecutionException, InterruptedException {
+        var interner = LinTagInterner.create();
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var futures = new ArrayList<Future<List<LinCompoundTag>>>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> IntStream.range(0, 500)
+                    .mapToObj(i -> interner.intern(item("minecraft:item_" + i, i)))
+                    .toList()));
+            }
+            List<LinCompoundTag> first = futures.getFirst().get();
+            for (var future : futures) {
+                List<LinCompoundTag> items = future.get();
+                for (int i = 0; i < items.size(); i++) {
+                    assertThat(items.get(i)).isSameInstanceAs(first.get(i));
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void sharesTagsAcrossReadTrees(boolean direct) throws IOException {
+        byte[] data = loadResource("bigtest.nbt.gz");
+        var interner = LinTagInterner.create();
+        var entries = new ArrayList<LinRootEntry>();
+        for (int i = 0; i < 2; i++) {
+            LinStream reader = LinBinaryIO.read(ByteStreams.newDataInput(data));
+            // Wrapping the stream hides the binary reader, forcing the token path
+            entries.add(LinRootEntry.readFrom(direct ? reader : reader::nextOrNull, interner));
+        }
+        var expected = LinRootEntry.readFrom(LinBinaryIO.read(ByteStreams.newDataInput(data)));
+        assertThat(entries.get(0)).isEqualTo(expected);
+        assertThat(entries.get(1)).isEqualTo(expected);
+
+        LinCompoundTag first = entries.get(0).value();
+        LinCompoundTag second = entries.get(1).value();
+        assertThat(second).isNotSameInstanceAs(first);
+        for (String name : List.of("nested compound test", "listTest (compound)", "stringTest", "longTest")) {
+            assertThat(second.value().get(name)).isSameInstanceAs(first.value().get(name));
+        }
+        String arrayName = first.value().keySet().stream().filter(k -> k.startsWith("byteArrayTest")).findFirst()
+            .orElseThrow();
+        assertThat(second.value().get(arrayName)).isNotSameInstanceAs(first.value().get(arrayName));
+    }
+}
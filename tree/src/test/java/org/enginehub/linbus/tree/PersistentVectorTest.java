@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PersistentVectorTest {
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 31, 32, 33, 1024, 1025, 32 * 32 * 32 + 1})
+    void copiesLists(int size) {
+        var vector = PersistentVector.copyOf(range(size));
+        assertThat(vector).hasSize(size);
+        assertThat(vector).containsExactlyElementsIn(range(size)).inOrder();
+        for (int i = 0; i < size; i++) {
+            assertThat(vector.get(i)).isEqualTo(i);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(size));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(-1));
+        assertThat(PersistentVector.copyOf(vector)).isSameInstanceAs(vector);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 5, 32, 1000})
+    void matchesAListWhenChanged(int size) {
+        var random = new Random(size);
+        var expected = new ArrayList<>(range(size));
+        var vector = PersistentVector.copyOf(expected);
+        for (int i = 0; i < 5000; i++) {
+            if (expected.isEmpty() || random.nextBoolean()) {
+                expected.add(-i);
+                vector = vector.plus(-i);
+            } else {
+                int index = random.nextInt(expected.size());
+                expected.set(index, i);
+                vector = vector.with(index, i);
+            }
+        }
+        assertThat(vector).containsExactlyElementsIn(expected).inOrder();
+        assertThat(vector).isEqualTo(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(vector.get(i)).isEqualTo(expected.get(i));
+        }
+    }
+
+    @Test
+    void leavesTheOriginalAlone() {
+        var original = PersistentVector.copyOf(range(100));
+        var changed = original.with(50, -1).plus(100);
+        assertThat(original).isEqualTo(range(100));
+        assertThat(changed.get(50)).isEqualTo(-1);
+        assertThat(changed).hasSize(101);
+        assertThrows(IndexOutOfBoundsException.class, () -> original.with(100, 0));
+    }
+
+    @Test
+    void isImmutable() {
+        var vector = PersistentVector.copyOf(range(3));
+        assertThrows(UnsupportedOperationException.class, () -> vector.set(0, 1));
+        assertThrows(UnsupportedOperationException.class, () -> vector.add(1));
+        assertThrows(UnsupportedOperationException.class, () -> vector.remove(0));
+        var iterator = vector.iterator();
+        iterator.next();
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+        iterator.next();
+        iterator.next();
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+}
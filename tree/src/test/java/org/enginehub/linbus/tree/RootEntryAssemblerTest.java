@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) EngineHub <https://enginehub.org>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.linbus.tree;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import org.enginehub.linbus.common.LinTagId;
+import org.enginehub.linbus.stream.LinBinaryIO;
+import org.enginehub.linbus.stream.LinFlow;
+import org.enginehub.linbus.stream.LinStream;
+import org.enginehub.linbus.stream.LinTokenSink;
+import org.enginehub.linbus.stream.exception.NbtParseException;
+import org.enginehub.linbus.stream.token.LinToken;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RootEntryAssemblerTest {
+    private static byte[] loadResource(String name) throws IOException {
+        try (var stream = new GZIPInputStream(Resources.asByteSource(Resources.getResource(name)).openStream())) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static LinRootEntry assemble(List<LinToken> tokens) throws IOException {
+        LinTokenSink<LinRootEntry> sink = LinRootEntry.sink();
+        for (LinToken token : tokens) {
+            sink.accept(token);
+        }
+        return sink.finish();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"all-types.nbt.gz", "bigtest.nbt.gz"})
+    void assemblesPublishedDocuments(String name) throws Exception {
+        byte[] data = loadResource(name);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var subscriber = LinFlow.subscriber(LinRootEntry.sink());
+            LinFlow.publisher(LinBinaryIO.read(ByteStreams.newDataInput(data)), executor).subscribe(subscriber);
+            assertThat(subscriber.result().get())
+                .isEqualTo(LinRootEntry.readFrom(LinBinaryIO.read(ByteStreams.newDataInput(data))));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void assemblesTokensWithoutOptionalInfo() throws IOException {
+        int[] ints = IntStream.range(0, 70_000).toArray();
+        var entry = assemble(List.of(
+            new LinToken.Name("root"),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("empty"),
+            new LinToken.ListStart(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("typedEmpty"),
+            new LinToken.ListStart(0, LinTagId.STRING),
+            new LinToken.ListEnd(),
+            new LinToken.Name("nested"),
+            new LinToken.ListStart(),
+            new LinToken.ListStart(),
+            new LinToken.Short((short) 1),
+            new LinToken.ListEnd(),
+            new LinToken.ListStart(),
+            new LinToken.Short((short) 2),
+            new LinToken.ListEnd(),
+            new LinToken.ListEnd(),
+            new LinToken.Name("bytes"),
+            new LinToken.ByteArrayStart(),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{1, 2}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayContent(ByteBuffer.wrap(new byte[]{3}).asReadOnlyBuffer()),
+            new LinToken.ByteArrayEnd(),
+            new LinToken.Name("ints"),
+            new LinToken.IntArrayStart(ints.length),
+            new LinToken.IntArrayContent(IntBuffer.wrap(ints, 0, 50_000).asReadOnlyBuffer()),
+            new LinToken.IntArrayContent(IntBuffer.wrap(ints, 50_000, 20_000).asReadOnlyBuffer()),
+            new LinToken.IntArrayEnd(),
+            new LinToken.Name("longs"),
+            new LinToken.LongArrayStart(),
+            new LinToken.LongArrayContent(LongBuffer.wrap(new long[]{4, 5}).asReadOnlyBuffer()),
+            new LinToken.LongArrayEnd(),
+            new LinToken.Name("values"),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("int"),
+            new LinToken.Int(6),
+            new LinToken.Name("long"),
+            new LinToken.Long(7),
+            new LinToken.Name("float"),
+            new LinToken.Float(8),
+            new LinToken.Name("double"),
+            new LinToken.Double(9),
+            new LinToken.Name("string"),
+            new LinToken.String("ten"),
+            new LinToken.CompoundEnd(),
+            new LinToken.CompoundEnd()
+        ));
+        assertThat(entry).isEqualTo(new LinRootEntry("root", LinCompoundTag.builder()
+            .put("empty", LinListTag.empty(LinTagType.endTag()))
+            .put("typedEmpty", LinListTag.empty(LinTagType.stringTag()))
+            .putList("nested", LinTagType.<LinShortTag>listTag(), List.of(
+                LinListTag.of(LinTagType.shortTag(), List.of(LinShortTag.of((short) 1))),
+                LinListTag.of(LinTagType.shortTag(), List.of(LinShortTag.of((short) 2)))
+            ))
+            .putByteArray("bytes", new byte[]{1, 2, 3})
+            .putIntArray("ints", ints)
+            .putLongArray("longs", new long[]{4, 5})
+            .putCompound("values", LinCompoundTag.builder()
+                .putInt("int", 6)
+                .putLong("long", 7)
+                .putFloat("float", 8)
+                .putDouble("double", 9)
+                .putString("string", "ten")
+                .build()
+                .value())
+            .build()
+        ));
+    }
+
+    private static void assertRejected(String message, LinToken... tokens) {
+        var ex = assertThrows(NbtParseException.class, () -> assemble(List.of(tokens)));
+        assertThat(ex).hasMessageThat().isEqualTo(message);
+    }
+
+    @Test
+    void rejectsInvalidTokens() {
+        var root = new LinToken.Name("root", LinTagId.COMPOUND);
+        var start = new LinToken.CompoundStart();
+        assertRejected("Expected root name, got CompoundStart[]", start);
+        assertRejected("Expected root name, got Name[name=root, id=Optional[INT[id=3]]]",
+            new LinToken.Name("root", LinTagId.INT));
+        assertRejected("Expected compound tag for root tag, got Int[value=1]", root, new LinToken.Int(1));
+        assertRejected("Expected name, got Int[value=1]", root, start, new LinToken.Int(1));
+        assertRejected("Unexpected name: b", root, start, new LinToken.Name("a"), new LinToken.Name("b"));
+        assertRejected("Unexpected name: a", root, start, new LinToken.Name("l"), new LinToken.ListStart(),
+            new LinToken.Name("a"));
+        assertRejected("Expected value for a, got CompoundEnd[]", root, start, new LinToken.Name("a"),
+            new LinToken.CompoundEnd());
+        assertRejected("Expected name, got ListEnd[]", root, start, new LinToken.ListEnd());
+        assertRejected("Unexpected token: CompoundEnd[]", root, start, new LinToken.Name("l"),
+            new LinToken.ListStart(), new LinToken.CompoundEnd());
+        assertRejected("Expected INT_ARRAY content, got LongArrayEnd[]", root, start, new LinToken.Name("a"),
+            new LinToken.IntArrayStart(), new LinToken.LongArrayEnd());
+        assertRejected("Expected the end of the root, got Int[value=1]", root, start, new LinToken.CompoundEnd(),
+            new LinToken.Int(1));
+        assertRejected("Tokens ended before the end of the root value", root, start);
+    }
+
+    @Test
+    void rejectsMixedLists() {
+        var tokens = new ArrayList<LinToken>(List.of(
+            new LinToken.Name("root"),
+            new LinToken.CompoundStart(),
+            new LinToken.Name("l"),
+            new LinToken.ListStart(),
+            new LinToken.Int(1),
+            new LinToken.Long(2),
+            new LinToken.ListEnd()
+        ));
+        var ex = assertThrows(IllegalArgumentException.class, () -> assemble(tokens));
+        assertThat(ex).hasMessageThat().isEqualTo("Element is not of type INT but LONG");
+    }
+
+    @Test
+    void assemblesStreamsOfTrees() throws IOException {
+        var entry = new LinRootEntry("root", LinCompoundTag.builder().putInt("a", 1).build());
+        var tokens = new ArrayList<LinToken>();
+        LinStream stream = entry.linStream();
+        for (LinToken token; (token = stream.nextOrNull()) != null; ) {
+            tokens.add(token);
+        }
+        assertThat(assemble(tokens)).isEqualTo(entry);
+    }
+}